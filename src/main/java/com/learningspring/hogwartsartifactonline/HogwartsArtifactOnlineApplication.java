@@ -1,10 +1,14 @@
 package com.learningspring.hogwartsartifactonline;
 
 import com.learningspring.hogwartsartifactonline.artifact.utils.IdWorker;
+import com.learningspring.hogwartsartifactonline.artifact.utils.WorkerIdLease;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 
+import java.time.Duration;
+
 @SpringBootApplication
 public class HogwartsArtifactOnlineApplication {
 
@@ -13,8 +17,8 @@ public class HogwartsArtifactOnlineApplication {
     }
 
     @Bean
-    public IdWorker idWorker() {
-        return new IdWorker(1, 1);
+    public IdWorker idWorker(WorkerIdLease workerIdLease, @Value("${artifact.id-worker.max-clock-drift}") Duration maxClockDrift) {
+        return new IdWorker(workerIdLease.workerId(), workerIdLease.datacenterId(), maxClockDrift, workerIdLease::isHeld);
     }
 
 }
@@ -1,9 +1,12 @@
 package com.learningspring.hogwartsartifactonline.artifact;
 
+import com.learningspring.hogwartsartifactonline.artifact.converter.ArtifactIdConverter;
 import com.learningspring.hogwartsartifactonline.wizard.Wizard;
 import jakarta.persistence.*;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.io.Serializable;
+import java.time.Instant;
 
 @Entity
 public class Artifact implements Serializable {
@@ -11,6 +14,7 @@ public class Artifact implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
+    @Convert(converter = ArtifactIdConverter.class)
     private String id;
 
     private String name;
@@ -22,6 +26,12 @@ public class Artifact implements Serializable {
     @ManyToOne
     private Wizard owner;
 
+    @Version
+    private Long version;
+
+    @UpdateTimestamp
+    private Instant updatedAt;
+
     public Artifact() {
     }
 
@@ -64,4 +74,20 @@ public class Artifact implements Serializable {
     public void setOwner(Wizard owner) {
         this.owner = owner;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
 }
@@ -1,29 +1,66 @@
 package com.learningspring.hogwartsartifactonline.artifact;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.learningspring.hogwartsartifactonline.artifact.converter.ArtifactDtoToArtifactConverter;
 import com.learningspring.hogwartsartifactonline.artifact.converter.ArtifactToArtifactDtoConverter;
+import com.learningspring.hogwartsartifactonline.artifact.dto.ArtifactBatchOperation;
+import com.learningspring.hogwartsartifactonline.artifact.dto.ArtifactBatchResult;
+import com.learningspring.hogwartsartifactonline.artifact.cache.SearchResultCache;
 import com.learningspring.hogwartsartifactonline.artifact.dto.ArtifactDto;
+import com.learningspring.hogwartsartifactonline.artifact.dto.SemanticSearchRequest;
+import com.learningspring.hogwartsartifactonline.artifact.summary.SummaryJob;
+import com.learningspring.hogwartsartifactonline.artifact.summary.SummaryJobService;
+import com.learningspring.hogwartsartifactonline.artifact.utils.ArtifactIds;
+import com.learningspring.hogwartsartifactonline.artifact.utils.CursorCodec;
 import com.learningspring.hogwartsartifactonline.client.imagestorage.ImageStorageClient;
+import com.learningspring.hogwartsartifactonline.system.ContentCodings;
+import com.learningspring.hogwartsartifactonline.system.CursorPage;
+import com.learningspring.hogwartsartifactonline.system.ETags;
 import com.learningspring.hogwartsartifactonline.system.Result;
+import com.learningspring.hogwartsartifactonline.system.SlicePage;
 import com.learningspring.hogwartsartifactonline.system.StatusCode;
+import com.learningspring.hogwartsartifactonline.system.TotalMode;
+import com.learningspring.hogwartsartifactonline.system.exception.InvalidArtifactIdException;
 import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Window;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("${api.endpoint.base-url}/artifacts")
 public class ArtifactController {
 
+    private static final int MAX_CURSOR_LIMIT = 2000; // same as Spring Data's default max page size
+
+    // Caches may store the reads of this public API but must revalidate them, which the ETags make cheap
+    private static final String CACHE_CONTROL = CacheControl.noCache().cachePublic().getHeaderValue();
+
     private final ArtifactService artifactService;
 
     private final ArtifactToArtifactDtoConverter artifactToArtifactDtoConverter;
@@ -34,35 +71,75 @@ public class ArtifactController {
 
     private final ImageStorageClient imageStorageClient;
 
+    private final ObjectMapper objectMapper;
+
+    private final SummaryJobService summaryJobService;
+
     public ArtifactController(ArtifactService artifactService,
             ArtifactToArtifactDtoConverter artifactToArtifactDtoConverter,
             ArtifactDtoToArtifactConverter artifactDtoToArtifactConverter,
             MeterRegistry meterRegistry,
-            ImageStorageClient imageStorageClient) {
+            ImageStorageClient imageStorageClient,
+            ObjectMapper objectMapper,
+            SummaryJobService summaryJobService) {
         this.artifactService = artifactService;
         this.artifactToArtifactDtoConverter = artifactToArtifactDtoConverter;
         this.artifactDtoToArtifactConverter = artifactDtoToArtifactConverter;
         this.meterRegistry = meterRegistry;
         this.imageStorageClient = imageStorageClient;
+        this.objectMapper = objectMapper;
+        this.summaryJobService = summaryJobService;
     }
 
+    /**
+     * The ETag is computed from the cached ArtifactDto, so a revalidation is answered from the ArtifactCache
+     * with a 304 and no body.
+     */
     @GetMapping("/{artifactId}")
-    public Result findArtifactById(@PathVariable String artifactId) {
-        Artifact foundArtifact = this.artifactService.findById(artifactId);
+    public Result findArtifactById(@PathVariable String artifactId, ServletWebRequest webRequest) {
+        ArtifactDto artifactDto = this.artifactService.findDtoById(artifactId);
         this.meterRegistry.counter("artifact.id." + artifactId).increment();
-        ArtifactDto artifactDto = this.artifactToArtifactDtoConverter.convert(foundArtifact);
+        if (this.checkNotModified(webRequest, ETags.strong(artifactDto))) {
+            return null;
+        }
         return new Result(true, StatusCode.SUCCESS, "Find One Success", artifactDto);
     }
 
     @GetMapping
-    public Result findAllArtifacts(Pageable pageable) {
-        Page<Artifact> artifactPage = this.artifactService.findAll(pageable);
+    public Result findAllArtifacts(Pageable pageable,
+            @RequestParam(defaultValue = "EXACT") TotalMode total,
+            ServletWebRequest webRequest) {
+        // An estimated total may change without a write, so those pages can't be tagged with the catalog version
+        if (total != TotalMode.ESTIMATED && this.checkCatalogNotModified(webRequest)) {
+            return null;
+        }
 
-        Page<ArtifactDto> artifactDtoPage = artifactPage
-                .map(this.artifactToArtifactDtoConverter::convert);
+        if (total != TotalMode.EXACT) {
+            return new Result(true, StatusCode.SUCCESS, "Find All Success", this.findSlicePage(Map.of(), pageable, total));
+        }
+
+        Page<ArtifactDto> artifactDtoPage = this.artifactService.findAllDtos(pageable);
         return new Result(true, StatusCode.SUCCESS, "Find All Success", artifactDtoPage);
     }
 
+    /**
+     * Cursor mode, selected by the limit parameter. Pass the returned "next" cursor as "after" to get the next page.
+     */
+    @GetMapping(params = "limit")
+    public Result findAllArtifactsByCursor(@RequestParam int limit,
+            @RequestParam(required = false) String after,
+            ServletWebRequest webRequest) {
+        // Decoded first, so a malformed cursor is a 400 even if the catalog hasn't changed
+        KeysetScrollPosition position = CursorCodec.decode(after);
+        if (this.checkCatalogNotModified(webRequest)) {
+            return null;
+        }
+
+        int boundedLimit = this.boundedLimit(limit);
+        Window<Artifact> artifactWindow = this.artifactService.findAll(position, boundedLimit);
+        return new Result(true, StatusCode.SUCCESS, "Find All Success", this.toCursorPage(artifactWindow, boundedLimit));
+    }
+
     @PostMapping()
     public Result addArtifact(@RequestBody @Valid ArtifactDto artifactDto) {
         Artifact newArtifact = this.artifactDtoToArtifactConverter.convert(artifactDto);
@@ -71,6 +148,16 @@ public class ArtifactController {
         return new Result(true, StatusCode.SUCCESS, "Add Success", savedArtifactDto);
     }
 
+    /**
+     * Creates, updates and deletes up to 1000 artifacts in one request, see ArtifactService.batch.
+     * The data holds one ArtifactBatchResult per operation, in the same order.
+     */
+    @PostMapping("/batch")
+    public Result batchArtifacts(@RequestBody List<ArtifactBatchOperation> operations) {
+        List<ArtifactBatchResult> results = this.artifactService.batch(operations);
+        return new Result(true, StatusCode.SUCCESS, "Batch Success", results);
+    }
+
     @PutMapping("/{artifactId}")
     public Result updateArtifact(@PathVariable String artifactId, @RequestBody @Valid ArtifactDto artifactDto) {
         Artifact update = this.artifactDtoToArtifactConverter.convert(artifactDto);
@@ -86,25 +173,135 @@ public class ArtifactController {
     }
 
     @GetMapping("/summary")
-    public Result summarizeArtifacts() throws JsonProcessingException {
-        List<ArtifactDto> artifactDtos = this.artifactService.findAll()
-                .stream()
-                .map(this.artifactToArtifactDtoConverter::convert)
-                .toList();
+    public Result summarizeArtifacts(ServletWebRequest webRequest) {
+        if (this.checkCatalogNotModified(webRequest)) {
+            return null; // the client's summary is still about the current catalog, no need to ask the model again
+        }
 
+        List<ArtifactDto> artifactDtos = this.artifactService.findAllDtos();
         String summary = this.artifactService.summarize(artifactDtos);
 
         return new Result(true, StatusCode.SUCCESS, "Summarize Success", summary);
     }
 
+    /**
+     * Streams the summary as server-sent events while the model generates it: a data event per token, then a done
+     * event, or an error event if the summary fails in any way once the response has started.
+     * The catalog is read before the stream starts; the stream itself runs on the MVC async executor.
+     */
+    @GetMapping(value = "/summary/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSummary() {
+        List<ArtifactDto> artifactDtos = this.artifactService.findAllDtos();
+
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+            try {
+                this.artifactService.summarize(artifactDtos, token -> writeEvent(writer, null, token));
+                writeEvent(writer, "done", "");
+            } catch (UncheckedIOException e) {
+                throw e.getCause(); // the client went away, there is no one to tell
+            } catch (RuntimeException e) {
+                // e.g., the completion failed, the partial summaries don't fit, or the rate limiter was interrupted
+                writeEvent(writer, "error", e.getMessage() != null ? e.getMessage() : "The summary could not be generated");
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM) // not set from produces for a StreamingResponseBody
+                .cacheControl(CacheControl.noCache())
+                .header("X-Accel-Buffering", "no") // stops proxies such as nginx from buffering the events
+                .body(body);
+    }
+
+    /**
+     * Starts generating a summary in the background and returns the job right away; poll it with its id.
+     * Requests made while the catalog doesn't change share the same job.
+     */
+    @PostMapping("/summary/jobs")
+    public Result submitSummaryJob() {
+        SummaryJob summaryJob = this.summaryJobService.submit();
+        return new Result(true, StatusCode.SUCCESS, "Submit Success", summaryJob);
+    }
+
+    @GetMapping("/summary/jobs/{jobId}")
+    public Result findSummaryJob(@PathVariable String jobId) {
+        SummaryJob summaryJob = this.summaryJobService.findById(jobId);
+        return new Result(true, StatusCode.SUCCESS, "Find One Success", summaryJob);
+    }
+
+    /**
+     * Streams the catalog as newline-delimited JSON (one ArtifactDto per line, in id order) instead of a Result,
+     * so the response is written while the rows are read and never held in memory. Pass the last exported id
+     * as "since" to resume or to export only the artifacts added since then.
+     */
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public void exportArtifacts(@RequestParam(required = false) String since,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+        if (since != null && !ArtifactIds.isValid(since)) {
+            throw new InvalidArtifactIdException(since); // before the response starts, so it can still be a 400
+        }
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        boolean gzip = ContentCodings.acceptsGzip(acceptEncoding);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        OutputStream responseStream = gzip ? new GZIPOutputStream(response.getOutputStream(), 8192) : response.getOutputStream();
+        try (OutputStream out = new BufferedOutputStream(responseStream, 8192)) {
+            this.artifactService.export(since, artifactDto -> {
+                try {
+                    out.write(this.objectMapper.writeValueAsBytes(artifactDto));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e); // e.g., the client went away, which rolls back the read-only transaction
+                }
+            });
+        }
+    }
+
     @PostMapping("/search")
-    public Result findArtifactsByCriteria(@RequestBody Map<String, String> searchCriteria, Pageable pageable) {
+    public Result findArtifactsByCriteria(@RequestBody Map<String, String> searchCriteria,
+            Pageable pageable,
+            @RequestParam(defaultValue = "EXACT") TotalMode total) {
+        if (total != TotalMode.EXACT) {
+            return new Result(true, StatusCode.SUCCESS, "Search Success", this.findSlicePage(searchCriteria, pageable, total));
+        }
+
         Page<Artifact> artifactPage = this.artifactService.findByCriteria(searchCriteria, pageable);
-        Page<ArtifactDto> artifactDtoPage = artifactPage.map(this.artifactToArtifactDtoConverter::convert);
+        Map<Integer, Integer> numberOfArtifactsByOwnerId = this.artifactService.countArtifactsByOwner(artifactPage.getContent());
+        Page<ArtifactDto> artifactDtoPage = artifactPage
+                .map(artifact -> this.artifactToArtifactDtoConverter.convert(artifact, numberOfArtifactsByOwnerId));
 
         return new Result(true, StatusCode.SUCCESS, "Search Success", artifactDtoPage);
     }
 
+    @PostMapping(path = "/search", params = "limit")
+    public Result findArtifactsByCriteriaByCursor(@RequestBody Map<String, String> searchCriteria,
+            @RequestParam int limit,
+            @RequestParam(required = false) String after) {
+        int boundedLimit = this.boundedLimit(limit);
+        Window<Artifact> artifactWindow = this.artifactService.findByCriteria(searchCriteria, CursorCodec.decode(after), boundedLimit);
+        return new Result(true, StatusCode.SUCCESS, "Search Success", this.toCursorPage(artifactWindow, boundedLimit));
+    }
+
+    /**
+     * Finds the artifacts closest in meaning to the query, closest first, even if they don't contain its words, e.g.,
+     * the Invisibility Cloak for "things that make you invisible". See ArtifactVectorIndex.
+     */
+    @PostMapping("/semantic-search")
+    public Result findArtifactsBySemanticSearch(@RequestBody @Valid SemanticSearchRequest searchRequest) {
+        List<Artifact> artifacts = this.artifactService.findBySemanticSearch(searchRequest.query(), searchRequest.limitOrDefault());
+        Map<Integer, Integer> numberOfArtifactsByOwnerId = this.artifactService.countArtifactsByOwner(artifacts);
+        List<ArtifactDto> artifactDtos = artifacts.stream()
+                .map(artifact -> this.artifactToArtifactDtoConverter.convert(artifact, numberOfArtifactsByOwnerId))
+                .toList();
+        return new Result(true, StatusCode.SUCCESS, "Search Success", artifactDtos);
+    }
+
     @PostMapping("/images")
     public Result uploadImage(@RequestParam String containerName, @RequestParam MultipartFile file) throws IOException {
         try (InputStream inputStream = file.getInputStream()) {
@@ -113,4 +310,86 @@ public class ArtifactController {
             return new Result(true, StatusCode.SUCCESS, "Upload Image Success", imageUrl);
         }
     }
+
+    /**
+     * Streams the request body, the image itself, e.g., with Content-Type image/png, to the storage as it arrives,
+     * instead of the multipart file Spring buffers in memory or on disk first: an upload holds at most a few blocks
+     * in memory, however large the image, see ParallelBlockUploader.
+     */
+    @PostMapping("/images/stream")
+    public Result uploadImageStream(@RequestParam String containerName, @RequestParam String imageName, HttpServletRequest request) throws IOException {
+        try (InputStream inputStream = request.getInputStream()) {
+            String imageUrl = this.imageStorageClient.uploadImage(containerName, imageName, inputStream);
+            return new Result(true, StatusCode.SUCCESS, "Upload Image Success", imageUrl);
+        }
+    }
+
+    private boolean checkNotModified(ServletWebRequest webRequest, String etag) {
+        webRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        return webRequest.checkNotModified(etag);
+    }
+
+    /**
+     * Tags a list with the catalog version, which every write bumps after its commit: the version is read before the
+     * list, so the list may be newer than its tag but never older. Lists are not tagged when the version is unknown.
+     */
+    private boolean checkCatalogNotModified(ServletWebRequest webRequest) {
+        return this.artifactService.findCatalogVersion()
+                .map(version -> this.checkNotModified(webRequest, ETags.strong("artifacts", version)))
+                .orElse(false);
+    }
+
+    private static void writeEvent(Writer writer, String event, String data) {
+        try {
+            if (event != null) {
+                writer.write("event: " + event + "\n");
+            }
+            // A line break would end the data field, so each line of the token goes in a data field of its own
+            for (String line : data.split("\r\n|\r|\n", -1)) {
+                writer.write("data: " + line + "\n");
+            }
+            writer.write("\n");
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int boundedLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_CURSOR_LIMIT));
+    }
+
+    private SlicePage<ArtifactDto> findSlicePage(Map<String, String> searchCriteria, Pageable pageable, TotalMode total) {
+        Slice<Artifact> artifactSlice = this.artifactService.findSliceByCriteria(searchCriteria, pageable);
+        Map<Integer, Integer> numberOfArtifactsByOwnerId = this.artifactService.countArtifactsByOwner(artifactSlice.getContent());
+        List<ArtifactDto> artifactDtos = artifactSlice.getContent()
+                .stream()
+                .map(artifact -> this.artifactToArtifactDtoConverter.convert(artifact, numberOfArtifactsByOwnerId))
+                .toList();
+
+        if (total == TotalMode.NONE) {
+            return new SlicePage<>(artifactDtos, artifactSlice.getNumber(), artifactSlice.getSize(), artifactSlice.hasNext(), null, null);
+        }
+
+        if (!artifactSlice.hasNext() && (artifactSlice.hasContent() || pageable.getOffset() == 0)) {
+            // The last page tells the exact total for free
+            return new SlicePage<>(artifactDtos, artifactSlice.getNumber(), artifactSlice.getSize(), false,
+                                   pageable.getOffset() + artifactDtos.size(), false);
+        }
+
+        SearchResultCache.ApproximateTotal approximateTotal = this.artifactService.countByCriteria(searchCriteria);
+        return new SlicePage<>(artifactDtos, artifactSlice.getNumber(), artifactSlice.getSize(), artifactSlice.hasNext(),
+                               approximateTotal.total(), approximateTotal.estimated());
+    }
+
+    private CursorPage<ArtifactDto> toCursorPage(Window<Artifact> artifactWindow, int limit) {
+        List<Artifact> artifacts = artifactWindow.getContent();
+        Map<Integer, Integer> numberOfArtifactsByOwnerId = this.artifactService.countArtifactsByOwner(artifacts);
+        List<ArtifactDto> artifactDtos = artifacts.stream()
+                .map(artifact -> this.artifactToArtifactDtoConverter.convert(artifact, numberOfArtifactsByOwnerId))
+                .toList();
+
+        String next = artifactWindow.hasNext() ? CursorCodec.encode(artifacts.get(artifacts.size() - 1).getId()) : null;
+        return new CursorPage<>(artifactDtos, limit, artifactWindow.hasNext(), next);
+    }
 }
@@ -1,9 +1,85 @@
 package com.learningspring.hogwartsartifactonline.artifact;
 
+import com.learningspring.hogwartsartifactonline.artifact.dto.ArtifactDto;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
 public interface ArtifactRepository extends JpaRepository<Artifact, String>, JpaSpecificationExecutor<Artifact> {
+
+    // The list queries fetch the owner in the same statement instead of one extra select per distinct owner
+
+    @Override
+    @EntityGraph(attributePaths = "owner")
+    List<Artifact> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = "owner")
+    Page<Artifact> findAll(Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = "owner")
+    List<Artifact> findAllById(Iterable<String> ids);
+
+    @Override
+    @EntityGraph(attributePaths = "owner")
+    Page<Artifact> findAll(@Nullable Specification<Artifact> spec, Pageable pageable);
+
+    // The DTO queries select the response rows directly: no entity is managed, so there are no dirty-checking
+    // snapshots, proxies or first-level cache growth on big pages. The owner's count is a correlated subquery.
+
+    String ARTIFACT_DTO = "new com.learningspring.hogwartsartifactonline.artifact.dto.ArtifactDto("
+            + "a.id, a.name, a.description, a.imageUrl, o.id, o.name, size(o.artifacts))";
+
+    @Query(value = "select " + ARTIFACT_DTO + " from Artifact a left join a.owner o",
+           countQuery = "select count(a) from Artifact a")
+    Page<ArtifactDto> findAllDtos(Pageable pageable);
+
+    @Query("select " + ARTIFACT_DTO + " from Artifact a left join a.owner o")
+    List<ArtifactDto> findAllDtos();
+
+    /**
+     * Counts the artifacts of several owners in one statement, so converting a page of artifacts
+     * does not have to initialize every owner's artifacts collection.
+     */
+    @Query("select a.owner.id as ownerId, count(a) as numberOfArtifacts from Artifact a where a.owner.id in :ownerIds group by a.owner.id")
+    List<OwnerArtifactCount> countByOwnerIdIn(Collection<Integer> ownerIds);
+
+    /**
+     * Forward-only cursor over the artifacts created after the given id, in id order. The rows are fetched from the
+     * database in batches of the fetch size and loaded read-only, so no dirty-checking snapshot is kept.
+     * Must be consumed, and closed, inside a transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select a from Artifact a left join fetch a.owner where a.id > :since order by a.id")
+    Stream<Artifact> streamAllByIdGreaterThan(String since);
+
+    /**
+     * The searchable texts of the next limit artifacts after the given id, in id order: one page of a scan that holds
+     * no cursor between its pages, e.g., while ArtifactVectorIndex embeds them, or while ArtifactTextIndex is built aside.
+     * Start after ArtifactIds.NONE.
+     */
+    @Query("select a.id as id, a.name as name, a.description as description from Artifact a where a.id > :afterId order by a.id")
+    List<ArtifactText> findTextsByIdGreaterThan(String afterId, Limit limit);
+
+    @Query("select a.id as id, a.name as name, a.description as description from Artifact a where a.id in :ids")
+    List<ArtifactText> findTextsByIdIn(Collection<String> ids);
 }
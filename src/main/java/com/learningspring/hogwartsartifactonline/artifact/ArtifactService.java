@@ -1,40 +1,117 @@
 package com.learningspring.hogwartsartifactonline.artifact;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learningspring.hogwartsartifactonline.artifact.cache.ArtifactCache;
+import com.learningspring.hogwartsartifactonline.artifact.cache.CatalogVersion;
+import com.learningspring.hogwartsartifactonline.artifact.cache.SearchResultCache;
+import com.learningspring.hogwartsartifactonline.artifact.converter.ArtifactToArtifactDtoConverter;
+import com.learningspring.hogwartsartifactonline.artifact.dto.ArtifactBatchOperation;
+import com.learningspring.hogwartsartifactonline.artifact.dto.ArtifactBatchResult;
 import com.learningspring.hogwartsartifactonline.artifact.dto.ArtifactDto;
+import com.learningspring.hogwartsartifactonline.artifact.search.ArtifactTextIndex;
+import com.learningspring.hogwartsartifactonline.artifact.search.ArtifactVectorIndex;
+import com.learningspring.hogwartsartifactonline.artifact.summary.ArtifactDigestService;
+import com.learningspring.hogwartsartifactonline.artifact.summary.ArtifactSummarizer;
+import com.learningspring.hogwartsartifactonline.artifact.utils.ArtifactIds;
 import com.learningspring.hogwartsartifactonline.artifact.utils.IdWorker;
-import com.learningspring.hogwartsartifactonline.client.ai.chat.ChatClient;
-import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatRequest;
-import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatResponse;
-import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.Message;
+import com.learningspring.hogwartsartifactonline.system.StatusCode;
+import com.learningspring.hogwartsartifactonline.system.exception.BatchSizeExceededException;
+import com.learningspring.hogwartsartifactonline.system.exception.InvalidArtifactIdException;
 import com.learningspring.hogwartsartifactonline.system.exception.ObjectNotFoundException;
+import com.learningspring.hogwartsartifactonline.system.exception.SemanticSearchUnavailableException;
+import com.learningspring.hogwartsartifactonline.wizard.Wizard;
 import io.micrometer.core.annotation.Timed;
 import io.micrometer.observation.annotation.Observed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PersistenceException;
 import jakarta.transaction.Transactional;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class ArtifactService {
 
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    private static final int MAX_FIELD_LENGTH = 255; // of the VARCHAR columns of artifact
+
+    private static final int MAX_CANDIDATE_IDS = 1000; // above that, an "id in (...)" costs more than it saves
+
+    private static final int EXPORT_CHUNK_SIZE = 500; // same as the fetch size of streamAllByIdGreaterThan()
+
     private final ArtifactRepository artifactRepository;
 
     private final IdWorker idWorker;
 
-    private final ChatClient chatClient;
+    private final ArtifactSummarizer artifactSummarizer;
+
+    private final ArtifactDigestService artifactDigestService;
+
+    private final ArtifactCache artifactCache;
+
+    private final ArtifactToArtifactDtoConverter artifactToArtifactDtoConverter;
+
+    private final EntityManager entityManager;
+
+    private final ArtifactTextIndex artifactTextIndex;
+
+    private final SearchResultCache searchResultCache;
 
-    public ArtifactService(ArtifactRepository artifactRepository, IdWorker idWorker, ChatClient chatClient) {
+    private final CatalogVersion catalogVersion;
+
+    private final ArtifactVectorIndex artifactVectorIndex;
+
+    public ArtifactService(ArtifactRepository artifactRepository,
+            IdWorker idWorker,
+            ArtifactSummarizer artifactSummarizer,
+            ArtifactCache artifactCache,
+            ArtifactToArtifactDtoConverter artifactToArtifactDtoConverter,
+            EntityManager entityManager,
+            ArtifactTextIndex artifactTextIndex,
+            SearchResultCache searchResultCache,
+            CatalogVersion catalogVersion,
+            ArtifactDigestService artifactDigestService,
+            ArtifactVectorIndex artifactVectorIndex) {
         this.artifactRepository = artifactRepository;
         this.idWorker = idWorker;
-        this.chatClient = chatClient;
+        this.artifactSummarizer = artifactSummarizer;
+        this.artifactCache = artifactCache;
+        this.artifactToArtifactDtoConverter = artifactToArtifactDtoConverter;
+        this.entityManager = entityManager;
+        this.artifactTextIndex = artifactTextIndex;
+        this.searchResultCache = searchResultCache;
+        this.catalogVersion = catalogVersion;
+        this.artifactDigestService = artifactDigestService;
+        this.artifactVectorIndex = artifactVectorIndex;
     }
 
     @Observed(name = "artifact", contextualName = "findByIdService")
@@ -43,14 +120,68 @@ public class ArtifactService {
                 .orElseThrow(() -> new ObjectNotFoundException("artifact", artifactId));
     }
 
+    /**
+     * Read-through lookup backed by the ArtifactCache. Runs with SUPPORTS so that a cache hit
+     * does not open a transaction nor borrow a database connection.
+     */
+    @Observed(name = "artifact", contextualName = "findDtoByIdService")
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public ArtifactDto findDtoById(String artifactId) {
+        return this.artifactCache.get(artifactId, id -> {
+            Artifact artifact = this.findById(id);
+            return this.artifactToArtifactDtoConverter.convert(artifact, this.countArtifactsByOwner(List.of(artifact)));
+        });
+    }
+
+    /**
+     * The catalog version shared by all nodes, or empty if it is unavailable. Every write bumps it, so it tells
+     * whether any list of artifacts changed. Runs with SUPPORTS as it doesn't touch the database.
+     */
+    @Transactional(Transactional.TxType.SUPPORTS)
+    public Optional<Long> findCatalogVersion() {
+        return this.catalogVersion.shared();
+    }
+
+    /**
+     * Returns the number of artifacts of every owner of the given artifacts (owner id -> count) using a single
+     * aggregate query, so converting a page of artifacts doesn't load each owner's artifacts collection.
+     */
+    public Map<Integer, Integer> countArtifactsByOwner(Collection<Artifact> artifacts) {
+        Set<Integer> ownerIds = artifacts.stream()
+                .map(Artifact::getOwner)
+                .filter(Objects::nonNull)
+                .map(Wizard::getId)
+                .collect(Collectors.toSet());
+
+        if (ownerIds.isEmpty()) {
+            return Map.of();
+        }
+
+        return this.artifactRepository.countByOwnerIdIn(ownerIds)
+                .stream()
+                .collect(Collectors.toMap(OwnerArtifactCount::getOwnerId, count -> count.getNumberOfArtifacts().intValue()));
+    }
+
     @Timed("findAllArtifactsService.time")
     public List<Artifact> findAll() {
         return this.artifactRepository.findAll();
     }
 
+    /**
+     * Like findAll(), but the rows are selected straight into ArtifactDtos, owners' number of artifacts included.
+     */
+    public List<ArtifactDto> findAllDtos() {
+        return this.artifactRepository.findAllDtos();
+    }
+
     public Artifact save(Artifact newArtifact) {
-        newArtifact.setId(this.idWorker.nextId() + "");
-        return this.artifactRepository.save(newArtifact);
+        newArtifact.setId(Long.toString(this.idWorker.nextId()));
+        Artifact savedArtifact = this.artifactRepository.save(newArtifact);
+        this.artifactTextIndex.index(savedArtifact);
+        this.artifactVectorIndex.index(savedArtifact);
+        this.artifactDigestService.enqueue(List.of(savedArtifact.getId()));
+        this.catalogVersion.bump();
+        return savedArtifact;
     }
 
     public Artifact update(String artifactId, Artifact update) {
@@ -60,6 +191,11 @@ public class ArtifactService {
                     oldArtifact.setDescription(update.getDescription());
                     oldArtifact.setImageUrl(update.getImageUrl());
 
+                    this.artifactCache.evict(artifactId);
+                    this.artifactTextIndex.index(oldArtifact);
+                    this.artifactVectorIndex.index(oldArtifact);
+                    this.artifactDigestService.enqueue(List.of(artifactId));
+                    this.catalogVersion.bump();
                     return this.artifactRepository.save(oldArtifact);
                 })
                 .orElseThrow(() -> new ObjectNotFoundException("artifact", artifactId));
@@ -69,31 +205,322 @@ public class ArtifactService {
         Artifact artifact = this.artifactRepository.findById(artifactId)
                 .orElseThrow(() -> new ObjectNotFoundException("artifact", artifactId));
         this.artifactRepository.deleteById(artifactId);
+        this.artifactCache.evict(artifactId);
+        this.artifactCache.evictArtifactsOf(artifact.getOwner());
+        this.artifactTextIndex.remove(artifactId);
+        this.artifactVectorIndex.remove(artifactId);
+        this.artifactDigestService.enqueue(List.of(artifactId)); // deletes its digest
+        this.catalogVersion.bump();
     }
 
-    public String summarize(List<ArtifactDto> artifactDtos) throws JsonProcessingException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        String jsonArray = objectMapper.writeValueAsString(artifactDtos);
+    /**
+     * Applies a list of create/update/delete operations in one transaction and reports the outcome of each one.
+     * An invalid or not found item doesn't stop the others. Ids for the creates are reserved in one call, the
+     * artifacts to update or delete are loaded with one select, and the resulting statements are sent to the
+     * database in JDBC batches (see hibernate.jdbc.batch_size).
+     * <p>
+     * The statements are flushed here, so that a failure is reported in the results instead of as a 500 on commit.
+     * The batch is all-or-nothing, though: a statement that fails, e.g., an artifact changed by another request since
+     * it was loaded, rolls the whole transaction back, and every item that would have succeeded is reported with 409.
+     */
+    public List<ArtifactBatchResult> batch(List<ArtifactBatchOperation> operations) {
+        if (operations.size() > MAX_BATCH_SIZE) {
+            throw new BatchSizeExceededException(operations.size(), MAX_BATCH_SIZE);
+        }
+
+        Set<String> existingIds = operations.stream()
+                .filter(operation -> operation.type() == ArtifactBatchOperation.Type.UPDATE || operation.type() == ArtifactBatchOperation.Type.DELETE)
+                .map(ArtifactBatchOperation::id)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<String, Artifact> existingArtifacts = this.artifactRepository.findAllById(existingIds)
+                .stream()
+                .collect(Collectors.toMap(Artifact::getId, Function.identity()));
 
-        // Prepare the messages for summarizing.
-        List<Message> messages = List.of(
-                new Message("system", "Your task is to generate a short summary of a given JSON array in at most 100 words. The summary must include the number of artifacts, each artifact's description, and the ownership information. Don't mention that the summary is from a given JSON array."),
-                new Message("user", jsonArray)
-        );
+        int numberOfCreates = (int) operations.stream().filter(operation -> operation.type() == ArtifactBatchOperation.Type.CREATE).count();
+        long[] newIds = this.idWorker.nextIds(numberOfCreates);
+        int nextNewId = 0;
 
-        ChatRequest chatRequest = new ChatRequest("llama3-8b-8192", messages);
+        List<ArtifactBatchResult> results = new ArrayList<>(operations.size());
+        Set<String> changedIds = new HashSet<>();
+        List<String> createdIds = new ArrayList<>();
+        Set<Wizard> changedOwners = new HashSet<>();
+        Set<Artifact> embeddedArtifacts = new LinkedHashSet<>(); // embedded in one call, see ArtifactVectorIndex.indexAll
+        for (int index = 0; index < operations.size(); index++) {
+            ArtifactBatchOperation operation = operations.get(index);
+            if (operation.type() == null) {
+                results.add(new ArtifactBatchResult(index, operation.id(), false, StatusCode.INVALID_ARGUMENT, "type is required"));
+                continue;
+            }
 
-        ChatResponse chatResponse = this.chatClient.generate(chatRequest); // Tell chatClient to generate a summary based on the given chatRequest.
+            switch (operation.type()) {
+                case CREATE -> {
+                    String newId = Long.toString(newIds[nextNewId++]);
+                    String invalidMessage = this.findInvalidMessage(operation.artifact());
+                    if (invalidMessage != null) {
+                        results.add(new ArtifactBatchResult(index, null, false, StatusCode.INVALID_ARGUMENT, invalidMessage));
+                        continue;
+                    }
+                    Artifact newArtifact = new Artifact();
+                    newArtifact.setId(newId);
+                    this.copy(operation.artifact(), newArtifact);
+                    // persist() directly: the id was reserved above, so the artifact is known to be new
+                    this.entityManager.persist(newArtifact);
+                    this.artifactTextIndex.index(newArtifact);
+                    embeddedArtifacts.add(newArtifact);
+                    createdIds.add(newId);
+                    results.add(new ArtifactBatchResult(index, newId, true, StatusCode.SUCCESS, "Add Success"));
+                }
+                case UPDATE -> {
+                    Artifact oldArtifact = existingArtifacts.get(operation.id());
+                    if (oldArtifact == null) {
+                        results.add(this.notFound(index, operation.id()));
+                        continue;
+                    }
+                    String invalidMessage = this.findInvalidMessage(operation.artifact());
+                    if (invalidMessage != null) {
+                        results.add(new ArtifactBatchResult(index, operation.id(), false, StatusCode.INVALID_ARGUMENT, invalidMessage));
+                        continue;
+                    }
+                    this.copy(operation.artifact(), oldArtifact); // flushed by dirty checking below
+                    this.artifactTextIndex.index(oldArtifact);
+                    embeddedArtifacts.add(oldArtifact);
+                    changedIds.add(oldArtifact.getId());
+                    results.add(new ArtifactBatchResult(index, operation.id(), true, StatusCode.SUCCESS, "Update Success"));
+                }
+                case DELETE -> {
+                    Artifact artifact = existingArtifacts.remove(operation.id());
+                    if (artifact == null) {
+                        results.add(this.notFound(index, operation.id()));
+                        continue;
+                    }
+                    this.entityManager.remove(artifact);
+                    this.artifactTextIndex.remove(artifact.getId());
+                    embeddedArtifacts.remove(artifact);
+                    this.artifactVectorIndex.remove(artifact.getId());
+                    changedIds.add(artifact.getId());
+                    if (artifact.getOwner() != null) {
+                        changedOwners.add(artifact.getOwner());
+                    }
+                    results.add(new ArtifactBatchResult(index, operation.id(), true, StatusCode.SUCCESS, "Delete Success"));
+                }
+            }
+        }
 
-        return chatResponse.choices().get(0).message().content();
+        try {
+            this.entityManager.flush();
+        } catch (PersistenceException e) {
+            return this.rollBack(operations, results, e);
+        }
+
+        this.artifactVectorIndex.indexAll(embeddedArtifacts);
+        this.artifactCache.evictAll(changedIds);
+        changedOwners.forEach(this.artifactCache::evictArtifactsOf);
+        this.artifactDigestService.enqueue(Stream.concat(createdIds.stream(), changedIds.stream()).toList());
+        if (results.stream().anyMatch(ArtifactBatchResult::flag)) {
+            this.catalogVersion.bump();
+        }
+        return results;
+    }
+
+    private String findInvalidMessage(ArtifactDto artifactDto) {
+        if (artifactDto == null) {
+            return "name is required";
+        }
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("name", artifactDto.name());
+        fields.put("description", artifactDto.description());
+        fields.put("imageUrl", artifactDto.imageUrl());
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            if (!StringUtils.hasLength(field.getValue())) {
+                return field.getKey() + " is required";
+            }
+            if (field.getValue().length() > MAX_FIELD_LENGTH) {
+                return field.getKey() + " is longer than " + MAX_FIELD_LENGTH + " characters";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The changes of the batch are rolled back, so the callbacks registered for after the commit, i.e., the updates
+     * of the indexes and caches, never run. The failing item is named when the database says which one it is.
+     */
+    private List<ArtifactBatchResult> rollBack(List<ArtifactBatchOperation> operations, List<ArtifactBatchResult> results, PersistenceException e) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        }
+        String conflictingId = e instanceof OptimisticLockException optimisticLockException
+                && optimisticLockException.getEntity() instanceof Artifact artifact ? artifact.getId() : null;
+        String message = conflictingId != null
+                ? "Rolled back with the batch: artifact " + conflictingId + " was changed by another request"
+                : "Rolled back with the batch: it could not be saved";
+        return results.stream()
+                .map(result -> {
+                    if (!result.flag()) {
+                        return result;
+                    }
+                    boolean created = operations.get(result.index()).type() == ArtifactBatchOperation.Type.CREATE;
+                    String id = created ? null : result.id();
+                    if (id != null && id.equals(conflictingId)) {
+                        return new ArtifactBatchResult(result.index(), id, false, StatusCode.CONFLICT, "The artifact was changed by another request, please reload it");
+                    }
+                    return new ArtifactBatchResult(result.index(), id, false, StatusCode.CONFLICT, message);
+                })
+                .toList();
+    }
+
+    private void copy(ArtifactDto source, Artifact target) {
+        target.setName(source.name());
+        target.setDescription(source.description());
+        target.setImageUrl(source.imageUrl());
+    }
+
+    private ArtifactBatchResult notFound(int index, String artifactId) {
+        return new ArtifactBatchResult(index, artifactId, false, StatusCode.NOT_FOUND, new ObjectNotFoundException("artifact", artifactId).getMessage());
+    }
+
+    /**
+     * Runs without a transaction: the chat completion takes seconds and doesn't need a database connection. The
+     * callers read the DTOs in a transaction of their own first, e.g., findAllDtos, and the summary endpoints are left
+     * out of open-in-view, see OpenEntityManagerInViewConfiguration, so no connection is held during the completion.
+     * The catalog is summarized from the digests of its artifacts, see ArtifactDigestService, in chunks if it is
+     * large, see ArtifactSummarizer.
+     */
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public String summarize(List<ArtifactDto> artifactDtos) {
+        return this.artifactSummarizer.summarize(this.artifactDigestService.catalogEntries(artifactDtos));
+    }
+
+    /**
+     * Like summarize, but onToken receives each piece of the summary as soon as the model generates it.
+     */
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public String summarize(List<ArtifactDto> artifactDtos, Consumer<String> onToken) {
+        return this.artifactSummarizer.summarize(this.artifactDigestService.catalogEntries(artifactDtos), onToken);
     }
 
     public Page<Artifact> findAll(Pageable pageable) {
         return this.artifactRepository.findAll(pageable);
     }
 
+    public Page<ArtifactDto> findAllDtos(Pageable pageable) {
+        return this.artifactRepository.findAllDtos(pageable);
+    }
+
+    /**
+     * Repeated searches are served from the SearchResultCache: the artifacts of the page are then loaded by id,
+     * without running the like filters nor the count query.
+     */
     public Page<Artifact> findByCriteria(Map<String, String> searchCriteria, Pageable pageable) {
+        String cacheKey = this.searchResultCache.keyFor(searchCriteria, pageable);
+        Optional<SearchResultCache.CachedSearchResult> cached = this.searchResultCache.get(cacheKey);
+        if (cached.isPresent()) {
+            return new PageImpl<>(this.findAllByIdInOrder(cached.get().ids()), pageable, cached.get().total());
+        }
+
+        Page<Artifact> artifactPage = this.artifactRepository.findAll(this.toSpecification(searchCriteria), pageable);
+        this.searchResultCache.put(cacheKey, new SearchResultCache.CachedSearchResult(artifactPage.map(Artifact::getId).getContent(),
+                                                                                      artifactPage.getTotalElements()));
+        return artifactPage;
+    }
+
+    /**
+     * Count-free variant of findByCriteria: reads one row more than the page size to know whether there is a next
+     * page, instead of running a count query with the same joins and like filters.
+     */
+    public Slice<Artifact> findSliceByCriteria(Map<String, String> searchCriteria, Pageable pageable) {
+        Specification<Artifact> spec = this.toSpecification(searchCriteria).and(ArtifactsSpecs.fetchOwner());
+        // An offset position points at the last element already seen
+        ScrollPosition position = pageable.getOffset() == 0 ? ScrollPosition.offset() : ScrollPosition.offset(pageable.getOffset() - 1);
+        Window<Artifact> artifactWindow = this.artifactRepository.findBy(spec, query -> query
+                .sortBy(pageable.getSort())
+                .limit(pageable.getPageSize())
+                .scroll(position));
+        return new SliceImpl<>(artifactWindow.getContent(), pageable, artifactWindow.hasNext());
+    }
+
+    /**
+     * The number of artifacts matching the criteria, from the approximate totals of the SearchResultCache when
+     * it has one, otherwise counted (and cached).
+     */
+    public SearchResultCache.ApproximateTotal countByCriteria(Map<String, String> searchCriteria) {
+        return this.searchResultCache.getApproximateTotal(searchCriteria, () -> this.artifactRepository.count(this.toSpecification(searchCriteria)));
+    }
+
+    /**
+     * The limit artifacts closest in meaning to the query, closest first, see ArtifactVectorIndex.
+     */
+    public List<Artifact> findBySemanticSearch(String query, int limit) {
+        List<String> artifactIds = this.artifactVectorIndex.findNearestIds(query, limit)
+                .orElseThrow(SemanticSearchUnavailableException::new);
+        return this.findAllByIdInOrder(artifactIds);
+    }
+
+    private List<Artifact> findAllByIdInOrder(List<String> artifactIds) {
+        if (artifactIds.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Artifact> artifactsById = this.artifactRepository.findAllById(artifactIds)
+                .stream()
+                .collect(Collectors.toMap(Artifact::getId, Function.identity()));
+        return artifactIds.stream().map(artifactsById::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Keyset pagination: seeks past the given position ordered by id and reads limit + 1 rows to know whether
+     * there is a next page. Unlike findAll(Pageable), the cost doesn't grow with depth and there is no count query.
+     */
+    public Window<Artifact> findAll(KeysetScrollPosition position, int limit) {
+        return this.findByCriteria(Map.of(), position, limit);
+    }
+
+    public Window<Artifact> findByCriteria(Map<String, String> searchCriteria, KeysetScrollPosition position, int limit) {
+        Specification<Artifact> spec = this.toSpecification(searchCriteria).and(ArtifactsSpecs.fetchOwner());
+        return this.artifactRepository.findBy(spec, query -> query
+                .sortBy(Sort.by("id"))
+                .limit(limit)
+                .scroll(position));
+    }
+
+    /**
+     * Walks the whole catalog (or the artifacts after the given id) in id order through a forward-only cursor and
+     * hands every artifact to the consumer. Artifacts are converted in chunks: one owner count query per chunk, then
+     * the persistence context is cleared, so memory stays constant whatever the size of the catalog.
+     *
+     * @return the number of exported artifacts
+     * @throws InvalidArtifactIdException if since is not an artifact id, rather than exporting the whole catalog
+     */
+    public long export(String since, Consumer<ArtifactDto> consumer) {
+        if (since != null && !ArtifactIds.isValid(since)) {
+            throw new InvalidArtifactIdException(since);
+        }
+        long exported = 0;
+        try (Stream<Artifact> artifacts = this.artifactRepository.streamAllByIdGreaterThan(since != null ? since : Long.toString(ArtifactIds.NONE))) {
+            Iterator<Artifact> iterator = artifacts.iterator();
+            List<Artifact> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == EXPORT_CHUNK_SIZE || !iterator.hasNext()) {
+                    Map<Integer, Integer> numberOfArtifactsByOwnerId = this.countArtifactsByOwner(chunk);
+                    chunk.forEach(artifact -> consumer.accept(this.artifactToArtifactDtoConverter.convert(artifact, numberOfArtifactsByOwnerId)));
+                    exported += chunk.size();
+
+                    chunk.clear();
+                    this.entityManager.clear(); // detach the exported artifacts and their owners
+                }
+            }
+        }
+        return exported;
+    }
+
+    /**
+     * The name and description criteria are first resolved into candidate ids by the ArtifactTextIndex, so the
+     * database only checks the like predicates on those rows instead of scanning the whole table.
+     */
+    private Specification<Artifact> toSpecification(Map<String, String> searchCriteria) {
         Specification<Artifact> spec = Specification.where(null);
+        Set<String> candidateIds = null; // null as long as no criterion could be resolved by the index
 
         if (StringUtils.hasLength(searchCriteria.get("id"))) {
             spec = spec.and(ArtifactsSpecs.hasId(searchCriteria.get("id")));
@@ -101,16 +528,33 @@ public class ArtifactService {
 
         if (StringUtils.hasLength(searchCriteria.get("name"))) {
             spec = spec.and(ArtifactsSpecs.containsName(searchCriteria.get("name")));
+            candidateIds = this.intersect(candidateIds, this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.NAME, searchCriteria.get("name")));
         }
 
         if (StringUtils.hasLength(searchCriteria.get("description"))) {
             spec = spec.and(ArtifactsSpecs.containsDescription(searchCriteria.get("description")));
+            candidateIds = this.intersect(candidateIds, this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.DESCRIPTION, searchCriteria.get("description")));
         }
 
         if (StringUtils.hasLength(searchCriteria.get("ownerName"))) {
             spec = spec.and(ArtifactsSpecs.hasOwnerName(searchCriteria.get("ownerName")));
         }
 
-        return this.artifactRepository.findAll(spec, pageable);
+        if (candidateIds != null && candidateIds.size() <= MAX_CANDIDATE_IDS) {
+            spec = spec.and(ArtifactsSpecs.hasIdIn(candidateIds));
+        }
+
+        return spec;
+    }
+
+    private Set<String> intersect(Set<String> candidateIds, Optional<Set<String>> otherCandidateIds) {
+        if (otherCandidateIds.isEmpty()) {
+            return candidateIds;
+        }
+        if (candidateIds == null) {
+            return otherCandidateIds.get();
+        }
+        candidateIds.retainAll(otherCandidateIds.get());
+        return candidateIds;
     }
 }
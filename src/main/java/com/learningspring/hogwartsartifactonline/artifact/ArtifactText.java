@@ -0,0 +1,10 @@
+package com.learningspring.hogwartsartifactonline.artifact;
+
+public interface ArtifactText {
+
+    String getId();
+
+    String getName();
+
+    String getDescription();
+}
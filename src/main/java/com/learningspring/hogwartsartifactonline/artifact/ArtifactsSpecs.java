@@ -1,13 +1,20 @@
 package com.learningspring.hogwartsartifactonline.artifact;
 
+import jakarta.persistence.criteria.JoinType;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.util.Collection;
+
 public class ArtifactsSpecs {
 
     public static Specification<Artifact> hasId(String providedId) {
         return (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("id"), providedId);
     }
 
+    public static Specification<Artifact> hasIdIn(Collection<String> providedIds) {
+        return (root, query, criteriaBuilder) -> providedIds.isEmpty() ? criteriaBuilder.disjunction() : root.get("id").in(providedIds);
+    }
+
     public static Specification<Artifact> containsName(String providedName) {
         return (root, query, criteriaBuilder) -> criteriaBuilder.like(criteriaBuilder.lower(root.get("name")), "%" + providedName.toLowerCase() + "%");
     }
@@ -20,4 +27,17 @@ public class ArtifactsSpecs {
         return (root, query, criteriaBuilder) -> criteriaBuilder.equal(criteriaBuilder.lower(root.get("owner").get("name")), providedOwnerName.toLowerCase());
     }
 
+    /**
+     * Not a filter: fetch-joins the owner for queries where a repository entity graph can't be applied, e.g., scrolling.
+     */
+    public static Specification<Artifact> fetchOwner() {
+        return (root, query, criteriaBuilder) -> {
+            // A count query selects no entity, so there is nothing to fetch
+            if (query.getResultType() != Long.class && query.getResultType() != long.class) {
+                root.fetch("owner", JoinType.LEFT);
+            }
+            return null;
+        };
+    }
+
 }
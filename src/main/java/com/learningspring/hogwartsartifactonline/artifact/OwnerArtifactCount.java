@@ -0,0 +1,11 @@
+package com.learningspring.hogwartsartifactonline.artifact;
+
+/**
+ * Projection of the aggregate query ArtifactRepository.countByOwnerIdIn.
+ */
+public interface OwnerArtifactCount {
+
+    Integer getOwnerId();
+
+    Long getNumberOfArtifacts();
+}
@@ -0,0 +1,204 @@
+package com.learningspring.hogwartsartifactonline.artifact.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.learningspring.hogwartsartifactonline.artifact.Artifact;
+import com.learningspring.hogwartsartifactonline.artifact.dto.ArtifactDto;
+import com.learningspring.hogwartsartifactonline.artifact.utils.ArtifactIds;
+import com.learningspring.hogwartsartifactonline.client.rediscache.RedisCacheClient;
+import com.learningspring.hogwartsartifactonline.wizard.Wizard;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of ArtifactDto by artifact id.
+ * L1 is a bounded in-process Caffeine cache, L2 is Redis (shared by all nodes).
+ * Evictions are broadcast through Redis pub/sub so every node drops its L1 copy.
+ * Each eviction bumps the artifact's version in Redis before deleting its L2 entry, and a node only writes what it
+ * loaded to L2 if the version is still the one it read before loading: a row read just before a commit on another node
+ * can't outlive the eviction in L2, and from there in the L1 of every node.
+ * L1 is keyed by the numeric value of the id, which hashes and compares faster than its string; an id that isn't a
+ * number names no artifact and bypasses the cache.
+ */
+@Component
+public class ArtifactCache implements MessageListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactCache.class);
+
+    public static final String INVALIDATION_CHANNEL = "artifact-cache:invalidate";
+
+    private static final String KEY_PREFIX = "artifact:";
+
+    private static final String VERSION_KEY_PREFIX = "artifact-version:";
+
+    private final Cache<Long, ArtifactDto> localCache;
+
+    private final RedisCacheClient redisCacheClient;
+
+    private final ObjectMapper objectMapper;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Duration redisTtl;
+
+    public ArtifactCache(RedisCacheClient redisCacheClient,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            RedisMessageListenerContainer redisMessageListenerContainer,
+            @Value("${artifact.cache.local.maximum-size}") long localMaximumSize,
+            @Value("${artifact.cache.local.ttl}") Duration localTtl,
+            @Value("${artifact.cache.redis.ttl}") Duration redisTtl) {
+        this.redisCacheClient = redisCacheClient;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.redisTtl = redisTtl;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(localMaximumSize)
+                .expireAfterWrite(localTtl)
+                .recordStats()
+                .build();
+
+        // Exposes cache.gets (hit/miss), cache.evictions and cache.size for the L1 cache
+        CaffeineCacheMetrics.monitor(meterRegistry, this.localCache, "artifacts");
+
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    public ArtifactDto get(String artifactId, Function<String, ArtifactDto> loader) {
+        long key = ArtifactIds.toLong(artifactId);
+        if (key == ArtifactIds.NONE) {
+            return loader.apply(artifactId);
+        }
+        return this.localCache.get(key, id -> {
+            ArtifactDto cached = this.getFromRedis(artifactId);
+            if (cached != null) {
+                this.meterRegistry.counter("artifact.cache.redis", "result", "hit").increment();
+                return cached;
+            }
+            this.meterRegistry.counter("artifact.cache.redis", "result", "miss").increment();
+
+            String version = this.getVersionFromRedis(artifactId); // before loading, see putInRedis
+            ArtifactDto loaded = loader.apply(artifactId);
+            if (version != null) {
+                this.putInRedis(artifactId, loaded, version);
+            }
+            return loaded;
+        });
+    }
+
+    /**
+     * Evicts the given artifacts on every node. When called inside a transaction, the eviction
+     * is deferred until after commit so that a concurrent read cannot put the old state back.
+     */
+    public void evict(String artifactId) {
+        this.evictAll(List.of(artifactId));
+    }
+
+    public void evictAll(Collection<String> artifactIds) {
+        if (artifactIds.isEmpty()) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doEvict(artifactIds);
+                }
+            });
+        } else {
+            this.doEvict(artifactIds);
+        }
+    }
+
+    /**
+     * Every cached artifact embeds its owner's number of artifacts, so a change of ownership
+     * (or of the owner itself) makes all artifacts of that owner stale.
+     */
+    public void evictArtifactsOf(Wizard wizard) {
+        if (wizard != null) {
+            this.evictAll(wizard.getArtifacts().stream().map(Artifact::getId).toList());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String artifactId = new String(message.getBody(), StandardCharsets.UTF_8);
+        this.localCache.invalidate(ArtifactIds.toLong(artifactId));
+    }
+
+    private void doEvict(Collection<String> artifactIds) {
+        this.localCache.invalidateAll(artifactIds.stream().map(ArtifactIds::toLong).toList());
+        this.meterRegistry.counter("artifact.cache.invalidations").increment(artifactIds.size());
+        try {
+            artifactIds.forEach(artifactId -> {
+                // The version first, so that a node that loaded the old state can't write it back once it's deleted
+                this.redisCacheClient.incrementAndExpire(VERSION_KEY_PREFIX + artifactId, this.redisTtl.toMillis(), TimeUnit.MILLISECONDS);
+                this.redisCacheClient.delete(KEY_PREFIX + artifactId);
+                this.redisCacheClient.publish(INVALIDATION_CHANNEL, artifactId);
+            });
+        } catch (DataAccessException e) {
+            LOGGER.warn("Could not invalidate artifacts {} in Redis: {}", artifactIds, e.getMessage());
+        }
+    }
+
+    private ArtifactDto getFromRedis(String artifactId) {
+        try {
+            String json = this.redisCacheClient.get(KEY_PREFIX + artifactId);
+            return json != null ? this.objectMapper.readValue(json, ArtifactDto.class) : null;
+        } catch (DataAccessException | JsonProcessingException e) {
+            // Redis is only a cache, fall back to the database if it is unavailable
+            LOGGER.warn("Could not read artifact {} from Redis: {}", artifactId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * The version of the artifact, "0" if it was never evicted, or null if Redis is unavailable.
+     */
+    private String getVersionFromRedis(String artifactId) {
+        try {
+            String version = this.redisCacheClient.get(VERSION_KEY_PREFIX + artifactId);
+            return version != null ? version : "0";
+        } catch (DataAccessException e) {
+            LOGGER.warn("Could not read the version of artifact {} from Redis: {}", artifactId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the artifact loaded at the given version, unless it was evicted since: it may be the state before the
+     * change that evicted it.
+     */
+    private void putInRedis(String artifactId, ArtifactDto artifactDto, String version) {
+        try {
+            String json = this.objectMapper.writeValueAsString(artifactDto);
+            if (!this.redisCacheClient.setIfVersionEquals(KEY_PREFIX + artifactId, json, VERSION_KEY_PREFIX + artifactId, version,
+                                                          this.redisTtl.toMillis(), TimeUnit.MILLISECONDS)) {
+                this.meterRegistry.counter("artifact.cache.redis.stale-writes").increment();
+            }
+        } catch (DataAccessException | JsonProcessingException e) {
+            LOGGER.warn("Could not write artifact {} to Redis: {}", artifactId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.learningspring.hogwartsartifactonline.artifact.cache;
+
+import com.learningspring.hogwartsartifactonline.client.rediscache.RedisCacheClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A counter bumped by every write to the catalog (artifacts and their owners), shared by all nodes through Redis.
+ * Caches of derived data (e.g., search results) put the version in their keys: a bump makes every older entry
+ * unreachable at once, without scanning keys, and the entries then expire on their own TTL.
+ * <p>
+ * If Redis is unavailable, the last known version is used and bumped locally, so the writes of this node still
+ * invalidate its own entries. Entries cached around an outage may then be stale until they expire.
+ */
+@Component
+public class CatalogVersion {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CatalogVersion.class);
+
+    private static final String KEY = "artifact-catalog:version";
+
+    private final RedisCacheClient redisCacheClient;
+
+    private final AtomicLong lastKnownVersion = new AtomicLong();
+
+    public CatalogVersion(RedisCacheClient redisCacheClient) {
+        this.redisCacheClient = redisCacheClient;
+    }
+
+    public long current() {
+        try {
+            String version = this.redisCacheClient.get(KEY);
+            this.lastKnownVersion.set(version != null ? Long.parseLong(version) : 0L);
+        } catch (DataAccessException e) {
+            LOGGER.warn("Could not read the catalog version from Redis, using the last known one: {}", e.getMessage());
+        }
+        return this.lastKnownVersion.get();
+    }
+
+    /**
+     * The version as stored in Redis, or empty if Redis is unavailable. Unlike current(), it never falls back to the
+     * local version, which other nodes may have reached with different writes: use it where the version is handed
+     * to clients, e.g., in ETags.
+     */
+    public Optional<Long> shared() {
+        try {
+            String version = this.redisCacheClient.get(KEY);
+            return Optional.of(version != null ? Long.parseLong(version) : 0L);
+        } catch (DataAccessException e) {
+            LOGGER.warn("Could not read the catalog version from Redis: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Bumps the version once the current transaction commits, so that no reader can cache the old state under the new version.
+     */
+    public void bump() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doBump();
+                }
+            });
+        } else {
+            this.doBump();
+        }
+    }
+
+    private void doBump() {
+        try {
+            this.lastKnownVersion.set(this.redisCacheClient.increment(KEY));
+        } catch (DataAccessException e) {
+            LOGGER.warn("Could not bump the catalog version in Redis: {}", e.getMessage());
+            this.lastKnownVersion.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.learningspring.hogwartsartifactonline.artifact.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.learningspring.hogwartsartifactonline.client.rediscache.RedisCacheClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Caches the outcome of a search (the ids of the page and the total) by criteria and pageable, so a repeated
+ * search only loads the artifacts by id. Keys include the CatalogVersion, which every write bumps.
+ * <p>
+ * The backend is either a local Caffeine cache or Redis, shared by all nodes (artifact.search-cache.backend).
+ */
+@Component
+public class SearchResultCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SearchResultCache.class);
+
+    private static final String KEY_PREFIX = "artifact-search:";
+
+    // Only these criteria are applied by ArtifactService, and all but id are compared case-insensitively
+    private static final List<String> CRITERIA = List.of("id", "name", "description", "ownerName");
+
+    public record CachedSearchResult(List<String> ids, long total) {
+    }
+
+    /**
+     * estimated is true when the total comes from the cache, i.e., it may be up to approximate-total-ttl old.
+     */
+    public record ApproximateTotal(long total, boolean estimated) {
+    }
+
+    private final CatalogVersion catalogVersion;
+
+    private final RedisCacheClient redisCacheClient;
+
+    private final ObjectMapper objectMapper;
+
+    private final boolean redisBackend;
+
+    private final Duration ttl;
+
+    private final Cache<String, CachedSearchResult> localCache;
+
+    private final Cache<String, Long> approximateTotals;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    public SearchResultCache(CatalogVersion catalogVersion,
+            RedisCacheClient redisCacheClient,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${artifact.search-cache.backend}") String backend,
+            @Value("${artifact.search-cache.local.maximum-size}") long localMaximumSize,
+            @Value("${artifact.search-cache.ttl}") Duration ttl,
+            @Value("${artifact.search-cache.approximate-total-ttl}") Duration approximateTotalTtl) {
+        this.catalogVersion = catalogVersion;
+        this.redisCacheClient = redisCacheClient;
+        this.objectMapper = objectMapper;
+        this.redisBackend = "redis".equalsIgnoreCase(backend);
+        this.ttl = ttl;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(localMaximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.approximateTotals = Caffeine.newBuilder()
+                .maximumSize(localMaximumSize)
+                .expireAfterWrite(approximateTotalTtl)
+                .build();
+
+        this.hits = meterRegistry.counter("artifact.search.cache", "result", "hit");
+        this.misses = meterRegistry.counter("artifact.search.cache", "result", "miss");
+        Gauge.builder("artifact.search.cache.hit.ratio", this, SearchResultCache::hitRatio)
+                .description("Ratio of searches served from the cache since startup")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The key of a search at the current catalog version. Take it before running the search and put the result
+     * under it: if a write commits in between, the result is stored under a version that is no longer read.
+     */
+    public String keyFor(Map<String, String> searchCriteria, Pageable pageable) {
+        return KEY_PREFIX + this.catalogVersion.current() + ":" + DigestUtils.md5DigestAsHex(canonicalize(searchCriteria, pageable).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Optional<CachedSearchResult> get(String key) {
+        CachedSearchResult cached = this.redisBackend ? this.getFromRedis(key) : this.localCache.getIfPresent(key);
+        (cached != null ? this.hits : this.misses).increment();
+        return Optional.ofNullable(cached);
+    }
+
+    public void put(String key, CachedSearchResult result) {
+        if (!this.redisBackend) {
+            this.localCache.put(key, result);
+            return;
+        }
+
+        try {
+            this.redisCacheClient.set(key, this.objectMapper.writeValueAsString(result), this.ttl.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (DataAccessException | JsonProcessingException e) {
+            LOGGER.warn("Could not write search result {} to Redis: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Unlike the search results, the totals are neither versioned nor shared: they are only meant to be
+     * roughly right, e.g., for displaying "about 1,200 results".
+     */
+    public ApproximateTotal getApproximateTotal(Map<String, String> searchCriteria, Supplier<Long> counter) {
+        String key = canonicalize(searchCriteria, Pageable.unpaged());
+        Long total = this.approximateTotals.getIfPresent(key);
+        if (total != null) {
+            return new ApproximateTotal(total, true);
+        }
+
+        total = counter.get();
+        this.approximateTotals.put(key, total);
+        return new ApproximateTotal(total, false);
+    }
+
+    /**
+     * Two criteria maps that select the same artifacts give the same string: unknown and empty criteria are
+     * dropped, the rest is sorted by name, and the case-insensitive values are lower-cased.
+     */
+    static String canonicalize(Map<String, String> searchCriteria, Pageable pageable) {
+        Map<String, String> canonicalCriteria = new TreeMap<>();
+        CRITERIA.forEach(criterion -> {
+            String value = searchCriteria.get(criterion);
+            if (StringUtils.hasLength(value)) {
+                canonicalCriteria.put(criterion, criterion.equals("id") ? value : value.toLowerCase(Locale.ROOT));
+            }
+        });
+
+        String page = pageable.isPaged()
+                ? "page=" + pageable.getPageNumber() + "&size=" + pageable.getPageSize() + "&sort=" + pageable.getSort()
+                : "unpaged&sort=" + pageable.getSort();
+        return canonicalCriteria + "|" + page;
+    }
+
+    private CachedSearchResult getFromRedis(String key) {
+        try {
+            String json = this.redisCacheClient.get(key);
+            return json != null ? this.objectMapper.readValue(json, CachedSearchResult.class) : null;
+        } catch (DataAccessException | JsonProcessingException e) {
+            LOGGER.warn("Could not read search result {} from Redis: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private double hitRatio() {
+        double lookups = this.hits.count() + this.misses.count();
+        return lookups == 0 ? 0 : this.hits.count() / lookups;
+    }
+}
@@ -2,10 +2,14 @@ package com.learningspring.hogwartsartifactonline.artifact.converter;
 
 import com.learningspring.hogwartsartifactonline.artifact.Artifact;
 import com.learningspring.hogwartsartifactonline.artifact.dto.ArtifactDto;
+import com.learningspring.hogwartsartifactonline.wizard.Wizard;
 import com.learningspring.hogwartsartifactonline.wizard.converter.WizardToWizardDtoConverter;
+import com.learningspring.hogwartsartifactonline.wizard.dto.WizardDto;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.stereotype.Component;
 
+import java.util.Map;
+
 @Component
 public class ArtifactToArtifactDtoConverter implements Converter<Artifact, ArtifactDto> {
 
@@ -23,4 +27,22 @@ public class ArtifactToArtifactDtoConverter implements Converter<Artifact, Artif
                                source.getImageUrl(),
                                source.getOwner() != null ? this.wizardToWizardDtoConverter.convert(source.getOwner()) : null);
     }
+
+    /**
+     * Converts with the owners' number of artifacts taken from numberOfArtifactsByOwnerId (owner id -> count),
+     * see ArtifactService.countArtifactsByOwner. Owners missing from the map fall back to convert(Artifact).
+     */
+    public ArtifactDto convert(Artifact source, Map<Integer, Integer> numberOfArtifactsByOwnerId) {
+        Wizard owner = source.getOwner();
+        if (owner == null || !numberOfArtifactsByOwnerId.containsKey(owner.getId())) {
+            return this.convert(source);
+        }
+
+        WizardDto ownerDto = this.wizardToWizardDtoConverter.convert(owner, numberOfArtifactsByOwnerId.get(owner.getId()));
+        return new ArtifactDto(source.getId(),
+                               source.getName(),
+                               source.getDescription(),
+                               source.getImageUrl(),
+                               ownerDto);
+    }
 }
@@ -0,0 +1,21 @@
+package com.learningspring.hogwartsartifactonline.artifact.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One item of POST /artifacts/batch. The id is required to update or delete, artifact is required to create or update.
+ */
+public record ArtifactBatchOperation(
+        Type type,
+
+        String id,
+
+        ArtifactDto artifact
+) {
+
+    public enum Type {
+        @JsonProperty("create") CREATE,
+        @JsonProperty("update") UPDATE,
+        @JsonProperty("delete") DELETE
+    }
+}
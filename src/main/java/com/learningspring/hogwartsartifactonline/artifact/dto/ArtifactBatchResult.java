@@ -0,0 +1,18 @@
+package com.learningspring.hogwartsartifactonline.artifact.dto;
+
+/**
+ * Outcome of the operation at the given index of the batch, with the same flag, code and message as the
+ * corresponding single-item endpoint. id is the id of the created, updated or deleted artifact.
+ */
+public record ArtifactBatchResult(
+        int index,
+
+        String id,
+
+        boolean flag,
+
+        Integer code,
+
+        String message
+) {
+}
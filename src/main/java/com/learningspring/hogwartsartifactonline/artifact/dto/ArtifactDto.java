@@ -17,4 +17,12 @@ public record ArtifactDto(
 
         WizardDto owner
 ) {
+
+    /**
+     * Flat form used by the constructor expressions of ArtifactRepository, which can't nest a WizardDto.
+     */
+    public ArtifactDto(String id, String name, String description, String imageUrl,
+            Integer ownerId, String ownerName, Integer ownerNumberOfArtifacts) {
+        this(id, name, description, imageUrl, ownerId != null ? new WizardDto(ownerId, ownerName, ownerNumberOfArtifacts) : null);
+    }
 }
@@ -0,0 +1,24 @@
+package com.learningspring.hogwartsartifactonline.artifact.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * The body of POST /artifacts/semantic-search.
+ *
+ * @param limit the number of artifacts to return, 10 if null
+ */
+public record SemanticSearchRequest(
+        @NotBlank(message = "query is required")
+        String query,
+
+        @Min(value = 1, message = "limit must be at least 1")
+        @Max(value = 100, message = "limit must be at most 100")
+        Integer limit
+) {
+
+    public int limitOrDefault() {
+        return this.limit != null ? this.limit : 10;
+    }
+}
@@ -0,0 +1,586 @@
+package com.learningspring.hogwartsartifactonline.artifact.search;
+
+import com.learningspring.hogwartsartifactonline.artifact.Artifact;
+import com.learningspring.hogwartsartifactonline.artifact.ArtifactRepository;
+import com.learningspring.hogwartsartifactonline.artifact.ArtifactText;
+import com.learningspring.hogwartsartifactonline.artifact.utils.ArtifactIds;
+import com.learningspring.hogwartsartifactonline.artifact.utils.LongHashSet;
+import com.learningspring.hogwartsartifactonline.artifact.utils.LongObjectHashMap;
+import com.learningspring.hogwartsartifactonline.client.rediscache.RedisCacheClient;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index (term -> artifact ids) over the name and description of every artifact.
+ * <p>
+ * It answers "which artifacts may contain this text" so that a search can fetch those rows by primary key
+ * instead of scanning the whole table with lower(col) like '%text%'. The answer is a superset: every artifact
+ * whose field contains the text has, for each word of the text, a term containing that word. The search still
+ * applies the like predicate to the candidates, so the results are exactly those of the plain query.
+ * <p>
+ * Terms and words are folded like the accent-insensitive collation of the database compares them, see fold: "cafe"
+ * finds the artifacts whose field contains "café", "strasse" those with "Straße". Folding more than the collation
+ * only adds candidates, but folding less would lose some, so a word with a Latin letter that still isn't a to z after
+ * folding is not looked up, and an artifact with such a term is a candidate of every search.
+ * <p>
+ * The terms containing a word are found through the trigrams (runs of 3 characters) of the word, each mapped to the
+ * terms that have it, so a lookup reads the terms of its rarest trigram instead of the whole vocabulary. Words shorter
+ * than a trigram are not looked up.
+ * <p>
+ * The index is built when the application is ready and kept up to date by ArtifactService after each commit.
+ * Changes made on another node are received through Redis pub/sub and reloaded from the database. Each change is
+ * numbered from a sequence shared in Redis, so a node can tell when it missed one, e.g., while it was disconnected:
+ * every check-interval, it makes sure it received every change numbered before the previous check, and builds the
+ * index again if not. While the index may be stale, i.e., until then or while Redis is unreachable, it can't tell,
+ * and the search runs the plain like query.
+ * <p>
+ * The ids are kept as primitive longs, in LongHashSets and a LongObjectHashMap: a posting costs a slot of 8 bytes
+ * instead of a HashMap node and a String, and intersecting the postings of the words compares longs.
+ */
+@Component
+public class ArtifactTextIndex implements MessageListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactTextIndex.class);
+
+    public static final String UPDATE_CHANNEL = "artifact-index:update";
+
+    static final String SEQUENCE_KEY = "artifact-index:sequence";
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Pattern COMBINING_MARK = Pattern.compile("\\p{M}+");
+
+    private static final int TRIGRAM_LENGTH = 3;
+
+    // The letters that the collation compares as other letters but that have no decomposition to strip, e.g., ß = ss
+    private static final Map<Integer, String> EXPANSIONS = Map.ofEntries(
+            Map.entry((int) 'ß', "ss"),
+            Map.entry((int) 'æ', "ae"),
+            Map.entry((int) 'œ', "oe"),
+            Map.entry((int) 'ø', "o"),
+            Map.entry((int) 'đ', "d"),
+            Map.entry((int) 'ð', "d"),
+            Map.entry((int) 'ħ', "h"),
+            Map.entry((int) 'ı', "i"),
+            Map.entry((int) 'ł', "l"),
+            Map.entry((int) 'ŧ', "t"),
+            Map.entry((int) 'þ', "th"));
+
+    public enum Field {
+        NAME,
+        DESCRIPTION
+    }
+
+    private record IndexedTerms(Set<String> name, Set<String> description) {
+
+        Set<String> of(Field field) {
+            return field == Field.NAME ? this.name : this.description;
+        }
+    }
+
+    private record Text(String name, String description) {
+    }
+
+    /**
+     * The postings and trigrams of every field. Not thread-safe.
+     */
+    private static class Terms {
+
+        private final Map<Field, Map<String, LongHashSet>> postings = new EnumMap<>(Field.class);
+
+        private final Map<Field, Map<String, Set<String>>> termsByTrigram = new EnumMap<>(Field.class);
+
+        // The artifacts with a term that may not be folded like the collation does, candidates of every search
+        private final Map<Field, LongHashSet> unfoldedIds = new EnumMap<>(Field.class);
+
+        private final LongObjectHashMap<IndexedTerms> indexedTermsById = new LongObjectHashMap<>();
+
+        Terms() {
+            for (Field field : Field.values()) {
+                this.postings.put(field, new HashMap<>());
+                this.termsByTrigram.put(field, new HashMap<>());
+                this.unfoldedIds.put(field, new LongHashSet());
+            }
+        }
+
+        void index(String artifactId, String name, String description) {
+            long id = ArtifactIds.toLong(artifactId);
+            IndexedTerms indexedTerms = new IndexedTerms(new HashSet<>(tokenize(name)), new HashSet<>(tokenize(description)));
+            for (Field field : Field.values()) {
+                Map<String, LongHashSet> fieldPostings = this.postings.get(field);
+                Map<String, Set<String>> fieldTrigrams = this.termsByTrigram.get(field);
+                indexedTerms.of(field).forEach(term -> fieldPostings.computeIfAbsent(term, key -> {
+                    trigrams(term).forEach(trigram -> fieldTrigrams.computeIfAbsent(trigram, any -> new HashSet<>()).add(term));
+                    return new LongHashSet();
+                }).add(id));
+                if (!indexedTerms.of(field).stream().allMatch(ArtifactTextIndex::isFolded)) {
+                    this.unfoldedIds.get(field).add(id);
+                }
+            }
+            this.indexedTermsById.put(id, indexedTerms);
+        }
+
+        void remove(String artifactId) {
+            long id = ArtifactIds.toLong(artifactId);
+            IndexedTerms indexedTerms = this.indexedTermsById.remove(id);
+            if (indexedTerms == null) {
+                return;
+            }
+            for (Field field : Field.values()) {
+                Map<String, LongHashSet> fieldPostings = this.postings.get(field);
+                Map<String, Set<String>> fieldTrigrams = this.termsByTrigram.get(field);
+                this.unfoldedIds.get(field).remove(id);
+                indexedTerms.of(field).forEach(term -> {
+                    LongHashSet ids = fieldPostings.get(term);
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        fieldPostings.remove(term);
+                        trigrams(term).forEach(trigram -> {
+                            Set<String> terms = fieldTrigrams.get(trigram);
+                            terms.remove(term);
+                            if (terms.isEmpty()) {
+                                fieldTrigrams.remove(trigram);
+                            }
+                        });
+                    }
+                });
+            }
+        }
+
+        void apply(String artifactId, Optional<Text> text) {
+            this.remove(artifactId);
+            text.ifPresent(present -> this.index(artifactId, present.name(), present.description()));
+        }
+
+        /**
+         * The ids of the artifacts with, for each word, a term containing it, and those with unfolded terms. The words
+         * are folded and at least a trigram long.
+         */
+        LongHashSet findIds(Field field, List<String> words) {
+            LongHashSet candidateIds = null;
+            for (String word : words) {
+                LongHashSet idsContainingWord = this.findIdsWithTermContaining(field, word);
+                idsContainingWord.addAll(this.unfoldedIds.get(field));
+                if (candidateIds == null) {
+                    candidateIds = idsContainingWord;
+                } else {
+                    candidateIds.retainAll(idsContainingWord);
+                }
+                if (candidateIds.isEmpty()) {
+                    break;
+                }
+            }
+            return candidateIds;
+        }
+
+        private LongHashSet findIdsWithTermContaining(Field field, String word) {
+            // A term containing the word has all its trigrams, so it is one of the terms of the rarest of them
+            Map<String, Set<String>> fieldTrigrams = this.termsByTrigram.get(field);
+            Set<String> rarestTrigramTerms = null;
+            for (String trigram : trigrams(word)) {
+                Set<String> terms = fieldTrigrams.get(trigram);
+                if (terms == null) {
+                    return new LongHashSet();
+                }
+                if (rarestTrigramTerms == null || terms.size() < rarestTrigramTerms.size()) {
+                    rarestTrigramTerms = terms;
+                }
+            }
+
+            Map<String, LongHashSet> fieldPostings = this.postings.get(field);
+            LongHashSet ids = new LongHashSet();
+            for (String term : rarestTrigramTerms) {
+                if (term.contains(word)) {
+                    ids.addAll(fieldPostings.get(term));
+                }
+            }
+            return ids;
+        }
+
+        int size() {
+            return this.indexedTermsById.size();
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final ArtifactRepository artifactRepository;
+
+    private final RedisCacheClient redisCacheClient;
+
+    private final int rebuildBatchSize;
+
+    private final Duration checkInterval;
+
+    private final ScheduledExecutorService scheduler;
+
+    // Guarded by the lock
+    private Terms terms = new Terms();
+
+    // The changes made while the index is rebuilt, by artifact id, an empty text for a removal; null otherwise.
+    // Guarded by the lock.
+    private Map<String, Optional<Text>> changesDuringRebuild;
+
+    // Every change numbered up to receivedThrough was received, or made before the index was built, and so were the
+    // ones in receivedAfter. Guarded by the lock.
+    private long receivedThrough;
+
+    private LongHashSet receivedAfter = new LongHashSet();
+
+    // The last number of the sequence read by the previous check. Guarded by the lock.
+    private long checkedThrough;
+
+    private volatile boolean ready;
+
+    private volatile boolean stale;
+
+    @Autowired
+    public ArtifactTextIndex(ArtifactRepository artifactRepository,
+            RedisCacheClient redisCacheClient,
+            RedisMessageListenerContainer redisMessageListenerContainer,
+            @Value("${artifact.text-index.rebuild-batch-size}") int rebuildBatchSize,
+            @Value("${artifact.text-index.check-interval}") Duration checkInterval) {
+        this(artifactRepository, redisCacheClient, redisMessageListenerContainer, rebuildBatchSize, checkInterval,
+             Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("artifact-text-index-")));
+    }
+
+    ArtifactTextIndex(ArtifactRepository artifactRepository,
+            RedisCacheClient redisCacheClient,
+            RedisMessageListenerContainer redisMessageListenerContainer,
+            int rebuildBatchSize,
+            Duration checkInterval,
+            ScheduledExecutorService scheduler) {
+        this.artifactRepository = artifactRepository;
+        this.redisCacheClient = redisCacheClient;
+        this.rebuildBatchSize = rebuildBatchSize;
+        this.checkInterval = checkInterval;
+        this.scheduler = scheduler;
+
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(UPDATE_CHANNEL));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        this.rebuild();
+        long interval = this.checkInterval.toMillis();
+        this.scheduler.scheduleWithFixedDelay(this::check, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Builds the index aside, a page of texts at a time, and swaps it in: the searches and the changes made meanwhile
+     * are neither blocked nor lost.
+     */
+    public void rebuild() {
+        Optional<Long> sequence = this.readSequence(); // before the texts, so that every change numbered up to it is in them
+        this.lock.writeLock().lock();
+        try {
+            this.changesDuringRebuild = new LinkedHashMap<>();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+
+        Terms rebuilt = new Terms();
+        try {
+            String afterId = Long.toString(ArtifactIds.NONE);
+            List<ArtifactText> page;
+            do {
+                page = this.artifactRepository.findTextsByIdGreaterThan(afterId, Limit.of(this.rebuildBatchSize));
+                page.forEach(artifact -> rebuilt.index(artifact.getId(), artifact.getName(), artifact.getDescription()));
+                afterId = page.isEmpty() ? afterId : page.get(page.size() - 1).getId();
+            } while (page.size() == this.rebuildBatchSize);
+        } catch (RuntimeException e) {
+            this.lock.writeLock().lock();
+            try {
+                this.changesDuringRebuild = null;
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        this.lock.writeLock().lock();
+        try {
+            this.changesDuringRebuild.forEach(rebuilt::apply);
+            this.changesDuringRebuild = null;
+            this.terms = rebuilt;
+            long rebuiltThrough = sequence.orElse(0L);
+            this.receivedThrough = rebuiltThrough;
+            LongHashSet receivedAfterRebuild = new LongHashSet();
+            this.receivedAfter.forEach(number -> {
+                if (number > rebuiltThrough) {
+                    receivedAfterRebuild.add(number);
+                }
+            });
+            this.receivedAfter = receivedAfterRebuild;
+            this.advanceReceivedThrough();
+            this.checkedThrough = rebuiltThrough;
+            this.stale = sequence.isEmpty(); // the changes made while Redis is unreachable are not numbered
+            this.ready = true;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+        LOGGER.info("Indexed the text of {} artifacts", rebuilt.size());
+    }
+
+    /**
+     * Builds the index again if a change numbered before the previous check was not received since, or if Redis
+     * was unreachable, then not before it is back. Runs every check-interval.
+     */
+    void check() {
+        try {
+            Optional<Long> sequence = this.readSequence();
+            if (sequence.isEmpty()) {
+                this.stale = true;
+                return;
+            }
+
+            boolean missed;
+            this.lock.writeLock().lock();
+            try {
+                missed = this.stale || this.receivedThrough < this.checkedThrough;
+                this.checkedThrough = sequence.get();
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+            if (missed) {
+                this.stale = true;
+                LOGGER.warn("The text index may have missed changes made on other nodes, building it again");
+                this.rebuild();
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not check the text index, searches run without it until the next check: {}", e.getMessage());
+            this.stale = true;
+        }
+    }
+
+    /**
+     * Returns the ids of the artifacts whose field may contain the given text, or empty if the index can't tell,
+     * i.e., it is not built yet, it may be stale, or the text has no word of a trigram or longer to look up (e.g.,
+     * only punctuation).
+     */
+    public Optional<Set<String>> findCandidateIds(Field field, String text) {
+        // Shorter and unfolded words are dropped, the candidates of the other words are still a superset
+        List<String> words = tokenize(text).stream()
+                .filter(word -> word.length() >= TRIGRAM_LENGTH && isFolded(word))
+                .toList();
+        if (!this.ready || this.stale || words.isEmpty()) {
+            return Optional.empty();
+        }
+
+        this.lock.readLock().lock();
+        try {
+            LongHashSet candidateIds = this.terms.findIds(field, words);
+            Set<String> candidateIdStrings = new HashSet<>();
+            candidateIds.forEach(id -> candidateIdStrings.add(Long.toString(id)));
+            return Optional.of(candidateIdStrings);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * (Re)indexes the artifact once the current transaction commits, here and on the other nodes.
+     */
+    public void index(Artifact artifact) {
+        String artifactId = artifact.getId();
+        Text text = new Text(artifact.getName(), artifact.getDescription());
+        this.afterCommit(() -> {
+            this.apply(artifactId, Optional.of(text));
+            this.publish(artifactId);
+        });
+    }
+
+    public void remove(String artifactId) {
+        this.afterCommit(() -> {
+            this.apply(artifactId, Optional.empty());
+            this.publish(artifactId);
+        });
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] body = new String(message.getBody(), StandardCharsets.UTF_8).split(":", 3);
+        if (body.length != 3) {
+            return;
+        }
+        long number;
+        try {
+            number = Long.parseLong(body[1]);
+        } catch (NumberFormatException e) {
+            return;
+        }
+
+        String artifactId = body[2];
+        boolean local = body[0].equals(this.nodeId); // already applied, only its number is recorded
+        Optional<Text> text = local
+                ? Optional.empty()
+                : this.artifactRepository.findById(artifactId).map(found -> new Text(found.getName(), found.getDescription()));
+        this.lock.writeLock().lock();
+        try {
+            if (!local) {
+                this.applyLocked(artifactId, text);
+            }
+            if (number > this.receivedThrough) {
+                this.receivedAfter.add(number);
+                this.advanceReceivedThrough();
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        this.scheduler.shutdownNow();
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        return Arrays.stream(NON_WORD.split(fold(text)))
+                .filter(word -> !word.isEmpty())
+                .distinct()
+                .toList();
+    }
+
+    /**
+     * The text as the accent- and case-insensitive collation of the database (utf8mb4_0900_ai_ci) compares it: in
+     * lower case, its compatibility characters such as ligatures decomposed, without accents, with the letters the
+     * collation expands, and with ASCII digits, e.g., "Straße", "ﬁnal Café" and "Œuvre ٣" -> "strasse", "final cafe"
+     * and "oeuvre 3".
+     */
+    static String fold(String text) {
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFKD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        COMBINING_MARK.matcher(decomposed).replaceAll("").codePoints().forEach(codePoint -> {
+            String expansion = EXPANSIONS.get(codePoint);
+            if (expansion != null) {
+                folded.append(expansion);
+            } else if (Character.isDigit(codePoint)) {
+                folded.append((char) ('0' + Character.digit(codePoint, 10)));
+            } else {
+                folded.appendCodePoint(codePoint);
+            }
+        });
+        return folded.toString();
+    }
+
+    /**
+     * Whether the folded word is surely folded like the collation does: its Latin letters are all a to z. Other
+     * scripts are compared letter by letter once their accents are stripped.
+     */
+    static boolean isFolded(String word) {
+        return word.codePoints().allMatch(codePoint -> (codePoint >= 'a' && codePoint <= 'z')
+                                                       || Character.UnicodeScript.of(codePoint) != Character.UnicodeScript.LATIN);
+    }
+
+    private static Set<String> trigrams(String term) {
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + TRIGRAM_LENGTH <= term.length(); i++) {
+            trigrams.add(term.substring(i, i + TRIGRAM_LENGTH));
+        }
+        return trigrams;
+    }
+
+    private void apply(String artifactId, Optional<Text> text) {
+        this.lock.writeLock().lock();
+        try {
+            this.applyLocked(artifactId, text);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private void applyLocked(String artifactId, Optional<Text> text) {
+        this.terms.apply(artifactId, text);
+        if (this.changesDuringRebuild != null) {
+            this.changesDuringRebuild.put(artifactId, text);
+        }
+    }
+
+    private void advanceReceivedThrough() {
+        while (this.receivedAfter.remove(this.receivedThrough + 1)) {
+            this.receivedThrough++;
+        }
+    }
+
+    private Optional<Long> readSequence() {
+        try {
+            String sequence = this.redisCacheClient.get(SEQUENCE_KEY);
+            return Optional.of(sequence != null ? Long.parseLong(sequence) : 0L);
+        } catch (DataAccessException e) {
+            LOGGER.warn("Could not read the sequence of the text index changes from Redis: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void publish(String artifactId) {
+        try {
+            long number = this.redisCacheClient.increment(SEQUENCE_KEY);
+            this.redisCacheClient.publish(UPDATE_CHANNEL, this.nodeId + ":" + number + ":" + artifactId);
+        } catch (DataAccessException e) {
+            LOGGER.warn("Could not notify the other nodes of the change of artifact {}: {}", artifactId, e.getMessage());
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.terms.size();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package com.learningspring.hogwartsartifactonline.artifact.search;
+
+import com.learningspring.hogwartsartifactonline.artifact.Artifact;
+import com.learningspring.hogwartsartifactonline.artifact.ArtifactRepository;
+import com.learningspring.hogwartsartifactonline.artifact.ArtifactText;
+import com.learningspring.hogwartsartifactonline.artifact.utils.ArtifactIds;
+import com.learningspring.hogwartsartifactonline.client.ai.embedding.EmbeddingClient;
+import com.learningspring.hogwartsartifactonline.client.rediscache.RedisCacheClient;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory HNSW index of the embeddings of the name and description of every artifact, for the semantic search: it
+ * finds the artifacts whose meaning is closest to a query, e.g., "things that make you invisible", even if they share
+ * none of its words. A search embeds the query and walks the graph, see HnswIndex, without a database query.
+ * <p>
+ * Like ArtifactTextIndex, the index is built when the application is ready, kept up to date by ArtifactService after
+ * each commit, and told about the changes made on other nodes through Redis pub/sub. The graph is built aside and
+ * swapped in, so the writes made meanwhile are neither blocked nor lost. The texts are read a page at a time, so no
+ * database connection is held while they are embedded.
+ * <p>
+ * The removed and replaced vectors stay in the graph, see HnswIndex. Once they are more than max-deleted-ratio of
+ * it, and at least min-deleted, the graph is built again from its live vectors in the background, without embedding
+ * them again, and swapped in the same way.
+ */
+@Component
+public class ArtifactVectorIndex implements MessageListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactVectorIndex.class);
+
+    public static final String UPDATE_CHANNEL = "artifact-vector-index:update";
+
+    private static final long SEED = 42; // the same artifacts build the same graph, and give the same results
+
+    private final ArtifactRepository artifactRepository;
+
+    private final EmbeddingClient embeddingClient;
+
+    private final RedisCacheClient redisCacheClient;
+
+    private final int m;
+
+    private final int efConstruction;
+
+    private final int efSearch;
+
+    private final int rebuildBatchSize;
+
+    private final int compactionMinDeleted;
+
+    private final double compactionMaxDeletedRatio;
+
+    private final Executor compactionExecutor;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Timer searchTimer;
+
+    // Guarded by the lock
+    private HnswIndex index;
+
+    // The changes made while the index is rebuilt or compacted, by artifact id, an empty vector for a removal; null
+    // otherwise. Guarded by the lock.
+    private Map<String, Optional<float[]>> changesDuringRebuild;
+
+    // Guarded by the lock
+    private boolean compactionScheduled;
+
+    private volatile boolean ready;
+
+    @Autowired
+    public ArtifactVectorIndex(ArtifactRepository artifactRepository,
+            EmbeddingClient embeddingClient,
+            RedisCacheClient redisCacheClient,
+            RedisMessageListenerContainer redisMessageListenerContainer,
+            MeterRegistry meterRegistry,
+            @Value("${artifact.semantic-search.hnsw.m}") int m,
+            @Value("${artifact.semantic-search.hnsw.ef-construction}") int efConstruction,
+            @Value("${artifact.semantic-search.hnsw.ef-search}") int efSearch,
+            @Value("${artifact.semantic-search.rebuild-batch-size}") int rebuildBatchSize,
+            @Value("${artifact.semantic-search.compaction.min-deleted}") int compactionMinDeleted,
+            @Value("${artifact.semantic-search.compaction.max-deleted-ratio}") double compactionMaxDeletedRatio) {
+        this(artifactRepository, embeddingClient, redisCacheClient, redisMessageListenerContainer, meterRegistry, m,
+             efConstruction, efSearch, rebuildBatchSize, compactionMinDeleted, compactionMaxDeletedRatio,
+             Executors.newSingleThreadExecutor(new CustomizableThreadFactory("artifact-vector-index-")));
+    }
+
+    ArtifactVectorIndex(ArtifactRepository artifactRepository,
+            EmbeddingClient embeddingClient,
+            RedisCacheClient redisCacheClient,
+            RedisMessageListenerContainer redisMessageListenerContainer,
+            MeterRegistry meterRegistry,
+            int m,
+            int efConstruction,
+            int efSearch,
+            int rebuildBatchSize,
+            int compactionMinDeleted,
+            double compactionMaxDeletedRatio,
+            Executor compactionExecutor) {
+        this.artifactRepository = artifactRepository;
+        this.embeddingClient = embeddingClient;
+        this.redisCacheClient = redisCacheClient;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.rebuildBatchSize = rebuildBatchSize;
+        this.compactionMinDeleted = compactionMinDeleted;
+        this.compactionMaxDeletedRatio = compactionMaxDeletedRatio;
+        this.compactionExecutor = compactionExecutor;
+        this.index = this.newIndex();
+
+        this.searchTimer = Timer.builder("artifact.semantic-search")
+                .description("Time to find the nearest artifacts of a query, embedding excluded")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("artifact.vector-index.size", this, ArtifactVectorIndex::size).register(meterRegistry);
+        // Removed and replaced vectors stay in the graph until it is compacted
+        Gauge.builder("artifact.vector-index.deleted", this, ArtifactVectorIndex::deletedSize).register(meterRegistry);
+
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(UPDATE_CHANNEL));
+    }
+
+    /**
+     * Not transactional: each page of texts is read in a query of its own, and embedded once it is read, so neither a
+     * cursor nor a connection is held during the remote calls of the embedding client.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        this.lock.writeLock().lock();
+        try {
+            this.changesDuringRebuild = new LinkedHashMap<>();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+
+        HnswIndex rebuilt = this.newIndex();
+        try {
+            String afterId = Long.toString(ArtifactIds.NONE);
+            List<ArtifactText> page;
+            do {
+                page = this.artifactRepository.findTextsByIdGreaterThan(afterId, Limit.of(this.rebuildBatchSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+                List<float[]> vectors = this.embeddingClient.embedAll(page.stream().map(artifact -> text(artifact.getName(), artifact.getDescription())).toList());
+                for (int i = 0; i < page.size(); i++) {
+                    rebuilt.put(page.get(i).getId(), vectors.get(i));
+                }
+                afterId = page.get(page.size() - 1).getId();
+            } while (page.size() == this.rebuildBatchSize);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not build the semantic search index, the search is unavailable until the next start", e);
+            this.lock.writeLock().lock();
+            try {
+                this.changesDuringRebuild = null;
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        this.swapIn(rebuilt);
+        LOGGER.info("Indexed the embeddings of {} artifacts", rebuilt.size());
+    }
+
+    /**
+     * Builds the graph again from its live vectors, without the removed and replaced ones, then swaps it in.
+     */
+    void compact() {
+        Map<String, float[]> liveVectors;
+        int deleted;
+        this.lock.writeLock().lock();
+        try {
+            if (this.changesDuringRebuild != null) {
+                return; // being rebuilt or compacted already
+            }
+            this.changesDuringRebuild = new LinkedHashMap<>();
+            this.compactionScheduled = false;
+            liveVectors = this.index.liveVectors();
+            deleted = this.index.deletedSize();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+
+        HnswIndex compacted = this.newIndex();
+        liveVectors.forEach(compacted::put);
+        this.swapIn(compacted);
+        LOGGER.info("Compacted the semantic search index: {} artifacts, {} removed or replaced vectors dropped", compacted.size(), deleted);
+    }
+
+    private void swapIn(HnswIndex rebuilt) {
+        this.lock.writeLock().lock();
+        try {
+            this.changesDuringRebuild.forEach((artifactId, vector) -> apply(rebuilt, artifactId, vector));
+            this.changesDuringRebuild = null;
+            this.index = rebuilt;
+            this.ready = true;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The ids of the limit artifacts closest in meaning to the query, closest first, or empty if the index is not built
+     * yet.
+     */
+    public Optional<List<String>> findNearestIds(String query, int limit) {
+        if (!this.ready) {
+            return Optional.empty();
+        }
+
+        float[] vector = this.embeddingClient.embed(query);
+        this.lock.readLock().lock();
+        try {
+            List<HnswIndex.Hit> hits = this.searchTimer.record(() -> this.index.search(vector, limit, this.efSearch));
+            return Optional.of(hits.stream().map(HnswIndex.Hit::key).toList());
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * (Re)indexes the artifact once the current transaction commits, here and on the other nodes.
+     */
+    public void index(Artifact artifact) {
+        this.indexAll(List.of(artifact));
+    }
+
+    /**
+     * Like index, but the texts of the artifacts are embedded in one call, e.g., for a batch.
+     */
+    public void indexAll(Collection<Artifact> artifacts) {
+        if (artifacts.isEmpty()) {
+            return;
+        }
+
+        List<String> artifactIds = artifacts.stream().map(Artifact::getId).toList();
+        List<String> texts = artifacts.stream().map(artifact -> text(artifact.getName(), artifact.getDescription())).toList();
+        this.afterCommit(() -> {
+            this.embedAndApply(artifactIds, texts);
+            artifactIds.forEach(this::publish);
+        });
+    }
+
+    public void remove(String artifactId) {
+        this.afterCommit(() -> {
+            this.apply(artifactId, Optional.empty());
+            this.publish(artifactId);
+        });
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] body = new String(message.getBody(), StandardCharsets.UTF_8).split(":", 2);
+        if (body.length != 2 || body[0].equals(this.nodeId)) {
+            return; // already applied locally
+        }
+
+        String artifactId = body[1];
+        this.artifactRepository.findById(artifactId).ifPresentOrElse(
+                artifact -> this.embedAndApply(List.of(artifactId), List.of(text(artifact.getName(), artifact.getDescription()))),
+                () -> this.apply(artifactId, Optional.empty()));
+    }
+
+    static String text(String name, String description) {
+        return name + ". " + description;
+    }
+
+    private void embedAndApply(List<String> artifactIds, List<String> texts) {
+        List<float[]> vectors;
+        try {
+            vectors = this.embeddingClient.embedAll(texts); // outside the lock, it may be a remote call
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not embed artifacts {}, they keep their previous vectors until the next start: {}", artifactIds, e.getMessage());
+            return;
+        }
+        for (int i = 0; i < artifactIds.size(); i++) {
+            this.apply(artifactIds.get(i), Optional.of(vectors.get(i)));
+        }
+    }
+
+    private void apply(String artifactId, Optional<float[]> vector) {
+        boolean compact;
+        this.lock.writeLock().lock();
+        try {
+            apply(this.index, artifactId, vector);
+            if (this.changesDuringRebuild != null) {
+                this.changesDuringRebuild.put(artifactId, vector);
+            }
+            int deleted = this.index.deletedSize();
+            compact = this.ready && this.changesDuringRebuild == null && !this.compactionScheduled
+                      && deleted >= this.compactionMinDeleted
+                      && deleted > this.compactionMaxDeletedRatio * (deleted + this.index.size());
+            this.compactionScheduled |= compact;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+        if (compact) {
+            this.compactionExecutor.execute(this::compact);
+        }
+    }
+
+    private static void apply(HnswIndex index, String artifactId, Optional<float[]> vector) {
+        vector.ifPresentOrElse(present -> index.put(artifactId, present), () -> index.remove(artifactId));
+    }
+
+    private HnswIndex newIndex() {
+        return new HnswIndex(this.embeddingClient.dimensions(), this.m, this.efConstruction, SEED);
+    }
+
+    private void publish(String artifactId) {
+        try {
+            this.redisCacheClient.publish(UPDATE_CHANNEL, this.nodeId + ":" + artifactId);
+        } catch (DataAccessException e) {
+            LOGGER.warn("Could not notify the other nodes of the change of artifact {}: {}", artifactId, e.getMessage());
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (this.compactionExecutor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.index.size();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    int deletedSize() {
+        this.lock.readLock().lock();
+        try {
+            return this.index.deletedSize();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+}
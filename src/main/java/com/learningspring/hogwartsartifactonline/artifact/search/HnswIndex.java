@@ -0,0 +1,408 @@
+package com.learningspring.hogwartsartifactonline.artifact.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Hierarchical Navigable Small World graph (Malkov and Yashunin, 2016) for the approximate nearest neighbours of unit
+ * vectors by cosine similarity, i.e., their dot product.
+ * <p>
+ * Each vector is a node of the bottom layer, and of each layer above with a probability of 1/m, so a search walks
+ * greedily from the sparse top layer down to the bottom one and only compares the query to a few hundred vectors.
+ * The neighbours are chosen with the heuristic of the paper, which keeps links in every direction, so that clustered
+ * vectors stay reachable.
+ * <p>
+ * A removed or replaced vector stays in the graph as a waypoint but is never returned, see deletedSize(), until the
+ * graph is built again from the live vectors, see liveVectors(). Not thread safe: ArtifactVectorIndex guards it with a
+ * read-write lock.
+ */
+class HnswIndex {
+
+    private static final int MAX_LEVEL = 16;
+
+    record Hit(String key, float similarity) {
+    }
+
+    private record Candidate(int node, float similarity) {
+    }
+
+    private static final Comparator<Candidate> CLOSEST_FIRST = Comparator.comparingDouble((Candidate candidate) -> candidate.similarity()).reversed();
+
+
+    private static final class Node {
+
+        final String key;
+
+        final float[] vector;
+
+        final int[][] neighbors; // by level, the first neighborCounts[level] are used
+
+        final int[] neighborCounts;
+
+        boolean deleted;
+
+        Node(String key, float[] vector, int level, int m) {
+            this.key = key;
+            this.vector = vector;
+            this.neighbors = new int[level + 1][];
+            for (int i = 0; i <= level; i++) {
+                this.neighbors[i] = new int[i == 0 ? 2 * m : m];
+            }
+            this.neighborCounts = new int[level + 1];
+        }
+
+        int level() {
+            return this.neighbors.length - 1;
+        }
+    }
+
+    /**
+     * A binary heap of nodes by similarity, the closest or the farthest on top, without the boxing of a PriorityQueue:
+     * the searches spend most of their time in it.
+     */
+    private static final class Heap {
+
+        private final boolean closestFirst;
+
+        private int[] nodes;
+
+        private float[] similarities;
+
+        private int size;
+
+        Heap(boolean closestFirst, int capacity) {
+            this.closestFirst = closestFirst;
+            this.nodes = new int[Math.max(capacity, 16)];
+            this.similarities = new float[this.nodes.length];
+        }
+
+        int size() {
+            return this.size;
+        }
+
+        boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        float peekSimilarity() {
+            return this.similarities[0];
+        }
+
+        void push(int node, float similarity) {
+            if (this.size == this.nodes.length) {
+                this.nodes = Arrays.copyOf(this.nodes, this.size * 2);
+                this.similarities = Arrays.copyOf(this.similarities, this.size * 2);
+            }
+            int i = this.size++;
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!this.above(similarity, this.similarities[parent])) {
+                    break;
+                }
+                this.nodes[i] = this.nodes[parent];
+                this.similarities[i] = this.similarities[parent];
+                i = parent;
+            }
+            this.nodes[i] = node;
+            this.similarities[i] = similarity;
+        }
+
+        int pop() {
+            int top = this.nodes[0];
+            int lastNode = this.nodes[--this.size];
+            float lastSimilarity = this.similarities[this.size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= this.size) {
+                    break;
+                }
+                if (child + 1 < this.size && this.above(this.similarities[child + 1], this.similarities[child])) {
+                    child++;
+                }
+                if (!this.above(this.similarities[child], lastSimilarity)) {
+                    break;
+                }
+                this.nodes[i] = this.nodes[child];
+                this.similarities[i] = this.similarities[child];
+                i = child;
+            }
+            this.nodes[i] = lastNode;
+            this.similarities[i] = lastSimilarity;
+            return top;
+        }
+
+        private boolean above(float similarity, float other) {
+            return this.closestFirst ? similarity > other : similarity < other;
+        }
+    }
+
+    private final int dimensions;
+
+    private final int m;
+
+    private final int efConstruction;
+
+    private final double levelMultiplier;
+
+    private final Random random;
+
+    private final List<Node> nodes = new ArrayList<>();
+
+    private final Map<String, Integer> liveNodes = new HashMap<>();
+
+    private int entryPoint = -1;
+
+    /**
+     * @param m the number of links of a node in each layer, twice that in the bottom layer
+     * @param efConstruction the number of candidates a new node is linked from; larger builds a better graph, slower
+     * @param seed of the levels of the nodes, so that the same vectors build the same graph
+     */
+    HnswIndex(int dimensions, int m, int efConstruction, long seed) {
+        this.dimensions = dimensions;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Adds the vector, which must have a length of 1, replacing the previous vector of the key.
+     */
+    void put(String key, float[] vector) {
+        if (vector.length != this.dimensions) {
+            throw new IllegalArgumentException("Expected a vector of " + this.dimensions + " dimensions, got " + vector.length);
+        }
+        this.remove(key);
+
+        int level = Math.min((int) (-Math.log(1 - this.random.nextDouble()) * this.levelMultiplier), MAX_LEVEL);
+        int nodeId = this.nodes.size();
+        Node node = new Node(key, vector, level, this.m);
+        this.nodes.add(node);
+        this.liveNodes.put(key, nodeId);
+
+        if (this.entryPoint < 0) {
+            this.entryPoint = nodeId;
+            return;
+        }
+
+        int topLevel = this.nodes.get(this.entryPoint).level();
+        Candidate closest = new Candidate(this.entryPoint, this.similarity(vector, this.entryPoint));
+        for (int layer = topLevel; layer > level; layer--) {
+            closest = this.greedySearch(vector, closest, layer);
+        }
+        for (int layer = Math.min(level, topLevel); layer >= 0; layer--) {
+            List<Candidate> candidates = this.searchLayer(vector, closest, this.efConstruction, layer);
+            List<Candidate> neighbors = this.selectNeighbors(candidates, this.m);
+            for (Candidate neighbor : neighbors) {
+                node.neighbors[layer][node.neighborCounts[layer]++] = neighbor.node();
+                this.link(neighbor.node(), nodeId, layer);
+            }
+            closest = candidates.get(0);
+        }
+
+        if (level > topLevel) {
+            this.entryPoint = nodeId;
+        }
+    }
+
+    void remove(String key) {
+        Integer nodeId = this.liveNodes.remove(key);
+        if (nodeId != null) {
+            this.nodes.get(nodeId).deleted = true;
+        }
+    }
+
+    /**
+     * The k nearest vectors to the query, closest first. ef is the number of candidates kept while searching the bottom
+     * layer: a larger ef gives a better recall, slower.
+     */
+    List<Hit> search(float[] query, int k, int ef) {
+        if (this.entryPoint < 0 || k <= 0) {
+            return List.of();
+        }
+
+        Candidate closest = new Candidate(this.entryPoint, this.similarity(query, this.entryPoint));
+        for (int layer = this.nodes.get(this.entryPoint).level(); layer > 0; layer--) {
+            closest = this.greedySearch(query, closest, layer);
+        }
+
+        List<Hit> hits = new ArrayList<>(k);
+        for (Candidate candidate : this.searchLayer(query, closest, Math.max(ef, k), 0)) {
+            Node node = this.nodes.get(candidate.node());
+            if (!node.deleted) {
+                hits.add(new Hit(node.key, candidate.similarity()));
+                if (hits.size() == k) {
+                    break;
+                }
+            }
+        }
+        return hits;
+    }
+
+    int size() {
+        return this.liveNodes.size();
+    }
+
+    /**
+     * The removed or replaced vectors still in the graph, until it is rebuilt.
+     */
+    int deletedSize() {
+        return this.nodes.size() - this.liveNodes.size();
+    }
+
+    /**
+     * The vectors of the keys, by key, in the order they were put, e.g., to build a graph without the deleted ones.
+     * The vectors are shared, not copied: they are never changed once put.
+     */
+    Map<String, float[]> liveVectors() {
+        Map<String, float[]> liveVectors = new LinkedHashMap<>(this.liveNodes.size() * 4 / 3 + 1);
+        for (Node node : this.nodes) {
+            if (!node.deleted) {
+                liveVectors.put(node.key, node.vector);
+            }
+        }
+        return liveVectors;
+    }
+
+    private Candidate greedySearch(float[] query, Candidate start, int layer) {
+        Candidate closest = start;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            Node node = this.nodes.get(closest.node());
+            for (int i = 0; i < node.neighborCounts[layer]; i++) {
+                int neighbor = node.neighbors[layer][i];
+                float similarity = this.similarity(query, neighbor);
+                if (similarity > closest.similarity()) {
+                    closest = new Candidate(neighbor, similarity);
+                    improved = true;
+                }
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * The ef nodes of the layer closest to the query found from the start node, closest first. The deleted nodes are
+     * included: they still link the others.
+     */
+    private List<Candidate> searchLayer(float[] query, Candidate start, int ef, int layer) {
+        boolean[] visited = new boolean[this.nodes.size()];
+        Heap candidates = new Heap(true, ef);
+        Heap results = new Heap(false, ef + 1);
+        visited[start.node()] = true;
+        candidates.push(start.node(), start.similarity());
+        results.push(start.node(), start.similarity());
+
+        while (!candidates.isEmpty()) {
+            if (results.size() >= ef && candidates.peekSimilarity() < results.peekSimilarity()) {
+                break; // every other candidate is farther than the results
+            }
+            Node node = this.nodes.get(candidates.pop());
+            for (int i = 0; i < node.neighborCounts[layer]; i++) {
+                int neighbor = node.neighbors[layer][i];
+                if (visited[neighbor]) {
+                    continue;
+                }
+                visited[neighbor] = true;
+                float similarity = this.similarity(query, neighbor);
+                if (results.size() < ef || similarity > results.peekSimilarity()) {
+                    candidates.push(neighbor, similarity);
+                    results.push(neighbor, similarity);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+
+        Candidate[] closestFirst = new Candidate[results.size()];
+        for (int i = closestFirst.length - 1; i >= 0; i--) {
+            float similarity = results.peekSimilarity();
+            closestFirst[i] = new Candidate(results.pop(), similarity);
+        }
+        return Arrays.asList(closestFirst);
+    }
+
+    /**
+     * Keeps a candidate only if it is closer to the base than to every neighbour kept so far, so that the links
+     * spread in all directions instead of all pointing into the nearest cluster. Fills up with the closest of the others.
+     */
+    private List<Candidate> selectNeighbors(List<Candidate> candidatesClosestFirst, int max) {
+        List<Candidate> selected = new ArrayList<>(max);
+        List<Candidate> pruned = new ArrayList<>();
+        for (Candidate candidate : candidatesClosestFirst) {
+            if (selected.size() == max) {
+                break;
+            }
+            float[] vector = this.nodes.get(candidate.node()).vector;
+            boolean diverse = true;
+            for (Candidate other : selected) {
+                if (this.similarity(vector, other.node()) > candidate.similarity()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            (diverse ? selected : pruned).add(candidate);
+        }
+        for (int i = 0; i < pruned.size() && selected.size() < max; i++) {
+            selected.add(pruned.get(i));
+        }
+        return selected;
+    }
+
+    private void link(int from, int to, int layer) {
+        Node node = this.nodes.get(from);
+        int[] neighbors = node.neighbors[layer];
+        if (node.neighborCounts[layer] < neighbors.length) {
+            neighbors[node.neighborCounts[layer]++] = to;
+            return;
+        }
+
+        // Full: keep the best of the current neighbours and the new one
+        List<Candidate> candidates = new ArrayList<>(neighbors.length + 1);
+        for (int neighbor : neighbors) {
+            candidates.add(new Candidate(neighbor, this.similarity(node.vector, neighbor)));
+        }
+        candidates.add(new Candidate(to, this.similarity(node.vector, to)));
+        candidates.sort(CLOSEST_FIRST);
+
+        List<Candidate> selected = this.selectNeighbors(candidates, neighbors.length);
+        for (int i = 0; i < selected.size(); i++) {
+            neighbors[i] = selected.get(i).node();
+        }
+        node.neighborCounts[layer] = selected.size();
+    }
+
+    private float similarity(float[] vector, int node) {
+        return dot(vector, this.nodes.get(node).vector);
+    }
+
+    /**
+     * Four independent sums, so that the JIT can pipeline the multiplications instead of waiting for each addition.
+     */
+    static float dot(float[] a, float[] b) {
+        float sum0 = 0;
+        float sum1 = 0;
+        float sum2 = 0;
+        float sum3 = 0;
+        int i = 0;
+        for (int end = a.length & ~3; i < end; i += 4) {
+            sum0 += a[i] * b[i];
+            sum1 += a[i + 1] * b[i + 1];
+            sum2 += a[i + 2] * b[i + 2];
+            sum3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < a.length; i++) {
+            sum0 += a[i] * b[i];
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+}
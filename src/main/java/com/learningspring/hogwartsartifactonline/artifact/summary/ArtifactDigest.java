@@ -0,0 +1,75 @@
+package com.learningspring.hogwartsartifactonline.artifact.summary;
+
+import com.learningspring.hogwartsartifactonline.artifact.converter.ArtifactIdConverter;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * A one-sentence description of an artifact, generated from its name and description by ArtifactDigestService.
+ * The hash of the text it was generated from tells whether it is still up to date.
+ */
+@Entity
+public class ArtifactDigest implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Convert(converter = ArtifactIdConverter.class)
+    private String artifactId;
+
+    @Column(length = 64)
+    private String sourceHash;
+
+    @Column(length = 1000)
+    private String digest;
+
+    @UpdateTimestamp
+    private Instant updatedAt;
+
+    public ArtifactDigest() {
+    }
+
+    public ArtifactDigest(String artifactId, String sourceHash, String digest) {
+        this.artifactId = artifactId;
+        this.sourceHash = sourceHash;
+        this.digest = digest;
+    }
+
+    public String getArtifactId() {
+        return artifactId;
+    }
+
+    public void setArtifactId(String artifactId) {
+        this.artifactId = artifactId;
+    }
+
+    public String getSourceHash() {
+        return sourceHash;
+    }
+
+    public void setSourceHash(String sourceHash) {
+        this.sourceHash = sourceHash;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    public void setDigest(String digest) {
+        this.digest = digest;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,13 @@
+package com.learningspring.hogwartsartifactonline.artifact.summary;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ArtifactDigestRepository extends JpaRepository<ArtifactDigest, String> {
+
+    @Query("select d.artifactId as artifactId, d.sourceHash as sourceHash, d.digest as digest from ArtifactDigest d where d.artifactId in :artifactIds")
+    List<ArtifactDigestView> findViewsByArtifactIdIn(Collection<String> artifactIds);
+}
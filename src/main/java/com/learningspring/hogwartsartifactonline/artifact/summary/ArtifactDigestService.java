@@ -0,0 +1,270 @@
+package com.learningspring.hogwartsartifactonline.artifact.summary;
+
+import com.learningspring.hogwartsartifactonline.artifact.ArtifactRepository;
+import com.learningspring.hogwartsartifactonline.artifact.ArtifactText;
+import com.learningspring.hogwartsartifactonline.artifact.dto.ArtifactDto;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.ChatClient;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatRequest;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.Message;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps a short digest of every artifact, so the catalog summary is built from one sentence per artifact instead of
+ * the whole descriptions, and a change only costs the completion of the changed artifact.
+ * <p>
+ * The writes enqueue the ids of the artifacts they change, after their commit. The changes are collected for the
+ * debounce duration after the first one, so that bursts of writes to the same artifact generate its digest once,
+ * then processed in batches of batchSize on a single background thread: one select for the texts, one for the
+ * digests, and one completion per artifact whose name or description changed since its digest was generated.
+ */
+@Service
+public class ArtifactDigestService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactDigestService.class);
+
+    static final int MAX_DIGEST_LENGTH = 1000; // of the digest column
+
+    private static final int MAX_IDS_PER_SELECT = 1000;
+
+    private static final String DIGEST_PROMPT = "Your task is to describe the given artifact in one sentence of at most 25 words. Don't mention its name, nor that the description was given.";
+
+    private final ArtifactRepository artifactRepository;
+
+    private final ArtifactDigestRepository artifactDigestRepository;
+
+    private final ChatClient chatClient;
+
+    private final String model;
+
+    private final Duration debounce;
+
+    private final int batchSize;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Set<String> pendingIds = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private final Counter generated;
+
+    private final Counter unchanged;
+
+    private final Counter failed;
+
+    @Autowired
+    public ArtifactDigestService(ArtifactRepository artifactRepository,
+            ArtifactDigestRepository artifactDigestRepository,
+            ChatClient chatClient,
+            MeterRegistry meterRegistry,
+            @Value("${artifact.summary.model}") String model,
+            @Value("${artifact.digests.debounce}") Duration debounce,
+            @Value("${artifact.digests.batch-size}") int batchSize) {
+        this(artifactRepository, artifactDigestRepository, chatClient, meterRegistry, model, debounce, batchSize,
+             Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("artifact-digest-")));
+    }
+
+    ArtifactDigestService(ArtifactRepository artifactRepository,
+            ArtifactDigestRepository artifactDigestRepository,
+            ChatClient chatClient,
+            MeterRegistry meterRegistry,
+            String model,
+            Duration debounce,
+            int batchSize,
+            ScheduledExecutorService scheduler) {
+        this.artifactRepository = artifactRepository;
+        this.artifactDigestRepository = artifactDigestRepository;
+        this.chatClient = chatClient;
+        this.model = model;
+        this.debounce = debounce;
+        this.batchSize = batchSize;
+        this.scheduler = scheduler;
+
+        this.generated = meterRegistry.counter("artifact.digests", "result", "generated");
+        this.unchanged = meterRegistry.counter("artifact.digests", "result", "unchanged");
+        this.failed = meterRegistry.counter("artifact.digests", "result", "failed");
+    }
+
+    /**
+     * Queues the digests of the given artifacts, once the current transaction commits. The digests of the artifacts
+     * that no longer exist are deleted.
+     */
+    public void enqueue(Collection<String> artifactIds) {
+        if (artifactIds.isEmpty()) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doEnqueue(artifactIds);
+                }
+            });
+        } else {
+            this.doEnqueue(artifactIds);
+        }
+    }
+
+    /**
+     * The catalog summary's view of each artifact: its name, its owner and its digest. The owner is read from the
+     * given DTOs, so a change of ownership never needs a new digest. The artifacts without an up-to-date digest,
+     * e.g., created before digests existed, get their description instead and are queued. Only the digests of the
+     * given artifacts are read, MAX_IDS_PER_SELECT at a time.
+     */
+    public List<CatalogEntry> catalogEntries(List<ArtifactDto> artifactDtos) {
+        List<String> artifactIds = artifactDtos.stream().map(ArtifactDto::id).toList();
+        Map<String, ArtifactDigestView> digests = new HashMap<>(artifactIds.size() * 4 / 3 + 1);
+        for (int from = 0; from < artifactIds.size(); from += MAX_IDS_PER_SELECT) {
+            List<String> chunk = artifactIds.subList(from, Math.min(from + MAX_IDS_PER_SELECT, artifactIds.size()));
+            this.artifactDigestRepository.findViewsByArtifactIdIn(chunk)
+                    .forEach(digest -> digests.put(digest.getArtifactId(), digest));
+        }
+
+        List<CatalogEntry> entries = new ArrayList<>(artifactDtos.size());
+        List<String> staleIds = new ArrayList<>();
+        for (ArtifactDto artifactDto : artifactDtos) {
+            ArtifactDigestView digest = digests.get(artifactDto.id());
+            String description = artifactDto.description();
+            if (digest != null && digest.getSourceHash().equals(sourceHash(artifactDto.name(), artifactDto.description()))) {
+                description = digest.getDigest();
+            } else {
+                staleIds.add(artifactDto.id());
+            }
+            String owner = artifactDto.owner() != null ? artifactDto.owner().name() : null;
+            entries.add(new CatalogEntry(artifactDto.id(), artifactDto.name(), owner, description));
+        }
+
+        this.enqueue(staleIds);
+        return entries;
+    }
+
+    private void doEnqueue(Collection<String> artifactIds) {
+        this.pendingIds.addAll(artifactIds);
+        this.scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (this.flushScheduled.compareAndSet(false, true)) {
+            this.scheduler.schedule(this::flush, this.debounce.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void flush() {
+        this.flushScheduled.set(false);
+        List<String> batch = new ArrayList<>(this.batchSize);
+        Iterator<String> iterator = this.pendingIds.iterator();
+        while (iterator.hasNext() && batch.size() < this.batchSize) {
+            batch.add(iterator.next());
+            iterator.remove();
+        }
+        if (!this.pendingIds.isEmpty()) {
+            this.scheduleFlush(); // the next batch
+        }
+
+        try {
+            this.process(batch);
+        } catch (Exception e) {
+            // Not retried: the artifacts are queued again by their next change or the next catalog summary
+            LOGGER.warn("Could not update the digests of artifacts {}", batch, e);
+        }
+    }
+
+    private void process(List<String> artifactIds) {
+        Map<String, ArtifactText> texts = this.artifactRepository.findTextsByIdIn(artifactIds)
+                .stream()
+                .collect(Collectors.toMap(ArtifactText::getId, Function.identity()));
+        Map<String, ArtifactDigest> digests = this.artifactDigestRepository.findAllById(artifactIds)
+                .stream()
+                .collect(Collectors.toMap(ArtifactDigest::getArtifactId, Function.identity()));
+
+        List<ArtifactDigest> changedDigests = new ArrayList<>();
+        List<String> deletedIds = new ArrayList<>();
+        for (String artifactId : artifactIds) {
+            ArtifactText text = texts.get(artifactId);
+            ArtifactDigest digest = digests.get(artifactId);
+            if (text == null) {
+                if (digest != null) {
+                    deletedIds.add(artifactId);
+                }
+                continue;
+            }
+
+            String sourceHash = sourceHash(text.getName(), text.getDescription());
+            if (digest != null && sourceHash.equals(digest.getSourceHash())) {
+                this.unchanged.increment(); // e.g., an assignment, or an update of the image only
+                continue;
+            }
+            try {
+                changedDigests.add(new ArtifactDigest(artifactId, sourceHash, this.generate(text)));
+                this.generated.increment();
+            } catch (RuntimeException e) {
+                this.failed.increment();
+                LOGGER.warn("Could not generate the digest of artifact {}: {}", artifactId, e.getMessage());
+            }
+        }
+
+        this.artifactDigestRepository.saveAll(changedDigests);
+        this.artifactDigestRepository.deleteAllById(deletedIds);
+    }
+
+    private String generate(ArtifactText text) {
+        List<Message> messages = List.of(
+                new Message("system", DIGEST_PROMPT),
+                new Message("user", "Name: " + text.getName() + "\nDescription: " + text.getDescription())
+        );
+        return truncate(this.chatClient.generate(new ChatRequest(this.model, messages)).choices().get(0).message().content());
+    }
+
+    /**
+     * A digest that fits its column, since a model may ignore the length asked for, and one digest too long would
+     * fail the saveAll of the whole batch.
+     */
+    static String truncate(String digest) {
+        if (digest == null || digest.length() <= MAX_DIGEST_LENGTH) {
+            return digest;
+        }
+        int end = MAX_DIGEST_LENGTH - 1;
+        if (Character.isLowSurrogate(digest.charAt(end))) {
+            end--; // not half of a character
+        }
+        return digest.substring(0, end) + "…";
+    }
+
+    static String sourceHash(String name, String description) {
+        return DigestUtils.md5DigestAsHex((name + "\u0000" + description).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        this.scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,13 @@
+package com.learningspring.hogwartsartifactonline.artifact.summary;
+
+/**
+ * The columns of an ArtifactDigest that the catalog summary reads.
+ */
+public interface ArtifactDigestView {
+
+    String getArtifactId();
+
+    String getSourceHash();
+
+    String getDigest();
+}
@@ -0,0 +1,183 @@
+package com.learningspring.hogwartsartifactonline.artifact.summary;
+
+import com.learningspring.hogwartsartifactonline.client.ai.chat.ChatClient;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatRequest;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatResponse;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.Message;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Summarizes catalogs of any size with the chat model. The catalog is written in the prompts by the
+ * CatalogPromptEncoder named by artifact.summary.encoder. A catalog that fits in one prompt is summarized at once.
+ * A larger one is split into chunks of at most chunkTokens tokens: the chunks are summarized in parallel (map), then
+ * the partial summaries are combined into one (reduce), in several rounds if they don't fit in one prompt either.
+ * Partial summaries too long to be combined even two at a time are shortened first.
+ * <p>
+ * The chunks of a stage are sent with ChatClient.generateAll, which sends them concurrently within the rate limits
+ * of the model's provider.
+ */
+@Component
+public class ArtifactSummarizer {
+
+    private static final String SUMMARIZE_PROMPT = "Your task is to generate a short summary of a given catalog of artifacts, %s, in at most 100 words. The summary must include the number of artifacts, each artifact's description, and the ownership information. Don't mention that the summary is from a given list.";
+
+    private static final String MAP_PROMPT = "Your task is to generate a short summary of a given list of artifacts, %s, which is one part of a larger catalog, in at most 100 words. The summary must include the number of artifacts, each artifact's description, and the ownership information. Don't mention that the summary is from a given list.";
+
+    private static final String REDUCE_PROMPT = "Your task is to combine the given summaries of the parts of a catalog of artifacts into one short summary in at most 100 words. The summary must include the total number of artifacts, the most notable artifacts, and the ownership information. Don't mention that the summary is combined from other summaries.";
+
+    private static final String SHORTEN_PROMPT = "Your task is to shorten the given summary of a part of a catalog of artifacts to at most %d words. The summary must keep the number of artifacts, the most notable artifacts, and the ownership information.";
+
+    private static final String SUMMARY_SEPARATOR = "\n\n";
+
+    private final ChatClient chatClient;
+
+    private final String model;
+
+    private final int chunkTokens;
+
+    private final CatalogPromptEncoder encoder;
+
+    private final String summarizePrompt;
+
+    private final String mapPrompt;
+
+    private final DistributionSummary chunkCounts;
+
+    private final Timer mapTimer;
+
+    private final Timer reduceTimer;
+
+    public ArtifactSummarizer(ChatClient chatClient,
+            MeterRegistry meterRegistry,
+            List<CatalogPromptEncoder> encoders,
+            @Value("${artifact.summary.model}") String model,
+            @Value("${artifact.summary.chunk-tokens}") int chunkTokens,
+            @Value("${artifact.summary.encoder}") String encoderName) {
+        this.chatClient = chatClient;
+        this.model = model;
+        this.chunkTokens = chunkTokens;
+        this.encoder = encoders.stream()
+                .filter(encoder -> encoder.name().equals(encoderName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown catalog prompt encoder: " + encoderName));
+        this.summarizePrompt = SUMMARIZE_PROMPT.formatted(this.encoder.format());
+        this.mapPrompt = MAP_PROMPT.formatted(this.encoder.format());
+
+        this.chunkCounts = DistributionSummary.builder("artifact.summary.chunks")
+                .description("Number of chunks a catalog is split into to be summarized")
+                .register(meterRegistry);
+        this.mapTimer = Timer.builder("artifact.summary.stage").tag("stage", "map").register(meterRegistry);
+        this.reduceTimer = Timer.builder("artifact.summary.stage").tag("stage", "reduce").register(meterRegistry);
+    }
+
+    public String summarize(List<CatalogEntry> entries) {
+        return this.summarize(entries, null);
+    }
+
+    /**
+     * Summarizes a catalog, see ArtifactDigestService.catalogEntries. Streams the last completion, i.e., the summary
+     * itself, to onToken if it's not null. The partial summaries are not streamed.
+     */
+    public String summarize(List<CatalogEntry> entries, Consumer<String> onToken) {
+        List<String> chunks = this.encoder.encode(entries, this.chunkTokens);
+        this.chunkCounts.record(chunks.size());
+
+        if (chunks.size() == 1) {
+            return this.reduceTimer.record(() -> this.generate(this.summarizePrompt, chunks.get(0), onToken));
+        }
+
+        List<String> summaries = this.mapTimer.record(() -> this.generateAll(this.mapPrompt, chunks));
+        return this.reduceTimer.record(() -> this.reduce(summaries, onToken));
+    }
+
+    /**
+     * Combines the summaries into one, first combining groups of them in parallel while they don't fit in one
+     * prompt. Each round divides their number by about the number of summaries that fit in a prompt. When no two of
+     * them fit together, they are all shortened to half a prompt, so that the next round combines them in pairs.
+     */
+    private String reduce(List<String> summaries, Consumer<String> onToken) {
+        boolean shortened = false;
+        while (summaries.size() > 1 && CatalogPromptEncoder.estimateTokens(String.join(SUMMARY_SEPARATOR, summaries).length()) > this.chunkTokens) {
+            List<List<String>> groups = this.group(summaries);
+            if (groups.size() == summaries.size()) {
+                if (shortened) {
+                    throw new IllegalStateException("The partial summaries don't fit in " + this.chunkTokens
+                                                    + " tokens two at a time, even shortened; increase artifact.summary.chunk-tokens");
+                }
+                summaries = this.generateAll(SHORTEN_PROMPT.formatted(this.shortenedWords()), summaries);
+                shortened = true;
+                continue;
+            }
+            shortened = false;
+
+            List<String> combined = this.generateAll(REDUCE_PROMPT, groups.stream()
+                    .filter(group -> group.size() > 1)
+                    .map(group -> String.join(SUMMARY_SEPARATOR, group))
+                    .toList());
+            Iterator<String> combinedIterator = combined.iterator();
+            summaries = groups.stream()
+                    .map(group -> group.size() > 1 ? combinedIterator.next() : group.get(0)) // a summary alone is kept as is
+                    .toList();
+        }
+        return this.generate(REDUCE_PROMPT, String.join(SUMMARY_SEPARATOR, summaries), onToken);
+    }
+
+    /**
+     * The words of a summary that fits in half a prompt, at about 4 characters per token and 5 characters per word.
+     */
+    private int shortenedWords() {
+        return Math.max(1, (this.chunkTokens - CatalogPromptEncoder.estimateTokens(SUMMARY_SEPARATOR.length())) / 2 * 4 / 5);
+    }
+
+    private List<List<String>> group(List<String> summaries) {
+        List<List<String>> groups = new ArrayList<>();
+        List<String> group = new ArrayList<>();
+        int groupLength = 0;
+        for (String summary : summaries) {
+            if (!group.isEmpty() && CatalogPromptEncoder.estimateTokens(groupLength + SUMMARY_SEPARATOR.length() + summary.length()) > this.chunkTokens) {
+                groups.add(group);
+                group = new ArrayList<>();
+                groupLength = 0;
+            }
+            groupLength += group.isEmpty() ? summary.length() : SUMMARY_SEPARATOR.length() + summary.length();
+            group.add(summary);
+        }
+        groups.add(group);
+        return groups;
+    }
+
+    private List<String> generateAll(String prompt, List<String> contents) {
+        List<ChatRequest> chatRequests = contents.stream()
+                .map(content -> this.chatRequest(prompt, content))
+                .toList();
+
+        return this.chatClient.generateAll(chatRequests)
+                .stream()
+                .map(chatResponse -> chatResponse.choices().get(0).message().content())
+                .toList();
+    }
+
+    private String generate(String prompt, String content, Consumer<String> onToken) {
+        ChatRequest chatRequest = this.chatRequest(prompt, content);
+
+        ChatResponse chatResponse = onToken != null
+                ? this.chatClient.generateStream(chatRequest, onToken)
+                : this.chatClient.generate(chatRequest);
+
+        return chatResponse.choices().get(0).message().content();
+    }
+
+    private ChatRequest chatRequest(String prompt, String content) {
+        List<Message> messages = List.of(new Message("system", prompt), new Message("user", content));
+        return new ChatRequest(this.model, messages);
+    }
+}
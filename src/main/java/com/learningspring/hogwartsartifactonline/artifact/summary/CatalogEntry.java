@@ -0,0 +1,10 @@
+package com.learningspring.hogwartsartifactonline.artifact.summary;
+
+/**
+ * What the catalog summary needs to know of one artifact, see ArtifactDigestService.catalogEntries.
+ *
+ * @param owner the name of the owner, or null
+ * @param description the digest of the artifact, or its description if it has no up-to-date digest
+ */
+public record CatalogEntry(String id, String name, String owner, String description) {
+}
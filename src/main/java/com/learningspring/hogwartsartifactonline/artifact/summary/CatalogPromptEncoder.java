@@ -0,0 +1,53 @@
+package com.learningspring.hogwartsartifactonline.artifact.summary;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Writes a catalog into the prompts of ArtifactSummarizer. The implementations are selected by name with
+ * artifact.summary.encoder.
+ * <p>
+ * The encoding must be deterministic: the same entries, in any order, give the same chunks, so that the completions
+ * of an unchanged catalog are answered by CachingChatClient.
+ */
+public interface CatalogPromptEncoder {
+
+    /**
+     * Sorts by id, i.e., by creation for the snowflake ids: a new artifact only changes the last chunk.
+     */
+    Comparator<CatalogEntry> ORDER = Comparator.comparing((CatalogEntry entry) -> entry.id().length())
+            .thenComparing(CatalogEntry::id);
+
+    String name();
+
+    /**
+     * How the catalog is laid out, for the instructions of the prompts, e.g., "one artifact per line".
+     */
+    String format();
+
+    /**
+     * Encodes the entries in chunks of at most maxTokens tokens, each readable on its own. An entry larger than that
+     * gets a chunk of its own rather than being cut.
+     */
+    List<String> encode(List<CatalogEntry> entries, int maxTokens);
+
+    /**
+     * About 4 characters per token for English text with the Llama 3 tokenizer. Only used to size the prompts, so an
+     * estimate is enough as long as the budgets leave some room.
+     */
+    static int estimateTokens(int characters) {
+        return (characters + 3) / 4;
+    }
+
+    /**
+     * Cuts the text to about maxTokens tokens, at the end of a word, with an ellipsis.
+     */
+    static String truncate(String text, int maxTokens) {
+        int maxCharacters = maxTokens * 4;
+        if (text.length() <= maxCharacters) {
+            return text;
+        }
+        int end = text.lastIndexOf(' ', maxCharacters - 1);
+        return text.substring(0, end > 0 ? end : maxCharacters - 1).stripTrailing() + "…";
+    }
+}
@@ -0,0 +1,55 @@
+package com.learningspring.hogwartsartifactonline.artifact.summary;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One sentence-like line per artifact: "name (owned by owner): description". The easiest format for the model, but
+ * each line repeats the owner's name.
+ */
+@Component
+public class LineCatalogPromptEncoder implements CatalogPromptEncoder {
+
+    private static final String LINE_SEPARATOR = "\n";
+
+    private final int descriptionTokens;
+
+    public LineCatalogPromptEncoder(@Value("${artifact.summary.description-tokens}") int descriptionTokens) {
+        this.descriptionTokens = descriptionTokens;
+    }
+
+    @Override
+    public String name() {
+        return "lines";
+    }
+
+    @Override
+    public String format() {
+        return "one artifact per line";
+    }
+
+    @Override
+    public List<String> encode(List<CatalogEntry> entries, int maxTokens) {
+        List<String> chunks = new ArrayList<>();
+        StringBuilder chunk = new StringBuilder();
+        for (CatalogEntry entry : entries.stream().sorted(ORDER).toList()) {
+            String owner = entry.owner() != null ? entry.owner() : "nobody";
+            String line = entry.name() + " (owned by " + owner + "): "
+                    + CatalogPromptEncoder.truncate(entry.description(), this.descriptionTokens).replace(LINE_SEPARATOR, " ");
+
+            if (!chunk.isEmpty() && CatalogPromptEncoder.estimateTokens(chunk.length() + LINE_SEPARATOR.length() + line.length()) > maxTokens) {
+                chunks.add(chunk.toString());
+                chunk.setLength(0);
+            }
+            if (!chunk.isEmpty()) {
+                chunk.append(LINE_SEPARATOR);
+            }
+            chunk.append(line);
+        }
+        chunks.add(chunk.toString()); // empty for an empty catalog
+        return chunks;
+    }
+}
@@ -0,0 +1,30 @@
+package com.learningspring.hogwartsartifactonline.artifact.summary;
+
+/**
+ * A summary of the catalog generated in the background, see SummaryJobService. Stored in Redis as JSON.
+ *
+ * @param catalogVersion the CatalogVersion when the job was submitted; the summary may include later writes
+ * @param summary        set once the job succeeded
+ * @param error          set if the job failed
+ */
+public record SummaryJob(String id, Status status, long catalogVersion, String summary, String error) {
+
+    public enum Status {
+        PENDING,
+        RUNNING,
+        SUCCEEDED,
+        FAILED
+    }
+
+    SummaryJob withStatus(Status status) {
+        return new SummaryJob(this.id, status, this.catalogVersion, this.summary, this.error);
+    }
+
+    SummaryJob succeeded(String summary) {
+        return new SummaryJob(this.id, Status.SUCCEEDED, this.catalogVersion, summary, null);
+    }
+
+    SummaryJob failed(String error) {
+        return new SummaryJob(this.id, Status.FAILED, this.catalogVersion, null, error);
+    }
+}
@@ -0,0 +1,201 @@
+package com.learningspring.hogwartsartifactonline.artifact.summary;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learningspring.hogwartsartifactonline.artifact.ArtifactService;
+import com.learningspring.hogwartsartifactonline.artifact.cache.CatalogVersion;
+import com.learningspring.hogwartsartifactonline.artifact.dto.ArtifactDto;
+import com.learningspring.hogwartsartifactonline.client.rediscache.RedisCacheClient;
+import com.learningspring.hogwartsartifactonline.system.exception.ObjectNotFoundException;
+import com.learningspring.hogwartsartifactonline.system.exception.SummaryJobRejectedException;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates catalog summaries in the background, so that no request thread nor database connection waits for the
+ * chat completion. Jobs run on a bounded executor and are stored in Redis, where they expire after the TTL.
+ * <p>
+ * The jobs submitted at the same CatalogVersion describe the same catalog, so they share one job: the first request
+ * claims the version with SET NX and the next ones get its id, until the job expires or fails. Redis being
+ * unavailable rejects the request like a full executor, with 503.
+ */
+@Service
+public class SummaryJobService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SummaryJobService.class);
+
+    private static final String JOB_KEY_PREFIX = "artifact-summary:job:";
+
+    private static final String VERSION_KEY_PREFIX = "artifact-summary:version:";
+
+    private final ArtifactService artifactService;
+
+    private final CatalogVersion catalogVersion;
+
+    private final RedisCacheClient redisCacheClient;
+
+    private final ObjectMapper objectMapper;
+
+    private final Duration ttl;
+
+    private final ExecutorService executor;
+
+    @Autowired
+    public SummaryJobService(ArtifactService artifactService,
+            CatalogVersion catalogVersion,
+            RedisCacheClient redisCacheClient,
+            ObjectMapper objectMapper,
+            @Value("${artifact.summary-jobs.threads}") int threads,
+            @Value("${artifact.summary-jobs.queue-capacity}") int queueCapacity,
+            @Value("${artifact.summary-jobs.ttl}") Duration ttl) {
+        // Rejects the jobs that don't fit in the queue (AbortPolicy), rather than running them on the request thread
+        this(artifactService, catalogVersion, redisCacheClient, objectMapper, ttl,
+             new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                    new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("summary-job-")));
+    }
+
+    SummaryJobService(ArtifactService artifactService,
+            CatalogVersion catalogVersion,
+            RedisCacheClient redisCacheClient,
+            ObjectMapper objectMapper,
+            Duration ttl,
+            ExecutorService executor) {
+        this.artifactService = artifactService;
+        this.catalogVersion = catalogVersion;
+        this.redisCacheClient = redisCacheClient;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the job summarizing the current catalog, submitting it unless another request already did. Rejected
+     * when the executor is full or Redis is unavailable.
+     */
+    public SummaryJob submit() {
+        try {
+            long version = this.catalogVersion.current();
+            SummaryJob job = new SummaryJob(UUID.randomUUID().toString(), SummaryJob.Status.PENDING, version, null, null);
+
+            // Saved before the version is claimed, so a claimed job can always be read
+            this.save(job);
+            Optional<SummaryJob> sharedJob = this.claim(versionKey(version), job);
+            if (sharedJob.isPresent()) {
+                this.redisCacheClient.delete(JOB_KEY_PREFIX + job.id());
+                return sharedJob.get();
+            }
+
+            try {
+                this.executor.execute(() -> this.run(job));
+            } catch (RejectedExecutionException e) {
+                this.redisCacheClient.deleteIfEquals(versionKey(version), job.id());
+                this.redisCacheClient.delete(JOB_KEY_PREFIX + job.id());
+                throw new SummaryJobRejectedException();
+            }
+            return job;
+        } catch (DataAccessException e) {
+            throw new SummaryJobRejectedException(e);
+        }
+    }
+
+    public SummaryJob findById(String jobId) {
+        try {
+            return this.find(jobId).orElseThrow(() -> new ObjectNotFoundException("summary job", jobId));
+        } catch (DataAccessException e) {
+            throw new SummaryJobRejectedException(e);
+        }
+    }
+
+    /**
+     * Reads the catalog in a short transaction of its own, then generates the summary outside of any transaction.
+     * A job that can't be stored as failed releases its version, so that the next request does not wait for it.
+     */
+    void run(SummaryJob job) {
+        try {
+            this.save(job.withStatus(SummaryJob.Status.RUNNING));
+            List<ArtifactDto> artifactDtos = this.artifactService.findAllDtos();
+            this.save(job.succeeded(this.artifactService.summarize(artifactDtos)));
+        } catch (Exception e) {
+            LOGGER.warn("Summary job {} failed", job.id(), e);
+            try {
+                this.save(job.failed(e.getMessage()));
+            } catch (RuntimeException saveFailure) {
+                LOGGER.warn("Could not store the failure of summary job {}: {}", job.id(), saveFailure.getMessage());
+                try {
+                    this.redisCacheClient.deleteIfEquals(versionKey(job.catalogVersion()), job.id());
+                } catch (DataAccessException releaseFailure) {
+                    LOGGER.warn("Could not release catalog version {}, it stays claimed by summary job {} until it expires",
+                                job.catalogVersion(), job.id());
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Claims the version key for the job, or returns the job that holds it. A failed or expired job is replaced with a
+     * compare-and-set, so that of two requests replacing it, one runs and the other shares its job.
+     */
+    private Optional<SummaryJob> claim(String versionKey, SummaryJob job) {
+        while (!this.redisCacheClient.setIfAbsent(versionKey, job.id(), this.ttl.toMillis(), TimeUnit.MILLISECONDS)) {
+            String sharedJobId = this.redisCacheClient.get(versionKey);
+            if (sharedJobId == null) {
+                continue; // expired meanwhile
+            }
+            Optional<SummaryJob> sharedJob = this.find(sharedJobId);
+            if (sharedJob.isPresent() && sharedJob.get().status() != SummaryJob.Status.FAILED) {
+                return sharedJob;
+            }
+            if (this.redisCacheClient.setIfEquals(versionKey, sharedJobId, job.id(), this.ttl.toMillis(), TimeUnit.MILLISECONDS)) {
+                return Optional.empty();
+            }
+            // Replaced by another request first: share its job
+        }
+        return Optional.empty();
+    }
+
+    private static String versionKey(long version) {
+        return VERSION_KEY_PREFIX + version;
+    }
+
+    private Optional<SummaryJob> find(String jobId) {
+        String json = this.redisCacheClient.get(JOB_KEY_PREFIX + jobId);
+        if (json == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(this.objectMapper.readValue(json, SummaryJob.class));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read summary job " + jobId, e);
+        }
+    }
+
+    private void save(SummaryJob job) {
+        try {
+            this.redisCacheClient.set(JOB_KEY_PREFIX + job.id(), this.objectMapper.writeValueAsString(job),
+                                      this.ttl.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not write summary job " + job.id(), e);
+        }
+    }
+}
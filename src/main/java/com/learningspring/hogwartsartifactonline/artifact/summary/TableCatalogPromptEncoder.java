@@ -0,0 +1,129 @@
+package com.learningspring.hogwartsartifactonline.artifact.summary;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact table: each owner is written once, numbered in the first line of the chunk, and the rows only hold the
+ * name, the owner's number and the description, separated by |. E.g.:
+ * <pre>
+ * Owners: 1=Albus Dumbledore; 2=Harry Potter
+ * Deluminator|1|A device that absorbs light.
+ * Invisibility Cloak|2|A cloak that makes its wearer invisible.
+ * Resurrection Stone|-|A stone that brings back the dead.
+ * </pre>
+ * The owners are numbered in each chunk, so that every chunk is readable on its own.
+ */
+@Component
+public class TableCatalogPromptEncoder implements CatalogPromptEncoder {
+
+    private static final String LINE_SEPARATOR = "\n";
+
+    private static final String OWNERS_PREFIX = "Owners: ";
+
+    private static final String OWNER_SEPARATOR = "; ";
+
+    private static final String NO_OWNER = "-";
+
+    private final int descriptionTokens;
+
+    public TableCatalogPromptEncoder(@Value("${artifact.summary.description-tokens}") int descriptionTokens) {
+        this.descriptionTokens = descriptionTokens;
+    }
+
+    @Override
+    public String name() {
+        return "table";
+    }
+
+    @Override
+    public String format() {
+        return "a table with one artifact per row, whose columns are the name, the owner and the description separated by |, where the owners are the numbers listed in the first line and " + NO_OWNER + " means no owner";
+    }
+
+    @Override
+    public List<String> encode(List<CatalogEntry> entries, int maxTokens) {
+        List<String> chunks = new ArrayList<>();
+        Table table = new Table();
+        for (CatalogEntry entry : entries.stream().sorted(ORDER).toList()) {
+            String description = CatalogPromptEncoder.truncate(entry.description(), this.descriptionTokens);
+            if (!table.isEmpty() && CatalogPromptEncoder.estimateTokens(table.lengthWith(entry, description)) > maxTokens) {
+                chunks.add(table.toString());
+                table = new Table();
+            }
+            table.add(entry, description);
+        }
+        chunks.add(table.toString()); // empty for an empty catalog
+        return chunks;
+    }
+
+    private static String cell(String value) {
+        return value.replace('|', '/').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private static final class Table {
+
+        private final Map<String, Integer> owners = new LinkedHashMap<>();
+
+        private final StringBuilder ownersLine = new StringBuilder();
+
+        private final StringBuilder rows = new StringBuilder();
+
+        boolean isEmpty() {
+            return this.rows.isEmpty();
+        }
+
+        int lengthWith(CatalogEntry entry, String description) {
+            int ownersLineLength = this.ownersLine.length();
+            String ownerNumber = NO_OWNER;
+            if (entry.owner() != null) {
+                Integer number = this.owners.get(entry.owner());
+                if (number == null) {
+                    number = this.owners.size() + 1;
+                    ownersLineLength += ownersLineLength == 0 ? OWNERS_PREFIX.length() : OWNER_SEPARATOR.length();
+                    ownersLineLength += ownerEntry(number, entry.owner()).length();
+                }
+                ownerNumber = number.toString();
+            }
+            int length = ownersLineLength == 0 ? 0 : ownersLineLength + LINE_SEPARATOR.length();
+            length += this.rows.length() + (this.rows.isEmpty() ? 0 : LINE_SEPARATOR.length());
+            return length + row(entry, ownerNumber, description).length();
+        }
+
+        void add(CatalogEntry entry, String description) {
+            String ownerNumber = NO_OWNER;
+            if (entry.owner() != null) {
+                Integer number = this.owners.get(entry.owner());
+                if (number == null) {
+                    number = this.owners.size() + 1;
+                    this.owners.put(entry.owner(), number);
+                    this.ownersLine.append(this.ownersLine.isEmpty() ? OWNERS_PREFIX : OWNER_SEPARATOR)
+                            .append(ownerEntry(number, entry.owner()));
+                }
+                ownerNumber = number.toString();
+            }
+            if (!this.rows.isEmpty()) {
+                this.rows.append(LINE_SEPARATOR);
+            }
+            this.rows.append(row(entry, ownerNumber, description));
+        }
+
+        private static String ownerEntry(int number, String owner) {
+            return number + "=" + owner.replace(OWNER_SEPARATOR, ", ");
+        }
+
+        private static String row(CatalogEntry entry, String ownerNumber, String description) {
+            return cell(entry.name()) + "|" + ownerNumber + "|" + cell(description);
+        }
+
+        @Override
+        public String toString() {
+            return this.ownersLine.isEmpty() ? this.rows.toString() : this.ownersLine + LINE_SEPARATOR + this.rows;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.learningspring.hogwartsartifactonline.artifact.utils;
+
+/**
+ * Artifact ids are snowflake numbers from IdWorker. They are stored as BIGINT, see ArtifactIdConverter, and kept as
+ * numbers by the in-memory indexes, but they are strings in the entity and the API, where JavaScript clients would
+ * round a 64-bit number.
+ */
+public final class ArtifactIds {
+
+    /**
+     * The number of a string that is not an artifact id: negative, unlike every snowflake id, so no artifact has it.
+     */
+    public static final long NONE = -1L;
+
+    private static final int MAX_DIGITS = 19; // of Long.MAX_VALUE
+
+    private ArtifactIds() {
+    }
+
+    /**
+     * The number of the artifact id, or NONE if it is not a non-negative long in decimal, e.g., "abc".
+     */
+    public static long toLong(String artifactId) {
+        if (artifactId == null || artifactId.isEmpty() || artifactId.length() > MAX_DIGITS) {
+            return NONE;
+        }
+        long number = 0;
+        for (int i = 0; i < artifactId.length(); i++) {
+            int digit = artifactId.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || number > (Long.MAX_VALUE - digit) / 10) {
+                return NONE;
+            }
+            number = number * 10 + digit;
+        }
+        return number;
+    }
+
+    public static boolean isValid(String artifactId) {
+        return toLong(artifactId) != NONE;
+    }
+}
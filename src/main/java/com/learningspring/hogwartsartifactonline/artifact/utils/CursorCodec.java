@@ -0,0 +1,44 @@
+package com.learningspring.hogwartsartifactonline.artifact.utils;
+
+import com.learningspring.hogwartsartifactonline.system.exception.InvalidCursorException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Encodes the last artifact id of a page into an opaque cursor and back into a keyset position.
+ * Artifact ids are snowflake ids from IdWorker, so seeking on "id > last id" walks the catalog in creation order.
+ */
+public class CursorCodec {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public static String encode(String lastId) {
+        return ENCODER.encodeToString(lastId.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetScrollPosition decode(String cursor) {
+        if (!StringUtils.hasLength(cursor)) {
+            return ScrollPosition.keyset(); // first page
+        }
+
+        String lastId;
+        try {
+            lastId = new String(DECODER.decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor);
+        }
+
+        if (!ArtifactIds.isValid(lastId)) {
+            throw new InvalidCursorException(cursor);
+        }
+
+        return ScrollPosition.forward(Map.of("id", lastId));
+    }
+}
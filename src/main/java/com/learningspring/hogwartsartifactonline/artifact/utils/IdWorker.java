@@ -1,119 +1,143 @@
 package com.learningspring.hogwartsartifactonline.artifact.utils;
 
-import java.lang.management.ManagementFactory;
-import java.net.InetAddress;
-import java.net.NetworkInterface;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
 
 /**
- * This piece of code is from the Internet. The quality is unknown.
- * Only for demoing purpose. Use with caution!
+ * Snowflake ids: 41 bits of milliseconds since twepoch, 5 bits of datacenter id, 5 bits of worker id and a 12-bit
+ * sequence, i.e., up to 4096 ids per millisecond on each worker. The ids of a worker always increase, and two workers
+ * never issue the same id as long as each node has its own (datacenter id, worker id), see WorkerIdLease. While
+ * isLeaseHeld says the node doesn't hold its pair, the IdWorker refuses to issue ids.
+ * <p>
+ * The last issued (millisecond, sequence) pair is a single AtomicLong, so nextId is a compare-and-set instead of a
+ * lock. When the clock moves back, or more than 4096 ids are asked for in a millisecond, the ids run ahead of the
+ * clock: they keep increasing from the last one instead of failing. Up to maxClockDrift ahead, nothing waits; further,
+ * the callers wait for the clock, and if it is more than twice maxClockDrift behind, e.g., after a large clock step,
+ * they fail rather than wait that long.
  */
 public class IdWorker {
 
-    private final static long twepoch = 1288834974657L;
+    private static final long TWEPOCH = 1288834974657L;
 
-    private final static long workerIdBits = 5L;
+    private static final long WORKER_ID_BITS = 5L;
 
-    private final static long datacenterIdBits = 5L;
+    private static final long DATACENTER_ID_BITS = 5L;
 
-    private final static long maxWorkerId = -1L ^ (-1L << workerIdBits);
+    private static final long SEQUENCE_BITS = 12L;
 
-    private final static long maxDatacenterId = -1L ^ (-1L << datacenterIdBits);
+    public static final long MAX_WORKER_ID = ~(-1L << WORKER_ID_BITS);
 
-    private final static long sequenceBits = 12L;
+    public static final long MAX_DATACENTER_ID = ~(-1L << DATACENTER_ID_BITS);
 
-    private final static long workerIdShift = sequenceBits;
+    private static final long WORKER_ID_SHIFT = SEQUENCE_BITS;
 
-    private final static long datacenterIdShift = sequenceBits + workerIdBits;
+    private static final long DATACENTER_ID_SHIFT = SEQUENCE_BITS + WORKER_ID_BITS;
 
-    private final static long timestampLeftShift = sequenceBits + workerIdBits + datacenterIdBits;
+    private static final long TIMESTAMP_LEFT_SHIFT = SEQUENCE_BITS + WORKER_ID_BITS + DATACENTER_ID_BITS;
 
-    private final static long sequenceMask = -1L ^ (-1L << sequenceBits);
+    private static final long SEQUENCE_MASK = ~(-1L << SEQUENCE_BITS);
 
-    private static long lastTimestamp = -1L;
-
-    private long sequence = 0L;
+    private static final Duration DEFAULT_MAX_CLOCK_DRIFT = Duration.ofSeconds(1);
 
     private final long workerId;
 
     private final long datacenterId;
 
+    private final long maxClockDriftMillis;
 
-    public IdWorker() {
-        this.datacenterId = getDatacenterId(maxDatacenterId);
-        this.workerId = getMaxWorkerId(datacenterId, maxWorkerId);
-    }
+    private final BooleanSupplier isLeaseHeld;
+
+    private final LongSupplier clock;
+
+    // The last issued (millisecond since twepoch, sequence) pair, as (millisecond << SEQUENCE_BITS) | sequence: the
+    // next pair is this plus one, the sequence overflowing into the next millisecond.
+    private final AtomicLong last = new AtomicLong(-1L);
 
     public IdWorker(long workerId, long datacenterId) {
-        if (workerId > maxWorkerId || workerId < 0) {
-            throw new IllegalArgumentException(String.format("worker Id can't be greater than %d or less than 0", maxWorkerId));
+        this(workerId, datacenterId, DEFAULT_MAX_CLOCK_DRIFT);
+    }
+
+    public IdWorker(long workerId, long datacenterId, Duration maxClockDrift) {
+        this(workerId, datacenterId, maxClockDrift, () -> true);
+    }
+
+    public IdWorker(long workerId, long datacenterId, Duration maxClockDrift, BooleanSupplier isLeaseHeld) {
+        this(workerId, datacenterId, maxClockDrift, isLeaseHeld, System::currentTimeMillis);
+    }
+
+    IdWorker(long workerId, long datacenterId, Duration maxClockDrift, BooleanSupplier isLeaseHeld, LongSupplier clock) {
+        if (workerId > MAX_WORKER_ID || workerId < 0) {
+            throw new IllegalArgumentException(String.format("worker Id can't be greater than %d or less than 0", MAX_WORKER_ID));
         }
-        if (datacenterId > maxDatacenterId || datacenterId < 0) {
-            throw new IllegalArgumentException(String.format("datacenter Id can't be greater than %d or less than 0", maxDatacenterId));
+        if (datacenterId > MAX_DATACENTER_ID || datacenterId < 0) {
+            throw new IllegalArgumentException(String.format("datacenter Id can't be greater than %d or less than 0", MAX_DATACENTER_ID));
         }
         this.workerId = workerId;
         this.datacenterId = datacenterId;
+        this.maxClockDriftMillis = maxClockDrift.toMillis();
+        this.isLeaseHeld = isLeaseHeld;
+        this.clock = clock;
     }
 
-    public synchronized long nextId() {
-        long timestamp = timeGen();
-        if (timestamp < lastTimestamp) {
-            throw new RuntimeException(String.format("Clock moved backwards.  Refusing to generate id for %d milliseconds", lastTimestamp - timestamp));
-        }
-        if (lastTimestamp == timestamp) {
-            sequence = (sequence + 1) & sequenceMask;
-            if (sequence == 0) {
-                timestamp = tilNextMillis(lastTimestamp);
-            }
-        } else {
-            sequence = 0L;
-        }
-        lastTimestamp = timestamp;
-        long nextId = ((timestamp - twepoch) << timestampLeftShift)
-                | (datacenterId << datacenterIdShift)
-                | (workerId << workerIdShift) | sequence;
-        return nextId;
+    public long nextId() {
+        return this.toId(this.reserve(1));
     }
 
-    private long tilNextMillis(final long lastTimestamp) {
-        long timestamp = this.timeGen();
-        while (timestamp <= lastTimestamp) {
-            timestamp = this.timeGen();
+    /**
+     * Reserves count consecutive ids with a single compare-and-set, e.g., for a batch of inserts.
+     */
+    public long[] nextIds(int count) {
+        if (count <= 0) {
+            return new long[0];
         }
-        return timestamp;
-    }
-
-    private long timeGen() {
-        return System.currentTimeMillis();
+        long first = this.reserve(count);
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = this.toId(first + i);
+        }
+        return ids;
     }
 
-    protected static long getMaxWorkerId(long datacenterId, long maxWorkerId) {
-        StringBuffer mpid = new StringBuffer();
-        mpid.append(datacenterId);
-        String name = ManagementFactory.getRuntimeMXBean().getName();
-        if (!name.isEmpty()) {
-            mpid.append(name.split("@")[0]); // GET jvmPid
+    /**
+     * Takes the next count (millisecond, sequence) pairs and returns the first one.
+     */
+    private long reserve(int count) {
+        if (!this.isLeaseHeld.getAsBoolean()) {
+            throw new IllegalStateException(String.format("The lease of worker id %d of datacenter %d is lost. Refusing to generate ids", this.workerId, this.datacenterId));
+        }
+        while (true) {
+            long now = this.clock.getAsLong() - TWEPOCH;
+            long previous = this.last.get();
+            long first = Math.max(now << SEQUENCE_BITS, previous + 1);
+            long end = first + count - 1;
+
+            long aheadMillis = (end >>> SEQUENCE_BITS) - now;
+            if (aheadMillis > this.maxClockDriftMillis) {
+                this.waitForClock(aheadMillis);
+                continue;
+            }
+            if (this.last.compareAndSet(previous, end)) {
+                return first;
+            }
         }
-        return (mpid.toString().hashCode() & 0xffff) % (maxWorkerId + 1);
     }
 
-    protected static long getDatacenterId(long maxDatacenterId) {
-        long id = 0L;
-        try {
-            InetAddress ip = InetAddress.getLocalHost();
-            NetworkInterface network = NetworkInterface.getByInetAddress(ip);
-            if (network == null) {
-                id = 1L;
-            } else {
-                byte[] mac = network.getHardwareAddress();
-                id = ((0x000000FF & (long) mac[mac.length - 1])
-                        | (0x0000FF00 & (((long) mac[mac.length - 2]) << 8))) >> 6;
-                id = id % (maxDatacenterId + 1);
-            }
-        } catch (Exception e) {
-            System.out.println(" getDatacenterId: " + e.getMessage());
+    private void waitForClock(long aheadMillis) {
+        if (aheadMillis > 2 * this.maxClockDriftMillis) {
+            throw new IllegalStateException(String.format("Clock moved backwards. Refusing to generate ids %d milliseconds ahead of it", aheadMillis));
         }
-        return id;
+        // At least a millisecond to wait: no use spinning on the clock meanwhile
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(aheadMillis - this.maxClockDriftMillis));
     }
 
+    private long toId(long pair) {
+        return ((pair >>> SEQUENCE_BITS) << TIMESTAMP_LEFT_SHIFT)
+                | (this.datacenterId << DATACENTER_ID_SHIFT)
+                | (this.workerId << WORKER_ID_SHIFT)
+                | (pair & SEQUENCE_MASK);
+    }
 }
@@ -0,0 +1,186 @@
+package com.learningspring.hogwartsartifactonline.artifact.utils;
+
+import java.util.function.LongConsumer;
+
+/**
+ * A set of primitive longs, e.g., artifact ids, in one open-addressing array of 8-byte slots, at least a quarter of
+ * them free: 11 to 21 bytes per id, where a HashSet of the same ids as strings costs a node, a String and its bytes,
+ * about 100 bytes, and a pointer chase and a string comparison per lookup. Not thread-safe.
+ */
+public class LongHashSet {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private static final long FREE = 0L; // the mark of an empty slot, so 0 itself is kept aside
+
+    private long[] slots;
+
+    private int mask;
+
+    private int size; // without 0
+
+    private boolean containsZero;
+
+    public LongHashSet() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    public LongHashSet(int expectedSize) {
+        this.allocate(capacityFor(expectedSize));
+    }
+
+    public LongHashSet(LongHashSet other) {
+        this.slots = other.slots.clone();
+        this.mask = other.mask;
+        this.size = other.size;
+        this.containsZero = other.containsZero;
+    }
+
+    public boolean add(long value) {
+        if (value == FREE) {
+            boolean added = !this.containsZero;
+            this.containsZero = true;
+            return added;
+        }
+        int slot = this.slotOf(value);
+        if (this.slots[slot] == value) {
+            return false;
+        }
+        this.slots[slot] = value;
+        if (++this.size > maxSize(this.slots.length)) {
+            this.rehash(this.slots.length * 2);
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        return value == FREE ? this.containsZero : this.slots[this.slotOf(value)] == value;
+    }
+
+    public boolean remove(long value) {
+        if (value == FREE) {
+            boolean removed = this.containsZero;
+            this.containsZero = false;
+            return removed;
+        }
+        int slot = this.slotOf(value);
+        if (this.slots[slot] != value) {
+            return false;
+        }
+        this.shiftBack(slot);
+        this.size--;
+        return true;
+    }
+
+    public void addAll(LongHashSet other) {
+        other.forEach(this::add);
+    }
+
+    /**
+     * Keeps only the values that are in the other set as well.
+     */
+    public void retainAll(LongHashSet other) {
+        LongHashSet retained = new LongHashSet(Math.min(this.size(), other.size()));
+        this.forEach(value -> {
+            if (other.contains(value)) {
+                retained.add(value);
+            }
+        });
+        this.slots = retained.slots;
+        this.mask = retained.mask;
+        this.size = retained.size;
+        this.containsZero = retained.containsZero;
+    }
+
+    public int size() {
+        return this.size + (this.containsZero ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    public void forEach(LongConsumer action) {
+        if (this.containsZero) {
+            action.accept(FREE);
+        }
+        for (long value : this.slots) {
+            if (value != FREE) {
+                action.accept(value);
+            }
+        }
+    }
+
+    public long[] toArray() {
+        long[] values = new long[this.size()];
+        int[] next = {0};
+        this.forEach(value -> values[next[0]++] = value);
+        return values;
+    }
+
+    /**
+     * The slot of the value, or the free slot where it would go.
+     */
+    private int slotOf(long value) {
+        int slot = mix(value) & this.mask;
+        while (this.slots[slot] != FREE && this.slots[slot] != value) {
+            slot = (slot + 1) & this.mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Empties the slot and moves back the values after it that were displaced past it, so that linear probing finds
+     * every value without tombstones.
+     */
+    private void shiftBack(int slot) {
+        int free = slot;
+        int next = (slot + 1) & this.mask;
+        while (this.slots[next] != FREE) {
+            int home = mix(this.slots[next]) & this.mask;
+            // Move it if its home is not in (free, next], cyclically
+            if (((next - home) & this.mask) >= ((next - free) & this.mask)) {
+                this.slots[free] = this.slots[next];
+                free = next;
+            }
+            next = (next + 1) & this.mask;
+        }
+        this.slots[free] = FREE;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldSlots = this.slots;
+        this.allocate(capacity);
+        for (long value : oldSlots) {
+            if (value != FREE) {
+                this.slots[this.slotOf(value)] = value;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.slots = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (maxSize(capacity) < expectedSize) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    static int maxSize(int capacity) {
+        return capacity / 4 * 3; // at most 75% full, so the probes stay short
+    }
+
+    /**
+     * Spreads the bits of the value over the low bits, which select the slot: the low bits of a snowflake id are
+     * its sequence, mostly 0.
+     */
+    static int mix(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -0,0 +1,138 @@
+package com.learningspring.hogwartsartifactonline.artifact.utils;
+
+/**
+ * A map from primitive longs, e.g., artifact ids, to objects, in two parallel open-addressing arrays, the same way as
+ * LongHashSet: no boxed Long and no entry per mapping. Not thread-safe.
+ */
+public class LongObjectHashMap<V> {
+
+    private static final long FREE = 0L; // the mark of an empty slot, so the value of 0 is kept aside
+
+    private long[] keys;
+
+    private Object[] values;
+
+    private int mask;
+
+    private int size; // without 0
+
+    private V zeroValue; // null when 0 is not mapped
+
+    public LongObjectHashMap() {
+        this(4);
+    }
+
+    public LongObjectHashMap(int expectedSize) {
+        this.allocate(LongHashSet.capacityFor(expectedSize));
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == FREE) {
+            return this.zeroValue;
+        }
+        return (V) this.values[this.slotOf(key)];
+    }
+
+    /**
+     * Maps the key to the value, which is not null, and returns the previous value of the key, if any.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value can't be null");
+        }
+        if (key == FREE) {
+            V previous = this.zeroValue;
+            this.zeroValue = value;
+            return previous;
+        }
+        int slot = this.slotOf(key);
+        V previous = (V) this.values[slot];
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        if (previous == null && ++this.size > LongHashSet.maxSize(this.keys.length)) {
+            this.rehash(this.keys.length * 2);
+        }
+        return previous;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == FREE) {
+            V previous = this.zeroValue;
+            this.zeroValue = null;
+            return previous;
+        }
+        int slot = this.slotOf(key);
+        V previous = (V) this.values[slot];
+        if (previous != null) {
+            this.shiftBack(slot);
+            this.size--;
+        }
+        return previous;
+    }
+
+    public int size() {
+        return this.size + (this.zeroValue != null ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    public void clear() {
+        this.allocate(LongHashSet.capacityFor(0));
+        this.size = 0;
+        this.zeroValue = null;
+    }
+
+    /**
+     * The slot of the key, or the free slot where it would go.
+     */
+    private int slotOf(long key) {
+        int slot = LongHashSet.mix(key) & this.mask;
+        while (this.keys[slot] != FREE && this.keys[slot] != key) {
+            slot = (slot + 1) & this.mask;
+        }
+        return slot;
+    }
+
+    /**
+     * See LongHashSet.
+     */
+    private void shiftBack(int slot) {
+        int free = slot;
+        int next = (slot + 1) & this.mask;
+        while (this.keys[next] != FREE) {
+            int home = LongHashSet.mix(this.keys[next]) & this.mask;
+            if (((next - home) & this.mask) >= ((next - free) & this.mask)) {
+                this.keys[free] = this.keys[next];
+                this.values[free] = this.values[next];
+                free = next;
+            }
+            next = (next + 1) & this.mask;
+        }
+        this.keys[free] = FREE;
+        this.values[free] = null;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+        this.allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = this.slotOf(oldKeys[i]);
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+}
@@ -0,0 +1,190 @@
+package com.learningspring.hogwartsartifactonline.artifact.utils;
+
+import com.learningspring.hogwartsartifactonline.client.rediscache.RedisCacheClient;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * The (datacenter id, worker id) pair of this node's IdWorker. Two nodes with the same pair would issue the same ids,
+ * so with artifact.id-worker.lease.enabled, each node leases a free pair from Redis when it starts instead of being
+ * configured with one: a key per pair, set if absent with a TTL, and renewed by a heartbeat every third of it.
+ * <p>
+ * The lease is held until the TTL after the start of the last successful renewal, on the clock of this node, so it
+ * ends here before it expires in Redis; IdWorker refuses to issue ids meanwhile. If Redis is unreachable for longer,
+ * or the key was taken by another node, the lease is lost: the heartbeat takes the pair back once it's free again, and
+ * the node issues no ids until then. A newly leased pair is held only after max-clock-drift, since the
+ * ids of its previous holder may have run ahead of the clock by as much.
+ * <p>
+ * Without the lease, e.g., in dev, the pair is artifact.id-worker.datacenter-id and worker-id, held for good.
+ */
+@Component
+public class WorkerIdLease {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkerIdLease.class);
+
+    static final String KEY_PREFIX = "id-worker:lease:";
+
+    static final int NODE_IDS = (int) ((IdWorker.MAX_DATACENTER_ID + 1) * (IdWorker.MAX_WORKER_ID + 1));
+
+    private final RedisCacheClient redisCacheClient;
+
+    private final Duration ttl;
+
+    private final Duration maxClockDrift;
+
+    private final ScheduledExecutorService heartbeat;
+
+    private final LongSupplier nanoClock;
+
+    private final String token = UUID.randomUUID().toString(); // the value of the key, so that only this node renews it
+
+    private final boolean leased;
+
+    private int nodeId = -1;
+
+    private boolean taken; // by another node, confined to the heartbeat
+
+    // The lease is held from validFrom until validUntil, in nanoClock time
+    private volatile long validFrom;
+
+    private volatile long validUntil;
+
+    @Autowired
+    public WorkerIdLease(RedisCacheClient redisCacheClient,
+            @Value("${artifact.id-worker.lease.enabled}") boolean leased,
+            @Value("${artifact.id-worker.datacenter-id}") long datacenterId,
+            @Value("${artifact.id-worker.worker-id}") long workerId,
+            @Value("${artifact.id-worker.lease.ttl}") Duration ttl,
+            @Value("${artifact.id-worker.max-clock-drift}") Duration maxClockDrift) {
+        this(redisCacheClient, leased, datacenterId, workerId, ttl, maxClockDrift,
+             Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("id-worker-lease-")), System::nanoTime);
+        if (leased) {
+            this.acquire();
+            this.awaitValidity();
+        }
+    }
+
+    WorkerIdLease(RedisCacheClient redisCacheClient,
+            boolean leased,
+            long datacenterId,
+            long workerId,
+            Duration ttl,
+            Duration maxClockDrift,
+            ScheduledExecutorService heartbeat,
+            LongSupplier nanoClock) {
+        this.redisCacheClient = redisCacheClient;
+        this.leased = leased;
+        this.ttl = ttl;
+        this.maxClockDrift = maxClockDrift;
+        this.heartbeat = heartbeat;
+        this.nanoClock = nanoClock;
+        if (!leased) {
+            this.nodeId = (int) (datacenterId * (IdWorker.MAX_WORKER_ID + 1) + workerId);
+        }
+    }
+
+    /**
+     * Leases the first free pair from a random one, so that nodes starting together rarely compete for the same key,
+     * and starts the heartbeat.
+     */
+    void acquire() {
+        int start = ThreadLocalRandom.current().nextInt(NODE_IDS);
+        for (int i = 0; i < NODE_IDS; i++) {
+            int candidate = (start + i) % NODE_IDS;
+            long attemptedAt = this.nanoClock.getAsLong();
+            if (this.redisCacheClient.setIfAbsent(KEY_PREFIX + candidate, this.token, this.ttl.toMillis(), TimeUnit.MILLISECONDS)) {
+                this.nodeId = candidate;
+                this.validFrom = attemptedAt + this.maxClockDrift.toNanos();
+                this.validUntil = attemptedAt + this.ttl.toNanos();
+                long period = this.ttl.toMillis() / 3;
+                this.heartbeat.scheduleAtFixedRate(this::renew, period, period, TimeUnit.MILLISECONDS);
+                LOGGER.info("Leased worker id {} (datacenter id {}, worker id {})", candidate, this.datacenterId(), this.workerId());
+                return;
+            }
+        }
+        throw new IllegalStateException("All " + NODE_IDS + " worker ids are leased by other nodes");
+    }
+
+    void renew() {
+        String key = KEY_PREFIX + this.nodeId;
+        long attemptedAt = this.nanoClock.getAsLong();
+        try {
+            if (this.redisCacheClient.expireIfEquals(key, this.token, this.ttl.toMillis(), TimeUnit.MILLISECONDS)) {
+                this.validUntil = attemptedAt + this.ttl.toNanos();
+            } else if (this.redisCacheClient.setIfAbsent(key, this.token, this.ttl.toMillis(), TimeUnit.MILLISECONDS)) {
+                // It expired, e.g., because Redis was unreachable: another node may have held it meanwhile
+                LOGGER.warn("The lease of worker id {} was lost and taken back", this.nodeId);
+                this.taken = false;
+                this.validFrom = attemptedAt + this.maxClockDrift.toNanos();
+                this.validUntil = attemptedAt + this.ttl.toNanos();
+            } else {
+                if (!this.taken) {
+                    LOGGER.error("Worker id {} is leased by another node, this node issues no ids until it's free again", this.nodeId);
+                    this.taken = true;
+                }
+                this.validUntil = Math.min(this.validUntil, attemptedAt);
+            }
+        } catch (DataAccessException e) {
+            LOGGER.warn("Could not renew the lease of worker id {}, it ends in {} ms: {}", this.nodeId,
+                        TimeUnit.NANOSECONDS.toMillis(this.validUntil - attemptedAt), e.getMessage());
+        }
+    }
+
+    public long datacenterId() {
+        return this.nodeId / (IdWorker.MAX_WORKER_ID + 1);
+    }
+
+    public long workerId() {
+        return this.nodeId % (IdWorker.MAX_WORKER_ID + 1);
+    }
+
+    /**
+     * Whether this node may issue ids with its pair.
+     */
+    public boolean isHeld() {
+        if (!this.leased) {
+            return true;
+        }
+        long now = this.nanoClock.getAsLong();
+        return now - this.validFrom >= 0 && now - this.validUntil < 0;
+    }
+
+    private void awaitValidity() {
+        long waitNanos = this.validFrom - this.nanoClock.getAsLong();
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @PreDestroy
+    void release() {
+        this.heartbeat.shutdownNow();
+        if (!this.leased || this.nodeId < 0) {
+            return;
+        }
+        this.validUntil = this.nanoClock.getAsLong(); // no more ids from this node
+        try {
+            this.redisCacheClient.deleteIfEquals(KEY_PREFIX + this.nodeId, this.token);
+        } catch (DataAccessException e) {
+            LOGGER.warn("Could not release worker id {}, it expires in {}: {}", this.nodeId, this.ttl, e.getMessage());
+        }
+    }
+}
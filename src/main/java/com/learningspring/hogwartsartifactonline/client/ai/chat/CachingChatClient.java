@@ -0,0 +1,252 @@
+package com.learningspring.hogwartsartifactonline.client.ai.chat;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatRequest;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatResponse;
+import com.learningspring.hogwartsartifactonline.client.rediscache.RedisCacheClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Caches the completions by a SHA-256 of their request (model and messages), so that asking the same thing again,
+ * e.g., the summary of a catalog that didn't change, is answered without calling the model.
+ * L1 is a bounded in-process Caffeine cache, L2 is Redis (shared by all nodes); both expire after the TTL.
+ * <p>
+ * Identical requests made while the first one is still waiting for the model share its completion (single-flight),
+ * on each node. Failed completions are not cached.
+ */
+@Component
+@Primary
+public class CachingChatClient implements ChatClient {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingChatClient.class);
+
+    private static final String KEY_PREFIX = "chat-completion:";
+
+    private record Loaded(ChatResponse chatResponse, boolean cached) {
+    }
+
+    private final ChatClient delegate;
+
+    private final RedisCacheClient redisCacheClient;
+
+    private final ObjectMapper objectMapper;
+
+    private final Duration ttl;
+
+    private final Cache<String, ChatResponse> localCache;
+
+    private final ConcurrentMap<String, CompletableFuture<ChatResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter localHits;
+
+    private final Counter redisHits;
+
+    private final Counter sharedHits;
+
+    private final Counter misses;
+
+    public CachingChatClient(@Qualifier("hedgingChatClient") ChatClient delegate,
+            RedisCacheClient redisCacheClient,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${ai.chat.cache.local.maximum-size}") long localMaximumSize,
+            @Value("${ai.chat.cache.ttl}") Duration ttl) {
+        this.delegate = delegate;
+        this.redisCacheClient = redisCacheClient;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(localMaximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+
+        this.localHits = meterRegistry.counter("ai.chat.cache", "result", "hit", "level", "local");
+        this.redisHits = meterRegistry.counter("ai.chat.cache", "result", "hit", "level", "redis");
+        this.sharedHits = meterRegistry.counter("ai.chat.cache", "result", "hit", "level", "in-flight");
+        this.misses = meterRegistry.counter("ai.chat.cache", "result", "miss", "level", "none");
+    }
+
+    @Override
+    public ChatResponse generate(ChatRequest chatRequest) {
+        String key = this.keyFor(chatRequest);
+        ChatResponse cached = this.localCache.getIfPresent(key);
+        if (cached != null) {
+            this.localHits.increment();
+            return cached;
+        }
+
+        CompletableFuture<ChatResponse> flight = new CompletableFuture<>();
+        CompletableFuture<ChatResponse> sharedFlight = this.inFlight.putIfAbsent(key, flight);
+        if (sharedFlight != null) {
+            this.sharedHits.increment();
+            return join(sharedFlight);
+        }
+
+        try {
+            // Checked again, in case an identical request completed between the first check and putIfAbsent
+            ChatResponse chatResponse = this.localCache.getIfPresent(key);
+            if (chatResponse != null) {
+                this.localHits.increment();
+            } else {
+                chatResponse = this.load(key, () -> this.delegate.generate(chatRequest)).chatResponse();
+            }
+            flight.complete(chatResponse);
+            return chatResponse;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e); // the requests waiting for this one fail as well, and may retry
+            throw e;
+        } finally {
+            this.inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * A cached completion is replayed to onToken at once. Streams are not shared: each miss streams its own
+     * completion, which is then cached for the next requests.
+     */
+    @Override
+    public ChatResponse generateStream(ChatRequest chatRequest, Consumer<String> onToken) {
+        String key = this.keyFor(chatRequest);
+        ChatResponse chatResponse = this.localCache.getIfPresent(key);
+        if (chatResponse != null) {
+            this.localHits.increment();
+        } else {
+            Loaded loaded = this.load(key, () -> this.delegate.generateStream(chatRequest, onToken));
+            if (!loaded.cached()) {
+                return loaded.chatResponse(); // already streamed by the delegate
+            }
+            chatResponse = loaded.chatResponse();
+        }
+        onToken.accept(chatResponse.choices().get(0).message().content());
+        return chatResponse;
+    }
+
+    /**
+     * Only the requests missing from both caches are sent to the delegate, in one batch, so that it can pace them
+     * within the rate limits. Identical requests of the batch are sent once. The batch doesn't wait for the identical
+     * requests in flight elsewhere.
+     */
+    @Override
+    public List<ChatResponse> generateAll(List<ChatRequest> chatRequests) {
+        List<String> keys = new ArrayList<>(chatRequests.size());
+        Map<String, ChatResponse> chatResponses = new LinkedHashMap<>();
+        Map<String, ChatRequest> missingRequests = new LinkedHashMap<>();
+        for (ChatRequest chatRequest : chatRequests) {
+            String key = this.keyFor(chatRequest);
+            keys.add(key);
+            if (chatResponses.containsKey(key) || missingRequests.containsKey(key)) {
+                continue;
+            }
+
+            ChatResponse chatResponse = this.localCache.getIfPresent(key);
+            if (chatResponse != null) {
+                this.localHits.increment();
+            } else if ((chatResponse = this.getFromRedis(key)) != null) {
+                this.redisHits.increment();
+                this.localCache.put(key, chatResponse);
+            }
+            if (chatResponse != null) {
+                chatResponses.put(key, chatResponse);
+            } else {
+                missingRequests.put(key, chatRequest);
+            }
+        }
+
+        if (!missingRequests.isEmpty()) {
+            this.misses.increment(missingRequests.size());
+            List<ChatResponse> generated = this.delegate.generateAll(new ArrayList<>(missingRequests.values()));
+            int i = 0;
+            for (String key : missingRequests.keySet()) {
+                ChatResponse chatResponse = generated.get(i++);
+                chatResponses.put(key, chatResponse);
+                this.localCache.put(key, chatResponse);
+                this.putInRedis(key, chatResponse);
+            }
+        }
+
+        return keys.stream().map(chatResponses::get).toList();
+    }
+
+    String keyFor(ChatRequest chatRequest) {
+        try {
+            // Without the stream flag: a streamed completion is the same as the other one
+            byte[] json = this.objectMapper.writeValueAsBytes(new ChatRequest(chatRequest.model(), chatRequest.messages()));
+            return KEY_PREFIX + HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not hash the chat request", e); // neither happens with these types
+        }
+    }
+
+    private Loaded load(String key, Supplier<ChatResponse> completion) {
+        ChatResponse chatResponse = this.getFromRedis(key);
+        if (chatResponse != null) {
+            this.redisHits.increment();
+            this.localCache.put(key, chatResponse);
+            return new Loaded(chatResponse, true);
+        }
+
+        this.misses.increment();
+        chatResponse = completion.get();
+        this.localCache.put(key, chatResponse);
+        this.putInRedis(key, chatResponse);
+        return new Loaded(chatResponse, false);
+    }
+
+    private static ChatResponse join(CompletableFuture<ChatResponse> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private ChatResponse getFromRedis(String key) {
+        try {
+            String json = this.redisCacheClient.get(key);
+            return json != null ? this.objectMapper.readValue(json, ChatResponse.class) : null;
+        } catch (DataAccessException | JsonProcessingException e) {
+            // Redis is only a cache, ask the model if it is unavailable
+            LOGGER.warn("Could not read chat completion {} from Redis: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void putInRedis(String key, ChatResponse chatResponse) {
+        try {
+            String json = this.objectMapper.writeValueAsString(chatResponse);
+            this.redisCacheClient.set(key, json, this.ttl.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (DataAccessException | JsonProcessingException e) {
+            LOGGER.warn("Could not write chat completion {} to Redis: {}", key, e.getMessage());
+        }
+    }
+}
@@ -3,8 +3,31 @@ package com.learningspring.hogwartsartifactonline.client.ai.chat;
 import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatRequest;
 import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatResponse;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
 public interface ChatClient {
 
     ChatResponse generate(ChatRequest chatRequest);
 
+    /**
+     * Like generate, but the completion is streamed: onToken receives each piece of the message as soon as it arrives.
+     * Returns the whole message once the stream ends. An exception thrown by onToken stops the generation.
+     */
+    ChatResponse generateStream(ChatRequest chatRequest, Consumer<String> onToken);
+
+    /**
+     * Generates the completions of several requests, returned in the order of the requests. If one of them fails, its
+     * error is thrown. By default the requests are sent one after the other; implementations may send them
+     * concurrently, within the rate limits of the provider.
+     */
+    default List<ChatResponse> generateAll(List<ChatRequest> chatRequests) {
+        List<ChatResponse> chatResponses = new ArrayList<>(chatRequests.size());
+        for (ChatRequest chatRequest : chatRequests) {
+            chatResponses.add(this.generate(chatRequest));
+        }
+        return chatResponses;
+    }
+
 }
@@ -0,0 +1,15 @@
+package com.learningspring.hogwartsartifactonline.client.ai.chat;
+
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatRequest;
+
+/**
+ * One OpenAI-compatible endpoint of HedgingChatClient.
+ *
+ * @param model the model of this endpoint, which replaces the model of the requests; null to keep it
+ */
+record ChatEndpoint(String name, ChatClient chatClient, String model) {
+
+    ChatRequest adapt(ChatRequest chatRequest) {
+        return this.model != null ? new ChatRequest(this.model, chatRequest.messages(), chatRequest.stream()) : chatRequest;
+    }
+}
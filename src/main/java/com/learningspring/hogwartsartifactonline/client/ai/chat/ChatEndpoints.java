@@ -0,0 +1,66 @@
+package com.learningspring.hogwartsartifactonline.client.ai.chat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learningspring.hogwartsartifactonline.client.http.OutboundHttpClients;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+/**
+ * The endpoints of HedgingChatClient, in order: Groq (ai.groq), then each of ai.chat.fallback-endpoints. A fallback
+ * endpoint is a GroqChatClient of its own URL, API key and rate limit, and its requests go through the OutboundHttpClients
+ * target of its name.
+ */
+@Component
+public class ChatEndpoints {
+
+    record FallbackEndpoint(String name, String endpoint, String apiKey, String model, int requestsPerMinute, int tokensPerMinute) {
+    }
+
+    private final List<ChatEndpoint> endpoints = new ArrayList<>();
+
+    private final List<GroqChatClient> fallbackClients = new ArrayList<>();
+
+    public ChatEndpoints(GroqChatClient groqChatClient,
+            OutboundHttpClients outboundHttpClients,
+            ObjectMapper objectMapper,
+            Environment environment,
+            @Value("${ai.groq.rate-limit.completion-tokens}") int completionTokens,
+            @Value("${ai.groq.max-concurrency}") int maxConcurrency,
+            @Value("${ai.groq.max-retries}") int maxRetries) {
+        this.endpoints.add(new ChatEndpoint("groq", groqChatClient, null));
+
+        List<FallbackEndpoint> fallbackEndpoints = Binder.get(environment)
+                .bind("ai.chat.fallback-endpoints", Bindable.listOf(FallbackEndpoint.class))
+                .orElse(List.of());
+        for (FallbackEndpoint fallbackEndpoint : fallbackEndpoints) {
+            GroqChatClient chatClient = new GroqChatClient(
+                    fallbackEndpoint.endpoint(),
+                    fallbackEndpoint.apiKey(),
+                    outboundHttpClients.builder(fallbackEndpoint.name()),
+                    objectMapper,
+                    new ChatRateLimiter(fallbackEndpoint.requestsPerMinute(), fallbackEndpoint.tokensPerMinute(), completionTokens),
+                    Executors.newFixedThreadPool(maxConcurrency, new CustomizableThreadFactory("chat-" + fallbackEndpoint.name() + "-")),
+                    maxRetries);
+            this.fallbackClients.add(chatClient);
+            this.endpoints.add(new ChatEndpoint(fallbackEndpoint.name(), chatClient, fallbackEndpoint.model()));
+        }
+    }
+
+    List<ChatEndpoint> list() {
+        return List.copyOf(this.endpoints);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        this.fallbackClients.forEach(GroqChatClient::shutdown);
+    }
+}
@@ -0,0 +1,193 @@
+package com.learningspring.hogwartsartifactonline.client.ai.chat;
+
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatRequest;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.Message;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the requests of a chat client under the provider's limits, with two token buckets refilled every minute:
+ * one of requests and one of (estimated) tokens. A request waits until both buckets can pay for it.
+ * <p>
+ * The buckets only know about this node, so they are corrected with the rate limit headers of the responses
+ * (x-ratelimit-remaining-*, x-ratelimit-reset-*), which count the requests of all nodes sharing the API key: a
+ * bucket never holds more than the provider says remains, and an exhausted limit pauses the requests until its
+ * reset. A 429 pauses them for its Retry-After.
+ */
+class ChatRateLimiter {
+
+    private static final Pattern DURATION = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    private static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final Bucket requests;
+
+    private final Bucket tokens;
+
+    private final int completionTokens;
+
+    private final LongSupplier nanoClock;
+
+    private long pausedUntil;
+
+    ChatRateLimiter(int requestsPerMinute, int tokensPerMinute, int completionTokens) {
+        this(requestsPerMinute, tokensPerMinute, completionTokens, System::nanoTime);
+    }
+
+    ChatRateLimiter(int requestsPerMinute, int tokensPerMinute, int completionTokens, LongSupplier nanoClock) {
+        long now = nanoClock.getAsLong();
+        this.requests = new Bucket(requestsPerMinute, now);
+        this.tokens = new Bucket(tokensPerMinute, now);
+        this.completionTokens = completionTokens;
+        this.nanoClock = nanoClock;
+        this.pausedUntil = now;
+    }
+
+    /**
+     * Blocks until the request fits in both budgets, then takes its share.
+     */
+    void acquire(ChatRequest chatRequest) throws InterruptedException {
+        int estimatedTokens = this.estimateTokens(chatRequest);
+        long waitNanos;
+        while ((waitNanos = this.tryAcquire(estimatedTokens)) > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Takes the request's share and returns 0 if it fits, or else how long to wait before trying again.
+     */
+    synchronized long tryAcquire(int estimatedTokens) {
+        long now = this.nanoClock.getAsLong();
+        if (now < this.pausedUntil) {
+            return this.pausedUntil - now;
+        }
+
+        this.requests.refill(now);
+        this.tokens.refill(now);
+        // A request larger than the whole budget would wait forever: it only waits for a full bucket
+        double neededTokens = Math.min(estimatedTokens, this.tokens.capacity);
+        long waitNanos = Math.max(this.requests.nanosUntil(1), this.tokens.nanosUntil(neededTokens));
+        if (waitNanos > 0) {
+            return waitNanos;
+        }
+
+        this.requests.available -= 1;
+        this.tokens.available -= neededTokens;
+        return 0;
+    }
+
+    synchronized void update(HttpHeaders headers) {
+        long now = this.nanoClock.getAsLong();
+        this.update(this.requests, headers, "requests", now);
+        this.update(this.tokens, headers, "tokens", now);
+    }
+
+    /**
+     * Pauses all the requests for the Retry-After of the 429, or at least until the reset of the exhausted limit.
+     */
+    synchronized void onTooManyRequests(HttpHeaders headers) {
+        long now = this.nanoClock.getAsLong();
+        Duration retryAfter = DEFAULT_RETRY_AFTER;
+        String retryAfterHeader = headers != null ? headers.getFirst(HttpHeaders.RETRY_AFTER) : null;
+        if (retryAfterHeader != null) {
+            try {
+                retryAfter = Duration.ofMillis((long) (Double.parseDouble(retryAfterHeader) * 1000));
+            } catch (NumberFormatException e) {
+                // an HTTP date, which providers don't send for rate limits: keep the default
+            }
+        }
+        this.pauseUntil(now + retryAfter.toNanos());
+        if (headers != null) {
+            this.update(this.requests, headers, "requests", now);
+            this.update(this.tokens, headers, "tokens", now);
+        }
+    }
+
+    int estimateTokens(ChatRequest chatRequest) {
+        int characters = 0;
+        for (Message message : chatRequest.messages()) {
+            characters += message.content().length();
+        }
+        // About 4 characters per token, plus the answer, which counts in the provider's token limit as well
+        return (characters + 3) / 4 + this.completionTokens;
+    }
+
+    private void update(Bucket bucket, HttpHeaders headers, String limit, long now) {
+        String remaining = headers.getFirst("x-ratelimit-remaining-" + limit);
+        if (remaining == null) {
+            return;
+        }
+        try {
+            double providerRemaining = Double.parseDouble(remaining);
+            bucket.available = Math.min(bucket.available, providerRemaining);
+            if (providerRemaining < 1) {
+                Duration reset = parseDuration(headers.getFirst("x-ratelimit-reset-" + limit));
+                this.pauseUntil(now + (reset != null ? reset : DEFAULT_RETRY_AFTER).toNanos());
+            }
+        } catch (NumberFormatException e) {
+            // not a limit this client understands, ignore it
+        }
+    }
+
+    private void pauseUntil(long nanos) {
+        if (nanos - this.pausedUntil > 0) {
+            this.pausedUntil = nanos;
+        }
+    }
+
+    /**
+     * Parses the durations of the reset headers, e.g., "7.66s", "2m59.56s", "1h2m" or "120ms".
+     */
+    static Duration parseDuration(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        Matcher matcher = DURATION.matcher(value.trim());
+        double millis = 0;
+        boolean matched = false;
+        while (matcher.find()) {
+            matched = true;
+            double amount = Double.parseDouble(matcher.group(1));
+            millis += switch (matcher.group(2)) {
+                case "h" -> amount * 3_600_000;
+                case "m" -> amount * 60_000;
+                case "s" -> amount * 1_000;
+                default -> amount;
+            };
+        }
+        return matched ? Duration.ofMillis(Math.round(millis)) : null;
+    }
+
+    private static final class Bucket {
+
+        private final double capacity;
+
+        private final double refillPerNano;
+
+        private double available;
+
+        private long lastRefill;
+
+        private Bucket(int perMinute, long now) {
+            this.capacity = perMinute;
+            this.refillPerNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            this.available = perMinute;
+            this.lastRefill = now;
+        }
+
+        private void refill(long now) {
+            this.available = Math.min(this.capacity, this.available + (now - this.lastRefill) * this.refillPerNano);
+            this.lastRefill = now;
+        }
+
+        private long nanosUntil(double amount) {
+            return this.available >= amount ? 0 : (long) Math.ceil((amount - this.available) / this.refillPerNano);
+        }
+    }
+}
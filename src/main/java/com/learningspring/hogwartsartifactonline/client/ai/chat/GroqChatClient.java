@@ -1,35 +1,212 @@
 package com.learningspring.hogwartsartifactonline.client.ai.chat;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatCompletionChunk;
 import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatRequest;
 import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatResponse;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.Choice;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChunkChoice;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.Message;
+import com.learningspring.hogwartsartifactonline.client.http.OutboundHttpClients;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResponseErrorHandler;
 import org.springframework.web.client.RestClient;
 
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * All the requests go through a ChatRateLimiter, which paces them within the requests and tokens per minute of the
+ * API key and adapts to the rate limit headers of the responses, so that a burst of completions waits on this side
+ * instead of being answered with 429. The requests go through the "groq" client of OutboundHttpClients, which sets
+ * their timeout and bulkhead. It doesn't retry them, since a retry there would skip the rate limiter.
+ */
 @Component
 public class GroqChatClient implements ChatClient {
 
+    // The OpenAI-compatible APIs end a streamed completion with this event
+    private static final String DONE = "[DONE]";
+
+    private static final ResponseErrorHandler ERROR_HANDLER = new DefaultResponseErrorHandler();
+
     private final RestClient restClient;
 
+    private final ObjectMapper objectMapper;
+
+    private final ChatRateLimiter rateLimiter;
+
+    private final ExecutorService executor;
+
+    private final int maxRetries;
+
+    @Autowired
     public GroqChatClient(
             @Value("${ai.groq.endpoint}") String endpoint,
             @Value("${ai.groq.api-key}") String apiKey,
-            RestClient.Builder restClientBuilder) {
+            OutboundHttpClients outboundHttpClients,
+            ObjectMapper objectMapper,
+            @Value("${ai.groq.rate-limit.requests-per-minute}") int requestsPerMinute,
+            @Value("${ai.groq.rate-limit.tokens-per-minute}") int tokensPerMinute,
+            @Value("${ai.groq.rate-limit.completion-tokens}") int completionTokens,
+            @Value("${ai.groq.max-concurrency}") int maxConcurrency,
+            @Value("${ai.groq.max-retries}") int maxRetries) {
+        this(endpoint, apiKey, outboundHttpClients.builder("groq"), objectMapper,
+             new ChatRateLimiter(requestsPerMinute, tokensPerMinute, completionTokens),
+             Executors.newFixedThreadPool(maxConcurrency, new CustomizableThreadFactory("groq-chat-")),
+             maxRetries);
+    }
+
+    GroqChatClient(String endpoint,
+            String apiKey,
+            RestClient.Builder restClientBuilder,
+            ObjectMapper objectMapper,
+            ChatRateLimiter rateLimiter,
+            ExecutorService executor,
+            int maxRetries) {
         this.restClient = restClientBuilder
                 .baseUrl(endpoint)
                 .defaultHeader("Authorization", "Bearer " + apiKey)
                 .build();
+        this.objectMapper = objectMapper;
+        this.rateLimiter = rateLimiter;
+        this.executor = executor;
+        this.maxRetries = maxRetries;
     }
 
     @Override
     public ChatResponse generate(ChatRequest chatRequest) {
+        this.acquire(chatRequest);
+        try {
+            ResponseEntity<ChatResponse> response = this.restClient
+                    .post()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(chatRequest)
+                    .retrieve()
+                    .toEntity(ChatResponse.class);
+            this.rateLimiter.update(response.getHeaders());
+            return response.getBody();
+        } catch (HttpClientErrorException.TooManyRequests e) {
+            this.rateLimiter.onTooManyRequests(e.getResponseHeaders());
+            throw e;
+        }
+    }
+
+    /**
+     * Sends the request with "stream": true and parses the server-sent events while they arrive, instead of waiting
+     * for the whole completion. Errors are thrown as by generate, e.g., HttpClientErrorException.TooManyRequests.
+     */
+    @Override
+    public ChatResponse generateStream(ChatRequest chatRequest, Consumer<String> onToken) {
+        this.acquire(chatRequest);
         return this.restClient
                 .post()
                 .contentType(MediaType.APPLICATION_JSON)
-                .body(chatRequest)
-                .retrieve()
-                .body(ChatResponse.class);
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .body(chatRequest.withStream(true))
+                .exchange((request, response) -> {
+                    if (response.getStatusCode().isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS)) {
+                        this.rateLimiter.onTooManyRequests(response.getHeaders());
+                    } else {
+                        this.rateLimiter.update(response.getHeaders());
+                    }
+                    if (ERROR_HANDLER.hasError(response)) {
+                        ERROR_HANDLER.handleError(response);
+                    }
+
+                    StringBuilder content = new StringBuilder();
+                    try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.getBody(), StandardCharsets.UTF_8))) {
+                        ServerSentEventReader.read(reader, data -> {
+                            if (DONE.equals(data)) {
+                                return false;
+                            }
+                            ChatCompletionChunk chunk = this.objectMapper.readValue(data, ChatCompletionChunk.class);
+                            for (ChunkChoice choice : chunk.choices()) {
+                                String token = choice.delta() != null ? choice.delta().content() : null;
+                                if (token != null && !token.isEmpty()) {
+                                    content.append(token);
+                                    onToken.accept(token);
+                                }
+                            }
+                            return true;
+                        });
+                    }
+                    return new ChatResponse(List.of(new Choice(0, new Message("assistant", content.toString()))));
+                });
+    }
+
+    /**
+     * Sends the requests on a pool of max-concurrency threads shared by all the batches, each of them waiting for the
+     * rate limiter. A request answered with 429 anyway, e.g., because other nodes use the same API key, is sent again
+     * after the Retry-After, up to max-retries times. If one fails, the others are cancelled.
+     */
+    @Override
+    public List<ChatResponse> generateAll(List<ChatRequest> chatRequests) {
+        List<Future<ChatResponse>> futures = new ArrayList<>(chatRequests.size());
+        for (ChatRequest chatRequest : chatRequests) {
+            futures.add(this.executor.submit(() -> this.generateWithRetries(chatRequest)));
+        }
+
+        List<ChatResponse> chatResponses = new ArrayList<>(futures.size());
+        try {
+            for (Future<ChatResponse> future : futures) {
+                chatResponses.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while generating the completions", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Could not generate the completions", e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return chatResponses;
+    }
+
+    private ChatResponse generateWithRetries(ChatRequest chatRequest) {
+        for (int retries = 0; ; retries++) {
+            try {
+                return this.generate(chatRequest);
+            } catch (HttpClientErrorException.TooManyRequests e) {
+                if (retries >= this.maxRetries) {
+                    throw e;
+                }
+                // the rate limiter is paused until the Retry-After, the next attempt waits for it
+            }
+        }
+    }
+
+    private void acquire(ChatRequest chatRequest) {
+        try {
+            this.rateLimiter.acquire(chatRequest);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the rate limit", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        this.executor.shutdownNow();
     }
 
 }
@@ -0,0 +1,288 @@
+package com.learningspring.hogwartsartifactonline.client.ai.chat;
+
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatRequest;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Sends the completions to an ordered list of OpenAI-compatible endpoints, see ChatEndpoints, to cut the tail latency
+ * and survive the outages of one of them:
+ * <ul>
+ *     <li>hedging: if an endpoint hasn't answered after the given percentile of the latencies of the recent
+ *     completions, the same request is sent to the next endpoint as well. The first response wins and the other
+ *     request is cancelled. The last endpoint, e.g., the only one, is not hedged, since a second request to the same
+ *     endpoint would only double its load and its use of the rate limits;</li>
+ *     <li>failover: a request that fails with 5xx, 429 or no response at all is sent to the next endpoints, in
+ *     order. Other errors, e.g., 400, would fail on any endpoint and are thrown at once.</li>
+ * </ul>
+ * Streamed completions only fail over, and only before their first token. Batches fail over as a whole and are not
+ * hedged, since they are paced by the rate limits rather than by the latency of one request.
+ */
+@Component
+public class HedgingChatClient implements ChatClient {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HedgingChatClient.class);
+
+    private static final int LATENCY_WINDOW = 100;
+
+    private record Outcome(ChatResponse chatResponse, RuntimeException failure, int endpointsUsed) {
+    }
+
+    private final List<ChatEndpoint> endpoints;
+
+    private final boolean hedgingEnabled;
+
+    private final double percentile;
+
+    private final Duration minDelay;
+
+    private final Duration initialDelay;
+
+    private final int minSamples;
+
+    private final ExecutorService executor;
+
+    private final MeterRegistry meterRegistry;
+
+    // The latencies of the first requests of the last completions, in nanoseconds; the time to the hedge's response
+    // if the hedge won, which the first one took at least
+    private final long[] latencies = new long[LATENCY_WINDOW];
+
+    private int latencyIndex;
+
+    private int latencySamples;
+
+    private final Counter notHedged;
+
+    private final Counter firstWon;
+
+    private final Counter hedgeWon;
+
+    @Autowired
+    public HedgingChatClient(ChatEndpoints chatEndpoints,
+            MeterRegistry meterRegistry,
+            @Value("${ai.chat.hedging.enabled}") boolean hedgingEnabled,
+            @Value("${ai.chat.hedging.percentile}") double percentile,
+            @Value("${ai.chat.hedging.min-delay}") Duration minDelay,
+            @Value("${ai.chat.hedging.initial-delay}") Duration initialDelay,
+            @Value("${ai.chat.hedging.min-samples}") int minSamples) {
+        this(chatEndpoints.list(), meterRegistry, hedgingEnabled, percentile, minDelay, initialDelay, minSamples,
+             Executors.newCachedThreadPool(new CustomizableThreadFactory("chat-hedging-")));
+    }
+
+    HedgingChatClient(List<ChatEndpoint> endpoints,
+            MeterRegistry meterRegistry,
+            boolean hedgingEnabled,
+            double percentile,
+            Duration minDelay,
+            Duration initialDelay,
+            int minSamples,
+            ExecutorService executor) {
+        this.endpoints = endpoints;
+        this.hedgingEnabled = hedgingEnabled;
+        this.percentile = percentile;
+        this.minDelay = minDelay;
+        this.initialDelay = initialDelay;
+        this.minSamples = Math.min(minSamples, LATENCY_WINDOW);
+        this.executor = executor;
+        this.meterRegistry = meterRegistry;
+
+        // hedge rate: (first + hedge) / all; win rate of the hedges: hedge / (first + hedge)
+        this.notHedged = meterRegistry.counter("ai.chat.hedging", "result", "not-hedged");
+        this.firstWon = meterRegistry.counter("ai.chat.hedging", "result", "first-won");
+        this.hedgeWon = meterRegistry.counter("ai.chat.hedging", "result", "hedge-won");
+    }
+
+    @Override
+    public ChatResponse generate(ChatRequest chatRequest) {
+        RuntimeException failure = null;
+        int index = 0;
+        while (index < this.endpoints.size()) {
+            ChatEndpoint first = this.endpoints.get(index);
+            ChatEndpoint hedge = this.hedgingEnabled && index + 1 < this.endpoints.size() ? this.endpoints.get(index + 1) : null;
+
+            Outcome outcome = hedge != null
+                    ? this.generateHedged(first, hedge, chatRequest)
+                    : this.generateDirectly(first, chatRequest);
+            if (outcome.chatResponse() != null) {
+                return outcome.chatResponse();
+            }
+            failure = outcome.failure();
+            index += outcome.endpointsUsed();
+        }
+        throw failure;
+    }
+
+    @Override
+    public ChatResponse generateStream(ChatRequest chatRequest, Consumer<String> onToken) {
+        RuntimeException failure = null;
+        for (ChatEndpoint endpoint : this.endpoints) {
+            AtomicBoolean streaming = new AtomicBoolean();
+            try {
+                return endpoint.chatClient().generateStream(endpoint.adapt(chatRequest), token -> {
+                    streaming.set(true);
+                    onToken.accept(token);
+                });
+            } catch (RuntimeException e) {
+                if (streaming.get() || !isFailover(e)) {
+                    throw e; // the tokens already streamed can't be taken back
+                }
+                failure = e;
+                this.failedOver(endpoint, e);
+            }
+        }
+        throw failure;
+    }
+
+    @Override
+    public List<ChatResponse> generateAll(List<ChatRequest> chatRequests) {
+        RuntimeException failure = null;
+        for (ChatEndpoint endpoint : this.endpoints) {
+            try {
+                return endpoint.chatClient().generateAll(chatRequests.stream().map(endpoint::adapt).toList());
+            } catch (RuntimeException e) {
+                if (!isFailover(e)) {
+                    throw e;
+                }
+                failure = e;
+                this.failedOver(endpoint, e);
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * Sends the request to the endpoint on the calling thread, when there is no hedge to race it: no thread hop, and
+     * no thread taken from the executor.
+     */
+    private Outcome generateDirectly(ChatEndpoint endpoint, ChatRequest chatRequest) {
+        long start = System.nanoTime();
+        try {
+            ChatResponse chatResponse = endpoint.chatClient().generate(endpoint.adapt(chatRequest));
+            this.recordLatency(System.nanoTime() - start);
+            this.notHedged.increment();
+            return new Outcome(chatResponse, null, 1);
+        } catch (RuntimeException e) {
+            if (!isFailover(e)) {
+                throw e;
+            }
+            this.failedOver(endpoint, e);
+            return new Outcome(null, e, 1);
+        }
+    }
+
+    /**
+     * Sends the request to the first endpoint, and to the hedge endpoint if the first one is too slow. Returns the
+     * first response, or the failure if all the requests sent failed with an error worth a failover, each of them
+     * recorded as a failover of its endpoint.
+     */
+    private Outcome generateHedged(ChatEndpoint first, ChatEndpoint hedge, ChatRequest chatRequest) {
+        CompletionService<ChatResponse> completionService = new ExecutorCompletionService<>(this.executor);
+        List<Future<ChatResponse>> futures = new ArrayList<>(2);
+        long start = System.nanoTime();
+        Future<ChatResponse> firstFuture = completionService.submit(() -> first.chatClient().generate(first.adapt(chatRequest)));
+        futures.add(firstFuture);
+        try {
+            Future<ChatResponse> done = completionService.poll(this.hedgeDelay(), TimeUnit.NANOSECONDS);
+            if (done == null) {
+                futures.add(completionService.submit(() -> hedge.chatClient().generate(hedge.adapt(chatRequest))));
+                done = completionService.take();
+            }
+
+            RuntimeException failure;
+            int completed = 1;
+            while (true) {
+                try {
+                    ChatResponse chatResponse = done.get();
+                    if (done == firstFuture) {
+                        this.recordLatency(System.nanoTime() - start);
+                        (futures.size() == 1 ? this.notHedged : this.firstWon).increment();
+                    } else {
+                        // Otherwise only the first requests faster than the hedge delay count, and the delay only shrinks
+                        this.recordLatency(System.nanoTime() - start);
+                        this.hedgeWon.increment();
+                    }
+                    return new Outcome(chatResponse, null, futures.size());
+                } catch (ExecutionException e) {
+                    failure = e.getCause() instanceof RuntimeException runtimeException
+                            ? runtimeException
+                            : new IllegalStateException("Could not generate the completion", e.getCause());
+                    if (!isFailover(failure)) {
+                        throw failure;
+                    }
+                    this.failedOver(done == firstFuture ? first : hedge, failure);
+                }
+                if (completed == futures.size()) {
+                    return new Outcome(null, failure, futures.size());
+                }
+                done = completionService.take(); // the hedge may still succeed
+                completed++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the completion", e);
+        } finally {
+            futures.forEach(future -> future.cancel(true)); // the loser, if any
+        }
+    }
+
+    /**
+     * The given percentile of the recent latencies, at least minDelay, or initialDelay until minSamples were measured.
+     */
+    synchronized long hedgeDelay() {
+        if (this.latencySamples < this.minSamples || this.latencySamples == 0) {
+            return this.initialDelay.toNanos();
+        }
+        long[] sorted = Arrays.copyOf(this.latencies, this.latencySamples);
+        Arrays.sort(sorted);
+        long percentileLatency = sorted[(int) Math.min(sorted.length - 1, Math.ceil(this.percentile * sorted.length) - 1)];
+        return Math.max(this.minDelay.toNanos(), percentileLatency);
+    }
+
+    synchronized void recordLatency(long nanos) {
+        this.latencies[this.latencyIndex] = nanos;
+        this.latencyIndex = (this.latencyIndex + 1) % LATENCY_WINDOW;
+        this.latencySamples = Math.min(this.latencySamples + 1, LATENCY_WINDOW);
+    }
+
+    private void failedOver(ChatEndpoint endpoint, RuntimeException e) {
+        this.meterRegistry.counter("ai.chat.failovers", "endpoint", endpoint.name()).increment();
+        LOGGER.warn("Chat endpoint {} failed: {}", endpoint.name(), e.getMessage());
+    }
+
+    private static boolean isFailover(RuntimeException e) {
+        return e instanceof HttpServerErrorException
+                || e instanceof HttpClientErrorException.TooManyRequests
+                || e instanceof ResourceAccessException;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        this.executor.shutdownNow();
+    }
+}
@@ -0,0 +1,48 @@
+package com.learningspring.hogwartsartifactonline.client.ai.chat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Reads the data of server-sent events (https://html.spec.whatwg.org/multipage/server-sent-events.html) line by line,
+ * as they arrive. Only the data field is used: the other fields and the comments are skipped.
+ */
+class ServerSentEventReader {
+
+    @FunctionalInterface
+    interface DataHandler {
+
+        /**
+         * Returns false to stop reading.
+         */
+        boolean handle(String data) throws IOException;
+    }
+
+    /**
+     * Passes the data of each event to onData until the stream ends or onData returns false.
+     */
+    static void read(BufferedReader reader, DataHandler onData) throws IOException {
+        StringBuilder data = new StringBuilder();
+        boolean hasData = false;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) { // the end of an event
+                if (hasData && !onData.handle(data.toString())) {
+                    return;
+                }
+                data.setLength(0);
+                hasData = false;
+            } else if (line.startsWith("data:")) {
+                if (hasData) {
+                    data.append('\n'); // the data of an event may span several lines
+                }
+                data.append(line, line.startsWith("data: ") ? 6 : 5, line.length());
+                hasData = true;
+            }
+        }
+
+        if (hasData) {
+            onData.handle(data.toString()); // the last event, if the stream ended without a blank line
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.learningspring.hogwartsartifactonline.client.ai.chat.dto;
+
+import java.util.List;
+
+/**
+ * The data of one server-sent event of a streamed completion: the choices hold the next piece of the message.
+ */
+public record ChatCompletionChunk(List<ChunkChoice> choices) {
+}
@@ -1,6 +1,20 @@
 package com.learningspring.hogwartsartifactonline.client.ai.chat.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
-public record ChatRequest(String model, List<Message> messages) {
+/**
+ * @param stream true to receive the completion as server-sent events, see ChatClient.generateStream; left out if null
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ChatRequest(String model, List<Message> messages, Boolean stream) {
+
+    public ChatRequest(String model, List<Message> messages) {
+        this(model, messages, null);
+    }
+
+    public ChatRequest withStream(boolean stream) {
+        return new ChatRequest(this.model, this.messages, stream);
+    }
 }
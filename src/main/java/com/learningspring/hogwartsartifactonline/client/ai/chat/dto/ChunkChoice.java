@@ -0,0 +1,6 @@
+package com.learningspring.hogwartsartifactonline.client.ai.chat.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public record ChunkChoice(int index, Message delta, @JsonProperty("finish_reason") String finishReason) {
+}
@@ -0,0 +1,39 @@
+package com.learningspring.hogwartsartifactonline.client.ai.embedding;
+
+import java.util.List;
+
+/**
+ * Turns texts into vectors whose dot product is the similarity of their meaning, see ArtifactVectorIndex. The
+ * implementation is selected by ai.embedding.provider, see EmbeddingClientConfiguration.
+ */
+public interface EmbeddingClient {
+
+    /**
+     * The length of the vectors.
+     */
+    int dimensions();
+
+    /**
+     * The vectors of the texts, in the order of the texts. They have a norm of 1, so their dot product is their cosine
+     * similarity.
+     */
+    List<float[]> embedAll(List<String> texts);
+
+    default float[] embed(String text) {
+        return this.embedAll(List.of(text)).get(0);
+    }
+
+    static float[] normalize(float[] vector) {
+        double squares = 0;
+        for (float value : vector) {
+            squares += value * value;
+        }
+        if (squares > 0) {
+            float norm = (float) Math.sqrt(squares);
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] /= norm;
+            }
+        }
+        return vector;
+    }
+}
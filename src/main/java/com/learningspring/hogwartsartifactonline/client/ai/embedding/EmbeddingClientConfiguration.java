@@ -0,0 +1,33 @@
+package com.learningspring.hogwartsartifactonline.client.ai.embedding;
+
+import com.learningspring.hogwartsartifactonline.client.http.OutboundHttpClients;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+@Configuration
+public class EmbeddingClientConfiguration {
+
+    /**
+     * The EmbeddingClient of ai.embedding.provider: "local" for LocalEmbeddingClient, or "openai" for
+     * OpenAiEmbeddingClient, whose endpoint and API key are set by profile.
+     */
+    @Bean
+    public EmbeddingClient embeddingClient(@Value("${ai.embedding.provider}") String provider,
+            @Value("${ai.embedding.dimensions}") int dimensions,
+            OutboundHttpClients outboundHttpClients,
+            Environment environment) {
+        return switch (provider) {
+            case "local" -> new LocalEmbeddingClient(dimensions);
+            case "openai" -> new OpenAiEmbeddingClient(
+                    environment.getRequiredProperty("ai.embedding.openai.endpoint"),
+                    environment.getRequiredProperty("ai.embedding.openai.api-key"),
+                    outboundHttpClients.builder("embeddings"),
+                    environment.getRequiredProperty("ai.embedding.openai.model"),
+                    dimensions,
+                    environment.getRequiredProperty("ai.embedding.openai.batch-size", Integer.class));
+            default -> throw new IllegalArgumentException("Unknown embedding provider: " + provider);
+        };
+    }
+}
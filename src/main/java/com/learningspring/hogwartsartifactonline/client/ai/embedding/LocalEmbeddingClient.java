@@ -0,0 +1,77 @@
+package com.learningspring.hogwartsartifactonline.client.ai.embedding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * A small embedding model that runs in the JVM, without a download nor a network call: each word and each trigram of
+ * letters of a word is hashed into one of the dimensions of the vector (the "hashing trick"). The trigrams match the
+ * forms of a word, e.g., "invisible" and "invisibility" share "inv", "nvi", "vis", "isi", "sib" and "ibl".
+ * <p>
+ * The vectors only know about spelling, not synonyms, so a remote model gives better results. But they are
+ * deterministic, which makes this model the one of the tests and of the offline development.
+ */
+public class LocalEmbeddingClient implements EmbeddingClient {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Words that say nothing about an artifact but would make every text a little similar to every other
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "can", "for", "from", "has", "have", "in", "into", "is",
+            "it", "its", "of", "on", "or", "that", "the", "their", "them", "these", "they", "this", "those", "to",
+            "was", "were", "what", "which", "who", "with", "you", "your");
+
+    private static final float WORD_WEIGHT = 1.0f;
+
+    private static final float TRIGRAM_WEIGHT = 0.5f;
+
+    private final int dimensions;
+
+    public LocalEmbeddingClient(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public int dimensions() {
+        return this.dimensions;
+    }
+
+    @Override
+    public List<float[]> embedAll(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            vectors.add(this.embed(text));
+        }
+        return vectors;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[this.dimensions];
+        for (String word : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (word.isEmpty() || STOP_WORDS.contains(word)) {
+                continue;
+            }
+            this.add(vector, "w:" + word, WORD_WEIGHT);
+            String padded = "^" + word + "$";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                this.add(vector, "t:" + padded.substring(i, i + 3), TRIGRAM_WEIGHT);
+            }
+        }
+        return EmbeddingClient.normalize(vector);
+    }
+
+    /**
+     * Adds the weight to the dimension of the feature, with the sign of the feature, so that the collisions of two
+     * features in the same dimension cancel out on average instead of adding up.
+     */
+    private void add(float[] vector, String feature, float weight) {
+        int hash = feature.hashCode() * 0x9E3779B1; // String.hashCode is the same on every JVM, so are the vectors
+        hash ^= hash >>> 16;
+        int dimension = Math.floorMod(hash, this.dimensions);
+        vector[dimension] += (hash & 0x40000000) == 0 ? weight : -weight;
+    }
+}
@@ -0,0 +1,78 @@
+package com.learningspring.hogwartsartifactonline.client.ai.embedding;
+
+import com.learningspring.hogwartsartifactonline.client.ai.embedding.dto.Embedding;
+import com.learningspring.hogwartsartifactonline.client.ai.embedding.dto.EmbeddingRequest;
+import com.learningspring.hogwartsartifactonline.client.ai.embedding.dto.EmbeddingResponse;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Any OpenAI-compatible /embeddings endpoint, e.g., OpenAI's or a local Ollama's. The texts are sent batchSize at a
+ * time, through the "embeddings" client of OutboundHttpClients.
+ */
+public class OpenAiEmbeddingClient implements EmbeddingClient {
+
+    private final RestClient restClient;
+
+    private final String model;
+
+    private final int dimensions;
+
+    private final int batchSize;
+
+    public OpenAiEmbeddingClient(String endpoint,
+            String apiKey,
+            RestClient.Builder restClientBuilder,
+            String model,
+            int dimensions,
+            int batchSize) {
+        this.restClient = restClientBuilder
+                .baseUrl(endpoint)
+                .defaultHeader("Authorization", "Bearer " + apiKey)
+                .build();
+        this.model = model;
+        this.dimensions = dimensions;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public int dimensions() {
+        return this.dimensions;
+    }
+
+    @Override
+    public List<float[]> embedAll(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (int from = 0; from < texts.size(); from += this.batchSize) {
+            vectors.addAll(this.embedBatch(texts.subList(from, Math.min(from + this.batchSize, texts.size()))));
+        }
+        return vectors;
+    }
+
+    private List<float[]> embedBatch(List<String> texts) {
+        EmbeddingResponse response = this.restClient
+                .post()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(new EmbeddingRequest(this.model, texts, this.dimensions))
+                .retrieve()
+                .body(EmbeddingResponse.class);
+
+        if (response == null || response.data() == null || response.data().size() != texts.size()) {
+            throw new IllegalStateException("Expected " + texts.size() + " embeddings from model " + this.model);
+        }
+        float[][] vectors = new float[texts.size()][];
+        for (Embedding embedding : response.data()) {
+            if (embedding.embedding().length != this.dimensions) {
+                throw new IllegalStateException("Expected embeddings of " + this.dimensions + " dimensions from model "
+                                                + this.model + ", got " + embedding.embedding().length);
+            }
+            // Most models return unit vectors already, but the API doesn't promise it
+            vectors[embedding.index()] = EmbeddingClient.normalize(embedding.embedding());
+        }
+        return Arrays.asList(vectors);
+    }
+}
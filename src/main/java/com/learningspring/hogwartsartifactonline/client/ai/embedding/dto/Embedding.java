@@ -0,0 +1,7 @@
+package com.learningspring.hogwartsartifactonline.client.ai.embedding.dto;
+
+/**
+ * @param index the position of the text in the input of the request
+ */
+public record Embedding(int index, float[] embedding) {
+}
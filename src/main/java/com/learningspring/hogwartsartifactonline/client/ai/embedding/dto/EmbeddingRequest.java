@@ -0,0 +1,12 @@
+package com.learningspring.hogwartsartifactonline.client.ai.embedding.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * @param dimensions the length of the vectors, for the models that can shorten them; left out if null
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record EmbeddingRequest(String model, List<String> input, Integer dimensions) {
+}
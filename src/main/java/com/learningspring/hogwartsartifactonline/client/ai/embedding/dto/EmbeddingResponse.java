@@ -0,0 +1,6 @@
+package com.learningspring.hogwartsartifactonline.client.ai.embedding.dto;
+
+import java.util.List;
+
+public record EmbeddingResponse(List<Embedding> data) {
+}
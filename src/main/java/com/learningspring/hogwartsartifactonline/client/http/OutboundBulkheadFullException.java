@@ -0,0 +1,14 @@
+package com.learningspring.hogwartsartifactonline.client.http;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a downstream service already has as many requests in progress as its client allows. An IOException,
+ * so that RestClient throws it as a ResourceAccessException like the other failures to reach the service.
+ */
+public class OutboundBulkheadFullException extends IOException {
+
+    public OutboundBulkheadFullException(String target, int maxConcurrentRequests) {
+        super("Too many concurrent requests to " + target + " (at most " + maxConcurrentRequests + ")");
+    }
+}
@@ -0,0 +1,100 @@
+package com.learningspring.hogwartsartifactonline.client.http;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the RestClients of the downstream services. They all share one HttpClient, which negotiates HTTP/2 and keeps
+ * its connections alive between requests (for jdk.httpclient.keepalive.timeout), so that a request doesn't pay for
+ * a new TCP and TLS handshake.
+ * <p>
+ * Each downstream service, or target, has its own read timeout, bulkhead, retries and timer, see
+ * OutboundRequestInterceptor. They are set by outbound-http.clients.&lt;target&gt;, or else by
+ * outbound-http.defaults.
+ */
+@Component
+public class OutboundHttpClients {
+
+    private static final String PREFIX = "outbound-http.";
+
+    private final HttpClient httpClient;
+
+    private final Binder binder;
+
+    private final MeterRegistry meterRegistry;
+
+    // One per target, so that all the clients of a target share its bulkhead
+    private final ConcurrentMap<String, OutboundRequestInterceptor> interceptors = new ConcurrentHashMap<>();
+
+    @Autowired
+    public OutboundHttpClients(Environment environment,
+            MeterRegistry meterRegistry,
+            @Value("${outbound-http.connect-timeout}") Duration connectTimeout) {
+        this(HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_2) // falls back to HTTP/1.1 if the server doesn't support it
+                     .connectTimeout(connectTimeout)
+                     .followRedirects(HttpClient.Redirect.NORMAL)
+                     .build(),
+             Binder.get(environment),
+             meterRegistry);
+    }
+
+    OutboundHttpClients(HttpClient httpClient, Binder binder, MeterRegistry meterRegistry) {
+        this.httpClient = httpClient;
+        this.binder = binder;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * A new builder for a RestClient of the given target. Interceptors added to it run before the bulkhead and the
+     * retries.
+     */
+    public RestClient.Builder builder(String target) {
+        OutboundHttpSettings settings = this.settings(target);
+
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(this.httpClient);
+        requestFactory.setReadTimeout(settings.readTimeout());
+
+        return RestClient.builder()
+                .requestFactory(requestFactory)
+                .requestInterceptor(this.interceptors.computeIfAbsent(target, key -> new OutboundRequestInterceptor(key, settings, this.meterRegistry)));
+    }
+
+    OutboundHttpSettings settings(String target) {
+        Set<HttpMethod> retryMethods = this.property(target, "retry-methods", Bindable.setOf(String.class))
+                .stream()
+                .map(method -> HttpMethod.valueOf(method.trim().toUpperCase()))
+                .collect(Collectors.toUnmodifiableSet());
+
+        return new OutboundHttpSettings(
+                this.property(target, "read-timeout", Bindable.of(Duration.class)),
+                this.property(target, "max-concurrent-requests", Bindable.of(Integer.class)),
+                this.property(target, "max-wait", Bindable.of(Duration.class)),
+                this.property(target, "max-retries", Bindable.of(Integer.class)),
+                this.property(target, "backoff", Bindable.of(Duration.class)),
+                this.property(target, "max-backoff", Bindable.of(Duration.class)),
+                this.property(target, "max-retry-time", Bindable.of(Duration.class)),
+                retryMethods);
+    }
+
+    private <T> T property(String target, String name, Bindable<T> bindable) {
+        return this.binder.bind(PREFIX + "clients." + target + "." + name, bindable)
+                .orElseGet(() -> this.binder.bind(PREFIX + "defaults." + name, bindable)
+                        .orElseThrow(() -> new IllegalStateException("Missing property " + PREFIX + "defaults." + name)));
+    }
+}
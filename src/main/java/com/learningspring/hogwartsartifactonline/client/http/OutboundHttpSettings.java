@@ -0,0 +1,19 @@
+package com.learningspring.hogwartsartifactonline.client.http;
+
+import org.springframework.http.HttpMethod;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * The settings of the client of one downstream service, see outbound-http in application.yml.
+ */
+record OutboundHttpSettings(Duration readTimeout,
+                            int maxConcurrentRequests,
+                            Duration maxWait,
+                            int maxRetries,
+                            Duration backoff,
+                            Duration maxBackoff,
+                            Duration maxRetryTime,
+                            Set<HttpMethod> retryMethods) {
+}
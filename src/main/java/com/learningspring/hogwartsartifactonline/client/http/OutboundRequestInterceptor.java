@@ -0,0 +1,195 @@
+package com.learningspring.hogwartsartifactonline.client.http;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Wraps the requests to one downstream service:
+ * <ul>
+ *     <li>a bulkhead: at most maxConcurrentRequests requests at the same time, from the request until its response
+ *     is closed, so that a slow service can't take all the threads of this one. A request that waits more than
+ *     maxWait for a slot fails with OutboundBulkheadFullException;</li>
+ *     <li>retries of the connection errors, timeouts and 502, 503 and 504 of the retryMethods, at most maxRetries
+ *     times, after a random backoff of up to backoff * 2^n (full jitter, so that the clients don't retry together).
+ *     A retry that would start more than maxRetryTime after the first attempt isn't made, so the retries can't hold
+ *     the caller, or a slot of the bulkhead, for maxRetries read timeouts;</li>
+ *     <li>a timer per target, method and status, until the response headers arrive.</li>
+ * </ul>
+ * It must be the last interceptor of its RestClient, since the retries execute the request again.
+ */
+class OutboundRequestInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(502, 503, 504);
+
+    private final String target;
+
+    private final OutboundHttpSettings settings;
+
+    private final Semaphore bulkhead;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter retries;
+
+    private final Counter rejected;
+
+    OutboundRequestInterceptor(String target, OutboundHttpSettings settings, MeterRegistry meterRegistry) {
+        this.target = target;
+        this.settings = settings;
+        this.bulkhead = new Semaphore(settings.maxConcurrentRequests());
+        this.meterRegistry = meterRegistry;
+
+        this.retries = meterRegistry.counter("outbound.http.retries", "target", target);
+        this.rejected = meterRegistry.counter("outbound.http.rejected", "target", target);
+        Gauge.builder("outbound.http.concurrent.requests", this.bulkhead,
+                      bulkhead -> settings.maxConcurrentRequests() - bulkhead.availablePermits())
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        try {
+            if (!this.bulkhead.tryAcquire(this.settings.maxWait().toNanos(), TimeUnit.NANOSECONDS)) {
+                this.rejected.increment();
+                throw new OutboundBulkheadFullException(this.target, this.settings.maxConcurrentRequests());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a request slot of " + this.target);
+        }
+
+        try {
+            return new PermitReleasingResponse(this.executeWithRetries(request, body, execution), this.bulkhead);
+        } catch (IOException | RuntimeException e) {
+            this.bulkhead.release();
+            throw e;
+        }
+    }
+
+    private ClientHttpResponse executeWithRetries(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        boolean retryable = this.settings.retryMethods().contains(request.getMethod());
+        long deadline = System.nanoTime() + this.settings.maxRetryTime().toNanos();
+        for (int attempt = 0; ; attempt++) {
+            long start = System.nanoTime();
+            ClientHttpResponse response;
+            try {
+                response = execution.execute(request, body);
+            } catch (IOException e) {
+                this.record(request, "IO_ERROR", start);
+                long backoff = retryable && attempt < this.settings.maxRetries() ? this.backoff(attempt, deadline) : -1;
+                if (backoff < 0) {
+                    throw e;
+                }
+                this.sleep(backoff);
+                continue;
+            }
+
+            int status = response.getStatusCode().value();
+            this.record(request, String.valueOf(status), start);
+            if (!retryable || attempt >= this.settings.maxRetries() || !RETRYABLE_STATUSES.contains(status)) {
+                return response;
+            }
+            long backoff = this.backoff(attempt, deadline);
+            if (backoff < 0) {
+                return response;
+            }
+            response.close();
+            this.sleep(backoff);
+        }
+    }
+
+    /**
+     * The milliseconds to wait before the retry, or -1 if the retry would start after the deadline.
+     */
+    private long backoff(int attempt, long deadline) {
+        long maxBackoff = Math.min(this.settings.maxBackoff().toMillis(), this.settings.backoff().toMillis() << Math.min(attempt, 20));
+        long backoff = ThreadLocalRandom.current().nextLong(maxBackoff + 1);
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff) < deadline ? backoff : -1;
+    }
+
+    private void sleep(long backoff) throws InterruptedIOException {
+        this.retries.increment();
+        try {
+            Thread.sleep(backoff);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry a request to " + this.target);
+        }
+    }
+
+    private void record(HttpRequest request, String status, long start) {
+        Timer.builder("outbound.http.requests")
+                .description("Time until the response headers of the requests to the downstream services")
+                .tag("target", this.target)
+                .tag("method", request.getMethod().name())
+                .tag("status", status)
+                .register(this.meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Keeps the slot of the bulkhead until the response is closed, e.g., until the end of a streamed completion.
+     */
+    private static final class PermitReleasingResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse response;
+
+        private final Semaphore bulkhead;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private PermitReleasingResponse(ClientHttpResponse response, Semaphore bulkhead) {
+            this.response = response;
+            this.bulkhead = bulkhead;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return this.response.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return this.response.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return this.response.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return this.response.getBody();
+        }
+
+        @Override
+        public void close() {
+            try {
+                this.response.close();
+            } finally {
+                if (this.released.compareAndSet(false, true)) {
+                    this.bulkhead.release();
+                }
+            }
+        }
+    }
+}
@@ -4,20 +4,26 @@ import com.azure.storage.blob.BlobClient;
 import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.BlobServiceClient;
 import com.azure.storage.blob.models.BlobStorageException;
+import com.azure.storage.blob.specialized.BlockBlobClient;
 import com.learningspring.hogwartsartifactonline.system.exception.CustomBlobStorageException;
-import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.UUID;
+import java.util.stream.IntStream;
 
-@Service
 public class AzureImageStorageClient implements ImageStorageClient{
 
     private final BlobServiceClient blobServiceClient;
 
-    public AzureImageStorageClient(BlobServiceClient blobServiceClient) {
+    private final ParallelBlockUploader parallelBlockUploader;
+
+    public AzureImageStorageClient(BlobServiceClient blobServiceClient, ParallelBlockUploader parallelBlockUploader) {
         this.blobServiceClient = blobServiceClient;
+        this.parallelBlockUploader = parallelBlockUploader;
     }
 
     @Override
@@ -41,4 +47,41 @@ public class AzureImageStorageClient implements ImageStorageClient{
             throw new CustomBlobStorageException("Failed to upload image to Azure Blob Storage", e);
         }
     }
+
+    /**
+     * Each block is staged as a block of the blob with Put Block, several at a time, and the blob is made of them with
+     * Put Block List. Blocks that are never committed, e.g., of a failed upload, are discarded by Azure after a week.
+     */
+    @Override
+    public String uploadImage(String containerName, String originalImageName, InputStream data) throws IOException {
+        try {
+            BlockBlobClient blockBlobClient = this.blobServiceClient.getBlobContainerClient(containerName)
+                    .getBlobClient(ImageNames.unique(originalImageName))
+                    .getBlockBlobClient();
+
+            this.parallelBlockUploader.upload(data, new ParallelBlockUploader.BlockStore() {
+                @Override
+                public void stageBlock(int index, byte[] block, int length) {
+                    blockBlobClient.stageBlock(blockId(index), new ByteArrayInputStream(block, 0, length), length);
+                }
+
+                @Override
+                public void commit(int blockCount) {
+                    blockBlobClient.commitBlockList(IntStream.range(0, blockCount).mapToObj(AzureImageStorageClient::blockId).toList(), true);
+                }
+            });
+
+            return blockBlobClient.getBlobUrl();
+
+        } catch (BlobStorageException e) {
+            throw new CustomBlobStorageException("Failed to upload image to Azure Blob Storage", e);
+        }
+    }
+
+    /**
+     * The ids of the blocks of a blob must be Base64 strings of the same length.
+     */
+    private static String blockId(int index) {
+        return Base64.getEncoder().encodeToString(String.format("%08d", index).getBytes(StandardCharsets.UTF_8));
+    }
 }
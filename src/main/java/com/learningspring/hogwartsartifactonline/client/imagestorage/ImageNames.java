@@ -0,0 +1,25 @@
+package com.learningspring.hogwartsartifactonline.client.imagestorage;
+
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+final class ImageNames {
+
+    private static final Pattern EXTENSION = Pattern.compile("\\.[A-Za-z0-9]{1,10}");
+
+    private ImageNames() {
+    }
+
+    /**
+     * A new name for the image, with its extension, if any: the original name is the client's and may not be unique,
+     * nor a safe path.
+     */
+    static String unique(String originalImageName) {
+        String name = UUID.randomUUID().toString();
+        int dot = originalImageName != null ? originalImageName.lastIndexOf('.') : -1;
+        if (dot >= 0 && EXTENSION.matcher(originalImageName).region(dot, originalImageName.length()).matches()) {
+            return name + originalImageName.substring(dot);
+        }
+        return name;
+    }
+}
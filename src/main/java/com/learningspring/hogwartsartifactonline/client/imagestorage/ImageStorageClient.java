@@ -6,4 +6,9 @@ import java.io.InputStream;
 public interface ImageStorageClient {
 
     String uploadImage(String containerName, String originalImageName, InputStream data, long length) throws IOException;
+
+    /**
+     * Streams the data, of any length, to the storage in blocks staged in parallel, see ParallelBlockUploader.
+     */
+    String uploadImage(String containerName, String originalImageName, InputStream data) throws IOException;
 }
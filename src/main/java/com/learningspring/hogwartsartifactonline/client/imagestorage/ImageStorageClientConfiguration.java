@@ -0,0 +1,29 @@
+package com.learningspring.hogwartsartifactonline.client.imagestorage;
+
+import com.azure.storage.blob.BlobServiceClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+@Configuration
+public class ImageStorageClientConfiguration {
+
+    /**
+     * The ImageStorageClient of image-storage.provider: "azure" for AzureImageStorageClient, or "local" for
+     * LocalImageStorageClient, which stores the images under image-storage.local.root.
+     */
+    @Bean
+    public ImageStorageClient imageStorageClient(@Value("${image-storage.provider}") String provider,
+            @Value("${image-storage.local.root}") Path localRoot,
+            ObjectProvider<BlobServiceClient> blobServiceClient,
+            ParallelBlockUploader parallelBlockUploader) {
+        return switch (provider) {
+            case "azure" -> new AzureImageStorageClient(blobServiceClient.getObject(), parallelBlockUploader);
+            case "local" -> new LocalImageStorageClient(localRoot, parallelBlockUploader);
+            default -> throw new IllegalArgumentException("Unknown image storage provider: " + provider);
+        };
+    }
+}
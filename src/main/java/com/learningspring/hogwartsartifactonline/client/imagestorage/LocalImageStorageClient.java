@@ -0,0 +1,67 @@
+package com.learningspring.hogwartsartifactonline.client.imagestorage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Stores the images as files under root/containerName, e.g., to run or benchmark the uploads offline. The blocks are
+ * written in place, each at its own offset of a .part file, which is renamed to the image once they are all written,
+ * so a failed upload leaves nothing behind and a reader never sees a partial image.
+ */
+public class LocalImageStorageClient implements ImageStorageClient {
+
+    private final Path root;
+
+    private final ParallelBlockUploader parallelBlockUploader;
+
+    public LocalImageStorageClient(Path root, ParallelBlockUploader parallelBlockUploader) {
+        this.root = root.toAbsolutePath().normalize();
+        this.parallelBlockUploader = parallelBlockUploader;
+    }
+
+    @Override
+    public String uploadImage(String containerName, String originalImageName, InputStream data, long length) throws IOException {
+        return this.uploadImage(containerName, originalImageName, data);
+    }
+
+    @Override
+    public String uploadImage(String containerName, String originalImageName, InputStream data) throws IOException {
+        Path container = this.root.resolve(containerName).normalize();
+        if (!container.startsWith(this.root) || container.equals(this.root)) {
+            throw new IllegalArgumentException("Invalid container name: " + containerName);
+        }
+        Files.createDirectories(container);
+
+        Path image = container.resolve(ImageNames.unique(originalImageName));
+        Path part = container.resolve(image.getFileName() + ".part");
+        long blockSize = this.parallelBlockUploader.blockSize();
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            this.parallelBlockUploader.upload(data, new ParallelBlockUploader.BlockStore() {
+                @Override
+                public void stageBlock(int index, byte[] block, int length) throws IOException {
+                    ByteBuffer buffer = ByteBuffer.wrap(block, 0, length);
+                    long position = index * blockSize;
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                }
+
+                @Override
+                public void commit(int blockCount) {
+                    // the blocks are already in place
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        }
+        Files.move(part, image, StandardCopyOption.ATOMIC_MOVE);
+        return image.toUri().toString();
+    }
+}
@@ -0,0 +1,186 @@
+package com.learningspring.hogwartsartifactonline.client.imagestorage;
+
+import com.learningspring.hogwartsartifactonline.system.exception.ImageTooLargeException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Streams an image of any size to a BlockStore: the image is read block by block into buffers of the UploadBufferPool,
+ * and each block is staged on the upload threads while the next one is read, then the blocks are committed in order.
+ * An upload holds at most max-blocks-in-flight buffers at a time, and all the uploads of a node at most max-buffers,
+ * so neither the image nor a temporary copy of it is ever held whole in memory or on disk.
+ */
+@Component
+public class ParallelBlockUploader {
+
+    /**
+     * Where the blocks of an image go, e.g., the staged blocks of an Azure block blob.
+     */
+    public interface BlockStore {
+
+        /**
+         * Stores the block at the index, called on the upload threads in any order. Every block but the last one is
+         * full, i.e., block-size bytes long.
+         */
+        void stageBlock(int index, byte[] block, int length) throws IOException;
+
+        /**
+         * Makes the image out of the blockCount blocks, once they are all staged.
+         */
+        void commit(int blockCount) throws IOException;
+    }
+
+    private final UploadBufferPool bufferPool;
+
+    private final ExecutorService executor;
+
+    private final int maxBlocksInFlight;
+
+    private final long maxSize;
+
+    @Autowired
+    public ParallelBlockUploader(@Value("${image-storage.upload.block-size}") DataSize blockSize,
+            @Value("${image-storage.upload.max-blocks-in-flight}") int maxBlocksInFlight,
+            @Value("${image-storage.upload.max-buffers}") int maxBuffers,
+            @Value("${image-storage.upload.max-wait}") Duration maxWait,
+            @Value("${image-storage.upload.max-size}") DataSize maxSize,
+            @Value("${image-storage.upload.threads}") int threads) {
+        this(new UploadBufferPool(Math.toIntExact(blockSize.toBytes()), maxBuffers, maxWait),
+             Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("image-upload-")),
+             maxBlocksInFlight,
+             maxSize.toBytes());
+    }
+
+    ParallelBlockUploader(UploadBufferPool bufferPool, ExecutorService executor, int maxBlocksInFlight, long maxSize) {
+        this.bufferPool = bufferPool;
+        this.executor = executor;
+        this.maxBlocksInFlight = maxBlocksInFlight;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Reads the data to its end into the store and returns its size. If the data can't be read or a block can't be
+     * staged, the blocks staged so far are not committed.
+     */
+    public long upload(InputStream data, BlockStore store) throws IOException {
+        Semaphore inFlight = new Semaphore(this.maxBlocksInFlight);
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Future<?>> stagedBlocks = new ArrayList<>();
+        long size = 0;
+        try {
+            while (true) {
+                inFlight.acquire();
+                byte[] block = this.bufferPool.acquire();
+                int length;
+                try {
+                    length = data.readNBytes(block, 0, block.length);
+                    size += length;
+                    if (size > this.maxSize) {
+                        throw new ImageTooLargeException(this.maxSize);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    this.release(block, inFlight);
+                    throw e;
+                }
+                if (length == 0 || failed.get()) {
+                    this.release(block, inFlight);
+                    break;
+                }
+
+                int index = stagedBlocks.size();
+                stagedBlocks.add(this.executor.submit(() -> {
+                    try {
+                        if (!failed.get()) {
+                            store.stageBlock(index, block, length);
+                        }
+                        return null;
+                    } catch (IOException | RuntimeException e) {
+                        failed.set(true); // the reader stops at the next block
+                        throw e;
+                    } finally {
+                        this.release(block, inFlight);
+                    }
+                }));
+                if (length < block.length) {
+                    break;
+                }
+            }
+            awaitAll(stagedBlocks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed.set(true);
+            throw new InterruptedIOException("The upload was interrupted");
+        } catch (IOException | RuntimeException e) {
+            failed.set(true);
+            awaitQuietly(stagedBlocks); // so that every buffer is back in the pool
+            throw e;
+        }
+        store.commit(stagedBlocks.size());
+        return size;
+    }
+
+    public int blockSize() {
+        return this.bufferPool.bufferSize();
+    }
+
+    UploadBufferPool bufferPool() {
+        return this.bufferPool;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    private void release(byte[] block, Semaphore inFlight) {
+        this.bufferPool.release(block);
+        inFlight.release();
+    }
+
+    private static void awaitAll(List<Future<?>> futures) throws IOException, InterruptedException {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                awaitQuietly(futures);
+                if (e.getCause() instanceof IOException cause) {
+                    throw cause;
+                }
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new IOException("Could not stage a block of the image", e.getCause());
+            }
+        }
+    }
+
+    private static void awaitQuietly(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                // the first failure is the one reported
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
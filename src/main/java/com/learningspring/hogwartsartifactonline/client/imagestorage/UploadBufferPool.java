@@ -0,0 +1,69 @@
+package com.learningspring.hogwartsartifactonline.client.imagestorage;
+
+import com.learningspring.hogwartsartifactonline.system.exception.ImageUploadRejectedException;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The blocks the uploads read the images into, shared by all the uploads of a node: at most maxBuffers of bufferSize
+ * bytes are ever allocated, so the heap taken by the uploads is bounded however large and however many the images are.
+ * The buffers are allocated on demand and reused.
+ */
+public class UploadBufferPool {
+
+    private final int bufferSize;
+
+    private final Semaphore available;
+
+    private final Duration maxWait;
+
+    private final Queue<byte[]> free = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger allocated = new AtomicInteger();
+
+    public UploadBufferPool(int bufferSize, int maxBuffers, Duration maxWait) {
+        this.bufferSize = bufferSize;
+        this.available = new Semaphore(maxBuffers);
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * Takes a buffer, waiting up to maxWait for one to be released if they are all in use.
+     */
+    public byte[] acquire() throws InterruptedException {
+        if (!this.available.tryAcquire(this.maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+            throw new ImageUploadRejectedException();
+        }
+        byte[] buffer = this.free.poll();
+        if (buffer == null) {
+            this.allocated.incrementAndGet();
+            buffer = new byte[this.bufferSize];
+        }
+        return buffer;
+    }
+
+    public void release(byte[] buffer) {
+        this.free.offer(buffer);
+        this.available.release();
+    }
+
+    public int bufferSize() {
+        return this.bufferSize;
+    }
+
+    /**
+     * The number of buffers allocated so far, i.e., the most that were in use at the same time.
+     */
+    int allocated() {
+        return this.allocated.get();
+    }
+
+    int available() {
+        return this.available.availablePermits();
+    }
+}
@@ -1,13 +1,36 @@
 package com.learningspring.hogwartsartifactonline.client.rediscache;
 
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 @Service
 public class RedisCacheClient {
 
+    private static final RedisScript<Long> EXPIRE_IF_EQUALS = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+
+    private static final RedisScript<Long> DELETE_IF_EQUALS = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private static final RedisScript<Long> SET_IF_EQUALS = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then redis.call('set', KEYS[1], ARGV[2], 'PX', ARGV[3]) return 1 else return 0 end",
+            Long.class);
+
+    private static final RedisScript<Long> SET_IF_VERSION_EQUALS = new DefaultRedisScript<>(
+            "if (redis.call('get', KEYS[2]) or '0') == ARGV[2] then redis.call('set', KEYS[1], ARGV[1], 'PX', ARGV[3]) return 1 else return 0 end",
+            Long.class);
+
+    private static final RedisScript<Long> INCREMENT_AND_EXPIRE = new DefaultRedisScript<>(
+            "local value = redis.call('incr', KEYS[1]) redis.call('pexpire', KEYS[1], ARGV[1]) return value",
+            Long.class);
+
     private final StringRedisTemplate redisTemplate;
 
     public RedisCacheClient(StringRedisTemplate redisTemplate) {
@@ -18,6 +41,48 @@ public class RedisCacheClient {
         redisTemplate.opsForValue().set(key, value, timeout, timeUnit);
     }
 
+    /**
+     * Sets the key only if it doesn't exist yet, and tells whether it did.
+     */
+    public boolean setIfAbsent(String key, String value, long timeout, TimeUnit timeUnit) {
+        return Boolean.TRUE.equals(this.redisTemplate.opsForValue().setIfAbsent(key, value, timeout, timeUnit));
+    }
+
+    /**
+     * Resets the timeout of the key only if it still holds the value, e.g., to renew a lock or a lease, and tells
+     * whether it did.
+     */
+    public boolean expireIfEquals(String key, String value, long timeout, TimeUnit timeUnit) {
+        Long expired = this.redisTemplate.execute(EXPIRE_IF_EQUALS, List.of(key), value, String.valueOf(timeUnit.toMillis(timeout)));
+        return expired != null && expired == 1;
+    }
+
+    /**
+     * Replaces the value of the key only if it still holds the expected one, e.g., to take over from a failed owner,
+     * and tells whether it did.
+     */
+    public boolean setIfEquals(String key, String expectedValue, String value, long timeout, TimeUnit timeUnit) {
+        Long set = this.redisTemplate.execute(SET_IF_EQUALS, List.of(key), expectedValue, value, String.valueOf(timeUnit.toMillis(timeout)));
+        return set != null && set == 1;
+    }
+
+    /**
+     * Sets the key only if the version key still holds the expected version, a missing one being version "0", e.g., to
+     * cache a value read before a change without putting it back after the change bumped the version, and tells
+     * whether it did.
+     */
+    public boolean setIfVersionEquals(String key, String value, String versionKey, String expectedVersion, long timeout, TimeUnit timeUnit) {
+        Long set = this.redisTemplate.execute(SET_IF_VERSION_EQUALS, List.of(key, versionKey), value, expectedVersion, String.valueOf(timeUnit.toMillis(timeout)));
+        return set != null && set == 1;
+    }
+
+    /**
+     * Deletes the key only if it still holds the value, e.g., to release a lock or a lease.
+     */
+    public void deleteIfEquals(String key, String value) {
+        this.redisTemplate.execute(DELETE_IF_EQUALS, List.of(key), value);
+    }
+
     public String get(String key) {
         return this.redisTemplate.opsForValue().get(key);
     }
@@ -26,6 +91,21 @@ public class RedisCacheClient {
         this.redisTemplate.delete(key);
     }
 
+    public Long increment(String key) {
+        return this.redisTemplate.opsForValue().increment(key);
+    }
+
+    /**
+     * Increments the key and resets its timeout, e.g., for a version that only has to outlive the values it guards.
+     */
+    public Long incrementAndExpire(String key, long timeout, TimeUnit timeUnit) {
+        return this.redisTemplate.execute(INCREMENT_AND_EXPIRE, List.of(key), String.valueOf(timeUnit.toMillis(timeout)));
+    }
+
+    public void publish(String channel, String message) {
+        this.redisTemplate.convertAndSend(channel, message);
+    }
+
     public boolean isUserTokenInWhiteList(String userId, String tokenFromRequest) {
        String tokenFromRedis = this.get("whitelist:" + userId);
        return tokenFromRedis != null && tokenFromRedis.equals(tokenFromRequest);
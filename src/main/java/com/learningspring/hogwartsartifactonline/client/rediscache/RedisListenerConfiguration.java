@@ -0,0 +1,44 @@
+package com.learningspring.hogwartsartifactonline.client.rediscache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@Configuration
+public class RedisListenerConfiguration {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RedisListenerConfiguration.class);
+
+    /**
+     * A single container shared by all pub/sub listeners, e.g., cache invalidation across nodes.
+     * It is not started with the context, because an unreachable Redis would then prevent the application from starting.
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer() {
+            @Override
+            public boolean isAutoStartup() {
+                return false; // started by startRedisMessageListenerContainer() below
+            }
+        };
+        container.setConnectionFactory(redisConnectionFactory);
+        return container;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRedisMessageListenerContainer(ApplicationReadyEvent event) {
+        RedisMessageListenerContainer container = event.getApplicationContext().getBean(RedisMessageListenerContainer.class);
+        try {
+            container.start();
+        } catch (RuntimeException e) {
+            // Local caches still expire on their own TTL, they just won't be invalidated by other nodes
+            LOGGER.warn("Could not subscribe to Redis channels, cross-node cache invalidation is disabled: {}", e.getMessage());
+            container.stop();
+        }
+    }
+}
@@ -31,12 +31,7 @@ public class UserController {
 
     @GetMapping
     public Result findAllUsers() {
-        List<HogwartsUser> foundHogwartsUsers = this.userService.findAll();
-
-        List<UserDto> userDtos = foundHogwartsUsers.stream()
-                .map(this.userToUserDtoConverter::convert)
-                .toList();
-
+        List<UserDto> userDtos = this.userService.findAllDtos();
         return new Result(true, StatusCode.SUCCESS, "Find All Success", userDtos);
     }
 
@@ -1,10 +1,19 @@
 package com.learningspring.hogwartsartifactonline.hogwartsuser;
 
+import com.learningspring.hogwartsartifactonline.hogwartsuser.dto.UserDto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<HogwartsUser, Integer> {
 
     Optional<HogwartsUser> findByUsername(String username);
+
+    /**
+     * Selects the rows straight into UserDtos, which also leaves the passwords in the database.
+     */
+    @Query("select new com.learningspring.hogwartsartifactonline.hogwartsuser.dto.UserDto(u.id, u.username, u.enabled, u.roles) from HogwartsUser u")
+    List<UserDto> findAllDtos();
 }
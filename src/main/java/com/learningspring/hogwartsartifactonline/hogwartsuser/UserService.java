@@ -1,6 +1,7 @@
 package com.learningspring.hogwartsartifactonline.hogwartsuser;
 
 import com.learningspring.hogwartsartifactonline.client.rediscache.RedisCacheClient;
+import com.learningspring.hogwartsartifactonline.hogwartsuser.dto.UserDto;
 import com.learningspring.hogwartsartifactonline.system.exception.ObjectNotFoundException;
 import com.learningspring.hogwartsartifactonline.system.exception.PasswordChangeIllegalArgumentException;
 import jakarta.transaction.Transactional;
@@ -37,6 +38,10 @@ public class UserService implements UserDetailsService {
         return this.userRepository.findAll();
     }
 
+    public List<UserDto> findAllDtos() {
+        return this.userRepository.findAllDtos();
+    }
+
     public HogwartsUser findById(Integer userId) {
         return this.userRepository.findById(userId).orElseThrow(() -> new ObjectNotFoundException("user", userId));
     }
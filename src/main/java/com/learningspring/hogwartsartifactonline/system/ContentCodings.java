@@ -0,0 +1,44 @@
+package com.learningspring.hogwartsartifactonline.system;
+
+import java.util.Locale;
+
+/**
+ * Reads the Accept-Encoding header of a request with its q-values (RFC 9110, section 12.5.3): "gzip;q=0" refuses
+ * gzip, and "*" accepts it unless gzip is listed on its own.
+ */
+public class ContentCodings {
+
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double anyQuality = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parameters = element.split(";");
+            String coding = parameters[0].trim().toLowerCase(Locale.ROOT);
+            double quality = quality(parameters);
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzipQuality = quality;
+            } else if (coding.equals("*")) {
+                anyQuality = quality;
+            }
+        }
+        double quality = gzipQuality != null ? gzipQuality : anyQuality != null ? anyQuality : 0;
+        return quality > 0;
+    }
+
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0; // an invalid weight accepts nothing
+                }
+            }
+        }
+        return 1;
+    }
+}
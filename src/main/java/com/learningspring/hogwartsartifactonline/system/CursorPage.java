@@ -0,0 +1,10 @@
+package com.learningspring.hogwartsartifactonline.system;
+
+import java.util.List;
+
+/**
+ * A page of a keyset (cursor) paginated list. Unlike Spring's Page, it has no total, so no count query is needed.
+ * Pass next as the "after" request parameter to fetch the following page; it is null on the last page.
+ */
+public record CursorPage<T>(List<T> content, int limit, boolean hasNext, String next) {
+}
@@ -0,0 +1,22 @@
+package com.learningspring.hogwartsartifactonline.system;
+
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Builds strong entity tags from the values a representation is made of (e.g., a version, or the fields of a
+ * cached DTO), so a conditional GET can be answered without loading and serializing the resource.
+ */
+public class ETags {
+
+    public static String strong(Object... parts) {
+        String joined = Arrays.stream(parts)
+                .map(Objects::toString)
+                .collect(Collectors.joining("\u0000"));
+        return "\"" + DigestUtils.md5DigestAsHex(joined.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
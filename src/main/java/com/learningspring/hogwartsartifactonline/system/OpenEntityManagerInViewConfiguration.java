@@ -0,0 +1,43 @@
+package com.learningspring.hogwartsartifactonline.system;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Replaces the open-in-view of Spring Boot (spring.jpa.open-in-view, turned off): the EntityManager stays open until
+ * the end of each request, so that the controllers can convert lazy associations, e.g., the artifacts of an owner,
+ * except for the catalog summaries. The EntityManager of a request holds its database connection from the first
+ * query to the end of the request, i.e., for the whole completion of a summary, which only needs the connection for
+ * the short transactions reading the catalog and the digests.
+ */
+@Configuration
+public class OpenEntityManagerInViewConfiguration implements WebMvcConfigurer {
+
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+
+    private final String baseUrl;
+
+    public OpenEntityManagerInViewConfiguration(ObjectProvider<EntityManagerFactory> entityManagerFactory,
+            @Value("${api.endpoint.base-url}") String baseUrl) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.baseUrl = baseUrl;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        EntityManagerFactory entityManagerFactory = this.entityManagerFactory.getIfAvailable();
+        if (entityManagerFactory == null) {
+            return; // e.g., in the web slice tests
+        }
+        OpenEntityManagerInViewInterceptor interceptor = new OpenEntityManagerInViewInterceptor();
+        interceptor.setEntityManagerFactory(entityManagerFactory);
+        registry.addWebRequestInterceptor(interceptor)
+                .addPathPatterns("/**")
+                .excludePathPatterns(this.baseUrl + "/artifacts/summary/**");
+    }
+}
@@ -0,0 +1,215 @@
+package com.learningspring.hogwartsartifactonline.system;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.learningspring.hogwartsartifactonline.artifact.cache.CatalogVersion;
+import com.learningspring.hogwartsartifactonline.security.JwtInterceptor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Caches the serialized JSON of the hottest reads, the first pages of GET /artifacts and GET /wizards, together
+ * with a gzip variant compressed once. A hit writes the bytes directly, skipping the controller, the converters
+ * and Jackson, and answers a matching If-None-Match with a 304. The gzip variant is tagged with its own ETag.
+ * <p>
+ * Keys include the CatalogVersion, which the writes of ArtifactService and WizardService bump after their commit,
+ * so a write makes all the cached responses unreachable at once.
+ * <p>
+ * The filter has the default (lowest) order, i.e., it runs after Spring Security: only authorized requests reach
+ * the cache. JwtInterceptor runs in the DispatcherServlet, which hits skip, so it is called here as well.
+ */
+@Component
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final String VARY = HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING;
+
+    record CachedResponse(String contentType, String etag, String cacheControl, byte[] body, byte[] gzipBody) {
+
+        int weight() {
+            return this.body.length + this.gzipBody.length;
+        }
+    }
+
+    private final CatalogVersion catalogVersion;
+
+    private final JwtInterceptor jwtInterceptor;
+
+    private final Set<String> cacheablePaths;
+
+    private final String artifactsPath;
+
+    private final int maxPages;
+
+    private final Cache<String, CachedResponse> cache;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    public ResponseCacheFilter(CatalogVersion catalogVersion,
+            JwtInterceptor jwtInterceptor,
+            MeterRegistry meterRegistry,
+            @Value("${api.endpoint.base-url}") String baseUrl,
+            @Value("${api.response-cache.max-pages}") int maxPages,
+            @Value("${api.response-cache.maximum-weight}") DataSize maximumWeight,
+            @Value("${api.response-cache.ttl}") Duration ttl) {
+        this.catalogVersion = catalogVersion;
+        this.jwtInterceptor = jwtInterceptor;
+        this.artifactsPath = baseUrl + "/artifacts";
+        this.cacheablePaths = Set.of(this.artifactsPath, baseUrl + "/wizards");
+        this.maxPages = maxPages;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight.toBytes())
+                .weigher((String key, CachedResponse cachedResponse) -> cachedResponse.weight())
+                .expireAfterWrite(ttl)
+                .build();
+
+        this.hits = meterRegistry.counter("api.response.cache", "result", "hit");
+        this.misses = meterRegistry.counter("api.response.cache", "result", "miss");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod()) || !this.cacheablePaths.contains(request.getRequestURI())) {
+            return true;
+        }
+        if (!this.artifactsPath.equals(request.getRequestURI())) {
+            return false;
+        }
+
+        // Only the first pages: the others are read too rarely to be worth the memory
+        if (request.getParameter("after") != null || "estimated".equalsIgnoreCase(request.getParameter("total"))) {
+            return true; // a later cursor page, or a total that changes without a write
+        }
+        String page = request.getParameter("page");
+        try {
+            return page != null && Integer.parseInt(page) >= this.maxPages;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        // Taken before the controller runs, so a response is never cached under a newer version than its content
+        String key = this.keyFor(request);
+        CachedResponse cachedResponse = this.cache.getIfPresent(key);
+        if (cachedResponse != null && this.isTokenStillValid(request, response)) {
+            this.hits.increment();
+            this.write(cachedResponse, request, response);
+            return;
+        }
+
+        this.misses.increment();
+        ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, responseWrapper);
+
+        String contentType = responseWrapper.getContentType();
+        if (responseWrapper.getStatus() != HttpStatus.OK.value()
+                || contentType == null
+                || !MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(contentType))) {
+            responseWrapper.copyBodyToResponse(); // e.g., a 304 from the controller or an error
+            return;
+        }
+
+        byte[] body = responseWrapper.getContentAsByteArray();
+        cachedResponse = new CachedResponse(contentType,
+                                            responseWrapper.getHeader(HttpHeaders.ETAG),
+                                            responseWrapper.getHeader(HttpHeaders.CACHE_CONTROL),
+                                            body,
+                                            gzip(body));
+        this.cache.put(key, cachedResponse);
+        responseWrapper.resetBuffer(); // the bytes are written below, compressed if the client accepts it
+        this.write(cachedResponse, request, response);
+    }
+
+    String keyFor(HttpServletRequest request) {
+        Map<String, String> parameters = new TreeMap<>();
+        request.getParameterMap().forEach((name, values) -> parameters.put(name, Arrays.toString(values)));
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return this.catalogVersion.current() + ":" + request.getRequestURI() + ":" + parameters + ":"
+                + (accept != null ? accept.toLowerCase(Locale.ROOT) : "*/*");
+    }
+
+    private void write(CachedResponse cachedResponse, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.VARY, VARY);
+        if (cachedResponse.cacheControl() != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cachedResponse.cacheControl());
+        }
+        boolean gzip = ContentCodings.acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String etag = gzip ? gzipEtag(cachedResponse.etag()) : cachedResponse.etag();
+        if (etag != null && new ServletWebRequest(request, response).checkNotModified(etag)) {
+            return; // 304, with the ETag set by checkNotModified
+        }
+
+        byte[] body = gzip ? cachedResponse.gzipBody() : cachedResponse.body();
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(cachedResponse.contentType());
+        if (etag != null) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+        }
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * If the check fails, e.g., the token was revoked, the request goes down the filter chain as a miss and gets the
+     * usual error response from the DispatcherServlet.
+     */
+    private boolean isTokenStillValid(HttpServletRequest request, HttpServletResponse response) {
+        try {
+            return this.jwtInterceptor.preHandle(request, response, this);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * The gzip variant has other bytes than the plain one, so it needs another strong ETag: "abc" becomes "abc-gzip".
+     */
+    static String gzipEtag(String etag) {
+        if (etag == null || !etag.endsWith("\"")) {
+            return etag;
+        }
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // not thrown by in-memory streams
+        }
+        return compressed.toByteArray();
+    }
+}
@@ -0,0 +1,10 @@
+package com.learningspring.hogwartsartifactonline.system;
+
+import java.util.List;
+
+/**
+ * A page of an offset paginated list returned without an exact count, see TotalMode.
+ * totalElements is null with TotalMode.NONE; with TotalMode.ESTIMATED, totalEstimated tells whether it is a cached approximation.
+ */
+public record SlicePage<T>(List<T> content, int number, int size, boolean hasNext, Long totalElements, Boolean totalEstimated) {
+}
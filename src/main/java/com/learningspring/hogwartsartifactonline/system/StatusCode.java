@@ -12,5 +12,9 @@ public class StatusCode {
 
     public static final int NOT_FOUND = 404;
 
+    public static final int CONFLICT = 409;
+
     public static final int INTERNAL_SERVER_ERROR = 500;
+
+    public static final int SERVICE_UNAVAILABLE = 503;
 }
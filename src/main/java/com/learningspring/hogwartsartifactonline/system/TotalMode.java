@@ -0,0 +1,22 @@
+package com.learningspring.hogwartsartifactonline.system;
+
+/**
+ * How the total of a paginated list is computed, selected by the "total" request parameter.
+ */
+public enum TotalMode {
+
+    /**
+     * A Page with the total from a count query (the default).
+     */
+    EXACT,
+
+    /**
+     * A SlicePage without total: one more row is read to know whether there is a next page.
+     */
+    NONE,
+
+    /**
+     * A SlicePage with a total that may come from a short-lived cache.
+     */
+    ESTIMATED
+}
@@ -2,9 +2,12 @@ package com.learningspring.hogwartsartifactonline.system;
 
 import com.learningspring.hogwartsartifactonline.security.JwtInterceptor;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.format.FormatterRegistry;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.Locale;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
@@ -18,4 +21,10 @@ public class WebConfig implements WebMvcConfigurer {
     public void addInterceptors(InterceptorRegistry registry) {
         registry.addInterceptor(this.jwtInterceptor).addPathPatterns("/**");
     }
+
+    @Override
+    public void addFormatters(FormatterRegistry registry) {
+        // Lets clients write total=none as well as total=NONE
+        registry.addConverter(String.class, TotalMode.class, source -> TotalMode.valueOf(source.trim().toUpperCase(Locale.ROOT)));
+    }
 }
@@ -0,0 +1,8 @@
+package com.learningspring.hogwartsartifactonline.system.exception;
+
+public class BatchSizeExceededException extends IllegalArgumentException {
+
+    public BatchSizeExceededException(int size, int maxSize) {
+        super("The batch has " + size + " operations, the maximum is " + maxSize + ".");
+    }
+}
@@ -22,6 +22,8 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 import org.springframework.web.servlet.NoHandlerFoundException;
 
 import java.io.InvalidClassException;
@@ -114,12 +116,67 @@ public class ExceptionHandlerAdvice {
                                     ex.getStatusCode());
     }
 
+    @ExceptionHandler(ResourceAccessException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    Result handleResourceAccessException(ResourceAccessException ex) {
+        // e.g., a timeout or a full bulkhead of OutboundHttpClients
+        return new Result(false, StatusCode.SERVICE_UNAVAILABLE, "A downstream service is unavailable.", ex.getMessage());
+    }
+
     @ExceptionHandler(CustomBlobStorageException.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     Result handleCustomBlobStorageException(CustomBlobStorageException ex) {
         return new Result(false, StatusCode.INTERNAL_SERVER_ERROR, ex.getMessage(), ex.getCause().getMessage());
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    Result handleInvalidCursorException(InvalidCursorException ex) {
+        return new Result(false, StatusCode.INVALID_ARGUMENT, ex.getMessage());
+    }
+
+    @ExceptionHandler(InvalidArtifactIdException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    Result handleInvalidArtifactIdException(InvalidArtifactIdException ex) {
+        return new Result(false, StatusCode.INVALID_ARGUMENT, ex.getMessage());
+    }
+
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    Result handleMethodArgumentTypeMismatchException(MethodArgumentTypeMismatchException ex) {
+        return new Result(false, StatusCode.INVALID_ARGUMENT, "The value " + ex.getValue() + " of " + ex.getName() + " is invalid.");
+    }
+
+    @ExceptionHandler(BatchSizeExceededException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    Result handleBatchSizeExceededException(BatchSizeExceededException ex) {
+        return new Result(false, StatusCode.INVALID_ARGUMENT, ex.getMessage());
+    }
+
+    @ExceptionHandler(ImageTooLargeException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    Result handleImageTooLargeException(ImageTooLargeException ex) {
+        return new Result(false, StatusCode.INVALID_ARGUMENT, ex.getMessage());
+    }
+
+    @ExceptionHandler(ImageUploadRejectedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    Result handleImageUploadRejectedException(ImageUploadRejectedException ex) {
+        return new Result(false, StatusCode.SERVICE_UNAVAILABLE, ex.getMessage());
+    }
+
+    @ExceptionHandler(SummaryJobRejectedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    Result handleSummaryJobRejectedException(SummaryJobRejectedException ex) {
+        return new Result(false, StatusCode.SERVICE_UNAVAILABLE, ex.getMessage());
+    }
+
+    @ExceptionHandler(SemanticSearchUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    Result handleSemanticSearchUnavailableException(SemanticSearchUnavailableException ex) {
+        return new Result(false, StatusCode.SERVICE_UNAVAILABLE, ex.getMessage());
+    }
+
     @ExceptionHandler(PasswordChangeIllegalArgumentException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     Result handlePasswordChangeIllegalArgumentException(PasswordChangeIllegalArgumentException ex) {
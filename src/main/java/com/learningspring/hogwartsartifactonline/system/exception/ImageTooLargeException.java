@@ -0,0 +1,8 @@
+package com.learningspring.hogwartsartifactonline.system.exception;
+
+public class ImageTooLargeException extends IllegalArgumentException {
+
+    public ImageTooLargeException(long maxSize) {
+        super("The image is larger than the maximum of " + maxSize + " bytes.");
+    }
+}
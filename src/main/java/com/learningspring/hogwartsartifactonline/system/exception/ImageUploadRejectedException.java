@@ -0,0 +1,8 @@
+package com.learningspring.hogwartsartifactonline.system.exception;
+
+public class ImageUploadRejectedException extends RuntimeException {
+
+    public ImageUploadRejectedException() {
+        super("Too many images are being uploaded, please try again later.");
+    }
+}
@@ -0,0 +1,8 @@
+package com.learningspring.hogwartsartifactonline.system.exception;
+
+public class InvalidArtifactIdException extends IllegalArgumentException {
+
+    public InvalidArtifactIdException(String artifactId) {
+        super("The artifact id " + artifactId + " is invalid.");
+    }
+}
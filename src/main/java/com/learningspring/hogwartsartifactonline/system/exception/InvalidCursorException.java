@@ -0,0 +1,8 @@
+package com.learningspring.hogwartsartifactonline.system.exception;
+
+public class InvalidCursorException extends IllegalArgumentException {
+
+    public InvalidCursorException(String cursor) {
+        super("The cursor " + cursor + " is invalid.");
+    }
+}
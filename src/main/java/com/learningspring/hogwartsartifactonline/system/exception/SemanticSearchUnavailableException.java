@@ -0,0 +1,8 @@
+package com.learningspring.hogwartsartifactonline.system.exception;
+
+public class SemanticSearchUnavailableException extends RuntimeException {
+
+    public SemanticSearchUnavailableException() {
+        super("The semantic search index is being built, please try again later.");
+    }
+}
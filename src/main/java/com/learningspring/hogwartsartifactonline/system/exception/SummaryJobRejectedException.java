@@ -0,0 +1,12 @@
+package com.learningspring.hogwartsartifactonline.system.exception;
+
+public class SummaryJobRejectedException extends RuntimeException {
+
+    public SummaryJobRejectedException() {
+        super("Too many summaries are being generated, please try again later.");
+    }
+
+    public SummaryJobRejectedException(Throwable cause) {
+        super("The summary jobs are unavailable, please try again later.", cause);
+    }
+}
@@ -1,19 +1,27 @@
 package com.learningspring.hogwartsartifactonline.wizard;
 
+import com.learningspring.hogwartsartifactonline.system.ETags;
 import com.learningspring.hogwartsartifactonline.system.Result;
 import com.learningspring.hogwartsartifactonline.system.StatusCode;
 import com.learningspring.hogwartsartifactonline.wizard.converter.WizardDtoToWizardConverter;
 import com.learningspring.hogwartsartifactonline.wizard.converter.WizardToWizardDtoConverter;
 import com.learningspring.hogwartsartifactonline.wizard.dto.WizardDto;
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("${api.endpoint.base-url}/wizards")
 public class WizardController {
 
+    // Wizards are only read by authenticated users, so shared caches must not store them
+    private static final String CACHE_CONTROL = CacheControl.noCache().cachePrivate().getHeaderValue();
+
     private final WizardService wizardService;
 
     private final WizardToWizardDtoConverter wizardToWizardDtoConverter;
@@ -28,19 +36,30 @@ public class WizardController {
         this.wizardDtoToWizardConverter = wizardDtoToWizardConverter;
     }
 
+    /**
+     * Revalidated with a version-only query: the wizard and its artifacts are loaded only if the ETag doesn't match.
+     */
     @GetMapping("/{wizardId}")
-    public Result findWizardById(@PathVariable Integer wizardId) {
+    public Result findWizardById(@PathVariable Integer wizardId, ServletWebRequest webRequest) {
+        WizardVersion wizardVersion = this.wizardService.findVersionById(wizardId);
+        if (this.checkNotModified(webRequest, ETags.strong(wizardId, wizardVersion.getVersion(), wizardVersion.getNumberOfArtifacts()))) {
+            return null;
+        }
+
         Wizard foundWizard = this.wizardService.findById(wizardId);
         WizardDto wizardDto = this.wizardToWizardDtoConverter.convert(foundWizard);
         return new Result(true, StatusCode.SUCCESS, "Find One Success", wizardDto);
     }
 
     @GetMapping
-    public Result findAllWizards() {
-        List<WizardDto> wizardDtos = this.wizardService.findAll()
-                .stream()
-                .map(this.wizardToWizardDtoConverter::convert)
-                .toList();
+    public Result findAllWizards(ServletWebRequest webRequest) {
+        // Any change to a wizard or to its number of artifacts bumps the catalog version
+        Optional<Long> catalogVersion = this.wizardService.findCatalogVersion();
+        if (catalogVersion.isPresent() && this.checkNotModified(webRequest, ETags.strong("wizards", catalogVersion.get()))) {
+            return null;
+        }
+
+        List<WizardDto> wizardDtos = this.wizardService.findAllDtos();
         return new Result(true, StatusCode.SUCCESS, "Find All Success", wizardDtos);
     }
 
@@ -71,4 +90,9 @@ public class WizardController {
         this.wizardService.assignArtifact(wizardId, artifactId);
         return new Result(true, StatusCode.SUCCESS, "Artifact Assignment Success");
     }
+
+    private boolean checkNotModified(ServletWebRequest webRequest, String etag) {
+        webRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        return webRequest.checkNotModified(etag);
+    }
 }
@@ -1,8 +1,26 @@
 package com.learningspring.hogwartsartifactonline.wizard;
 
+import com.learningspring.hogwartsartifactonline.wizard.dto.WizardDto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface WizardRepository extends JpaRepository<Wizard, Integer> {
+
+    /**
+     * Selects the rows straight into WizardDtos, without managing the wizards nor loading their artifacts.
+     */
+    @Query("select new com.learningspring.hogwartsartifactonline.wizard.dto.WizardDto(w.id, w.name, size(w.artifacts)) from Wizard w")
+    List<WizardDto> findAllDtos();
+
+    /**
+     * The number of artifacts is selected too: assigning an artifact only changes the owning side, Artifact.owner,
+     * so it doesn't necessarily bump the wizard's version.
+     */
+    @Query("select w.version as version, size(w.artifacts) as numberOfArtifacts from Wizard w where w.id = :id")
+    Optional<WizardVersion> findVersionById(Integer id);
 }
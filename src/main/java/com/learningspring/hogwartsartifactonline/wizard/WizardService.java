@@ -2,10 +2,15 @@ package com.learningspring.hogwartsartifactonline.wizard;
 
 import com.learningspring.hogwartsartifactonline.artifact.Artifact;
 import com.learningspring.hogwartsartifactonline.artifact.ArtifactRepository;
+import com.learningspring.hogwartsartifactonline.artifact.cache.ArtifactCache;
+import com.learningspring.hogwartsartifactonline.artifact.cache.CatalogVersion;
+import com.learningspring.hogwartsartifactonline.artifact.summary.ArtifactDigestService;
 import com.learningspring.hogwartsartifactonline.system.exception.ObjectNotFoundException;
+import com.learningspring.hogwartsartifactonline.wizard.dto.WizardDto;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Optional;
 
 @Service
 public class WizardService {
@@ -14,28 +19,64 @@ public class WizardService {
 
     private final ArtifactRepository artifactRepository;
 
-    public WizardService(WizardRepository wizardRepository, ArtifactRepository artifactRepository) {
+    private final ArtifactCache artifactCache;
+
+    private final CatalogVersion catalogVersion;
+
+    private final ArtifactDigestService artifactDigestService;
+
+    public WizardService(WizardRepository wizardRepository,
+            ArtifactRepository artifactRepository,
+            ArtifactCache artifactCache,
+            CatalogVersion catalogVersion,
+            ArtifactDigestService artifactDigestService) {
         this.wizardRepository = wizardRepository;
         this.artifactRepository = artifactRepository;
+        this.artifactCache = artifactCache;
+        this.catalogVersion = catalogVersion;
+        this.artifactDigestService = artifactDigestService;
     }
 
     public Wizard findById(Integer id) {
         return this.wizardRepository.findById(id).orElseThrow(() -> new ObjectNotFoundException("wizard", id));
     }
 
+    /**
+     * A version-only query for revalidating a cached wizard, see WizardController.findWizardById.
+     */
+    public WizardVersion findVersionById(Integer id) {
+        return this.wizardRepository.findVersionById(id).orElseThrow(() -> new ObjectNotFoundException("wizard", id));
+    }
+
+    /**
+     * The catalog version shared by all nodes, or empty if it is unavailable, see CatalogVersion.shared.
+     */
+    public Optional<Long> findCatalogVersion() {
+        return this.catalogVersion.shared();
+    }
+
     public List<Wizard> findAll() {
         return this.wizardRepository.findAll();
     }
 
+    public List<WizardDto> findAllDtos() {
+        return this.wizardRepository.findAllDtos();
+    }
+
     public Wizard save(Wizard newWizard) {
-        return this.wizardRepository.save(newWizard);
+        Wizard savedWizard = this.wizardRepository.save(newWizard);
+        this.catalogVersion.bump(); // the list of wizards
+        return savedWizard;
     }
 
     public Wizard update(Integer wizardId, Wizard update) {
         return this.wizardRepository.findById(wizardId)
                 .map(oldWizard -> {
                     oldWizard.setName(update.getName());
-                    return this.wizardRepository.save(oldWizard);
+                    Wizard updatedWizard = this.wizardRepository.save(oldWizard);
+                    this.artifactCache.evictArtifactsOf(updatedWizard);
+                    this.catalogVersion.bump(); // the ownerName criterion of searches
+                    return updatedWizard;
                 })
                 .orElseThrow(() -> new ObjectNotFoundException("wizard", wizardId));
     }
@@ -43,19 +84,30 @@ public class WizardService {
     public void delete(Integer wizardId) {
         Wizard wizard = this.wizardRepository.findById(wizardId)
                 .orElseThrow(() -> new ObjectNotFoundException("wizard", wizardId));
+        List<String> artifactIds = wizard.getArtifacts().stream().map(Artifact::getId).toList();
         wizard.removeAllArtifacts();
         this.wizardRepository.delete(wizard);
+        this.artifactCache.evictAll(artifactIds);
+        this.catalogVersion.bump();
     }
 
     public void assignArtifact(Integer wizardId, String artifactId) {
         Artifact artifactToBeAssigned = this.artifactRepository.findById(artifactId).orElseThrow(() -> new ObjectNotFoundException("artifact", artifactId));
         Wizard foundWizard = this.wizardRepository.findById(wizardId).orElseThrow(() -> new ObjectNotFoundException("wizard", wizardId));
 
-        if (artifactToBeAssigned.getOwner() != null) {
-            artifactToBeAssigned.getOwner().removeArtifact(artifactToBeAssigned);
+        Wizard previousOwner = artifactToBeAssigned.getOwner();
+        if (previousOwner != null) {
+            previousOwner.removeArtifact(artifactToBeAssigned);
         }
 
         foundWizard.addArtifact(artifactToBeAssigned);
         this.wizardRepository.save(foundWizard);
+
+        // Both owners' artifact counts changed, so all of their cached artifacts are stale
+        this.artifactCache.evictArtifactsOf(previousOwner);
+        this.artifactCache.evictArtifactsOf(foundWizard);
+        // Digests don't include the owner, so this only regenerates it if the artifact lacks an up-to-date one
+        this.artifactDigestService.enqueue(List.of(artifactId));
+        this.catalogVersion.bump();
     }
 }
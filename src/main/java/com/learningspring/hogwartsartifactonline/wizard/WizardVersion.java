@@ -0,0 +1,11 @@
+package com.learningspring.hogwartsartifactonline.wizard;
+
+/**
+ * Projection of WizardRepository.findVersionById: what a WizardDto depends on besides the name, which bumps the version.
+ */
+public interface WizardVersion {
+
+    Long getVersion();
+
+    Integer getNumberOfArtifacts();
+}
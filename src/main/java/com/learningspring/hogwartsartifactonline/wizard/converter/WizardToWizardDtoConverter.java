@@ -14,4 +14,14 @@ public class WizardToWizardDtoConverter implements Converter<Wizard, WizardDto>
                              source.getName(),
                              source.getNumberOfArtifacts());
     }
+
+    /**
+     * Same as convert(Wizard), but with a number of artifacts that was already counted by the database.
+     * This avoids initializing the wizard's artifacts collection.
+     */
+    public WizardDto convert(Wizard source, Integer numberOfArtifacts) {
+        return new WizardDto(source.getId(),
+                             source.getName(),
+                             numberOfArtifacts);
+    }
 }
@@ -0,0 +1,8 @@
+CREATE TABLE artifact_digest
+(
+    artifact_id VARCHAR(255) NOT NULL,
+    source_hash VARCHAR(64),
+    digest      VARCHAR(1000),
+    updated_at  DATETIME(6),
+    PRIMARY KEY (artifact_id)
+);
@@ -0,0 +1,7 @@
+-- Artifact ids are snowflake numbers, see ArtifactIdConverter: 8 bytes in the primary key and in every secondary index
+-- instead of up to 255 characters
+ALTER TABLE artifact
+    MODIFY id BIGINT NOT NULL;
+
+ALTER TABLE artifact_digest
+    MODIFY artifact_id BIGINT NOT NULL;
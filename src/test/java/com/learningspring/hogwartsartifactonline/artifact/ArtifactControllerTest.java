@@ -2,9 +2,21 @@ package com.learningspring.hogwartsartifactonline.artifact;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learningspring.hogwartsartifactonline.artifact.cache.SearchResultCache;
+import com.learningspring.hogwartsartifactonline.artifact.dto.ArtifactBatchOperation;
+import com.learningspring.hogwartsartifactonline.artifact.dto.ArtifactBatchResult;
 import com.learningspring.hogwartsartifactonline.artifact.dto.ArtifactDto;
+import com.learningspring.hogwartsartifactonline.artifact.summary.SummaryJob;
+import com.learningspring.hogwartsartifactonline.artifact.summary.SummaryJobService;
+import com.learningspring.hogwartsartifactonline.artifact.utils.CursorCodec;
+import com.learningspring.hogwartsartifactonline.client.imagestorage.ImageStorageClient;
+import com.learningspring.hogwartsartifactonline.system.ETags;
 import com.learningspring.hogwartsartifactonline.system.StatusCode;
+import com.learningspring.hogwartsartifactonline.system.exception.BatchSizeExceededException;
+import com.learningspring.hogwartsartifactonline.system.exception.ImageUploadRejectedException;
 import com.learningspring.hogwartsartifactonline.system.exception.ObjectNotFoundException;
+import com.learningspring.hogwartsartifactonline.system.exception.SemanticSearchUnavailableException;
+import com.learningspring.hogwartsartifactonline.system.exception.SummaryJobRejectedException;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,25 +27,45 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Window;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpServerErrorException;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @AutoConfigureMockMvc(addFilters = false)
@@ -46,6 +78,12 @@ class ArtifactControllerTest {
     @MockBean
     ArtifactService artifactService;
 
+    @MockBean
+    SummaryJobService summaryJobService;
+
+    @MockBean
+    ImageStorageClient imageStorageClient;
+
     @Autowired
     ObjectMapper objectMapper;
 
@@ -108,7 +146,9 @@ class ArtifactControllerTest {
     @Test
     void testFindArtifactByIdSuccess() throws Exception {
         // Given
-        given(this.artifactService.findById("1250808601744904191")).willReturn(this.artifacts.get(0));
+        Artifact a1 = this.artifacts.get(0);
+        ArtifactDto artifactDto = new ArtifactDto(a1.getId(), a1.getName(), a1.getDescription(), a1.getImageUrl(), null);
+        given(this.artifactService.findDtoById("1250808601744904191")).willReturn(artifactDto);
 
         // When and then
         this.mockMvc.perform(get(this.baseUrl + "/artifacts/1250808601744904191").accept(MediaType.APPLICATION_JSON))
@@ -119,10 +159,34 @@ class ArtifactControllerTest {
                 .andExpect(jsonPath("$.data.name").value("Deluminator"));
     }
 
+    @Test
+    void testFindArtifactByIdNotModified() throws Exception {
+        // Given
+        Artifact a1 = this.artifacts.get(0);
+        ArtifactDto artifactDto = new ArtifactDto(a1.getId(), a1.getName(), a1.getDescription(), a1.getImageUrl(), null);
+        given(this.artifactService.findDtoById("1250808601744904191")).willReturn(artifactDto);
+        String etag = this.mockMvc.perform(get(this.baseUrl + "/artifacts/1250808601744904191").accept(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, public"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // When and then
+        this.mockMvc.perform(get(this.baseUrl + "/artifacts/1250808601744904191").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+
+        // Once the artifact changed, the old ETag no longer matches
+        given(this.artifactService.findDtoById("1250808601744904191"))
+                .willReturn(new ArtifactDto(a1.getId(), "New name", a1.getDescription(), a1.getImageUrl(), null));
+        this.mockMvc.perform(get(this.baseUrl + "/artifacts/1250808601744904191").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.name").value("New name"));
+    }
+
     @Test
     void testFindArtifactByIdNotFound() throws Exception {
         // Given
-        given(this.artifactService.findById("1250808601744904191"))
+        given(this.artifactService.findDtoById("1250808601744904191"))
                 .willThrow(new ObjectNotFoundException("artifact", "1250808601744904191"));
 
         // When and then
@@ -137,8 +201,8 @@ class ArtifactControllerTest {
     void testFindAllArtifactsSuccess() throws Exception {
         // Given
         Pageable pageable = PageRequest.of(0, 20);
-        PageImpl<Artifact> artifactPage = new PageImpl<>(this.artifacts, pageable, this.artifacts.size());
-        given(this.artifactService.findAll(Mockito.any(Pageable.class))).willReturn(artifactPage);
+        PageImpl<ArtifactDto> artifactDtoPage = new PageImpl<>(this.artifactDtos(), pageable, this.artifacts.size());
+        given(this.artifactService.findAllDtos(Mockito.any(Pageable.class))).willReturn(artifactDtoPage);
 
         MultiValueMap<String, String> requestParams = new LinkedMultiValueMap<>();
         requestParams.add("page", "0");
@@ -152,6 +216,185 @@ class ArtifactControllerTest {
                 .andExpect(jsonPath("$.data.content", Matchers.hasSize(this.artifacts.size())));
     }
 
+    @Test
+    void testFindAllArtifactsNotModifiedUntilTheCatalogVersionChanges() throws Exception {
+        // Given
+        given(this.artifactService.findCatalogVersion()).willReturn(Optional.of(7L));
+        given(this.artifactService.findAllDtos(Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<>(this.artifactDtos(), PageRequest.of(0, 20), this.artifacts.size()));
+        String etag = this.mockMvc.perform(get(this.baseUrl + "/artifacts").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // When and then: the page is neither loaded nor serialized
+        Mockito.clearInvocations(this.artifactService);
+        this.mockMvc.perform(get(this.baseUrl + "/artifacts").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        Mockito.verify(this.artifactService, Mockito.never()).findAllDtos(Mockito.any(Pageable.class));
+
+        given(this.artifactService.findCatalogVersion()).willReturn(Optional.of(8L));
+        this.mockMvc.perform(get(this.baseUrl + "/artifacts").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, Matchers.not(etag)));
+    }
+
+    @Test
+    void testFindAllArtifactsWithoutCatalogVersionHasNoETag() throws Exception {
+        // Given
+        given(this.artifactService.findCatalogVersion()).willReturn(Optional.empty());
+        given(this.artifactService.findAllDtos(Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<>(this.artifactDtos(), PageRequest.of(0, 20), this.artifacts.size()));
+
+        // When and then
+        this.mockMvc.perform(get(this.baseUrl + "/artifacts").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void testFindAllArtifactsWithoutTotal() throws Exception {
+        // Given
+        Pageable pageable = PageRequest.of(0, 2);
+        given(this.artifactService.findSliceByCriteria(Map.of(), pageable)).willReturn(new SliceImpl<>(this.artifacts.subList(0, 2), pageable, true));
+
+        // When and then
+        this.mockMvc.perform(get(this.baseUrl + "/artifacts").accept(MediaType.APPLICATION_JSON).param("page", "0").param("size", "2").param("total", "none"))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.message").value("Find All Success"))
+                .andExpect(jsonPath("$.data.content", Matchers.hasSize(2)))
+                .andExpect(jsonPath("$.data.hasNext").value(true))
+                .andExpect(jsonPath("$.data.totalElements").isEmpty());
+        Mockito.verify(this.artifactService, Mockito.never()).countByCriteria(Mockito.anyMap());
+    }
+
+    @Test
+    void testFindArtifactsByCriteriaWithEstimatedTotal() throws Exception {
+        // Given
+        Map<String, String> searchCriteria = Map.of("description", "a");
+        Pageable pageable = PageRequest.of(0, 2);
+        given(this.artifactService.findSliceByCriteria(searchCriteria, pageable)).willReturn(new SliceImpl<>(this.artifacts.subList(0, 2), pageable, true));
+        given(this.artifactService.countByCriteria(searchCriteria)).willReturn(new SearchResultCache.ApproximateTotal(6, true));
+
+        // When and then
+        this.mockMvc.perform(post(this.baseUrl + "/artifacts/search").contentType(MediaType.APPLICATION_JSON).content(this.objectMapper.writeValueAsString(searchCriteria))
+                                     .accept(MediaType.APPLICATION_JSON).param("page", "0").param("size", "2").param("total", "estimated"))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.message").value("Search Success"))
+                .andExpect(jsonPath("$.data.content", Matchers.hasSize(2)))
+                .andExpect(jsonPath("$.data.totalElements").value(6))
+                .andExpect(jsonPath("$.data.totalEstimated").value(true));
+    }
+
+    @Test
+    void testFindAllArtifactsByCursorSuccess() throws Exception {
+        // Given
+        Window<Artifact> artifactWindow = Window.from(this.artifacts.subList(0, 2), index -> ScrollPosition.offset(index), true);
+        given(this.artifactService.findAll(Mockito.any(KeysetScrollPosition.class), eq(2))).willReturn(artifactWindow);
+
+        // When and then
+        this.mockMvc.perform(get(this.baseUrl + "/artifacts").accept(MediaType.APPLICATION_JSON).param("limit", "2"))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
+                .andExpect(jsonPath("$.message").value("Find All Success"))
+                .andExpect(jsonPath("$.data.content", Matchers.hasSize(2)))
+                .andExpect(jsonPath("$.data.hasNext").value(true))
+                .andExpect(jsonPath("$.data.next").value(CursorCodec.encode("1250808601744904192")));
+    }
+
+    @Test
+    void testFindAllArtifactsByCursorWithInvalidCursor() throws Exception {
+        // When and then
+        this.mockMvc.perform(get(this.baseUrl + "/artifacts").accept(MediaType.APPLICATION_JSON).param("limit", "2").param("after", "not a cursor"))
+                .andExpect(jsonPath("$.flag").value(false))
+                .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT))
+                .andExpect(jsonPath("$.message").value("The cursor not a cursor is invalid."));
+    }
+
+    @Test
+    void testFindAllArtifactsByCursorWithInvalidCursorAndAnUnchangedCatalog() throws Exception {
+        // Given
+        given(this.artifactService.findCatalogVersion()).willReturn(Optional.of(7L));
+
+        // When and then: the cursor is rejected, not reported as not modified
+        this.mockMvc.perform(get(this.baseUrl + "/artifacts").header(HttpHeaders.IF_NONE_MATCH, ETags.strong("artifacts", 7L)).param("limit", "2").param("after", "not a cursor"))
+                .andExpect(jsonPath("$.flag").value(false))
+                .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT));
+    }
+
+    @Test
+    void testFindArtifactsBySemanticSearchSuccess() throws Exception {
+        // Given
+        given(this.artifactService.findBySemanticSearch("things that make you invisible", 2)).willReturn(List.of(this.artifacts.get(1), this.artifacts.get(0)));
+
+        // When and then
+        this.mockMvc.perform(post(this.baseUrl + "/artifacts/semantic-search").contentType(MediaType.APPLICATION_JSON)
+                                     .content("{\"query\":\"things that make you invisible\",\"limit\":2}").accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
+                .andExpect(jsonPath("$.message").value("Search Success"))
+                .andExpect(jsonPath("$.data", Matchers.hasSize(2)))
+                .andExpect(jsonPath("$.data[0].id").value("1250808601744904192"));
+    }
+
+    @Test
+    void testFindArtifactsBySemanticSearchWithoutQuery() throws Exception {
+        // When and then
+        this.mockMvc.perform(post(this.baseUrl + "/artifacts/semantic-search").contentType(MediaType.APPLICATION_JSON)
+                                     .content("{\"query\":\" \",\"limit\":1000}").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.flag").value(false))
+                .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT))
+                .andExpect(jsonPath("$.data.query").value("query is required"))
+                .andExpect(jsonPath("$.data.limit").value("limit must be at most 100"));
+    }
+
+    @Test
+    void testFindArtifactsBySemanticSearchWhileTheIndexIsBuilt() throws Exception {
+        // Given
+        given(this.artifactService.findBySemanticSearch("things that make you invisible", 10)).willThrow(new SemanticSearchUnavailableException());
+
+        // When and then
+        this.mockMvc.perform(post(this.baseUrl + "/artifacts/semantic-search").contentType(MediaType.APPLICATION_JSON)
+                                     .content("{\"query\":\"things that make you invisible\"}").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.flag").value(false))
+                .andExpect(jsonPath("$.code").value(StatusCode.SERVICE_UNAVAILABLE))
+                .andExpect(jsonPath("$.message").value("The semantic search index is being built, please try again later."));
+    }
+
+    @Test
+    void testUploadImageStreamSuccess() throws Exception {
+        // Given
+        byte[] image = {(byte) 0x89, 'P', 'N', 'G'};
+        given(this.imageStorageClient.uploadImage(eq("artifacts"), eq("cloak.png"), any(InputStream.class))).willAnswer(invocation -> {
+            assertArrayEquals(image, invocation.getArgument(2, InputStream.class).readAllBytes());
+            return "https://images/artifacts/cloak.png";
+        });
+
+        // When and then
+        this.mockMvc.perform(post(this.baseUrl + "/artifacts/images/stream").param("containerName", "artifacts").param("imageName", "cloak.png")
+                                     .contentType(MediaType.IMAGE_PNG).content(image).accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
+                .andExpect(jsonPath("$.message").value("Upload Image Success"))
+                .andExpect(jsonPath("$.data").value("https://images/artifacts/cloak.png"));
+    }
+
+    @Test
+    void testUploadImageStreamWhenEveryBufferIsInUse() throws Exception {
+        // Given
+        given(this.imageStorageClient.uploadImage(eq("artifacts"), eq("cloak.png"), any(InputStream.class))).willThrow(new ImageUploadRejectedException());
+
+        // When and then
+        this.mockMvc.perform(post(this.baseUrl + "/artifacts/images/stream").param("containerName", "artifacts").param("imageName", "cloak.png")
+                                     .contentType(MediaType.IMAGE_PNG).content(new byte[]{1}).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.flag").value(false))
+                .andExpect(jsonPath("$.code").value(StatusCode.SERVICE_UNAVAILABLE))
+                .andExpect(jsonPath("$.message").value("Too many images are being uploaded, please try again later."));
+    }
+
     @Test
     void testAddArtifactSuccess() throws Exception {
         // Given
@@ -259,7 +502,8 @@ class ArtifactControllerTest {
     @Test
     void testSummarizeArtifactsSuccess() throws Exception {
         // Given
-        given(this.artifactService.summarize(Mockito.anyList())).willReturn("The summary includes six artifacts, owned by three different wizards");
+        given(this.artifactService.findAllDtos()).willReturn(this.artifactDtos());
+        given(this.artifactService.summarize(this.artifactDtos())).willReturn("The summary includes six artifacts, owned by three different wizards");
 
         // When and Then
         this.mockMvc.perform(get(this.baseUrl + "/artifacts/summary").accept(MediaType.APPLICATION_JSON))
@@ -268,5 +512,242 @@ class ArtifactControllerTest {
                 .andExpect(jsonPath("$.message").value("Summarize Success"))
                 .andExpect(jsonPath("$.data").value("The summary includes six artifacts, owned by three different wizards"));
     }
-}
 
+    @Test
+    void testStreamSummarySuccess() throws Exception {
+        // Given
+        given(this.artifactService.findAllDtos()).willReturn(this.artifactDtos());
+        given(this.artifactService.summarize(eq(this.artifactDtos()), any())).willAnswer(invocation -> {
+            Consumer<String> onToken = invocation.getArgument(1);
+            onToken.accept("Six artifacts,");
+            onToken.accept("\nthree wizards");
+            return "Six artifacts,\nthree wizards";
+        });
+
+        // When
+        MvcResult mvcResult = this.mockMvc.perform(get(this.baseUrl + "/artifacts/summary/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        this.mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string("data: Six artifacts,\n\n"
+                                            + "data: \ndata: three wizards\n\n"
+                                            + "event: done\ndata: \n\n"));
+    }
+
+    @Test
+    void testStreamSummaryErrorEvent() throws Exception {
+        // Given
+        given(this.artifactService.findAllDtos()).willReturn(this.artifactDtos());
+        given(this.artifactService.summarize(eq(this.artifactDtos()), any())).willAnswer(invocation -> {
+            Consumer<String> onToken = invocation.getArgument(1);
+            onToken.accept("Six");
+            throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE, "Service Unavailable");
+        });
+
+        // When
+        MvcResult mvcResult = this.mockMvc.perform(get(this.baseUrl + "/artifacts/summary/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        this.mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().string("data: Six\n\nevent: error\ndata: 503 Service Unavailable\n\n"));
+    }
+
+    @Test
+    void testStreamSummaryErrorEventWhenTheSummaryCantBeReduced() throws Exception {
+        // Given
+        given(this.artifactService.findAllDtos()).willReturn(this.artifactDtos());
+        given(this.artifactService.summarize(eq(this.artifactDtos()), any()))
+                .willThrow(new IllegalStateException("The partial summaries don't fit in 40 tokens two at a time"));
+
+        // When
+        MvcResult mvcResult = this.mockMvc.perform(get(this.baseUrl + "/artifacts/summary/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        this.mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().string("event: error\ndata: The partial summaries don't fit in 40 tokens two at a time\n\n"));
+    }
+
+    @Test
+    void testSubmitSummaryJobSuccess() throws Exception {
+        // Given
+        given(this.summaryJobService.submit()).willReturn(new SummaryJob("job-1", SummaryJob.Status.PENDING, 7, null, null));
+
+        // When and Then
+        this.mockMvc.perform(post(this.baseUrl + "/artifacts/summary/jobs").accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
+                .andExpect(jsonPath("$.message").value("Submit Success"))
+                .andExpect(jsonPath("$.data.id").value("job-1"))
+                .andExpect(jsonPath("$.data.status").value("PENDING"));
+    }
+
+    @Test
+    void testSubmitSummaryJobRejected() throws Exception {
+        // Given
+        given(this.summaryJobService.submit()).willThrow(new SummaryJobRejectedException());
+
+        // When and Then
+        this.mockMvc.perform(post(this.baseUrl + "/artifacts/summary/jobs").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.flag").value(false))
+                .andExpect(jsonPath("$.code").value(StatusCode.SERVICE_UNAVAILABLE));
+    }
+
+    @Test
+    void testFindSummaryJobSuccess() throws Exception {
+        // Given
+        given(this.summaryJobService.findById("job-1"))
+                .willReturn(new SummaryJob("job-1", SummaryJob.Status.SUCCEEDED, 7, "The summary includes six artifacts", null));
+
+        // When and Then
+        this.mockMvc.perform(get(this.baseUrl + "/artifacts/summary/jobs/job-1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.message").value("Find One Success"))
+                .andExpect(jsonPath("$.data.status").value("SUCCEEDED"))
+                .andExpect(jsonPath("$.data.summary").value("The summary includes six artifacts"));
+    }
+
+    @Test
+    void testFindSummaryJobNotFound() throws Exception {
+        // Given
+        given(this.summaryJobService.findById("job-1")).willThrow(new ObjectNotFoundException("summary job", "job-1"));
+
+        // When and Then
+        this.mockMvc.perform(get(this.baseUrl + "/artifacts/summary/jobs/job-1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(false))
+                .andExpect(jsonPath("$.code").value(StatusCode.NOT_FOUND))
+                .andExpect(jsonPath("$.message").value("Could not find summary job with Id job-1 :("));
+    }
+
+    @Test
+    void testBatchArtifactsSuccess() throws Exception {
+        // Given
+        List<ArtifactBatchOperation> operations = List.of(
+                new ArtifactBatchOperation(ArtifactBatchOperation.Type.CREATE, null, new ArtifactDto(null, "Elder Wand", "The Elder Wand", "ImageUrl", null)),
+                new ArtifactBatchOperation(ArtifactBatchOperation.Type.DELETE, "1250808601744904199", null)
+        );
+        String json = "[{\"type\":\"create\",\"artifact\":{\"name\":\"Elder Wand\",\"description\":\"The Elder Wand\",\"imageUrl\":\"ImageUrl\"}},"
+                + "{\"type\":\"delete\",\"id\":\"1250808601744904199\"}]";
+
+        given(this.artifactService.batch(operations)).willReturn(List.of(
+                new ArtifactBatchResult(0, "1250808601744904197", true, StatusCode.SUCCESS, "Add Success"),
+                new ArtifactBatchResult(1, "1250808601744904199", false, StatusCode.NOT_FOUND, "Could not find artifact with Id 1250808601744904199 :(")
+        ));
+
+        // When and Then
+        this.mockMvc.perform(post(this.baseUrl + "/artifacts/batch").contentType(MediaType.APPLICATION_JSON).content(json).accept(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.flag").value(true))
+                .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
+                .andExpect(jsonPath("$.message").value("Batch Success"))
+                .andExpect(jsonPath("$.data", Matchers.hasSize(2)))
+                .andExpect(jsonPath("$.data[0].id").value("1250808601744904197"))
+                .andExpect(jsonPath("$.data[1].flag").value(false))
+                .andExpect(jsonPath("$.data[1].code").value(StatusCode.NOT_FOUND));
+    }
+
+    @Test
+    void testBatchArtifactsTooLarge() throws Exception {
+        // Given
+        given(this.artifactService.batch(Mockito.anyList())).willThrow(new BatchSizeExceededException(1001, 1000));
+
+        // When and Then
+        this.mockMvc.perform(post(this.baseUrl + "/artifacts/batch").contentType(MediaType.APPLICATION_JSON).content("[]").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.flag").value(false))
+                .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT))
+                .andExpect(jsonPath("$.message").value("The batch has 1001 operations, the maximum is 1000."));
+    }
+
+    @Test
+    void testExportArtifactsAsNdjson() throws Exception {
+        // Given
+        given(this.artifactService.export(eq("1250808601744904191"), any())).willAnswer(invocation -> {
+            Consumer<ArtifactDto> consumer = invocation.getArgument(1);
+            consumer.accept(new ArtifactDto("1250808601744904192", "Invisibility Cloak", "An invisibility cloak is used to make the wearer invisible.", "ImageUrl", null));
+            consumer.accept(new ArtifactDto("1250808601744904193", "Elder Wand", "The Elder Wand.", "ImageUrl", null));
+            return 2L;
+        });
+
+        // When
+        MvcResult mvcResult = this.mockMvc.perform(get(this.baseUrl + "/artifacts/export").param("since", "1250808601744904191"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, Matchers.startsWith("application/x-ndjson")))
+                .andReturn();
+
+        // Then
+        String[] lines = mvcResult.getResponse().getContentAsString().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("1250808601744904192", this.objectMapper.readValue(lines[0], ArtifactDto.class).id());
+        assertEquals("Elder Wand", this.objectMapper.readValue(lines[1], ArtifactDto.class).name());
+    }
+
+    @Test
+    void testExportArtifactsWithInvalidSince() throws Exception {
+        // When and then: not the whole catalog
+        this.mockMvc.perform(get(this.baseUrl + "/artifacts/export").param("since", "abc"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.flag").value(false))
+                .andExpect(jsonPath("$.code").value(StatusCode.INVALID_ARGUMENT))
+                .andExpect(jsonPath("$.message").value("The artifact id abc is invalid."));
+        Mockito.verify(this.artifactService, Mockito.never()).export(any(), any());
+    }
+
+    @Test
+    void testExportArtifactsGzipped() throws Exception {
+        // Given
+        given(this.artifactService.export(Mockito.isNull(), any())).willAnswer(invocation -> {
+            Consumer<ArtifactDto> consumer = invocation.getArgument(1);
+            consumer.accept(new ArtifactDto("1250808601744904191", "Deluminator", "A Deluminator.", "ImageUrl", null));
+            return 1L;
+        });
+
+        // When
+        MvcResult mvcResult = this.mockMvc.perform(get(this.baseUrl + "/artifacts/export").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn();
+
+        // Then
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(mvcResult.getResponse().getContentAsByteArray()))) {
+            String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals("Deluminator", this.objectMapper.readValue(body.trim(), ArtifactDto.class).name());
+            assertTrue(body.endsWith("\n"));
+        }
+    }
+
+    @Test
+    void testExportArtifactsNotGzippedWhenGzipIsRefused() throws Exception {
+        // Given
+        given(this.artifactService.export(Mockito.isNull(), any())).willAnswer(invocation -> {
+            Consumer<ArtifactDto> consumer = invocation.getArgument(1);
+            consumer.accept(new ArtifactDto("1250808601744904191", "Deluminator", "A Deluminator.", "ImageUrl", null));
+            return 1L;
+        });
+
+        // When
+        MvcResult mvcResult = this.mockMvc.perform(get(this.baseUrl + "/artifacts/export").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn();
+
+        // Then
+        assertEquals("Deluminator", this.objectMapper.readValue(mvcResult.getResponse().getContentAsString().trim(), ArtifactDto.class).name());
+    }
+
+    private List<ArtifactDto> artifactDtos() {
+        return this.artifacts.stream()
+                .map(artifact -> new ArtifactDto(artifact.getId(), artifact.getName(), artifact.getDescription(), artifact.getImageUrl(), null))
+                .toList();
+    }
+}
@@ -0,0 +1,316 @@
+package com.learningspring.hogwartsartifactonline.artifact;
+
+import com.learningspring.hogwartsartifactonline.artifact.cache.ArtifactCache;
+import com.learningspring.hogwartsartifactonline.artifact.cache.CatalogVersion;
+import com.learningspring.hogwartsartifactonline.artifact.cache.SearchResultCache;
+import com.learningspring.hogwartsartifactonline.artifact.converter.ArtifactToArtifactDtoConverter;
+import com.learningspring.hogwartsartifactonline.artifact.dto.ArtifactBatchOperation;
+import com.learningspring.hogwartsartifactonline.artifact.dto.ArtifactBatchResult;
+import com.learningspring.hogwartsartifactonline.artifact.dto.ArtifactDto;
+import com.learningspring.hogwartsartifactonline.artifact.search.ArtifactTextIndex;
+import com.learningspring.hogwartsartifactonline.artifact.search.ArtifactVectorIndex;
+import com.learningspring.hogwartsartifactonline.artifact.summary.ArtifactDigestService;
+import com.learningspring.hogwartsartifactonline.artifact.utils.CursorCodec;
+import com.learningspring.hogwartsartifactonline.artifact.utils.IdWorker;
+import com.learningspring.hogwartsartifactonline.client.rediscache.RedisCacheClient;
+import com.learningspring.hogwartsartifactonline.wizard.Wizard;
+import com.learningspring.hogwartsartifactonline.wizard.WizardRepository;
+import com.learningspring.hogwartsartifactonline.wizard.WizardVersion;
+import com.learningspring.hogwartsartifactonline.wizard.converter.WizardToWizardDtoConverter;
+import com.learningspring.hogwartsartifactonline.wizard.dto.WizardDto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the list queries run a fixed number of SQL statements, whatever the page size.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ArtifactRepositoryTest {
+
+    @Autowired
+    ArtifactRepository artifactRepository;
+
+    @Autowired
+    WizardRepository wizardRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 1; i <= 10; i++) {
+            Wizard wizard = new Wizard();
+            wizard.setName("Wizard " + i);
+            for (int j = 1; j <= 3; j++) {
+                Artifact artifact = new Artifact();
+                artifact.setId(i + "0" + j);
+                artifact.setName("Artifact " + i + "-" + j);
+                artifact.setDescription("Description " + i + "-" + j);
+                artifact.setImageUrl("ImageUrl");
+                wizard.addArtifact(artifact);
+            }
+            this.entityManager.persist(wizard);
+        }
+        this.entityManager.flush();
+        this.entityManager.clear();
+
+        this.statistics = this.entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.statistics.clear();
+    }
+
+    @Test
+    void testFindAllPageFetchesOwnersInTheSameStatement() {
+        // When
+        Page<Artifact> artifactPage = this.artifactRepository.findAll(PageRequest.of(0, 25, Sort.by("name")));
+        artifactPage.forEach(artifact -> artifact.getOwner().getName());
+
+        // Then: one select for the content and one for the total
+        assertThat(artifactPage.getContent()).hasSize(25);
+        assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void testFindAllBySpecificationFetchesOwnersInTheSameStatement() {
+        // When
+        Specification<Artifact> spec = Specification.where(ArtifactsSpecs.containsName("artifact"));
+        Page<Artifact> artifactPage = this.artifactRepository.findAll(spec, PageRequest.of(0, 25));
+        artifactPage.forEach(artifact -> artifact.getOwner().getName());
+
+        // Then
+        assertThat(artifactPage.getContent()).hasSize(25);
+        assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void testKeysetScrollWalksAllArtifactsWithoutCountQuery() {
+        // Given
+        ArtifactService artifactService = this.newArtifactService(Mockito.mock(ArtifactTextIndex.class));
+        List<String> seenIds = new ArrayList<>();
+
+        // When
+        KeysetScrollPosition position = CursorCodec.decode(null);
+        Window<Artifact> artifactWindow;
+        do {
+            this.statistics.clear();
+            artifactWindow = artifactService.findAll(position, 7);
+            artifactWindow.forEach(artifact -> artifact.getOwner().getName());
+
+            // Then: a single statement per page, owners included and no count(*)
+            assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(1);
+
+            List<Artifact> content = artifactWindow.getContent();
+            content.forEach(artifact -> seenIds.add(artifact.getId()));
+            if (artifactWindow.hasNext()) {
+                position = CursorCodec.decode(CursorCodec.encode(content.get(content.size() - 1).getId()));
+            }
+        } while (artifactWindow.hasNext());
+
+        assertThat(seenIds).hasSize(30).doesNotHaveDuplicates().isSorted();
+    }
+
+    @Test
+    void testCountByOwnerIdInUsesOneStatement() {
+        // Given
+        List<Artifact> artifacts = this.artifactRepository.findAll();
+        List<Integer> ownerIds = artifacts.stream().map(artifact -> artifact.getOwner().getId()).distinct().toList();
+
+        // When
+        Map<Integer, Long> counts = this.artifactRepository.countByOwnerIdIn(ownerIds)
+                .stream()
+                .collect(Collectors.toMap(OwnerArtifactCount::getOwnerId, OwnerArtifactCount::getNumberOfArtifacts));
+
+        // Then: findAll() with its owners plus the aggregate count
+        assertThat(counts).hasSize(10).allSatisfy((ownerId, count) -> assertThat(count).isEqualTo(3L));
+        assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void testExportStreamsArtifactsAfterTheGivenIdWithOwnerCounts() {
+        // Given
+        ArtifactService artifactService = this.newArtifactService(Mockito.mock(ArtifactTextIndex.class));
+        List<ArtifactDto> exported = new ArrayList<>();
+
+        // When
+        long count = artifactService.export("503", exported::add);
+
+        // Then: the artifacts of wizards 6 to 9 (ids are fixed-width in production, here "1001" < "503")
+        assertThat(count).isEqualTo(12);
+        assertThat(exported).extracting(ArtifactDto::id).isSorted().allSatisfy(id -> assertThat(id).isGreaterThan("503"));
+        assertThat(exported).allSatisfy(artifactDto -> assertThat(artifactDto.owner().numberOfArtifacts()).isEqualTo(3));
+        assertThat(this.entityManager.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    void testBatchSendsStatementsInJdbcBatches() {
+        // Given
+        ArtifactService artifactService = this.newArtifactService(Mockito.mock(ArtifactTextIndex.class));
+        List<ArtifactBatchOperation> operations = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            operations.add(new ArtifactBatchOperation(ArtifactBatchOperation.Type.CREATE, null,
+                                                      new ArtifactDto(null, "New artifact " + i, "Description", "ImageUrl", null)));
+        }
+        for (int i = 1; i <= 5; i++) {
+            operations.add(new ArtifactBatchOperation(ArtifactBatchOperation.Type.UPDATE, i + "01",
+                                                      new ArtifactDto(null, "Updated " + i, "Description", "ImageUrl", null)));
+            operations.add(new ArtifactBatchOperation(ArtifactBatchOperation.Type.DELETE, i + "02", null));
+        }
+
+        // When
+        List<ArtifactBatchResult> results = artifactService.batch(operations);
+        this.entityManager.flush();
+
+        // Then: one select, then one prepared insert, update and delete, each executed in batches of up to 50 rows
+        assertThat(results).hasSize(110).allSatisfy(result -> assertThat(result.flag()).isTrue());
+        assertThat(this.statistics.getEntityInsertCount()).isEqualTo(100);
+        assertThat(this.statistics.getEntityUpdateCount()).isEqualTo(5);
+        assertThat(this.statistics.getEntityDeleteCount()).isEqualTo(5);
+        assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(4);
+        assertThat(this.artifactRepository.count()).isEqualTo(125);
+    }
+
+    @Test
+    void testFindByCriteriaResolvesTextCriteriaThroughTheIndex() {
+        // Given
+        ArtifactTextIndex artifactTextIndex = new ArtifactTextIndex(this.artifactRepository, Mockito.mock(RedisCacheClient.class),
+                                                                    Mockito.mock(RedisMessageListenerContainer.class), 7, Duration.ofMinutes(1));
+        artifactTextIndex.rebuild();
+        ArtifactService artifactService = this.newArtifactService(artifactTextIndex);
+        ArtifactService artifactServiceWithoutIndex = this.newArtifactService(Mockito.mock(ArtifactTextIndex.class));
+
+        for (Map<String, String> searchCriteria : List.of(Map.of("name", "act 3-"),
+                                                          Map.of("name", "artifact", "description", "ion 10-2"),
+                                                          Map.of("description", "nothing like this"))) {
+            // When
+            List<String> ids = artifactService.findByCriteria(searchCriteria, PageRequest.of(0, 50, Sort.by("id")))
+                    .map(Artifact::getId)
+                    .getContent();
+
+            // Then: the same artifacts as the plain like query
+            List<String> expectedIds = artifactServiceWithoutIndex.findByCriteria(searchCriteria, PageRequest.of(0, 50, Sort.by("id")))
+                    .map(Artifact::getId)
+                    .getContent();
+            assertThat(ids).isEqualTo(expectedIds);
+        }
+    }
+
+    @Test
+    void testFindSliceByCriteriaMatchesThePagesWithoutCountQuery() {
+        // Given
+        ArtifactService artifactService = this.newArtifactService(Mockito.mock(ArtifactTextIndex.class));
+        Map<String, String> searchCriteria = Map.of("description", "description");
+
+        for (int pageNumber = 0; pageNumber < 5; pageNumber++) {
+            PageRequest pageRequest = PageRequest.of(pageNumber, 7, Sort.by("name"));
+            Page<Artifact> artifactPage = this.artifactRepository.findAll(ArtifactsSpecs.containsDescription("description"), pageRequest);
+            this.statistics.clear();
+
+            // When
+            Slice<Artifact> artifactSlice = artifactService.findSliceByCriteria(searchCriteria, pageRequest);
+            artifactSlice.forEach(artifact -> artifact.getOwner().getName());
+
+            // Then: the same content as the page, in a single statement
+            assertThat(artifactSlice.getContent()).extracting(Artifact::getId)
+                    .isEqualTo(artifactPage.getContent().stream().map(Artifact::getId).toList());
+            assertThat(artifactSlice.hasNext()).isEqualTo(artifactPage.hasNext());
+            assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void testFindAllDtosSelectsTheConvertedPageWithoutManagingEntities() {
+        // Given
+        Artifact unowned = new Artifact();
+        unowned.setId("999");
+        unowned.setName("Unowned artifact");
+        unowned.setDescription("Description");
+        unowned.setImageUrl("ImageUrl");
+        this.entityManager.persist(unowned);
+        this.entityManager.flush();
+        this.entityManager.clear();
+        ArtifactToArtifactDtoConverter converter = new ArtifactToArtifactDtoConverter(new WizardToWizardDtoConverter());
+        PageRequest pageRequest = PageRequest.of(0, 20, Sort.by("name").descending()); // the unowned artifact first
+        this.statistics.clear();
+
+        // When
+        Page<ArtifactDto> artifactDtoPage = this.artifactRepository.findAllDtos(pageRequest);
+
+        // Then: one select for the content, owners' counts included, and one for the total
+        assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(this.entityManager.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+        assertThat(artifactDtoPage.getTotalElements()).isEqualTo(31);
+        assertThat(artifactDtoPage.getContent())
+                .isEqualTo(this.artifactRepository.findAll(pageRequest).map(converter::convert).getContent());
+    }
+
+    @Test
+    void testFindAllWizardDtosCountsTheArtifactsInTheSameStatement() {
+        // When
+        List<WizardDto> wizardDtos = this.wizardRepository.findAllDtos();
+
+        // Then
+        assertThat(wizardDtos).hasSize(10).allSatisfy(wizardDto -> assertThat(wizardDto.numberOfArtifacts()).isEqualTo(3));
+        assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(this.entityManager.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    @Test
+    void testWritesBumpTheVersionsReadByTheVersionOnlyQuery() {
+        // Given
+        Artifact artifact = this.artifactRepository.findById("101").orElseThrow();
+        Wizard owner = artifact.getOwner();
+        WizardVersion before = this.wizardRepository.findVersionById(owner.getId()).orElseThrow();
+
+        // When
+        artifact.setName("Renamed");
+        owner.setName("Renamed wizard");
+        this.entityManager.flush();
+        this.statistics.clear();
+        WizardVersion after = this.wizardRepository.findVersionById(owner.getId()).orElseThrow();
+
+        // Then
+        assertThat(artifact.getVersion()).isEqualTo(1L);
+        assertThat(artifact.getUpdatedAt()).isNotNull();
+        assertThat(after.getVersion()).isEqualTo(before.getVersion() + 1);
+        assertThat(after.getNumberOfArtifacts()).isEqualTo(3);
+        assertThat(this.statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    /**
+     * An ArtifactService over the real repository, with the caches mocked out.
+     */
+    private ArtifactService newArtifactService(ArtifactTextIndex artifactTextIndex) {
+        return new ArtifactService(this.artifactRepository, new IdWorker(1, 1), null, Mockito.mock(ArtifactCache.class),
+                                   new ArtifactToArtifactDtoConverter(new WizardToWizardDtoConverter()), this.entityManager,
+                                   artifactTextIndex, Mockito.mock(SearchResultCache.class), Mockito.mock(CatalogVersion.class),
+                                   Mockito.mock(ArtifactDigestService.class), Mockito.mock(ArtifactVectorIndex.class));
+    }
+}
@@ -1,17 +1,26 @@
 package com.learningspring.hogwartsartifactonline.artifact;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learningspring.hogwartsartifactonline.artifact.cache.ArtifactCache;
+import com.learningspring.hogwartsartifactonline.artifact.cache.CatalogVersion;
+import com.learningspring.hogwartsartifactonline.artifact.cache.SearchResultCache;
+import com.learningspring.hogwartsartifactonline.artifact.converter.ArtifactToArtifactDtoConverter;
+import com.learningspring.hogwartsartifactonline.artifact.dto.ArtifactBatchOperation;
+import com.learningspring.hogwartsartifactonline.artifact.dto.ArtifactBatchResult;
 import com.learningspring.hogwartsartifactonline.artifact.dto.ArtifactDto;
+import com.learningspring.hogwartsartifactonline.artifact.search.ArtifactTextIndex;
+import com.learningspring.hogwartsartifactonline.artifact.search.ArtifactVectorIndex;
+import com.learningspring.hogwartsartifactonline.artifact.summary.ArtifactDigestService;
+import com.learningspring.hogwartsartifactonline.artifact.summary.ArtifactSummarizer;
+import com.learningspring.hogwartsartifactonline.artifact.summary.CatalogEntry;
 import com.learningspring.hogwartsartifactonline.artifact.utils.IdWorker;
-import com.learningspring.hogwartsartifactonline.client.ai.chat.ChatClient;
-import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatRequest;
-import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatResponse;
-import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.Choice;
-import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.Message;
+import com.learningspring.hogwartsartifactonline.system.StatusCode;
+import com.learningspring.hogwartsartifactonline.system.exception.BatchSizeExceededException;
 import com.learningspring.hogwartsartifactonline.system.exception.ObjectNotFoundException;
+import com.learningspring.hogwartsartifactonline.system.exception.SemanticSearchUnavailableException;
 import com.learningspring.hogwartsartifactonline.wizard.Wizard;
 import com.learningspring.hogwartsartifactonline.wizard.dto.WizardDto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.OptimisticLockException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -20,11 +29,21 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
@@ -43,7 +62,31 @@ class ArtifactServiceTest {
     IdWorker idWorker;
 
     @Mock
-    ChatClient chatClient;
+    ArtifactSummarizer artifactSummarizer;
+
+    @Mock
+    ArtifactDigestService artifactDigestService;
+
+    @Mock
+    ArtifactCache artifactCache;
+
+    @Mock
+    ArtifactToArtifactDtoConverter artifactToArtifactDtoConverter;
+
+    @Mock
+    EntityManager entityManager;
+
+    @Mock
+    ArtifactTextIndex artifactTextIndex;
+
+    @Mock
+    SearchResultCache searchResultCache;
+
+    @Mock
+    CatalogVersion catalogVersion;
+
+    @Mock
+    ArtifactVectorIndex artifactVectorIndex;
 
     @InjectMocks
     ArtifactService artifactService;
@@ -116,6 +159,58 @@ class ArtifactServiceTest {
         verify(artifactRepository, times(1)).findById("1250808601744904192");
     }
 
+    @Test
+    void testFindDtoByIdLoadsThroughCache() {
+        // Given
+        Artifact a = this.artifacts.get(1);
+        ArtifactDto artifactDto = new ArtifactDto(a.getId(), a.getName(), a.getDescription(), a.getImageUrl(), null);
+
+        given(this.artifactCache.get(eq("1250808601744904192"), any())).willAnswer(invocation -> {
+            Function<String, ArtifactDto> loader = invocation.getArgument(1);
+            return loader.apply(invocation.getArgument(0));
+        });
+        given(this.artifactRepository.findById("1250808601744904192")).willReturn(Optional.of(a));
+        given(this.artifactToArtifactDtoConverter.convert(a, Map.of())).willReturn(artifactDto);
+
+        // When
+        ArtifactDto returnedArtifactDto = this.artifactService.findDtoById("1250808601744904192");
+
+        // Then
+        assertThat(returnedArtifactDto).isEqualTo(artifactDto);
+        verify(this.artifactRepository, times(1)).findById("1250808601744904192");
+    }
+
+    @Test
+    void testCountArtifactsByOwnerSuccess() {
+        // Given
+        Wizard w = new Wizard();
+        w.setId(1);
+        w.setName("Albus Dumbledore");
+        this.artifacts.forEach(w::addArtifact);
+
+        OwnerArtifactCount ownerArtifactCount = mock(OwnerArtifactCount.class);
+        given(ownerArtifactCount.getOwnerId()).willReturn(1);
+        given(ownerArtifactCount.getNumberOfArtifacts()).willReturn(2L);
+        given(this.artifactRepository.countByOwnerIdIn(Set.of(1))).willReturn(List.of(ownerArtifactCount));
+
+        // When
+        Map<Integer, Integer> numberOfArtifactsByOwnerId = this.artifactService.countArtifactsByOwner(this.artifacts);
+
+        // Then
+        assertThat(numberOfArtifactsByOwnerId).containsExactly(Map.entry(1, 2));
+        verify(this.artifactRepository, times(1)).countByOwnerIdIn(Set.of(1));
+    }
+
+    @Test
+    void testCountArtifactsByOwnerWithoutOwners() {
+        // When
+        Map<Integer, Integer> numberOfArtifactsByOwnerId = this.artifactService.countArtifactsByOwner(this.artifacts);
+
+        // Then
+        assertThat(numberOfArtifactsByOwnerId).isEmpty();
+        verify(this.artifactRepository, never()).countByOwnerIdIn(any());
+    }
+
     @Test
     void testFindAllSuccess() {
         // Given
@@ -149,6 +244,10 @@ class ArtifactServiceTest {
         assertThat(savedArtifact.getDescription()).isEqualTo(newArtifact.getDescription());
         assertThat(savedArtifact.getImageUrl()).isEqualTo(newArtifact.getImageUrl());
         verify(artifactRepository, times(1)).save(newArtifact);
+        verify(artifactTextIndex, times(1)).index(newArtifact);
+        verify(artifactVectorIndex, times(1)).index(newArtifact);
+        verify(artifactDigestService, times(1)).enqueue(List.of("123456"));
+        verify(catalogVersion, times(1)).bump();
     }
 
     @Test
@@ -177,6 +276,9 @@ class ArtifactServiceTest {
         assertThat(updatedArtifact.getDescription()).isEqualTo(update.getDescription());
         verify(artifactRepository, times(1)).findById("1250808601744904192");
         verify(artifactRepository, times(1)).save(oldArtifact);
+        verify(artifactCache, times(1)).evict("1250808601744904192");
+        verify(artifactTextIndex, times(1)).index(oldArtifact);
+        verify(artifactDigestService, times(1)).enqueue(List.of("1250808601744904192"));
     }
 
     @Test
@@ -215,6 +317,9 @@ class ArtifactServiceTest {
 
         // Then
         verify(artifactRepository, times(1)).deleteById(artifact.getId());
+        verify(artifactCache, times(1)).evict(artifact.getId());
+        verify(artifactTextIndex, times(1)).remove(artifact.getId());
+        verify(artifactVectorIndex, times(1)).remove(artifact.getId());
     }
 
     @Test
@@ -232,35 +337,204 @@ class ArtifactServiceTest {
     }
 
     @Test
-    void testSummarizeSuccess() throws JsonProcessingException {
+    void testFindByCriteriaCachesTheResult() {
         // Given
-        WizardDto wizardDto = new WizardDto(1, "Albus Dumbledore", 2);
-        List<ArtifactDto> artifactDtos = List.of(
-                new ArtifactDto("1250808601744904191", "Deluminator", "A Deluminator is a device invented by Albus Dumbledore that resembles a cigarette lighter. It is used to remove or absorb (as well as return) the light from any light source to provide cover to the user.", "ImageUrl", wizardDto),
-                new ArtifactDto("1250808601744904193", "Elder Wand", "The Elder Wand, known throughout history as the Deathstick or the Wand of Destiny, is an extremely powerful wand made of elder wood with a core of Thestral tail hair.", "ImageUrl", wizardDto)
+        Map<String, String> searchCriteria = Map.of("name", "Cloak");
+        Pageable pageable = PageRequest.of(0, 20);
+        given(this.searchResultCache.keyFor(searchCriteria, pageable)).willReturn("artifact-search:1:key");
+        given(this.searchResultCache.get("artifact-search:1:key")).willReturn(Optional.empty());
+        given(this.artifactRepository.findAll(Mockito.<Specification<Artifact>>any(), eq(pageable)))
+                .willReturn(new PageImpl<>(List.of(this.artifacts.get(1)), pageable, 1));
+
+        // When
+        Page<Artifact> artifactPage = this.artifactService.findByCriteria(searchCriteria, pageable);
+
+        // Then
+        assertThat(artifactPage.getContent()).containsExactly(this.artifacts.get(1));
+        verify(this.searchResultCache, times(1)).put("artifact-search:1:key", new SearchResultCache.CachedSearchResult(List.of("1250808601744904192"), 1));
+    }
+
+    @Test
+    void testFindByCriteriaServedFromCache() {
+        // Given
+        Map<String, String> searchCriteria = Map.of("description", "a");
+        Pageable pageable = PageRequest.of(1, 2);
+        given(this.searchResultCache.keyFor(searchCriteria, pageable)).willReturn("artifact-search:1:key");
+        given(this.searchResultCache.get("artifact-search:1:key"))
+                .willReturn(Optional.of(new SearchResultCache.CachedSearchResult(List.of("1250808601744904192", "1250808601744904191"), 6)));
+        given(this.artifactRepository.findAllById(List.of("1250808601744904192", "1250808601744904191"))).willReturn(this.artifacts);
+
+        // When
+        Page<Artifact> artifactPage = this.artifactService.findByCriteria(searchCriteria, pageable);
+
+        // Then: in the cached order, with the cached total and without running the search
+        assertThat(artifactPage.getContent()).containsExactly(this.artifacts.get(1), this.artifacts.get(0));
+        assertThat(artifactPage.getTotalElements()).isEqualTo(6);
+        verify(this.artifactRepository, never()).findAll(Mockito.<Specification<Artifact>>any(), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    void testFindBySemanticSearchSuccess() {
+        // Given
+        given(this.artifactVectorIndex.findNearestIds("things that make you invisible", 2))
+                .willReturn(Optional.of(List.of("1250808601744904192", "1250808601744904191")));
+        given(this.artifactRepository.findAllById(List.of("1250808601744904192", "1250808601744904191"))).willReturn(this.artifacts);
+
+        // When
+        List<Artifact> foundArtifacts = this.artifactService.findBySemanticSearch("things that make you invisible", 2);
+
+        // Then: closest first
+        assertThat(foundArtifacts).containsExactly(this.artifacts.get(1), this.artifacts.get(0));
+    }
+
+    @Test
+    void testFindBySemanticSearchWhileTheIndexIsBuilt() {
+        // Given
+        given(this.artifactVectorIndex.findNearestIds("things that make you invisible", 10)).willReturn(Optional.empty());
+
+        // When
+        Throwable thrown = catchThrowable(() -> this.artifactService.findBySemanticSearch("things that make you invisible", 10));
+
+        // Then
+        assertThat(thrown)
+                .isInstanceOf(SemanticSearchUnavailableException.class)
+                .hasMessage("The semantic search index is being built, please try again later.");
+        verifyNoInteractions(this.artifactRepository);
+    }
+
+    @Test
+    void testBatchSuccess() {
+        // Given
+        Wizard owner = new Wizard();
+        owner.setId(1);
+        Artifact toDelete = this.artifacts.get(1);
+        toDelete.setOwner(owner);
+
+        ArtifactDto update = new ArtifactDto(null, "Deluminator-update", "New description", "ImageUrl", null);
+        ArtifactDto create = new ArtifactDto(null, "Elder Wand", "The Elder Wand", "ImageUrl", null);
+        List<ArtifactBatchOperation> operations = List.of(
+                new ArtifactBatchOperation(ArtifactBatchOperation.Type.CREATE, null, create),
+                new ArtifactBatchOperation(ArtifactBatchOperation.Type.CREATE, null, new ArtifactDto(null, "", "No name", "ImageUrl", null)),
+                new ArtifactBatchOperation(ArtifactBatchOperation.Type.UPDATE, "1250808601744904191", update),
+                new ArtifactBatchOperation(ArtifactBatchOperation.Type.DELETE, "1250808601744904192", null),
+                new ArtifactBatchOperation(ArtifactBatchOperation.Type.DELETE, "1250808601744904199", null)
         );
 
-        ObjectMapper objectMapper = new ObjectMapper();
-        String jsonArray = objectMapper.writeValueAsString(artifactDtos);
+        given(this.artifactRepository.findAllById(Set.of("1250808601744904191", "1250808601744904192", "1250808601744904199"))).willReturn(this.artifacts);
+        given(this.idWorker.nextIds(2)).willReturn(new long[]{123456L, 123457L});
+
+        // When
+        List<ArtifactBatchResult> results = this.artifactService.batch(operations);
+
+        // Then
+        assertThat(results).extracting(ArtifactBatchResult::code)
+                .containsExactly(StatusCode.SUCCESS, StatusCode.INVALID_ARGUMENT, StatusCode.SUCCESS, StatusCode.SUCCESS, StatusCode.NOT_FOUND);
+        assertThat(results.get(0).id()).isEqualTo("123456");
+        assertThat(results.get(1).message()).isEqualTo("name is required");
+        assertThat(results.get(4).message()).isEqualTo("Could not find artifact with Id 1250808601744904199 :(");
+        assertThat(this.artifacts.get(0).getName()).isEqualTo("Deluminator-update");
+
+        verify(this.idWorker, times(1)).nextIds(2);
+        verify(this.entityManager, times(1)).persist(Mockito.any(Artifact.class));
+        verify(this.entityManager, times(1)).remove(toDelete);
+        verify(this.artifactCache, times(1)).evictAll(Set.of("1250808601744904191", "1250808601744904192"));
+        verify(this.artifactCache, times(1)).evictArtifactsOf(owner);
+        verify(this.artifactVectorIndex, times(1)).indexAll(Mockito.argThat(indexed -> indexed.size() == 2));
+    }
 
-        List<Message> messages = List.of(
-                new Message("system", "Your task is to generate a short summary of a given JSON array in at most 100 words. The summary must include the number of artifacts, each artifact's description, and the ownership information. Don't mention that the summary is from a given JSON array."),
-                new Message("user", jsonArray)
+    @Test
+    void testBatchRolledBackWhenTheFlushFails() {
+        // Given
+        Artifact changed = this.artifacts.get(0);
+        ArtifactDto update = new ArtifactDto(null, "Deluminator-update", "New description", "ImageUrl", null);
+        ArtifactDto create = new ArtifactDto(null, "Elder Wand", "The Elder Wand", "ImageUrl", null);
+        List<ArtifactBatchOperation> operations = List.of(
+                new ArtifactBatchOperation(ArtifactBatchOperation.Type.CREATE, null, create),
+                new ArtifactBatchOperation(ArtifactBatchOperation.Type.CREATE, null, new ArtifactDto(null, "x".repeat(256), "Too long", "ImageUrl", null)),
+                new ArtifactBatchOperation(ArtifactBatchOperation.Type.UPDATE, "1250808601744904191", update)
         );
 
-        ChatRequest chatRequest = new ChatRequest("llama3-8b-8192", messages);
+        given(this.artifactRepository.findAllById(Set.of("1250808601744904191"))).willReturn(List.of(changed));
+        given(this.idWorker.nextIds(2)).willReturn(new long[]{123456L, 123457L});
+        doThrow(new OptimisticLockException("Row was updated or deleted by another transaction", null, changed)).when(this.entityManager).flush();
+
+        // When
+        List<ArtifactBatchResult> results = this.artifactService.batch(operations);
+
+        // Then
+        assertThat(results).extracting(ArtifactBatchResult::code)
+                .containsExactly(StatusCode.CONFLICT, StatusCode.INVALID_ARGUMENT, StatusCode.CONFLICT);
+        assertThat(results).extracting(ArtifactBatchResult::flag).containsOnly(false);
+        assertThat(results.get(0).id()).isNull();
+        assertThat(results.get(0).message()).isEqualTo("Rolled back with the batch: artifact 1250808601744904191 was changed by another request");
+        assertThat(results.get(1).message()).isEqualTo("name is longer than 255 characters");
+        assertThat(results.get(2).message()).isEqualTo("The artifact was changed by another request, please reload it");
+
+        verify(this.artifactCache, never()).evictAll(Mockito.any());
+        verify(this.artifactVectorIndex, never()).indexAll(Mockito.any());
+        verify(this.artifactDigestService, never()).enqueue(Mockito.any());
+        verify(this.catalogVersion, never()).bump();
+    }
 
-        ChatResponse chatResponse = new ChatResponse(List.of(
-                new Choice(0, new Message("assistant", "A summary of two artifacts owned by Albus Dumbledore"))
-        ));
+    @Test
+    void testBatchTooLarge() {
+        // Given
+        List<ArtifactBatchOperation> operations = Collections.nCopies(1001, new ArtifactBatchOperation(ArtifactBatchOperation.Type.DELETE, "1250808601744904191", null));
 
-        given(this.chatClient.generate(chatRequest)).willReturn(chatResponse);
+        // When
+        Throwable thrown = catchThrowable(() -> this.artifactService.batch(operations));
+
+        // Then
+        assertThat(thrown)
+                .isInstanceOf(BatchSizeExceededException.class)
+                .hasMessage("The batch has 1001 operations, the maximum is 1000.");
+        verifyNoInteractions(this.artifactRepository, this.entityManager);
+    }
+
+    @Test
+    void testSummarizeSuccess() {
+        // Given
+        WizardDto wizardDto = new WizardDto(1, "Albus Dumbledore", 2);
+        List<ArtifactDto> artifactDtos = List.of(
+                new ArtifactDto("1250808601744904191", "Deluminator", "A Deluminator is a device invented by Albus Dumbledore that resembles a cigarette lighter. It is used to remove or absorb (as well as return) the light from any light source to provide cover to the user.", "ImageUrl", wizardDto),
+                new ArtifactDto("1250808601744904193", "Elder Wand", "The Elder Wand, known throughout history as the Deathstick or the Wand of Destiny, is an extremely powerful wand made of elder wood with a core of Thestral tail hair.", "ImageUrl", wizardDto)
+        );
+        List<CatalogEntry> entries = List.of(
+                new CatalogEntry("1250808601744904191", "Deluminator", "Albus Dumbledore", "A lighter-like device that absorbs and returns light."),
+                new CatalogEntry("1250808601744904193", "Elder Wand", "Albus Dumbledore", "The most powerful wand, made of elder wood.")
+        );
+        given(this.artifactDigestService.catalogEntries(artifactDtos)).willReturn(entries);
+        given(this.artifactSummarizer.summarize(entries)).willReturn("A summary of two artifacts owned by Albus Dumbledore");
 
         // When
         String summary = this.artifactService.summarize(artifactDtos);
 
         // Then
         assertThat(summary).isEqualTo("A summary of two artifacts owned by Albus Dumbledore");
-        verify(this.chatClient, times(1)).generate(chatRequest);
+        verify(this.artifactSummarizer, times(1)).summarize(entries);
+    }
+
+    @Test
+    void testSummarizeStreamSuccess() {
+        // Given
+        List<ArtifactDto> artifactDtos = List.of(
+                new ArtifactDto("1250808601744904191", "Deluminator", "A Deluminator is a device invented by Albus Dumbledore that resembles a cigarette lighter.", "ImageUrl", new WizardDto(1, "Albus Dumbledore", 1))
+        );
+        List<CatalogEntry> entries = List.of(new CatalogEntry("1250808601744904191", "Deluminator", "Albus Dumbledore", "A lighter-like device that absorbs and returns light."));
+        given(this.artifactDigestService.catalogEntries(artifactDtos)).willReturn(entries);
+        List<String> tokens = new ArrayList<>();
+        given(this.artifactSummarizer.summarize(eq(entries), any())).willAnswer(invocation -> {
+            Consumer<String> onToken = invocation.getArgument(1);
+            onToken.accept("A summary");
+            onToken.accept(" of one artifact");
+            return "A summary of one artifact";
+        });
+
+        // When
+        String summary = this.artifactService.summarize(artifactDtos, tokens::add);
+
+        // Then
+        assertThat(summary).isEqualTo("A summary of one artifact");
+        assertThat(tokens).containsExactly("A summary", " of one artifact");
     }
-}
\ No newline at end of file
+}
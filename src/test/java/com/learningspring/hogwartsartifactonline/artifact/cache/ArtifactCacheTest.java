@@ -0,0 +1,199 @@
+package com.learningspring.hogwartsartifactonline.artifact.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learningspring.hogwartsartifactonline.artifact.dto.ArtifactDto;
+import com.learningspring.hogwartsartifactonline.client.rediscache.RedisCacheClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ArtifactCacheTest {
+
+    @Mock
+    RedisCacheClient redisCacheClient;
+
+    @Mock
+    RedisMessageListenerContainer redisMessageListenerContainer;
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    SimpleMeterRegistry meterRegistry;
+
+    ArtifactCache artifactCache;
+
+    ArtifactDto artifactDto;
+
+    @BeforeEach
+    void setUp() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.artifactCache = new ArtifactCache(this.redisCacheClient, this.objectMapper, this.meterRegistry,
+                                               this.redisMessageListenerContainer, 100, Duration.ofMinutes(5), Duration.ofMinutes(30));
+        this.artifactDto = new ArtifactDto("1250808601744904192", "Invisibility Cloak", "An invisibility cloak is used to make the wearer invisible.", "ImageUrl", null);
+    }
+
+    @Test
+    void testGetLoadsOnceAndServesFromLocalCache() {
+        // Given
+        AtomicInteger loads = new AtomicInteger();
+
+        // When
+        this.artifactCache.get("1250808601744904192", id -> {
+            loads.incrementAndGet();
+            return this.artifactDto;
+        });
+        ArtifactDto cached = this.artifactCache.get("1250808601744904192", id -> {
+            loads.incrementAndGet();
+            return this.artifactDto;
+        });
+
+        // Then
+        assertThat(cached).isEqualTo(this.artifactDto);
+        assertThat(loads.get()).isEqualTo(1);
+        verify(this.redisCacheClient, times(1)).get("artifact:1250808601744904192");
+        verify(this.redisCacheClient, times(1)).setIfVersionEquals(eq("artifact:1250808601744904192"), anyString(),
+                                                                   eq("artifact-version:1250808601744904192"), eq("0"), anyLong(), any());
+    }
+
+    @Test
+    void testGetWritesToRedisOnlyAtTheVersionReadBeforeLoading() {
+        // Given: evicted twice before, and a third time on another node while the artifact is loaded
+        given(this.redisCacheClient.get("artifact-version:1250808601744904192")).willReturn("2");
+        given(this.redisCacheClient.setIfVersionEquals(eq("artifact:1250808601744904192"), anyString(),
+                                                       eq("artifact-version:1250808601744904192"), eq("2"), anyLong(), any()))
+                .willReturn(false);
+
+        // When
+        ArtifactDto loaded = this.artifactCache.get("1250808601744904192", id -> {
+            verify(this.redisCacheClient).get("artifact-version:1250808601744904192"); // read before loading
+            return this.artifactDto;
+        });
+
+        // Then: the write of what may be the old state is refused
+        assertThat(loaded).isEqualTo(this.artifactDto);
+        verify(this.redisCacheClient).setIfVersionEquals(eq("artifact:1250808601744904192"), anyString(),
+                                                         eq("artifact-version:1250808601744904192"), eq("2"), anyLong(), any());
+        assertThat(this.meterRegistry.counter("artifact.cache.redis.stale-writes").count()).isEqualTo(1);
+    }
+
+    @Test
+    void testGetDoesNotWriteToRedisWhenTheVersionCantBeRead() {
+        // Given
+        given(this.redisCacheClient.get("artifact-version:1250808601744904192")).willThrow(new RedisConnectionFailureException("Connection refused"));
+
+        // When
+        ArtifactDto loaded = this.artifactCache.get("1250808601744904192", id -> this.artifactDto);
+
+        // Then
+        assertThat(loaded).isEqualTo(this.artifactDto);
+        verify(this.redisCacheClient, never()).setIfVersionEquals(anyString(), anyString(), anyString(), anyString(), anyLong(), any());
+    }
+
+    @Test
+    void testGetServesFromRedisWithoutLoading() throws JsonProcessingException {
+        // Given
+        given(this.redisCacheClient.get("artifact:1250808601744904192")).willReturn(this.objectMapper.writeValueAsString(this.artifactDto));
+
+        // When
+        ArtifactDto cached = this.artifactCache.get("1250808601744904192", id -> {
+            throw new AssertionError("The loader must not be called on a Redis hit");
+        });
+
+        // Then
+        assertThat(cached).isEqualTo(this.artifactDto);
+        assertThat(this.meterRegistry.counter("artifact.cache.redis", "result", "hit").count()).isEqualTo(1);
+    }
+
+    @Test
+    void testGetFallsBackToLoaderWhenRedisIsDown() {
+        // Given
+        given(this.redisCacheClient.get("artifact:1250808601744904192")).willThrow(new RedisConnectionFailureException("Connection refused"));
+
+        // When
+        ArtifactDto loaded = this.artifactCache.get("1250808601744904192", id -> this.artifactDto);
+
+        // Then
+        assertThat(loaded).isEqualTo(this.artifactDto);
+    }
+
+    @Test
+    void testEvictRemovesEntryAndNotifiesOtherNodes() {
+        // Given
+        AtomicInteger loads = new AtomicInteger();
+        this.artifactCache.get("1250808601744904192", id -> {
+            loads.incrementAndGet();
+            return this.artifactDto;
+        });
+
+        // When
+        this.artifactCache.evict("1250808601744904192");
+        this.artifactCache.get("1250808601744904192", id -> {
+            loads.incrementAndGet();
+            return this.artifactDto;
+        });
+
+        // Then
+        assertThat(loads.get()).isEqualTo(2);
+        // the version first, so that a node still loading the old state can't write it back once the entry is deleted
+        InOrder inOrder = inOrder(this.redisCacheClient);
+        inOrder.verify(this.redisCacheClient).incrementAndExpire(eq("artifact-version:1250808601744904192"), anyLong(), any());
+        inOrder.verify(this.redisCacheClient).delete("artifact:1250808601744904192");
+        verify(this.redisCacheClient, times(1)).publish(ArtifactCache.INVALIDATION_CHANNEL, "1250808601744904192");
+    }
+
+    @Test
+    void testInvalidationMessageRemovesLocalEntry() {
+        // Given
+        AtomicInteger loads = new AtomicInteger();
+        this.artifactCache.get("1250808601744904192", id -> {
+            loads.incrementAndGet();
+            return this.artifactDto;
+        });
+
+        // When
+        this.artifactCache.onMessage(new DefaultMessage(ArtifactCache.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                                                        "1250808601744904192".getBytes(StandardCharsets.UTF_8)), null);
+        this.artifactCache.get("1250808601744904192", id -> {
+            loads.incrementAndGet();
+            return this.artifactDto;
+        });
+
+        // Then
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void testGetBypassesTheCacheForAnIdThatIsNotANumber() {
+        // Given
+        AtomicInteger loads = new AtomicInteger();
+
+        // When
+        for (int i = 0; i < 2; i++) {
+            this.artifactCache.get("abc", id -> {
+                assertThat(id).isEqualTo("abc");
+                loads.incrementAndGet();
+                return this.artifactDto;
+            });
+        }
+
+        // Then: loaded each time, and never from or into Redis
+        assertThat(loads.get()).isEqualTo(2);
+        verifyNoInteractions(this.redisCacheClient);
+    }
+}
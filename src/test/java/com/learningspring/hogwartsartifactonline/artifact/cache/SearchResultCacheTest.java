@@ -0,0 +1,131 @@
+package com.learningspring.hogwartsartifactonline.artifact.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learningspring.hogwartsartifactonline.client.rediscache.RedisCacheClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class SearchResultCacheTest {
+
+    @Mock
+    CatalogVersion catalogVersion;
+
+    @Mock
+    RedisCacheClient redisCacheClient;
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        this.meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testCanonicalizeIgnoresOrderCaseAndUnusedCriteria() {
+        String canonical = SearchResultCache.canonicalize(Map.of("name", "Cloak", "description", "Invisible"), PageRequest.of(0, 20));
+
+        assertThat(SearchResultCache.canonicalize(Map.of("description", "invisible", "name", "cLOAK", "ownerName", "", "color", "red"), PageRequest.of(0, 20)))
+                .isEqualTo(canonical);
+        assertThat(SearchResultCache.canonicalize(Map.of("name", "Cloak", "description", "Invisible"), PageRequest.of(1, 20)))
+                .isNotEqualTo(canonical);
+        assertThat(SearchResultCache.canonicalize(Map.of("name", "Cloak", "description", "Invisible"), PageRequest.of(0, 20, Sort.by("name"))))
+                .isNotEqualTo(canonical);
+    }
+
+    @Test
+    void testLocalBackendAndVersionedInvalidation() {
+        // Given
+        SearchResultCache searchResultCache = this.newSearchResultCache("local");
+        given(this.catalogVersion.current()).willReturn(1L);
+        String key = searchResultCache.keyFor(Map.of("name", "Cloak"), PageRequest.of(0, 20));
+        searchResultCache.put(key, new SearchResultCache.CachedSearchResult(List.of("1250808601744904192"), 1));
+
+        // When
+        boolean hitAtVersion1 = searchResultCache.get(searchResultCache.keyFor(Map.of("name", "cloak"), PageRequest.of(0, 20))).isPresent();
+        given(this.catalogVersion.current()).willReturn(2L); // a write bumped the version
+        boolean hitAtVersion2 = searchResultCache.get(searchResultCache.keyFor(Map.of("name", "cloak"), PageRequest.of(0, 20))).isPresent();
+
+        // Then
+        assertThat(hitAtVersion1).isTrue();
+        assertThat(hitAtVersion2).isFalse();
+        assertThat(this.meterRegistry.get("artifact.search.cache.hit.ratio").gauge().value()).isEqualTo(0.5);
+    }
+
+    @Test
+    void testRedisBackend() throws Exception {
+        // Given
+        SearchResultCache searchResultCache = this.newSearchResultCache("redis");
+        SearchResultCache.CachedSearchResult result = new SearchResultCache.CachedSearchResult(List.of("1250808601744904192"), 1);
+        given(this.catalogVersion.current()).willReturn(7L);
+        String key = searchResultCache.keyFor(Map.of("name", "Cloak"), PageRequest.of(0, 20));
+        given(this.redisCacheClient.get(key)).willReturn(this.objectMapper.writeValueAsString(result));
+
+        // When
+        searchResultCache.put(key, result);
+
+        // Then
+        assertThat(key).startsWith("artifact-search:7:");
+        assertThat(searchResultCache.get(key)).contains(result);
+        verify(this.redisCacheClient).set(eq(key), eq(this.objectMapper.writeValueAsString(result)), anyLong(), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testRedisBackendDownIsAMiss() {
+        // Given
+        SearchResultCache searchResultCache = this.newSearchResultCache("redis");
+        given(this.redisCacheClient.get("artifact-search:1:key")).willThrow(new RedisConnectionFailureException("Connection refused"));
+
+        // When and Then
+        assertThat(searchResultCache.get("artifact-search:1:key")).isEmpty();
+        assertThat(this.meterRegistry.counter("artifact.search.cache", "result", "miss").count()).isEqualTo(1);
+    }
+
+    @Test
+    void testApproximateTotalIsCountedOnceThenEstimated() {
+        // Given
+        SearchResultCache searchResultCache = this.newSearchResultCache("local");
+        AtomicInteger counts = new AtomicInteger();
+
+        // When
+        SearchResultCache.ApproximateTotal first = searchResultCache.getApproximateTotal(Map.of("name", "Cloak"), () -> {
+            counts.incrementAndGet();
+            return 42L;
+        });
+        SearchResultCache.ApproximateTotal second = searchResultCache.getApproximateTotal(Map.of("name", "cloak"), () -> {
+            counts.incrementAndGet();
+            return 43L;
+        });
+
+        // Then
+        assertThat(first).isEqualTo(new SearchResultCache.ApproximateTotal(42, false));
+        assertThat(second).isEqualTo(new SearchResultCache.ApproximateTotal(42, true));
+        assertThat(counts.get()).isEqualTo(1);
+    }
+
+    private SearchResultCache newSearchResultCache(String backend) {
+        return new SearchResultCache(this.catalogVersion, this.redisCacheClient, this.objectMapper, this.meterRegistry,
+                                     backend, 100, Duration.ofMinutes(10), Duration.ofMinutes(1));
+    }
+}
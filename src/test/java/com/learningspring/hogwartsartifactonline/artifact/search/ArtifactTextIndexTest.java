@@ -0,0 +1,258 @@
+package com.learningspring.hogwartsartifactonline.artifact.search;
+
+import com.learningspring.hogwartsartifactonline.artifact.Artifact;
+import com.learningspring.hogwartsartifactonline.artifact.ArtifactRepository;
+import com.learningspring.hogwartsartifactonline.artifact.ArtifactText;
+import com.learningspring.hogwartsartifactonline.client.rediscache.RedisCacheClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class ArtifactTextIndexTest {
+
+    @Mock
+    ArtifactRepository artifactRepository;
+
+    @Mock
+    RedisCacheClient redisCacheClient;
+
+    @Mock
+    RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Mock
+    ScheduledExecutorService scheduler;
+
+    ArtifactTextIndex artifactTextIndex;
+
+    @BeforeEach
+    void setUp() {
+        this.givenTexts();
+        this.artifactTextIndex = new ArtifactTextIndex(this.artifactRepository, this.redisCacheClient, this.redisMessageListenerContainer,
+                                                       2, Duration.ofMinutes(1), this.scheduler);
+        this.artifactTextIndex.rebuild();
+
+        this.artifactTextIndex.index(artifact("1250808601744904191", "Deluminator", "A Deluminator is a device invented by Albus Dumbledore that resembles a cigarette lighter."));
+        this.artifactTextIndex.index(artifact("1250808601744904192", "Invisibility Cloak", "An invisibility cloak is used to make the wearer invisible."));
+        this.artifactTextIndex.index(artifact("1250808601744904194", "The Marauder's Map", "A magical map of Hogwarts created by Remus Lupin."));
+    }
+
+    @Test
+    void testFindCandidateIdsMatchesWordsAndPartsOfWords() {
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.NAME, "cloak")).contains(Set.of("1250808601744904192"));
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.NAME, "LUMIN")).contains(Set.of("1250808601744904191"));
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.NAME, "der's m")).contains(Set.of("1250808601744904194"));
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.DESCRIPTION, "invis"))
+                .contains(Set.of("1250808601744904192"));
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.DESCRIPTION, "a map"))
+                .contains(Set.of("1250808601744904194"));
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.NAME, "wand")).contains(Set.of());
+    }
+
+    @Test
+    void testFindCandidateIdsCantTellWithoutWordsOfATrigramOrLonger() {
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.NAME, "'%")).isEmpty();
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.DESCRIPTION, "a")).isEmpty();
+    }
+
+    @Test
+    void testFindCandidateIdsIgnoresAccentsLikeTheDatabase() {
+        // Given
+        this.artifactTextIndex.index(artifact("1250808601744904195", "Crème Brûlée Cauldron", "A cauldron from the Café of Madam Puddifoot."));
+
+        // Then
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.NAME, "creme brulee")).contains(Set.of("1250808601744904195"));
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.DESCRIPTION, "CAFÉ")).contains(Set.of("1250808601744904195"));
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.DESCRIPTION, "cafe")).contains(Set.of("1250808601744904195"));
+    }
+
+    @Test
+    void testFindCandidateIdsExpandsLettersLikeTheDatabase() {
+        // Given
+        this.artifactTextIndex.index(artifact("1250808601744904195", "Große Æther Œuvre", "A ﬁne ﬂask."));
+
+        // Then
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.NAME, "grosse aether oeuvre")).contains(Set.of("1250808601744904195"));
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.NAME, "GROẞE")).contains(Set.of("1250808601744904195"));
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.DESCRIPTION, "fine flask")).contains(Set.of("1250808601744904195"));
+    }
+
+    @Test
+    void testLettersThatMayNotBeFoldedLikeTheDatabaseAreNotNarrowedTo() {
+        // Given
+        this.artifactTextIndex.index(artifact("1250808601744904195", "Ŋoro Cloak", "A cloak."));
+
+        // Then: the artifact is a candidate of every search, and a word with such a letter can't be looked up
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.NAME, "deluminator"))
+                .contains(Set.of("1250808601744904191", "1250808601744904195"));
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.NAME, "ŋoro")).isEmpty();
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.DESCRIPTION, "deluminator")).contains(Set.of("1250808601744904191"));
+
+        // When
+        this.artifactTextIndex.remove("1250808601744904195");
+
+        // Then
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.NAME, "deluminator")).contains(Set.of("1250808601744904191"));
+    }
+
+    @Test
+    void testIndexReplacesTheOldTerms() {
+        // When
+        this.artifactTextIndex.index(artifact("1250808601744904192", "Elder Wand", "An extremely powerful wand."));
+
+        // Then
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.NAME, "cloak")).contains(Set.of());
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.NAME, "wand")).contains(Set.of("1250808601744904192"));
+        assertThat(this.artifactTextIndex.size()).isEqualTo(3);
+        verify(this.redisCacheClient, times(2)).publish(eq(ArtifactTextIndex.UPDATE_CHANNEL), endsWith(":1250808601744904192")); // indexed in setUp() and here
+    }
+
+    @Test
+    void testRemove() {
+        // When
+        this.artifactTextIndex.remove("1250808601744904191");
+
+        // Then
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.NAME, "deluminator")).contains(Set.of());
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.NAME, "lum")).contains(Set.of());
+        assertThat(this.artifactTextIndex.size()).isEqualTo(2);
+    }
+
+    @Test
+    void testUpdateFromAnotherNodeIsReloadedFromTheDatabase() {
+        // Given
+        given(this.artifactRepository.findById("1250808601744904195"))
+                .willReturn(Optional.of(artifact("1250808601744904195", "The Sword Of Gryffindor", "A goblin-made sword.")));
+
+        // When
+        this.artifactTextIndex.onMessage(message("another-node:1:1250808601744904195"), null);
+
+        // Then
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.NAME, "sword")).contains(Set.of("1250808601744904195"));
+    }
+
+    @Test
+    void testChangesReceivedOutOfOrderAreNotMissed() {
+        // Given: 2 changes were made on other nodes by the first check
+        given(this.redisCacheClient.get(ArtifactTextIndex.SEQUENCE_KEY)).willReturn("2");
+        given(this.artifactRepository.findById("1250808601744904195")).willReturn(Optional.empty());
+        this.artifactTextIndex.check();
+
+        // When
+        this.artifactTextIndex.onMessage(message("another-node:2:1250808601744904195"), null);
+        this.artifactTextIndex.onMessage(message("another-node:1:1250808601744904195"), null);
+        this.artifactTextIndex.check();
+
+        // Then: not built again
+        verify(this.artifactRepository, times(1)).findTextsByIdGreaterThan(anyString(), any(Limit.class));
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.NAME, "cloak")).contains(Set.of("1250808601744904192"));
+    }
+
+    @Test
+    void testMissedChangeIsCaughtAtTheNextCheckAndTheIndexIsBuiltAgain() {
+        // Given: 2 changes were made on other nodes by the first check, and only the first one is received
+        given(this.redisCacheClient.get(ArtifactTextIndex.SEQUENCE_KEY)).willReturn("2");
+        given(this.artifactRepository.findById("1250808601744904195"))
+                .willReturn(Optional.of(artifact("1250808601744904195", "The Sword Of Gryffindor", "A goblin-made sword.")));
+        this.artifactTextIndex.check();
+        this.artifactTextIndex.onMessage(message("another-node:1:1250808601744904195"), null);
+        this.givenTexts(text("1250808601744904192", "Invisibility Cloak", "An invisibility cloak is used to make the wearer invisible."),
+                        text("1250808601744904195", "The Sword Of Gryffindor", "A goblin-made sword."),
+                        text("1250808601744904196", "Resurrection Stone", "A stone that brings back the dead."));
+
+        // When
+        this.artifactTextIndex.check();
+
+        // Then: the texts are read again, 2 at a time
+        verify(this.artifactRepository).findTextsByIdGreaterThan("1250808601744904195", Limit.of(2));
+        assertThat(this.artifactTextIndex.size()).isEqualTo(3);
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.NAME, "stone")).contains(Set.of("1250808601744904196"));
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.NAME, "deluminator")).contains(Set.of());
+    }
+
+    @Test
+    void testSearchRunsWithoutTheIndexWhileRedisIsUnreachable() {
+        // Given
+        given(this.redisCacheClient.get(ArtifactTextIndex.SEQUENCE_KEY)).willThrow(new RedisConnectionFailureException("Connection refused"));
+
+        // When
+        this.artifactTextIndex.check();
+
+        // Then: changes made on other nodes meanwhile may be missed
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.NAME, "cloak")).isEmpty();
+
+        // When Redis is back
+        given(this.redisCacheClient.get(ArtifactTextIndex.SEQUENCE_KEY)).willReturn("5");
+        this.artifactTextIndex.check();
+
+        // Then: built again
+        verify(this.artifactRepository, times(2)).findTextsByIdGreaterThan(anyString(), any(Limit.class));
+        assertThat(this.artifactTextIndex.findCandidateIds(ArtifactTextIndex.Field.NAME, "cloak")).contains(Set.of());
+    }
+
+    /**
+     * Answers the pages of the rebuild like the database: the texts after the given id, in id order.
+     */
+    private void givenTexts(ArtifactText... texts) {
+        given(this.artifactRepository.findTextsByIdGreaterThan(anyString(), any(Limit.class))).willAnswer(invocation -> {
+            long afterId = Long.parseLong(invocation.getArgument(0));
+            Limit limit = invocation.getArgument(1);
+            return Stream.of(texts).filter(text -> Long.parseLong(text.getId()) > afterId).limit(limit.max()).toList();
+        });
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(ArtifactTextIndex.UPDATE_CHANNEL.getBytes(StandardCharsets.UTF_8), body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Artifact artifact(String id, String name, String description) {
+        Artifact artifact = new Artifact();
+        artifact.setId(id);
+        artifact.setName(name);
+        artifact.setDescription(description);
+        artifact.setImageUrl("ImageUrl");
+        return artifact;
+    }
+
+    private static ArtifactText text(String id, String name, String description) {
+        return new ArtifactText() {
+
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public String getDescription() {
+                return description;
+            }
+        };
+    }
+}
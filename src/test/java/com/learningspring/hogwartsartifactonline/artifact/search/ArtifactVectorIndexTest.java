@@ -0,0 +1,250 @@
+package com.learningspring.hogwartsartifactonline.artifact.search;
+
+import com.learningspring.hogwartsartifactonline.artifact.Artifact;
+import com.learningspring.hogwartsartifactonline.artifact.ArtifactRepository;
+import com.learningspring.hogwartsartifactonline.artifact.ArtifactText;
+import com.learningspring.hogwartsartifactonline.client.ai.embedding.EmbeddingClient;
+import com.learningspring.hogwartsartifactonline.client.ai.embedding.LocalEmbeddingClient;
+import com.learningspring.hogwartsartifactonline.client.rediscache.RedisCacheClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class ArtifactVectorIndexTest {
+
+    @Mock
+    ArtifactRepository artifactRepository;
+
+    @Mock
+    RedisCacheClient redisCacheClient;
+
+    @Mock
+    RedisMessageListenerContainer redisMessageListenerContainer;
+
+    EmbeddingClient embeddingClient;
+
+    ArtifactVectorIndex artifactVectorIndex;
+
+    @BeforeEach
+    void setUp() {
+        this.embeddingClient = spy(new LocalEmbeddingClient(128));
+        this.artifactVectorIndex = this.newArtifactVectorIndex();
+    }
+
+    @Test
+    void testFindNearestIdsFindsArtifactsByMeaning() {
+        // Given
+        this.rebuild();
+
+        // When and Then
+        assertThat(this.artifactVectorIndex.findNearestIds("things that make you invisible", 1)).contains(List.of("1250808601744904192"));
+        assertThat(this.artifactVectorIndex.findNearestIds("a powerful wand", 1)).contains(List.of("1250808601744904193"));
+        assertThat(this.artifactVectorIndex.findNearestIds("a light-absorbing gadget", 1)).contains(List.of("1250808601744904191"));
+        assertThat(this.artifactVectorIndex.findNearestIds("anything", 10).orElseThrow()).hasSize(4);
+    }
+
+    @Test
+    void testFindNearestIdsCantTellUntilTheIndexIsBuilt() {
+        assertThat(this.artifactVectorIndex.findNearestIds("things that make you invisible", 10)).isEmpty();
+    }
+
+    @Test
+    void testRebuildFailureLeavesTheSearchUnavailable() {
+        // Given
+        this.givenTexts(text("1250808601744904191", "Deluminator", "A device."));
+        willThrow(new IllegalStateException("The embedding endpoint is down")).given(this.embeddingClient).embedAll(anyList());
+
+        // When
+        this.artifactVectorIndex.rebuild();
+
+        // Then
+        assertThat(this.artifactVectorIndex.findNearestIds("a device", 10)).isEmpty();
+    }
+
+    @Test
+    void testIndexAllEmbedsTheArtifactsInOneCall() {
+        // Given
+        this.rebuild();
+
+        // When
+        this.artifactVectorIndex.indexAll(List.of(
+                artifact("1250808601744904192", "Elder Wand", "An extremely powerful wand."),
+                artifact("1250808601744904195", "The Sword Of Gryffindor", "A goblin-made sword adorned with large rubies.")
+        ));
+
+        // Then
+        verify(this.embeddingClient, times(1)).embedAll(List.of("Elder Wand. An extremely powerful wand.",
+                                                                "The Sword Of Gryffindor. A goblin-made sword adorned with large rubies."));
+        assertThat(this.artifactVectorIndex.findNearestIds("a sword with rubies", 1)).contains(List.of("1250808601744904195"));
+        assertThat(this.artifactVectorIndex.findNearestIds("things that make you invisible", 1).orElseThrow()).doesNotContain("1250808601744904192");
+        assertThat(this.artifactVectorIndex.size()).isEqualTo(5);
+        assertThat(this.artifactVectorIndex.deletedSize()).isEqualTo(1); // the old vector of 1250808601744904192
+        verify(this.redisCacheClient).publish(eq(ArtifactVectorIndex.UPDATE_CHANNEL), endsWith(":1250808601744904195"));
+    }
+
+    @Test
+    void testRemove() {
+        // Given
+        this.rebuild();
+
+        // When
+        this.artifactVectorIndex.remove("1250808601744904192");
+
+        // Then
+        assertThat(this.artifactVectorIndex.findNearestIds("things that make you invisible", 10).orElseThrow()).doesNotContain("1250808601744904192");
+        assertThat(this.artifactVectorIndex.size()).isEqualTo(3);
+    }
+
+    @Test
+    void testRebuildReadsTheTextsAPageAtATime() {
+        // Given
+        this.rebuild();
+
+        // Then: pages of 2, the last one found empty
+        verify(this.artifactRepository).findTextsByIdGreaterThan("-1", Limit.of(2));
+        verify(this.artifactRepository).findTextsByIdGreaterThan("1250808601744904192", Limit.of(2));
+        verify(this.artifactRepository).findTextsByIdGreaterThan("1250808601744904194", Limit.of(2));
+        verify(this.embeddingClient, times(2)).embedAll(anyList());
+    }
+
+    @Test
+    void testChangesMadeDuringTheRebuildAreKept() {
+        // Given: a write commits while the texts are read
+        given(this.artifactRepository.findTextsByIdGreaterThan(anyString(), any(Limit.class))).willAnswer(invocation -> {
+            if (!invocation.getArgument(0).equals("-1")) {
+                return List.of();
+            }
+            this.artifactVectorIndex.remove("1250808601744904191");
+            this.artifactVectorIndex.index(artifact("1250808601744904193", "Elder Wand", "An extremely powerful wand."));
+            return List.of(text("1250808601744904191", "Deluminator", "A device that absorbs the light."),
+                           text("1250808601744904192", "Invisibility Cloak", "An invisibility cloak is used to make the wearer invisible."));
+        });
+
+        // When
+        this.artifactVectorIndex.rebuild();
+
+        // Then
+        assertThat(this.artifactVectorIndex.findNearestIds("anything", 10).orElseThrow())
+                .containsExactlyInAnyOrder("1250808601744904192", "1250808601744904193");
+    }
+
+    @Test
+    void testRemovedAndReplacedVectorsAreCompactedAway() {
+        // Given
+        this.rebuild();
+        List<Artifact> artifacts = IntStream.range(0, 10)
+                .mapToObj(i -> artifact(String.valueOf(1250808601744904200L + i), "Artifact " + i, "The description of artifact " + i + "."))
+                .toList();
+        this.artifactVectorIndex.indexAll(artifacts);
+
+        // When: 4 of the 14 vectors removed, at least 3 and more than 25%
+        this.artifactVectorIndex.remove("1250808601744904200");
+        this.artifactVectorIndex.remove("1250808601744904201");
+        this.artifactVectorIndex.remove("1250808601744904202");
+        assertThat(this.artifactVectorIndex.deletedSize()).isEqualTo(3); // 3 of 14, not compacted yet
+        this.artifactVectorIndex.remove("1250808601744904193");
+
+        // Then: compacted without embedding the artifacts again
+        assertThat(this.artifactVectorIndex.deletedSize()).isZero();
+        assertThat(this.artifactVectorIndex.size()).isEqualTo(10);
+        assertThat(this.artifactVectorIndex.findNearestIds("things that make you invisible", 1)).contains(List.of("1250808601744904192"));
+        verify(this.embeddingClient, times(3)).embedAll(anyList()); // the 2 pages of the rebuild and the indexAll
+    }
+
+    @Test
+    void testUpdateFromAnotherNodeIsReloadedFromTheDatabase() {
+        // Given
+        this.rebuild();
+        given(this.artifactRepository.findById("1250808601744904195"))
+                .willReturn(Optional.of(artifact("1250808601744904195", "The Sword Of Gryffindor", "A goblin-made sword adorned with large rubies.")));
+
+        // When
+        this.artifactVectorIndex.onMessage(new DefaultMessage(ArtifactVectorIndex.UPDATE_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                                                              "another-node:1250808601744904195".getBytes(StandardCharsets.UTF_8)), null);
+
+        // Then
+        assertThat(this.artifactVectorIndex.findNearestIds("a sword with rubies", 1)).contains(List.of("1250808601744904195"));
+    }
+
+    private void rebuild() {
+        this.givenTexts(
+                text("1250808601744904191", "Deluminator", "A Deluminator is a device invented by Albus Dumbledore that resembles a cigarette lighter. It is used to remove or absorb (as well as return) the light from any light source to provide cover to the user."),
+                text("1250808601744904192", "Invisibility Cloak", "An invisibility cloak is used to make the wearer invisible."),
+                text("1250808601744904193", "Elder Wand", "The Elder Wand, known throughout history as the Deathstick or the Wand of Destiny, is an extremely powerful wand made of elder wood with a core of Thestral tail hair."),
+                text("1250808601744904194", "The Marauder's Map", "A magical map of Hogwarts created by Remus Lupin, Peter Pettigrew, Sirius Black, and James Potter while they were students at Hogwarts.")
+        );
+        this.artifactVectorIndex.rebuild();
+    }
+
+    /**
+     * Answers the pages of the rebuild like the database: the texts after the given id, in id order.
+     */
+    private void givenTexts(ArtifactText... texts) {
+        given(this.artifactRepository.findTextsByIdGreaterThan(anyString(), any(Limit.class))).willAnswer(invocation -> {
+            long afterId = Long.parseLong(invocation.getArgument(0));
+            Limit limit = invocation.getArgument(1);
+            return Stream.of(texts).filter(text -> Long.parseLong(text.getId()) > afterId).limit(limit.max()).toList();
+        });
+    }
+
+    private ArtifactVectorIndex newArtifactVectorIndex() {
+        // Compacted once at least 3 vectors, and more than 25% of them, are removed or replaced, on the calling thread
+        return new ArtifactVectorIndex(this.artifactRepository, this.embeddingClient, this.redisCacheClient,
+                                       this.redisMessageListenerContainer, new SimpleMeterRegistry(), 16, 100, 64, 2, 3, 0.25,
+                                       Runnable::run);
+    }
+
+    private static Artifact artifact(String id, String name, String description) {
+        Artifact artifact = new Artifact();
+        artifact.setId(id);
+        artifact.setName(name);
+        artifact.setDescription(description);
+        artifact.setImageUrl("ImageUrl");
+        return artifact;
+    }
+
+    private static ArtifactText text(String id, String name, String description) {
+        return new ArtifactText() {
+
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public String getDescription() {
+                return description;
+            }
+        };
+    }
+}
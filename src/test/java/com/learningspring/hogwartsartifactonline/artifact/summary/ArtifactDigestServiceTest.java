@@ -0,0 +1,193 @@
+package com.learningspring.hogwartsartifactonline.artifact.summary;
+
+import com.learningspring.hogwartsartifactonline.artifact.ArtifactRepository;
+import com.learningspring.hogwartsartifactonline.artifact.ArtifactText;
+import com.learningspring.hogwartsartifactonline.artifact.dto.ArtifactDto;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.ChatClient;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatRequest;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatResponse;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.Choice;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.Message;
+import com.learningspring.hogwartsartifactonline.wizard.dto.WizardDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class ArtifactDigestServiceTest {
+
+    @Mock
+    ArtifactRepository artifactRepository;
+
+    @Mock
+    ArtifactDigestRepository artifactDigestRepository;
+
+    @Mock
+    ChatClient chatClient;
+
+    @Mock
+    ScheduledExecutorService scheduler;
+
+    SimpleMeterRegistry meterRegistry;
+
+    ArtifactDigestService artifactDigestService;
+
+    @BeforeEach
+    void setUp() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.artifactDigestService = this.newArtifactDigestService(100);
+    }
+
+    @Test
+    void testChangesAreDebouncedThenProcessedInBatches() {
+        // Given
+        ArtifactDigestService artifactDigestService = this.newArtifactDigestService(2);
+
+        // When
+        artifactDigestService.enqueue(List.of("1250808601744904191"));
+        artifactDigestService.enqueue(List.of("1250808601744904191", "1250808601744904192"));
+        artifactDigestService.enqueue(List.of("1250808601744904193"));
+
+        // Then
+        verify(this.scheduler, times(1)).schedule(any(Runnable.class), eq(2000L), eq(TimeUnit.MILLISECONDS));
+
+        // When
+        artifactDigestService.flush(); // the first batch of 2, then the rest is scheduled
+
+        // Then
+        ArgumentCaptor<Collection<String>> batches = ArgumentCaptor.captor();
+        verify(this.artifactRepository, times(1)).findTextsByIdIn(batches.capture());
+        assertThat(batches.getValue()).hasSize(2);
+        verify(this.scheduler, times(2)).schedule(any(Runnable.class), anyLong(), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testFlushGeneratesChangedDigestsOnly() {
+        // Given
+        ArtifactText changed = text("1250808601744904191", "Deluminator", "A new description");
+        ArtifactText unchanged = text("1250808601744904192", "Invisibility Cloak", "An invisibility cloak is used to make the wearer invisible.");
+        given(this.artifactRepository.findTextsByIdIn(any())).willReturn(List.of(changed, unchanged));
+        given(this.artifactDigestRepository.findAllById(any())).willReturn(List.of(
+                new ArtifactDigest("1250808601744904191", ArtifactDigestService.sourceHash("Deluminator", "An old description"), "An old digest."),
+                new ArtifactDigest("1250808601744904192", ArtifactDigestService.sourceHash(unchanged.getName(), unchanged.getDescription()), "A cloak that makes its wearer invisible."),
+                new ArtifactDigest("1250808601744904193", "hash", "The digest of a deleted artifact.")
+        ));
+        given(this.chatClient.generate(any(ChatRequest.class)))
+                .willReturn(new ChatResponse(List.of(new Choice(0, new Message("assistant", "A device that absorbs light.")))));
+
+        // When
+        this.artifactDigestService.enqueue(List.of("1250808601744904191", "1250808601744904192", "1250808601744904193"));
+        this.artifactDigestService.flush();
+
+        // Then
+        ArgumentCaptor<ChatRequest> chatRequest = ArgumentCaptor.forClass(ChatRequest.class);
+        verify(this.chatClient, times(1)).generate(chatRequest.capture());
+        assertThat(chatRequest.getValue().messages().get(1).content()).isEqualTo("Name: Deluminator\nDescription: A new description");
+
+        ArgumentCaptor<List<ArtifactDigest>> saved = ArgumentCaptor.captor();
+        verify(this.artifactDigestRepository).saveAll(saved.capture());
+        assertThat(saved.getValue()).singleElement().satisfies(digest -> {
+            assertThat(digest.getArtifactId()).isEqualTo("1250808601744904191");
+            assertThat(digest.getDigest()).isEqualTo("A device that absorbs light.");
+            assertThat(digest.getSourceHash()).isEqualTo(ArtifactDigestService.sourceHash("Deluminator", "A new description"));
+        });
+        verify(this.artifactDigestRepository).deleteAllById(List.of("1250808601744904193"));
+        assertThat(this.meterRegistry.counter("artifact.digests", "result", "generated").count()).isEqualTo(1);
+        assertThat(this.meterRegistry.counter("artifact.digests", "result", "unchanged").count()).isEqualTo(1);
+    }
+
+    @Test
+    void testCatalogEntriesUseUpToDateDigestsAndQueueTheOthers() {
+        // Given
+        WizardDto albus = new WizardDto(1, "Albus Dumbledore", 1);
+        List<ArtifactDto> artifactDtos = List.of(
+                new ArtifactDto("1250808601744904191", "Deluminator", "A Deluminator is a device invented by Albus Dumbledore.", "ImageUrl", albus),
+                new ArtifactDto("1250808601744904192", "Invisibility Cloak", "An invisibility cloak is used to make the wearer invisible.", "ImageUrl", null)
+        );
+        given(this.artifactDigestRepository.findViewsByArtifactIdIn(List.of("1250808601744904191", "1250808601744904192"))).willReturn(List.of(
+                view("1250808601744904191", ArtifactDigestService.sourceHash("Deluminator", "A Deluminator is a device invented by Albus Dumbledore."), "A device that absorbs light."),
+                view("1250808601744904192", ArtifactDigestService.sourceHash("Invisibility Cloak", "An outdated description"), "An outdated digest.")
+        ));
+
+        // When
+        List<CatalogEntry> entries = this.artifactDigestService.catalogEntries(artifactDtos);
+
+        // Then
+        assertThat(entries).containsExactly(
+                new CatalogEntry("1250808601744904191", "Deluminator", "Albus Dumbledore", "A device that absorbs light."),
+                new CatalogEntry("1250808601744904192", "Invisibility Cloak", null, "An invisibility cloak is used to make the wearer invisible.")
+        );
+        verify(this.scheduler, times(1)).schedule(any(Runnable.class), anyLong(), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testTruncateFitsTheDigestInItsColumn() {
+        assertThat(ArtifactDigestService.truncate("A device that absorbs light.")).isEqualTo("A device that absorbs light.");
+        assertThat(ArtifactDigestService.truncate("x".repeat(2000))).hasSize(ArtifactDigestService.MAX_DIGEST_LENGTH).endsWith("…");
+        // not cut in the middle of a character of two chars
+        assertThat(ArtifactDigestService.truncate("x".repeat(998) + "\uD83D\uDE00".repeat(10))).isEqualTo("x".repeat(998) + "…");
+    }
+
+    private ArtifactDigestService newArtifactDigestService(int batchSize) {
+        return new ArtifactDigestService(this.artifactRepository, this.artifactDigestRepository, this.chatClient,
+                                         this.meterRegistry, "llama3-8b-8192", Duration.ofSeconds(2), batchSize, this.scheduler);
+    }
+
+    private static ArtifactDigestView view(String artifactId, String sourceHash, String digest) {
+        return new ArtifactDigestView() {
+
+            @Override
+            public String getArtifactId() {
+                return artifactId;
+            }
+
+            @Override
+            public String getSourceHash() {
+                return sourceHash;
+            }
+
+            @Override
+            public String getDigest() {
+                return digest;
+            }
+        };
+    }
+
+    private static ArtifactText text(String id, String name, String description) {
+        return new ArtifactText() {
+
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public String getDescription() {
+                return description;
+            }
+        };
+    }
+}
@@ -0,0 +1,235 @@
+package com.learningspring.hogwartsartifactonline.artifact.summary;
+
+import com.learningspring.hogwartsartifactonline.client.ai.chat.ChatClient;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatRequest;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatResponse;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.Choice;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.Message;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class ArtifactSummarizerTest {
+
+    @Mock
+    ChatClient chatClient;
+
+    SimpleMeterRegistry meterRegistry;
+
+    List<CatalogEntry> entries;
+
+    @BeforeEach
+    void setUp() {
+        this.meterRegistry = new SimpleMeterRegistry();
+
+        this.entries = IntStream.range(0, 10)
+                .mapToObj(i -> new CatalogEntry(String.valueOf(1250808601744904190L + i), "Artifact " + i, "Albus Dumbledore", "The digest of the artifact number " + i + "."))
+                .toList();
+    }
+
+    @Test
+    void testSummarizeCatalogThatFitsInOnePrompt() {
+        // Given
+        ArtifactSummarizer artifactSummarizer = this.newArtifactSummarizer(3000);
+        ChatRequest chatRequest = new ChatRequest("llama3-8b-8192", List.of(
+                new Message("system", "Your task is to generate a short summary of a given catalog of artifacts, one artifact per line, in at most 100 words. The summary must include the number of artifacts, each artifact's description, and the ownership information. Don't mention that the summary is from a given list."),
+                new Message("user", IntStream.range(0, 10)
+                        .mapToObj(i -> "Artifact " + i + " (owned by Albus Dumbledore): The digest of the artifact number " + i + ".")
+                        .collect(Collectors.joining("\n")))
+        ));
+        given(this.chatClient.generate(chatRequest)).willReturn(response("A summary of ten artifacts owned by Albus Dumbledore"));
+
+        // When
+        String summary = artifactSummarizer.summarize(this.entries);
+
+        // Then
+        assertThat(summary).isEqualTo("A summary of ten artifacts owned by Albus Dumbledore");
+        verify(this.chatClient, times(1)).generate(any());
+        verify(this.chatClient, never()).generateAll(anyList());
+        assertThat(this.meterRegistry.get("artifact.summary.chunks").summary().totalAmount()).isEqualTo(1);
+        assertThat(this.meterRegistry.get("artifact.summary.stage").tag("stage", "map").timer().count()).isZero();
+        assertThat(this.meterRegistry.get("artifact.summary.stage").tag("stage", "reduce").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testSummarizeWritesTheCatalogWithTheConfiguredEncoder() {
+        // Given
+        ArtifactSummarizer artifactSummarizer = this.newArtifactSummarizer(3000, "table");
+        given(this.chatClient.generate(any())).willReturn(response("A summary of ten artifacts owned by Albus Dumbledore"));
+
+        // When
+        artifactSummarizer.summarize(this.entries);
+
+        // Then
+        ArgumentCaptor<ChatRequest> chatRequest = ArgumentCaptor.forClass(ChatRequest.class);
+        verify(this.chatClient, times(1)).generate(chatRequest.capture());
+        assertThat(chatRequest.getValue().messages().get(0).content()).contains("a table with one artifact per row");
+        assertThat(chatRequest.getValue().messages().get(1).content())
+                .startsWith("Owners: 1=Albus Dumbledore\nArtifact 0|1|The digest of the artifact number 0.\n");
+    }
+
+    @Test
+    void testNewArtifactSummarizerFailsWithAnUnknownEncoder() {
+        assertThatThrownBy(() -> this.newArtifactSummarizer(3000, "json"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Unknown catalog prompt encoder: json");
+    }
+
+    @Test
+    void testSummarizeLargeCatalogMapsChunksThenStreamsTheReduce() {
+        // Given
+        ArtifactSummarizer artifactSummarizer = this.newArtifactSummarizer(40);
+        int expectedChunks = new LineCatalogPromptEncoder(60).encode(this.entries, 40).size();
+        given(this.chatClient.generateAll(anyList())).willAnswer(invocation -> {
+            List<ChatRequest> chatRequests = invocation.getArgument(0);
+            assertThat(chatRequests).hasSize(expectedChunks); // all the chunks in one batch
+            return chatRequests.stream()
+                    .peek(chatRequest -> assertThat(chatRequest.messages().get(0).content()).contains("one part of a larger catalog"))
+                    .map(chatRequest -> response("Part of " + chatRequest.messages().get(1).content().split("\n").length))
+                    .toList();
+        });
+        given(this.chatClient.generateStream(any(), any())).willAnswer(invocation -> {
+            ChatRequest chatRequest = invocation.getArgument(0);
+            assertThat(chatRequest.messages().get(0).content()).contains("combine the given summaries");
+            assertThat(chatRequest.messages().get(1).content().split("\n\n")).hasSize(expectedChunks);
+            Consumer<String> onToken = invocation.getArgument(1);
+            onToken.accept("Ten artifacts");
+            return response("Ten artifacts");
+        });
+        List<String> tokens = new CopyOnWriteArrayList<>();
+
+        // When
+        String summary = artifactSummarizer.summarize(this.entries, tokens::add);
+
+        // Then
+        assertThat(summary).isEqualTo("Ten artifacts");
+        assertThat(tokens).containsExactly("Ten artifacts");
+        verify(this.chatClient, times(1)).generateAll(anyList());
+        verify(this.chatClient, never()).generate(any());
+        assertThat(this.meterRegistry.get("artifact.summary.chunks").summary().totalAmount()).isEqualTo(expectedChunks);
+        assertThat(this.meterRegistry.get("artifact.summary.stage").tag("stage", "map").timer().count()).isEqualTo(1);
+        assertThat(this.meterRegistry.get("artifact.summary.stage").tag("stage", "reduce").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testSummarizeReducesInRoundsWhenThePartialSummariesDoNotFit() {
+        // Given
+        ArtifactSummarizer artifactSummarizer = this.newArtifactSummarizer(40);
+        int expectedChunks = new LineCatalogPromptEncoder(60).encode(this.entries, 40).size();
+        List<Integer> reducedSummaries = new CopyOnWriteArrayList<>();
+        Function<ChatRequest, ChatResponse> answer = chatRequest -> {
+            if (chatRequest.messages().get(0).content().contains("combine the given summaries")) {
+                reducedSummaries.add(chatRequest.messages().get(1).content().split("\n\n").length);
+            }
+            return response("y".repeat(60)); // 15 tokens: only two of them fit in 40 tokens
+        };
+        given(this.chatClient.generateAll(anyList())).willAnswer(invocation -> {
+            List<ChatRequest> chatRequests = invocation.getArgument(0);
+            return chatRequests.stream().map(answer).toList();
+        });
+        given(this.chatClient.generate(any())).willAnswer(invocation -> answer.apply(invocation.getArgument(0)));
+
+        // When
+        String summary = artifactSummarizer.summarize(this.entries);
+
+        // Then
+        assertThat(summary).hasSize(60);
+        assertThat(reducedSummaries).allMatch(size -> size <= 2);
+        assertThat(reducedSummaries).hasSize(expectedChunks - 1); // each combination removes one summary
+    }
+
+    @Test
+    void testSummarizeShortensThePartialSummariesWhenNoTwoOfThemFit() {
+        // Given
+        ArtifactSummarizer artifactSummarizer = this.newArtifactSummarizer(40);
+        List<ChatRequest> reduceRequests = new CopyOnWriteArrayList<>();
+        Function<ChatRequest, ChatResponse> answer = chatRequest -> {
+            String prompt = chatRequest.messages().get(0).content();
+            if (prompt.contains("shorten the given summary")) {
+                assertThat(prompt).contains("at most 15 words");
+                return response("y".repeat(60)); // 15 tokens: two of them fit in 40 tokens
+            }
+            if (prompt.contains("combine the given summaries")) {
+                reduceRequests.add(chatRequest);
+            }
+            return response("x".repeat(200)); // 50 tokens: more than a prompt on its own
+        };
+        given(this.chatClient.generateAll(anyList())).willAnswer(invocation -> {
+            List<ChatRequest> chatRequests = invocation.getArgument(0);
+            return chatRequests.stream().map(answer).toList();
+        });
+        given(this.chatClient.generate(any())).willAnswer(invocation -> answer.apply(invocation.getArgument(0)));
+
+        // When
+        String summary = artifactSummarizer.summarize(this.entries);
+
+        // Then
+        assertThat(summary).hasSize(200);
+        assertThat(reduceRequests).isNotEmpty().allSatisfy(chatRequest ->
+                assertThat(CatalogPromptEncoder.estimateTokens(chatRequest.messages().get(1).content().length())).isLessThanOrEqualTo(40));
+    }
+
+    @Test
+    void testSummarizeFailsIfThePartialSummariesCanNotBeShortened() {
+        // Given
+        ArtifactSummarizer artifactSummarizer = this.newArtifactSummarizer(40);
+        given(this.chatClient.generateAll(anyList())).willAnswer(invocation -> {
+            List<ChatRequest> chatRequests = invocation.getArgument(0);
+            return chatRequests.stream().map(chatRequest -> response("x".repeat(200))).toList(); // ignores the length asked for
+        });
+
+        // When and Then
+        assertThatThrownBy(() -> artifactSummarizer.summarize(this.entries))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("The partial summaries don't fit in 40 tokens two at a time, even shortened; increase artifact.summary.chunk-tokens");
+        verify(this.chatClient, never()).generate(any());
+    }
+
+    @Test
+    void testSummarizeFailsIfAChunkFails() {
+        // Given
+        ArtifactSummarizer artifactSummarizer = this.newArtifactSummarizer(40);
+        given(this.chatClient.generateAll(anyList())).willThrow(HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", null, null, null));
+
+        // When and Then
+        assertThatThrownBy(() -> artifactSummarizer.summarize(this.entries, token -> {}))
+                .isInstanceOf(HttpClientErrorException.TooManyRequests.class);
+        verify(this.chatClient, never()).generateStream(any(), any());
+    }
+
+    private ArtifactSummarizer newArtifactSummarizer(int chunkTokens) {
+        return this.newArtifactSummarizer(chunkTokens, "lines");
+    }
+
+    private ArtifactSummarizer newArtifactSummarizer(int chunkTokens, String encoder) {
+        List<CatalogPromptEncoder> encoders = List.of(new LineCatalogPromptEncoder(60), new TableCatalogPromptEncoder(60));
+        return new ArtifactSummarizer(this.chatClient, this.meterRegistry, encoders, "llama3-8b-8192", chunkTokens, encoder);
+    }
+
+    private static ChatResponse response(String content) {
+        return new ChatResponse(List.of(new Choice(0, new Message("assistant", content))));
+    }
+}
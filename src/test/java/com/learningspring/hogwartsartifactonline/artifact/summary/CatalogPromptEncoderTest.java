@@ -0,0 +1,145 @@
+package com.learningspring.hogwartsartifactonline.artifact.summary;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogPromptEncoderTest {
+
+    static final String[] OWNERS = {"Albus Dumbledore", "Harry Potter", "Neville Longbottom", null};
+
+    LineCatalogPromptEncoder lineEncoder;
+
+    TableCatalogPromptEncoder tableEncoder;
+
+    List<CatalogEntry> entries;
+
+    @BeforeEach
+    void setUp() {
+        this.lineEncoder = new LineCatalogPromptEncoder(60);
+        this.tableEncoder = new TableCatalogPromptEncoder(60);
+
+        this.entries = IntStream.range(0, 200)
+                .mapToObj(i -> new CatalogEntry(String.valueOf(1250808601744904190L + i), "Artifact " + i, OWNERS[i % OWNERS.length],
+                                                "A magical object that does something remarkable, number " + i + "."))
+                .toList();
+    }
+
+    @Test
+    void testLineEncoderWritesOneArtifactPerLine() {
+        // Given
+        List<CatalogEntry> entries = List.of(
+                new CatalogEntry("1250808601744904192", "Invisibility Cloak", null, "A cloak that makes its wearer invisible."),
+                new CatalogEntry("1250808601744904191", "Deluminator", "Albus Dumbledore", "A device\nthat absorbs light.")
+        );
+
+        // When
+        List<String> chunks = this.lineEncoder.encode(entries, 3000);
+
+        // Then
+        assertThat(chunks).containsExactly("""
+                Deluminator (owned by Albus Dumbledore): A device that absorbs light.
+                Invisibility Cloak (owned by nobody): A cloak that makes its wearer invisible.""");
+    }
+
+    @Test
+    void testTableEncoderWritesEachOwnerOnce() {
+        // Given
+        List<CatalogEntry> entries = List.of(
+                new CatalogEntry("1250808601744904191", "Deluminator", "Albus Dumbledore", "A device that absorbs light."),
+                new CatalogEntry("1250808601744904192", "Elder Wand", "Albus Dumbledore", "The most powerful wand | made of elder wood."),
+                new CatalogEntry("1250808601744904193", "Invisibility Cloak", "Harry Potter", "A cloak that makes its wearer invisible."),
+                new CatalogEntry("1250808601744904194", "Resurrection Stone", null, "A stone that brings back the dead.")
+        );
+
+        // When
+        List<String> chunks = this.tableEncoder.encode(entries, 3000);
+
+        // Then
+        assertThat(chunks).containsExactly("""
+                Owners: 1=Albus Dumbledore; 2=Harry Potter
+                Deluminator|1|A device that absorbs light.
+                Elder Wand|1|The most powerful wand / made of elder wood.
+                Invisibility Cloak|2|A cloak that makes its wearer invisible.
+                Resurrection Stone|-|A stone that brings back the dead.""");
+    }
+
+    @Test
+    void testEncodersAreDeterministicWhateverTheOrderOfTheEntries() {
+        // Given
+        List<CatalogEntry> shuffled = new ArrayList<>(this.entries);
+        Collections.reverse(shuffled);
+
+        // When and Then
+        assertThat(this.lineEncoder.encode(shuffled, 500)).isEqualTo(this.lineEncoder.encode(this.entries, 500));
+        assertThat(this.tableEncoder.encode(shuffled, 500)).isEqualTo(this.tableEncoder.encode(this.entries, 500));
+    }
+
+    @Test
+    void testEncodersKeepEachChunkWithinTheBudget() {
+        // Given
+        List<CatalogEntry> entries = new ArrayList<>(this.entries);
+        entries.add(new CatalogEntry("1250808601744904100", "Large", null, "x".repeat(1000)));
+
+        for (CatalogPromptEncoder encoder : List.of(this.lineEncoder, this.tableEncoder)) {
+            // When
+            List<String> chunks = encoder.encode(entries, 200);
+
+            // Then
+            assertThat(chunks).hasSizeGreaterThan(2);
+            assertThat(chunks).allSatisfy(chunk -> assertThat(CatalogPromptEncoder.estimateTokens(chunk.length())).isLessThanOrEqualTo(200));
+            assertThat(chunks.stream().mapToLong(chunk -> chunk.lines().filter(line -> !line.startsWith("Owners: ")).count()).sum())
+                    .isEqualTo(entries.size()); // nothing lost nor duplicated
+        }
+    }
+
+    @Test
+    void testTableEncoderNumbersTheOwnersOfEachChunk() {
+        // When
+        List<String> chunks = this.tableEncoder.encode(this.entries, 200);
+
+        // Then
+        assertThat(chunks).hasSizeGreaterThan(2).allSatisfy(chunk -> {
+            List<String> lines = chunk.lines().toList();
+            boolean hasOwners = lines.get(0).startsWith("Owners: 1=");
+            int owners = hasOwners ? lines.get(0).split("; ").length : 0;
+            assertThat(lines.subList(hasOwners ? 1 : 0, lines.size())).allSatisfy(row -> {
+                String owner = row.split("\\|")[1];
+                assertThat(owner.equals("-") || Integer.parseInt(owner) <= owners).isTrue();
+            });
+        });
+    }
+
+    @Test
+    void testTruncateCutsLongDescriptionsAtAWord() {
+        assertThat(CatalogPromptEncoder.truncate("A short description.", 10)).isEqualTo("A short description.");
+        assertThat(CatalogPromptEncoder.truncate("A device that absorbs and returns the light of any light source.", 5))
+                .isEqualTo("A device that…");
+        assertThat(CatalogPromptEncoder.truncate("x".repeat(100), 5)).isEqualTo("x".repeat(19) + "…");
+    }
+
+    /**
+     * The prompt tokens of a catalog of 200 artifacts with 3 owners, with the line encoder and the table encoder. The
+     * latency of a completion grows with its prompt tokens, so fewer tokens also mean faster summaries.
+     */
+    @Test
+    void testTableEncoderTakesFewerTokensThanLineEncoder() {
+        // When
+        int lineTokens = this.tokens(this.lineEncoder.encode(this.entries, 3000));
+        int tableTokens = this.tokens(this.tableEncoder.encode(this.entries, 3000));
+
+        // Then
+        assertThat(tableTokens).isLessThan(lineTokens * 4 / 5);
+    }
+
+    private int tokens(List<String> chunks) {
+        return CatalogPromptEncoder.estimateTokens(chunks.stream().collect(Collectors.joining("\n\n")).length());
+    }
+}
@@ -0,0 +1,230 @@
+package com.learningspring.hogwartsartifactonline.artifact.summary;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learningspring.hogwartsartifactonline.artifact.ArtifactService;
+import com.learningspring.hogwartsartifactonline.artifact.cache.CatalogVersion;
+import com.learningspring.hogwartsartifactonline.artifact.dto.ArtifactDto;
+import com.learningspring.hogwartsartifactonline.client.rediscache.RedisCacheClient;
+import com.learningspring.hogwartsartifactonline.system.exception.ObjectNotFoundException;
+import com.learningspring.hogwartsartifactonline.system.exception.SummaryJobRejectedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class SummaryJobServiceTest {
+
+    @Mock
+    ArtifactService artifactService;
+
+    @Mock
+    CatalogVersion catalogVersion;
+
+    @Mock
+    RedisCacheClient redisCacheClient;
+
+    @Mock
+    ExecutorService executor;
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    SummaryJobService summaryJobService;
+
+    @BeforeEach
+    void setUp() {
+        this.summaryJobService = new SummaryJobService(this.artifactService, this.catalogVersion, this.redisCacheClient,
+                                                       this.objectMapper, Duration.ofHours(1), this.executor);
+    }
+
+    @Test
+    void testSubmitClaimsTheCatalogVersionAndRunsInTheBackground() {
+        // Given
+        given(this.catalogVersion.current()).willReturn(7L);
+        given(this.redisCacheClient.setIfAbsent(eq("artifact-summary:version:7"), anyString(), anyLong(), eq(TimeUnit.MILLISECONDS)))
+                .willReturn(true);
+
+        // When
+        SummaryJob job = this.summaryJobService.submit();
+
+        // Then
+        assertThat(job.status()).isEqualTo(SummaryJob.Status.PENDING);
+        assertThat(job.catalogVersion()).isEqualTo(7L);
+        verify(this.redisCacheClient).set(eq("artifact-summary:job:" + job.id()), anyString(), anyLong(), eq(TimeUnit.MILLISECONDS));
+        verify(this.executor).execute(any(Runnable.class));
+    }
+
+    @Test
+    void testSubmitAtTheSameCatalogVersionSharesTheJob() throws Exception {
+        // Given
+        SummaryJob runningJob = new SummaryJob("job-1", SummaryJob.Status.RUNNING, 7, null, null);
+        given(this.catalogVersion.current()).willReturn(7L);
+        given(this.redisCacheClient.setIfAbsent(eq("artifact-summary:version:7"), anyString(), anyLong(), eq(TimeUnit.MILLISECONDS)))
+                .willReturn(false);
+        given(this.redisCacheClient.get("artifact-summary:version:7")).willReturn("job-1");
+        given(this.redisCacheClient.get("artifact-summary:job:job-1")).willReturn(this.objectMapper.writeValueAsString(runningJob));
+
+        // When
+        SummaryJob job = this.summaryJobService.submit();
+
+        // Then
+        assertThat(job).isEqualTo(runningJob);
+        verify(this.executor, never()).execute(any(Runnable.class));
+    }
+
+    @Test
+    void testSubmitReplacesAFailedJob() throws Exception {
+        // Given
+        given(this.catalogVersion.current()).willReturn(7L);
+        given(this.redisCacheClient.setIfAbsent(eq("artifact-summary:version:7"), anyString(), anyLong(), eq(TimeUnit.MILLISECONDS)))
+                .willReturn(false);
+        given(this.redisCacheClient.get("artifact-summary:version:7")).willReturn("job-1");
+        given(this.redisCacheClient.get("artifact-summary:job:job-1"))
+                .willReturn(this.objectMapper.writeValueAsString(new SummaryJob("job-1", SummaryJob.Status.FAILED, 7, null, "Timeout")));
+
+        given(this.redisCacheClient.setIfEquals(eq("artifact-summary:version:7"), eq("job-1"), anyString(), anyLong(), eq(TimeUnit.MILLISECONDS)))
+                .willReturn(true);
+
+        // When
+        SummaryJob job = this.summaryJobService.submit();
+
+        // Then
+        assertThat(job.id()).isNotEqualTo("job-1");
+        verify(this.redisCacheClient).setIfEquals(eq("artifact-summary:version:7"), eq("job-1"), eq(job.id()), anyLong(), eq(TimeUnit.MILLISECONDS));
+        verify(this.executor).execute(any(Runnable.class));
+    }
+
+    @Test
+    void testSubmitSharesTheJobOfARequestThatReplacedTheFailedJobFirst() throws Exception {
+        // Given
+        SummaryJob pendingJob = new SummaryJob("job-2", SummaryJob.Status.PENDING, 7, null, null);
+        given(this.catalogVersion.current()).willReturn(7L);
+        given(this.redisCacheClient.setIfAbsent(eq("artifact-summary:version:7"), anyString(), anyLong(), eq(TimeUnit.MILLISECONDS)))
+                .willReturn(false);
+        given(this.redisCacheClient.get("artifact-summary:version:7")).willReturn("job-1", "job-2");
+        given(this.redisCacheClient.get("artifact-summary:job:job-1"))
+                .willReturn(this.objectMapper.writeValueAsString(new SummaryJob("job-1", SummaryJob.Status.FAILED, 7, null, "Timeout")));
+        given(this.redisCacheClient.get("artifact-summary:job:job-2")).willReturn(this.objectMapper.writeValueAsString(pendingJob));
+        given(this.redisCacheClient.setIfEquals(eq("artifact-summary:version:7"), eq("job-1"), anyString(), anyLong(), eq(TimeUnit.MILLISECONDS)))
+                .willReturn(false);
+
+        // When
+        SummaryJob job = this.summaryJobService.submit();
+
+        // Then
+        assertThat(job).isEqualTo(pendingJob);
+        verify(this.executor, never()).execute(any(Runnable.class));
+    }
+
+    @Test
+    void testSubmitWhenRedisIsUnavailable() {
+        // Given
+        given(this.catalogVersion.current()).willReturn(7L);
+        willThrow(new RedisConnectionFailureException("Connection refused"))
+                .given(this.redisCacheClient).set(anyString(), anyString(), anyLong(), eq(TimeUnit.MILLISECONDS));
+
+        // When and Then
+        assertThatThrownBy(() -> this.summaryJobService.submit())
+                .isInstanceOf(SummaryJobRejectedException.class)
+                .hasMessage("The summary jobs are unavailable, please try again later.");
+        verify(this.executor, never()).execute(any(Runnable.class));
+    }
+
+    @Test
+    void testSubmitWhenTheQueueIsFull() {
+        // Given
+        given(this.catalogVersion.current()).willReturn(7L);
+        given(this.redisCacheClient.setIfAbsent(eq("artifact-summary:version:7"), anyString(), anyLong(), eq(TimeUnit.MILLISECONDS)))
+                .willReturn(true);
+        willThrow(new RejectedExecutionException()).given(this.executor).execute(any(Runnable.class));
+
+        // When and Then: the version is released for the next request
+        assertThatThrownBy(() -> this.summaryJobService.submit()).isInstanceOf(SummaryJobRejectedException.class);
+        verify(this.redisCacheClient).deleteIfEquals(eq("artifact-summary:version:7"), anyString());
+    }
+
+    @Test
+    void testRunStoresTheSummary() throws Exception {
+        // Given
+        SummaryJob job = new SummaryJob("job-1", SummaryJob.Status.PENDING, 7, null, null);
+        List<ArtifactDto> artifactDtos = List.of(new ArtifactDto("1250808601744904191", "Deluminator", "Description", "ImageUrl", null));
+        given(this.artifactService.findAllDtos()).willReturn(artifactDtos);
+        given(this.artifactService.summarize(artifactDtos)).willReturn("One artifact, the Deluminator.");
+
+        // When
+        this.summaryJobService.run(job);
+
+        // Then
+        List<SummaryJob> savedJobs = this.savedJobs(2);
+        assertThat(savedJobs.get(0).status()).isEqualTo(SummaryJob.Status.RUNNING);
+        assertThat(savedJobs.get(1)).isEqualTo(new SummaryJob("job-1", SummaryJob.Status.SUCCEEDED, 7, "One artifact, the Deluminator.", null));
+    }
+
+    @Test
+    void testRunStoresTheError() throws Exception {
+        // Given
+        given(this.artifactService.findAllDtos()).willReturn(List.of());
+        given(this.artifactService.summarize(List.of())).willThrow(new IllegalStateException("Rate limit exceeded"));
+
+        // When
+        this.summaryJobService.run(new SummaryJob("job-1", SummaryJob.Status.PENDING, 7, null, null));
+
+        // Then
+        assertThat(this.savedJobs(2).get(1)).isEqualTo(new SummaryJob("job-1", SummaryJob.Status.FAILED, 7, null, "Rate limit exceeded"));
+    }
+
+    @Test
+    void testRunReleasesTheCatalogVersionWhenTheFailureCantBeStored() {
+        // Given
+        willThrow(new RedisConnectionFailureException("Connection refused"))
+                .given(this.redisCacheClient).set(startsWith("artifact-summary:job:"), anyString(), anyLong(), eq(TimeUnit.MILLISECONDS));
+
+        // When
+        this.summaryJobService.run(new SummaryJob("job-1", SummaryJob.Status.PENDING, 7, null, null));
+
+        // Then: neither RUNNING nor FAILED could be stored, the next request starts a new job
+        verify(this.artifactService, never()).findAllDtos();
+        verify(this.redisCacheClient).deleteIfEquals("artifact-summary:version:7", "job-1");
+    }
+
+    @Test
+    void testFindByIdNotFound() {
+        assertThatThrownBy(() -> this.summaryJobService.findById("job-1"))
+                .isInstanceOf(ObjectNotFoundException.class)
+                .hasMessage("Could not find summary job with Id job-1 :(");
+    }
+
+    private List<SummaryJob> savedJobs(int count) throws Exception {
+        ArgumentCaptor<String> json = ArgumentCaptor.forClass(String.class);
+        verify(this.redisCacheClient, times(count))
+                .set(startsWith("artifact-summary:job:"), json.capture(), anyLong(), eq(TimeUnit.MILLISECONDS));
+        List<SummaryJob> jobs = new ArrayList<>();
+        for (String value : json.getAllValues()) {
+            jobs.add(this.objectMapper.readValue(value, SummaryJob.class));
+        }
+        return jobs;
+    }
+}
@@ -0,0 +1,28 @@
+package com.learningspring.hogwartsartifactonline.artifact.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ArtifactIdsTest {
+
+    @Test
+    void testToLongParsesArtifactIds() {
+        assertThat(ArtifactIds.toLong("1250808601744904192")).isEqualTo(1250808601744904192L);
+        assertThat(ArtifactIds.toLong("0")).isZero();
+        assertThat(ArtifactIds.toLong("9223372036854775807")).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void testToLongReturnsNoneForWhatIsNotAnArtifactId() {
+        assertThat(ArtifactIds.toLong(null)).isEqualTo(ArtifactIds.NONE);
+        assertThat(ArtifactIds.toLong("")).isEqualTo(ArtifactIds.NONE);
+        assertThat(ArtifactIds.toLong("abc")).isEqualTo(ArtifactIds.NONE);
+        assertThat(ArtifactIds.toLong("-1")).isEqualTo(ArtifactIds.NONE);
+        assertThat(ArtifactIds.toLong("+1")).isEqualTo(ArtifactIds.NONE);
+        assertThat(ArtifactIds.toLong("9223372036854775808")).isEqualTo(ArtifactIds.NONE);
+        assertThat(ArtifactIds.toLong("12345678901234567890")).isEqualTo(ArtifactIds.NONE);
+        assertThat(ArtifactIds.isValid("1250808601744904192")).isTrue();
+        assertThat(ArtifactIds.isValid("1250808601744904192'--")).isFalse();
+    }
+}
@@ -0,0 +1,113 @@
+package com.learningspring.hogwartsartifactonline.artifact.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongHashSetTest {
+
+    @Test
+    void testAddContainsAndRemove() {
+        // Given
+        LongHashSet set = new LongHashSet();
+
+        // When
+        boolean added = set.add(1250808601744904192L);
+        boolean addedAgain = set.add(1250808601744904192L);
+        set.add(0L);
+
+        // Then
+        assertThat(added).isTrue();
+        assertThat(addedAgain).isFalse();
+        assertThat(set.size()).isEqualTo(2);
+        assertThat(set.contains(1250808601744904192L)).isTrue();
+        assertThat(set.contains(0L)).isTrue();
+        assertThat(set.contains(1250808601744904193L)).isFalse();
+        assertThat(set.remove(0L)).isTrue();
+        assertThat(set.remove(1250808601744904192L)).isTrue();
+        assertThat(set.remove(1250808601744904192L)).isFalse();
+        assertThat(set.isEmpty()).isTrue();
+    }
+
+    @Test
+    void testGrowsAndKeepsEveryValue() {
+        // Given: snowflake-like ids, whose low bits are all 0
+        LongHashSet set = new LongHashSet();
+
+        // When
+        for (long i = 1; i <= 10_000; i++) {
+            set.add(i << 22);
+        }
+
+        // Then
+        assertThat(set.size()).isEqualTo(10_000);
+        for (long i = 1; i <= 10_000; i++) {
+            assertThat(set.contains(i << 22)).isTrue();
+        }
+        assertThat(set.toArray()).hasSize(10_000).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void testRemoveKeepsTheOtherValuesReachable() {
+        // Given
+        Random random = new Random(42);
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+
+        // When: values colliding in a small range, added and removed at random
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextInt(200);
+            if (random.nextBoolean()) {
+                assertThat(set.add(value)).isEqualTo(expected.add(value));
+            } else {
+                assertThat(set.remove(value)).isEqualTo(expected.remove(value));
+            }
+        }
+
+        // Then
+        assertThat(set.size()).isEqualTo(expected.size());
+        for (long value = 0; value < 200; value++) {
+            assertThat(set.contains(value)).isEqualTo(expected.contains(value));
+        }
+    }
+
+    @Test
+    void testRetainAllKeepsTheCommonValues() {
+        // Given
+        LongHashSet set = new LongHashSet();
+        LongHashSet other = new LongHashSet();
+        for (long value = 0; value < 100; value++) {
+            set.add(value);
+            other.add(value * 2);
+        }
+
+        // When
+        set.retainAll(other);
+
+        // Then
+        assertThat(set.size()).isEqualTo(50);
+        assertThat(set.contains(0L)).isTrue();
+        assertThat(set.contains(98L)).isTrue();
+        assertThat(set.contains(99L)).isFalse();
+        assertThat(other.size()).isEqualTo(100);
+    }
+
+    @Test
+    void testCopyIsIndependent() {
+        // Given
+        LongHashSet set = new LongHashSet();
+        set.add(1L);
+
+        // When
+        LongHashSet copy = new LongHashSet(set);
+        copy.add(2L);
+
+        // Then
+        assertThat(set.contains(2L)).isFalse();
+        assertThat(copy.toArray()).containsExactlyInAnyOrder(1L, 2L);
+    }
+}
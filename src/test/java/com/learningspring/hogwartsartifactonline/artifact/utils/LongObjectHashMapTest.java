@@ -0,0 +1,83 @@
+package com.learningspring.hogwartsartifactonline.artifact.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LongObjectHashMapTest {
+
+    @Test
+    void testPutGetAndRemove() {
+        // Given
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+
+        // When
+        String previous = map.put(1250808601744904192L, "Invisibility Cloak");
+        String replaced = map.put(1250808601744904192L, "Elder Wand");
+        map.put(0L, "Deluminator");
+
+        // Then
+        assertThat(previous).isNull();
+        assertThat(replaced).isEqualTo("Invisibility Cloak");
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.get(1250808601744904192L)).isEqualTo("Elder Wand");
+        assertThat(map.get(0L)).isEqualTo("Deluminator");
+        assertThat(map.get(1250808601744904193L)).isNull();
+        assertThat(map.remove(1250808601744904192L)).isEqualTo("Elder Wand");
+        assertThat(map.remove(1250808601744904192L)).isNull();
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    void testMatchesAHashMapUnderRandomChanges() {
+        // Given
+        Random random = new Random(42);
+        LongObjectHashMap<Integer> map = new LongObjectHashMap<>();
+        Map<Long, Integer> expected = new HashMap<>();
+
+        // When
+        for (int i = 0; i < 100_000; i++) {
+            long key = (long) random.nextInt(500) << 22;
+            if (random.nextInt(3) > 0) {
+                assertThat(map.put(key, i)).isEqualTo(expected.put(key, i));
+            } else {
+                assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+            }
+        }
+
+        // Then
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (long key = 0; key < 500; key++) {
+            assertThat(map.get(key << 22)).isEqualTo(expected.get(key << 22));
+        }
+    }
+
+    @Test
+    void testClearRemovesEveryMapping() {
+        // Given
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        for (long key = 0; key < 100; key++) {
+            map.put(key, "artifact " + key);
+        }
+
+        // When
+        map.clear();
+
+        // Then
+        assertThat(map.isEmpty()).isTrue();
+        assertThat(map.get(0L)).isNull();
+        assertThat(map.get(42L)).isNull();
+    }
+
+    @Test
+    void testPutRejectsNull() {
+        assertThatThrownBy(() -> new LongObjectHashMap<String>().put(1L, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("value can't be null");
+    }
+}
@@ -0,0 +1,157 @@
+package com.learningspring.hogwartsartifactonline.artifact.utils;
+
+import com.learningspring.hogwartsartifactonline.client.rediscache.RedisCacheClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class WorkerIdLeaseTest {
+
+    @Mock
+    RedisCacheClient redisCacheClient;
+
+    @Mock
+    ScheduledExecutorService heartbeat;
+
+    AtomicLong nanoClock;
+
+    WorkerIdLease workerIdLease;
+
+    @BeforeEach
+    void setUp() {
+        this.nanoClock = new AtomicLong(0);
+        this.workerIdLease = new WorkerIdLease(this.redisCacheClient, true, 0, 0, Duration.ofSeconds(30), Duration.ofSeconds(1),
+                                               this.heartbeat, this.nanoClock::get);
+    }
+
+    @Test
+    void testAcquireLeasesAFreeWorkerId() {
+        // Given: only worker id 100 is free
+        given(this.redisCacheClient.setIfAbsent(anyString(), anyString(), eq(30_000L), eq(TimeUnit.MILLISECONDS)))
+                .willAnswer(invocation -> invocation.getArgument(0).equals("id-worker:lease:100"));
+
+        // When
+        this.workerIdLease.acquire();
+
+        // Then: held once the ids of its previous holder are behind
+        assertThat(this.workerIdLease.datacenterId()).isEqualTo(3);
+        assertThat(this.workerIdLease.workerId()).isEqualTo(4);
+        assertThat(this.workerIdLease.isHeld()).isFalse();
+        this.advance(Duration.ofSeconds(1));
+        assertThat(this.workerIdLease.isHeld()).isTrue();
+        verify(this.heartbeat, times(1)).scheduleAtFixedRate(any(Runnable.class), eq(10_000L), eq(10_000L), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testAcquireFailsWhenAllWorkerIdsAreLeased() {
+        // Given
+        given(this.redisCacheClient.setIfAbsent(anyString(), anyString(), eq(30_000L), eq(TimeUnit.MILLISECONDS))).willReturn(false);
+
+        // When and Then
+        assertThatThrownBy(() -> this.workerIdLease.acquire())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("All 1024 worker ids are leased by other nodes");
+        verify(this.redisCacheClient, times(1024)).setIfAbsent(anyString(), anyString(), eq(30_000L), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testLeaseEndsWhenItCantBeRenewed() {
+        // Given
+        this.acquireWorkerId100();
+        given(this.redisCacheClient.expireIfEquals(eq("id-worker:lease:100"), anyString(), eq(30_000L), eq(TimeUnit.MILLISECONDS)))
+                .willReturn(true)
+                .willThrow(new RedisConnectionFailureException("Unable to connect to Redis"));
+
+        // When: renewed at 10 s, then Redis is unreachable
+        this.advance(Duration.ofSeconds(10));
+        this.workerIdLease.renew();
+        this.advance(Duration.ofSeconds(10));
+        this.workerIdLease.renew();
+
+        // Then: held until 30 s after the last renewal
+        this.advance(Duration.ofSeconds(19));
+        assertThat(this.workerIdLease.isHeld()).isTrue();
+        this.advance(Duration.ofSeconds(1));
+        assertThat(this.workerIdLease.isHeld()).isFalse();
+    }
+
+    @Test
+    void testLeaseEndsWhenAnotherNodeHoldsTheWorkerId() {
+        // Given
+        this.acquireWorkerId100();
+        given(this.redisCacheClient.expireIfEquals(eq("id-worker:lease:100"), anyString(), eq(30_000L), eq(TimeUnit.MILLISECONDS))).willReturn(false);
+        given(this.redisCacheClient.setIfAbsent(eq("id-worker:lease:100"), anyString(), eq(30_000L), eq(TimeUnit.MILLISECONDS)))
+                .willReturn(false)
+                .willReturn(true);
+
+        // When
+        this.advance(Duration.ofSeconds(10));
+        this.workerIdLease.renew();
+
+        // Then: no ids until the worker id is free again and the ids of the other node are behind
+        assertThat(this.workerIdLease.isHeld()).isFalse();
+        this.advance(Duration.ofSeconds(10));
+        this.workerIdLease.renew();
+        assertThat(this.workerIdLease.isHeld()).isFalse();
+        this.advance(Duration.ofSeconds(1));
+        assertThat(this.workerIdLease.isHeld()).isTrue();
+    }
+
+    @Test
+    void testReleaseDeletesTheLease() {
+        // Given
+        this.acquireWorkerId100();
+
+        // When
+        this.workerIdLease.release();
+
+        // Then
+        assertThat(this.workerIdLease.isHeld()).isFalse();
+        verify(this.heartbeat, times(1)).shutdownNow();
+        verify(this.redisCacheClient, times(1)).deleteIfEquals(eq("id-worker:lease:100"), anyString());
+    }
+
+    @Test
+    void testWithoutLeaseTheConfiguredWorkerIdIsHeld() {
+        // Given
+        WorkerIdLease configured = new WorkerIdLease(this.redisCacheClient, false, 3, 4, Duration.ofSeconds(30), Duration.ofSeconds(1),
+                                                     this.heartbeat, this.nanoClock::get);
+
+        // When and Then
+        assertThat(configured.datacenterId()).isEqualTo(3);
+        assertThat(configured.workerId()).isEqualTo(4);
+        assertThat(configured.isHeld()).isTrue();
+        configured.release();
+        verifyNoInteractions(this.redisCacheClient);
+    }
+
+    private void acquireWorkerId100() {
+        given(this.redisCacheClient.setIfAbsent(anyString(), anyString(), eq(30_000L), eq(TimeUnit.MILLISECONDS)))
+                .willAnswer(invocation -> invocation.getArgument(0).equals("id-worker:lease:100"));
+        this.workerIdLease.acquire();
+        this.advance(Duration.ofSeconds(1));
+    }
+
+    private void advance(Duration duration) {
+        this.nanoClock.addAndGet(duration.toNanos());
+    }
+}
@@ -0,0 +1,206 @@
+package com.learningspring.hogwartsartifactonline.client.ai.chat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatRequest;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatResponse;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.Choice;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.Message;
+import com.learningspring.hogwartsartifactonline.client.rediscache.RedisCacheClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class CachingChatClientTest {
+
+    @Mock
+    ChatClient delegate;
+
+    @Mock
+    RedisCacheClient redisCacheClient;
+
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    SimpleMeterRegistry meterRegistry;
+
+    CachingChatClient cachingChatClient;
+
+    ChatRequest chatRequest;
+
+    ChatResponse chatResponse;
+
+    @BeforeEach
+    void setUp() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.cachingChatClient = new CachingChatClient(this.delegate, this.redisCacheClient, this.objectMapper,
+                                                       this.meterRegistry, 100, Duration.ofHours(1));
+        this.chatRequest = new ChatRequest("llama3-8b-8192", List.of(new Message("user", "A json array.")));
+        this.chatResponse = new ChatResponse(List.of(new Choice(0, new Message("assistant", "A summary"))));
+    }
+
+    @Test
+    void testKeyIsStableAndIgnoresTheStreamFlag() {
+        String key = this.cachingChatClient.keyFor(this.chatRequest);
+
+        assertThat(key).startsWith("chat-completion:").hasSize("chat-completion:".length() + 64);
+        assertThat(this.cachingChatClient.keyFor(new ChatRequest("llama3-8b-8192", List.of(new Message("user", "A json array.")))))
+                .isEqualTo(key);
+        assertThat(this.cachingChatClient.keyFor(this.chatRequest.withStream(true))).isEqualTo(key);
+        assertThat(this.cachingChatClient.keyFor(new ChatRequest("llama3-70b-8192", this.chatRequest.messages()))).isNotEqualTo(key);
+        assertThat(this.cachingChatClient.keyFor(new ChatRequest("llama3-8b-8192", List.of(new Message("user", "Another json array.")))))
+                .isNotEqualTo(key);
+    }
+
+    @Test
+    void testGenerateMissThenLocalHit() throws Exception {
+        // Given
+        String key = this.cachingChatClient.keyFor(this.chatRequest);
+        given(this.delegate.generate(this.chatRequest)).willReturn(this.chatResponse);
+
+        // When
+        ChatResponse first = this.cachingChatClient.generate(this.chatRequest);
+        ChatResponse second = this.cachingChatClient.generate(this.chatRequest);
+
+        // Then
+        assertThat(first).isEqualTo(this.chatResponse);
+        assertThat(second).isEqualTo(this.chatResponse);
+        verify(this.delegate, times(1)).generate(this.chatRequest);
+        verify(this.redisCacheClient).set(eq(key), eq(this.objectMapper.writeValueAsString(this.chatResponse)), anyLong(), eq(TimeUnit.MILLISECONDS));
+        assertThat(this.meterRegistry.counter("ai.chat.cache", "result", "miss", "level", "none").count()).isEqualTo(1);
+        assertThat(this.meterRegistry.counter("ai.chat.cache", "result", "hit", "level", "local").count()).isEqualTo(1);
+    }
+
+    @Test
+    void testGenerateRedisHit() throws Exception {
+        // Given
+        String key = this.cachingChatClient.keyFor(this.chatRequest);
+        given(this.redisCacheClient.get(key)).willReturn(this.objectMapper.writeValueAsString(this.chatResponse));
+
+        // When
+        ChatResponse chatResponse = this.cachingChatClient.generate(this.chatRequest);
+
+        // Then
+        assertThat(chatResponse).isEqualTo(this.chatResponse);
+        verify(this.delegate, never()).generate(any());
+        assertThat(this.meterRegistry.counter("ai.chat.cache", "result", "hit", "level", "redis").count()).isEqualTo(1);
+    }
+
+    @Test
+    void testGenerateWhenRedisIsDown() {
+        // Given
+        given(this.redisCacheClient.get(anyString())).willThrow(new RedisConnectionFailureException("Connection refused"));
+        given(this.delegate.generate(this.chatRequest)).willReturn(this.chatResponse);
+
+        // When
+        ChatResponse chatResponse = this.cachingChatClient.generate(this.chatRequest);
+
+        // Then
+        assertThat(chatResponse).isEqualTo(this.chatResponse);
+    }
+
+    @Test
+    void testConcurrentIdenticalRequestsShareOneCompletion() throws Exception {
+        // Given
+        CountDownLatch firstRequestStarted = new CountDownLatch(1);
+        CountDownLatch modelAnswers = new CountDownLatch(1);
+        given(this.delegate.generate(this.chatRequest)).willAnswer(invocation -> {
+            firstRequestStarted.countDown();
+            modelAnswers.await(5, TimeUnit.SECONDS);
+            return this.chatResponse;
+        });
+
+        // When
+        CompletableFuture<ChatResponse> first = CompletableFuture.supplyAsync(() -> this.cachingChatClient.generate(this.chatRequest));
+        assertThat(firstRequestStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<ChatResponse> second = CompletableFuture.supplyAsync(() -> this.cachingChatClient.generate(this.chatRequest));
+        while (this.meterRegistry.counter("ai.chat.cache", "result", "hit", "level", "in-flight").count() == 0) {
+            Thread.onSpinWait(); // until the second request waits for the first one
+        }
+        modelAnswers.countDown();
+
+        // Then
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(this.chatResponse);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(this.chatResponse);
+        verify(this.delegate, times(1)).generate(this.chatRequest);
+    }
+
+    @Test
+    void testFailedCompletionIsNotCached() {
+        // Given
+        given(this.delegate.generate(this.chatRequest))
+                .willThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE))
+                .willReturn(this.chatResponse);
+
+        // When and Then
+        assertThatThrownBy(() -> this.cachingChatClient.generate(this.chatRequest)).isInstanceOf(HttpServerErrorException.class);
+        assertThat(this.cachingChatClient.generate(this.chatRequest)).isEqualTo(this.chatResponse);
+        verify(this.delegate, times(2)).generate(this.chatRequest);
+    }
+
+    @Test
+    void testGenerateStreamMissStreamsThenHitReplays() {
+        // Given
+        given(this.delegate.generateStream(eq(this.chatRequest), any())).willAnswer(invocation -> {
+            Consumer<String> onToken = invocation.getArgument(1);
+            onToken.accept("A ");
+            onToken.accept("summary");
+            return this.chatResponse;
+        });
+        List<String> firstTokens = new ArrayList<>();
+        List<String> secondTokens = new ArrayList<>();
+
+        // When
+        this.cachingChatClient.generateStream(this.chatRequest, firstTokens::add);
+        ChatResponse chatResponse = this.cachingChatClient.generateStream(this.chatRequest, secondTokens::add);
+
+        // Then
+        assertThat(firstTokens).containsExactly("A ", "summary");
+        assertThat(secondTokens).containsExactly("A summary");
+        assertThat(chatResponse).isEqualTo(this.chatResponse);
+        verify(this.delegate, times(1)).generateStream(eq(this.chatRequest), any());
+    }
+
+    @Test
+    void testGenerateAllOnlySendsTheMissingRequestsOnce() {
+        // Given
+        ChatRequest otherRequest = new ChatRequest("llama3-8b-8192", List.of(new Message("user", "Another json array.")));
+        ChatResponse otherResponse = new ChatResponse(List.of(new Choice(0, new Message("assistant", "Another summary"))));
+        given(this.delegate.generate(this.chatRequest)).willReturn(this.chatResponse);
+        this.cachingChatClient.generate(this.chatRequest); // cached
+        given(this.delegate.generateAll(List.of(otherRequest))).willReturn(List.of(otherResponse));
+
+        // When
+        List<ChatResponse> chatResponses = this.cachingChatClient.generateAll(List.of(otherRequest, this.chatRequest, otherRequest));
+
+        // Then
+        assertThat(chatResponses).containsExactly(otherResponse, this.chatResponse, otherResponse);
+        verify(this.delegate, times(1)).generateAll(List.of(otherRequest));
+        assertThat(this.cachingChatClient.generate(otherRequest)).isEqualTo(otherResponse); // cached as well
+        verify(this.delegate, never()).generate(otherRequest);
+    }
+}
@@ -0,0 +1,49 @@
+package com.learningspring.hogwartsartifactonline.client.ai.chat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learningspring.hogwartsartifactonline.client.http.OutboundHttpClients;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ChatEndpointsTest {
+
+    @Test
+    void testFallbackEndpointsFollowGroqInOrder() {
+        // Given
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("outbound-http.defaults.read-timeout", "10s")
+                .withProperty("outbound-http.defaults.max-concurrent-requests", "20")
+                .withProperty("outbound-http.defaults.max-wait", "100ms")
+                .withProperty("outbound-http.defaults.max-retries", "2")
+                .withProperty("outbound-http.defaults.backoff", "100ms")
+                .withProperty("outbound-http.defaults.max-backoff", "2s")
+                .withProperty("outbound-http.defaults.max-retry-time", "5s")
+                .withProperty("outbound-http.defaults.retry-methods", "GET")
+                .withProperty("ai.chat.fallback-endpoints[0].name", "openrouter")
+                .withProperty("ai.chat.fallback-endpoints[0].endpoint", "https://openrouter.ai/api/v1/chat/completions")
+                .withProperty("ai.chat.fallback-endpoints[0].api-key", "api-key")
+                .withProperty("ai.chat.fallback-endpoints[0].model", "meta-llama/llama-3-8b-instruct")
+                .withProperty("ai.chat.fallback-endpoints[0].requests-per-minute", "20")
+                .withProperty("ai.chat.fallback-endpoints[0].tokens-per-minute", "20000");
+        OutboundHttpClients outboundHttpClients = new OutboundHttpClients(environment, new SimpleMeterRegistry(), Duration.ofSeconds(5));
+        GroqChatClient groqChatClient = mock(GroqChatClient.class);
+
+        // When
+        ChatEndpoints chatEndpoints = new ChatEndpoints(groqChatClient, outboundHttpClients, new ObjectMapper(), environment, 256, 2, 1);
+
+        // Then
+        List<ChatEndpoint> endpoints = chatEndpoints.list();
+        assertThat(endpoints).extracting(ChatEndpoint::name).containsExactly("groq", "openrouter");
+        assertThat(endpoints.get(0).chatClient()).isSameAs(groqChatClient);
+        assertThat(endpoints.get(1).model()).isEqualTo("meta-llama/llama-3-8b-instruct");
+        assertThat(endpoints.get(1).chatClient()).isInstanceOf(GroqChatClient.class);
+        chatEndpoints.shutdown();
+    }
+}
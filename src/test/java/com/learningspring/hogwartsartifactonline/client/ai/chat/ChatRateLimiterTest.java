@@ -0,0 +1,119 @@
+package com.learningspring.hogwartsartifactonline.client.ai.chat;
+
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatRequest;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ChatRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private ChatRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        // 60 requests and 6000 tokens per minute: one request and 100 tokens per second
+        this.rateLimiter = new ChatRateLimiter(60, 6000, 50, this.now::get);
+    }
+
+    @Test
+    void testRequestsWaitOnceTheRequestBucketIsEmpty() {
+        // Given
+        for (int i = 0; i < 60; i++) {
+            assertThat(this.rateLimiter.tryAcquire(1)).isZero();
+        }
+
+        // When
+        long waitNanos = this.rateLimiter.tryAcquire(1);
+
+        // Then
+        assertThat(waitNanos).isCloseTo(TimeUnit.SECONDS.toNanos(1), within(1000L));
+        this.now.addAndGet(waitNanos);
+        assertThat(this.rateLimiter.tryAcquire(1)).isZero();
+    }
+
+    @Test
+    void testRequestsWaitOnceTheTokenBucketIsEmpty() {
+        // Given
+        assertThat(this.rateLimiter.tryAcquire(5900)).isZero();
+
+        // When and Then
+        assertThat(this.rateLimiter.tryAcquire(300)).isCloseTo(TimeUnit.SECONDS.toNanos(2), within(1000L)); // 200 missing tokens
+        assertThat(this.rateLimiter.tryAcquire(100000)).isCloseTo(TimeUnit.SECONDS.toNanos(59), within(1000L)); // waits for a full bucket
+    }
+
+    @Test
+    void testRemainingHeadersShrinkTheBuckets() {
+        // Given
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("x-ratelimit-remaining-requests", "2");
+        headers.set("x-ratelimit-remaining-tokens", "5000");
+
+        // When
+        this.rateLimiter.update(headers);
+
+        // Then
+        assertThat(this.rateLimiter.tryAcquire(1)).isZero();
+        assertThat(this.rateLimiter.tryAcquire(1)).isZero();
+        assertThat(this.rateLimiter.tryAcquire(1)).isPositive();
+    }
+
+    @Test
+    void testExhaustedLimitPausesUntilItsReset() {
+        // Given
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("x-ratelimit-remaining-tokens", "0");
+        headers.set("x-ratelimit-reset-tokens", "7.66s");
+
+        // When
+        this.rateLimiter.update(headers);
+
+        // Then
+        assertThat(this.rateLimiter.tryAcquire(1)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(7660));
+    }
+
+    @Test
+    void testTooManyRequestsPausesForTheRetryAfter() {
+        // Given
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "3");
+
+        // When
+        this.rateLimiter.onTooManyRequests(headers);
+
+        // Then
+        assertThat(this.rateLimiter.tryAcquire(1)).isEqualTo(TimeUnit.SECONDS.toNanos(3));
+        this.now.addAndGet(TimeUnit.SECONDS.toNanos(3));
+        assertThat(this.rateLimiter.tryAcquire(1)).isZero();
+    }
+
+    @Test
+    void testEstimateTokensCountsTheMessagesAndTheAnswer() {
+        ChatRequest chatRequest = new ChatRequest("llama3-8b-8192", List.of(
+                new Message("system", "x".repeat(100)),
+                new Message("user", "x".repeat(300))
+        ));
+
+        assertThat(this.rateLimiter.estimateTokens(chatRequest)).isEqualTo(100 + 50);
+    }
+
+    @Test
+    void testParseDuration() {
+        assertThat(ChatRateLimiter.parseDuration("7.66s")).isEqualTo(Duration.ofMillis(7660));
+        assertThat(ChatRateLimiter.parseDuration("2m59.56s")).isEqualTo(Duration.ofMillis(179560));
+        assertThat(ChatRateLimiter.parseDuration("1h2m")).isEqualTo(Duration.ofMinutes(62));
+        assertThat(ChatRateLimiter.parseDuration("120ms")).isEqualTo(Duration.ofMillis(120));
+        assertThat(ChatRateLimiter.parseDuration("soon")).isNull();
+        assertThat(ChatRateLimiter.parseDuration(null)).isNull();
+    }
+}
@@ -0,0 +1,145 @@
+package com.learningspring.hogwartsartifactonline.client.ai.chat;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatRequest;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatResponse;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.Choice;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.Message;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Runs GroqChatClient.generateAll against a local server that answers the requests concurrently, like the real API.
+ */
+class GroqChatClientBatchTest {
+
+    private HttpServer server;
+
+    private ExecutorService serverExecutor;
+
+    private GroqChatClient groqChatClient;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private final AtomicInteger concurrentRequests = new AtomicInteger();
+
+    private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.serverExecutor = Executors.newFixedThreadPool(8);
+        this.server.setExecutor(this.serverExecutor);
+        this.server.start();
+
+        this.groqChatClient = new GroqChatClient(
+                "http://localhost:" + this.server.getAddress().getPort() + "/openai/v1/chat/completions",
+                "api-key",
+                RestClient.builder().requestFactory(new JdkClientHttpRequestFactory()),
+                this.objectMapper,
+                new ChatRateLimiter(1000, 1_000_000, 0),
+                Executors.newFixedThreadPool(2),
+                1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.groqChatClient.shutdown();
+        this.server.stop(0);
+        this.serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void testGenerateAllKeepsTheOrderAndRetriesTooManyRequests() {
+        // Given
+        AtomicInteger tooManyRequests = new AtomicInteger();
+        this.server.createContext("/openai/v1/chat/completions", exchange -> {
+            String content = this.userContent(exchange);
+            if (content.equals("Chunk 3") && tooManyRequests.getAndIncrement() == 0) {
+                exchange.getResponseHeaders().set("Retry-After", "0");
+                this.respond(exchange, 429, "{\"error\":{\"message\":\"Rate limit reached\"}}");
+                return;
+            }
+            this.respond(exchange, 200, this.objectMapper.writeValueAsString(
+                    new ChatResponse(List.of(new Choice(0, new Message("assistant", "Summary of " + content))))));
+        });
+        List<ChatRequest> chatRequests = IntStream.range(0, 8)
+                .mapToObj(i -> new ChatRequest("llama3-8b-8192", List.of(new Message("user", "Chunk " + i))))
+                .toList();
+
+        // When
+        List<ChatResponse> chatResponses = this.groqChatClient.generateAll(chatRequests);
+
+        // Then
+        assertThat(chatResponses)
+                .extracting(chatResponse -> chatResponse.choices().get(0).message().content())
+                .containsExactly(IntStream.range(0, 8).mapToObj(i -> "Summary of Chunk " + i).toArray(String[]::new));
+        assertThat(this.requests.get()).isEqualTo(9); // chunk 3 twice
+        assertThat(this.maxConcurrentRequests.get()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void testGenerateAllFailsOnceTheRetriesAreExhausted() {
+        // Given
+        this.server.createContext("/openai/v1/chat/completions", exchange -> {
+            this.userContent(exchange);
+            exchange.getResponseHeaders().set("Retry-After", "0");
+            this.respond(exchange, 429, "{\"error\":{\"message\":\"Rate limit reached\"}}");
+        });
+        List<ChatRequest> chatRequests = List.of(new ChatRequest("llama3-8b-8192", List.of(new Message("user", "Chunk 0"))));
+
+        // When
+        Throwable thrown = catchThrowable(() -> this.groqChatClient.generateAll(chatRequests));
+
+        // Then
+        assertThat(thrown).isInstanceOf(HttpClientErrorException.TooManyRequests.class);
+        assertThat(this.requests.get()).isEqualTo(2); // the request and its retry
+    }
+
+    private String userContent(HttpExchange exchange) throws IOException {
+        this.requests.incrementAndGet();
+        ChatRequest chatRequest = this.objectMapper.readValue(exchange.getRequestBody(), ChatRequest.class);
+        return chatRequest.messages().get(0).content();
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        int concurrent = this.concurrentRequests.incrementAndGet();
+        this.maxConcurrentRequests.accumulateAndGet(concurrent, Math::max);
+        try {
+            TimeUnit.MILLISECONDS.sleep(20); // long enough for the requests to overlap
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.concurrentRequests.decrementAndGet();
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
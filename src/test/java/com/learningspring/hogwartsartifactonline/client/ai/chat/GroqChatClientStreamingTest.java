@@ -0,0 +1,155 @@
+package com.learningspring.hogwartsartifactonline.client.ai.chat;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatRequest;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatResponse;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.Message;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Runs GroqChatClient.generateStream against a local server that writes the events one by one, like the real API,
+ * since MockRestServiceServer can only answer with a whole body.
+ */
+class GroqChatClientStreamingTest {
+
+    private HttpServer server;
+
+    private GroqChatClient groqChatClient;
+
+    private ChatRequest chatRequest;
+
+    private final AtomicReference<String> requestBody = new AtomicReference<>();
+
+    // Counted down by the test once it got the first token, so the server can end the stream
+    private final CountDownLatch firstTokenReceived = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.server.start();
+
+        ObjectMapper objectMapper = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.groqChatClient = new GroqChatClient(
+                "http://localhost:" + this.server.getAddress().getPort() + "/openai/v1/chat/completions",
+                "api-key",
+                RestClient.builder().requestFactory(new JdkClientHttpRequestFactory()),
+                objectMapper,
+                new ChatRateLimiter(1000, 1_000_000, 0),
+                Executors.newSingleThreadExecutor(),
+                0);
+
+        this.chatRequest = new ChatRequest("llama3-8b-8192", List.of(new Message("user", "A json array.")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.groqChatClient.shutdown();
+        this.server.stop(0);
+    }
+
+    @Test
+    void testGenerateStreamPassesTokensAsTheyArrive() {
+        // Given
+        this.server.createContext("/openai/v1/chat/completions", exchange -> {
+            this.requestBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                writeEvent(out, "{\"id\":\"chatcmpl-1\",\"object\":\"chat.completion.chunk\",\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\",\"content\":\"\"},\"finish_reason\":null}]}");
+                writeEvent(out, "{\"id\":\"chatcmpl-1\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\"Six\"},\"finish_reason\":null}]}");
+                // The rest is only sent once the client got the first token, which proves it didn't wait for the end
+                awaitFirstToken();
+                out.write(": keep-alive comment\n\n".getBytes(StandardCharsets.UTF_8));
+                writeEvent(out, "{\"id\":\"chatcmpl-1\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\" artifacts\"},\"finish_reason\":null}]}");
+                writeEvent(out, "{\"id\":\"chatcmpl-1\",\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}],\"x_groq\":{\"usage\":{\"total_tokens\":42}}}");
+                writeEvent(out, "[DONE]");
+                writeEvent(out, "{\"choices\":[{\"index\":0,\"delta\":{\"content\":\" ignored\"}}]}");
+            }
+        });
+        List<String> tokens = new CopyOnWriteArrayList<>();
+
+        // When
+        ChatResponse chatResponse = this.groqChatClient.generateStream(this.chatRequest, token -> {
+            tokens.add(token);
+            this.firstTokenReceived.countDown();
+        });
+
+        // Then
+        assertThat(tokens).containsExactly("Six", " artifacts");
+        assertThat(chatResponse.choices().get(0).message()).isEqualTo(new Message("assistant", "Six artifacts"));
+        assertThat(this.requestBody.get()).contains("\"stream\":true").contains("\"model\":\"llama3-8b-8192\"");
+    }
+
+    @Test
+    void testGenerateStreamTooManyRequests() {
+        // Given
+        this.server.createContext("/openai/v1/chat/completions", exchange -> {
+            byte[] body = "{\"error\":{\"message\":\"Rate limit reached\"}}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(429, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        List<String> tokens = new CopyOnWriteArrayList<>();
+
+        // When
+        Throwable thrown = catchThrowable(() -> this.groqChatClient.generateStream(this.chatRequest, tokens::add));
+
+        // Then
+        assertThat(thrown).isInstanceOf(HttpClientErrorException.TooManyRequests.class);
+        assertThat(tokens).isEmpty();
+    }
+
+    @Test
+    void testReadJoinsMultiLineData() throws IOException {
+        // Given
+        String stream = "event: message\ndata: first line\ndata:second line\n\n: comment\n\ndata: last, without a blank line";
+        List<String> data = new CopyOnWriteArrayList<>();
+
+        // When
+        ServerSentEventReader.read(new BufferedReader(new StringReader(stream)), data::add);
+
+        // Then
+        assertThat(data).containsExactly("first line\nsecond line", "last, without a blank line");
+    }
+
+    private static void writeEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private void awaitFirstToken() throws IOException {
+        try {
+            if (!this.firstTokenReceived.await(5, TimeUnit.SECONDS)) {
+                throw new IOException("The client didn't get the first token before the end of the stream");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+}
@@ -6,18 +6,18 @@ import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatRequest;
 import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatResponse;
 import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.Choice;
 import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.Message;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.test.autoconfigure.web.client.RestClientTest;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.client.MockRestServiceServer;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClient;
 
 import java.util.List;
+import java.util.concurrent.Executors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
@@ -26,17 +26,13 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.*;
 
-@RestClientTest(GroqChatClient.class)
 class GroqChatClientTest {
 
-    @Autowired
     private GroqChatClient groqChatClient;
 
-    @Autowired
     private MockRestServiceServer mockServer;
 
-    @Autowired
-    private ObjectMapper objectMapper;
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
     private String url;
 
@@ -46,12 +42,23 @@ class GroqChatClientTest {
     void setUp() {
         this.url = "https://api.groq.com/openai/v1/chat/completions";
 
+        // Without OutboundHttpClients, which would retry the 5xx, see OutboundHttpClientsTest
+        RestClient.Builder restClientBuilder = RestClient.builder();
+        this.mockServer = MockRestServiceServer.bindTo(restClientBuilder).build();
+        this.groqChatClient = new GroqChatClient(this.url, "api-key", restClientBuilder, this.objectMapper,
+                                                 new ChatRateLimiter(30, 30000, 256), Executors.newSingleThreadExecutor(), 0);
+
         this.chatRequest = new ChatRequest("llama3-8b-8192", List.of(
                 new Message("system", "Your task is to generate a short summary of a given JSON array in at most 100 words. The summary must include the number of artifacts, each artifact's description, and the ownership information. Don't mention that the summary is from a given JSON array."),
                 new Message("user", "A json array.")
         ));
     }
 
+    @AfterEach
+    void tearDown() {
+        this.groqChatClient.shutdown();
+    }
+
     @Test
     void testGenerateSuccess() throws JsonProcessingException {
         // Given
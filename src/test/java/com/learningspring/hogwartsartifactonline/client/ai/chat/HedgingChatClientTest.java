@@ -0,0 +1,240 @@
+package com.learningspring.hogwartsartifactonline.client.ai.chat;
+
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatRequest;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.ChatResponse;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.Choice;
+import com.learningspring.hogwartsartifactonline.client.ai.chat.dto.Message;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class HedgingChatClientTest {
+
+    @Mock
+    ChatClient groq;
+
+    @Mock
+    ChatClient fallback;
+
+    SimpleMeterRegistry meterRegistry;
+
+    HedgingChatClient hedgingChatClient;
+
+    ChatRequest chatRequest;
+
+    @BeforeEach
+    void setUp() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        List<ChatEndpoint> endpoints = List.of(
+                new ChatEndpoint("groq", this.groq, null),
+                new ChatEndpoint("fallback", this.fallback, "llama-3-8b-instruct"));
+        // Hedges after 100ms, until 20 completions were measured
+        this.hedgingChatClient = new HedgingChatClient(endpoints, this.meterRegistry, true, 0.95, Duration.ofMillis(10),
+                                                       Duration.ofMillis(100), 20, Executors.newCachedThreadPool());
+        this.chatRequest = new ChatRequest("llama3-8b-8192", List.of(new Message("user", "A catalog.")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.hedgingChatClient.shutdown();
+    }
+
+    @Test
+    void testFastFirstEndpointIsNotHedged() {
+        // Given
+        given(this.groq.generate(this.chatRequest)).willReturn(response("From Groq"));
+
+        // When
+        ChatResponse chatResponse = this.hedgingChatClient.generate(this.chatRequest);
+
+        // Then
+        assertThat(chatResponse.choices().get(0).message().content()).isEqualTo("From Groq");
+        verify(this.fallback, never()).generate(any());
+        assertThat(this.meterRegistry.counter("ai.chat.hedging", "result", "not-hedged").count()).isEqualTo(1);
+    }
+
+    @Test
+    void testSlowFirstEndpointIsHedgedAndCancelled() throws InterruptedException {
+        // Given
+        CountDownLatch groqCancelled = new CountDownLatch(1);
+        given(this.groq.generate(this.chatRequest)).willAnswer(invocation -> {
+            try {
+                Thread.sleep(5000);
+                return response("From Groq");
+            } catch (InterruptedException e) {
+                groqCancelled.countDown();
+                throw e;
+            }
+        });
+        given(this.fallback.generate(new ChatRequest("llama-3-8b-instruct", this.chatRequest.messages())))
+                .willReturn(response("From the fallback"));
+
+        // When
+        ChatResponse chatResponse = this.hedgingChatClient.generate(this.chatRequest);
+
+        // Then
+        assertThat(chatResponse.choices().get(0).message().content()).isEqualTo("From the fallback");
+        assertThat(groqCancelled.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(this.meterRegistry.counter("ai.chat.hedging", "result", "hedge-won").count()).isEqualTo(1);
+        // the latency of the first request was recorded as well, so 19 more make the 20 samples
+        for (int i = 1; i < 20; i++) {
+            this.hedgingChatClient.recordLatency(Duration.ofMillis(150).toNanos());
+        }
+        assertThat(this.hedgingChatClient.hedgeDelay()).isEqualTo(Duration.ofMillis(150).toNanos());
+    }
+
+    @Test
+    void testSingleEndpointIsNotHedged() throws InterruptedException {
+        // Given
+        HedgingChatClient singleEndpointClient = new HedgingChatClient(List.of(new ChatEndpoint("groq", this.groq, null)), this.meterRegistry,
+                                                                       true, 0.95, Duration.ofMillis(10), Duration.ofMillis(10), 20,
+                                                                       Executors.newCachedThreadPool());
+        given(this.groq.generate(this.chatRequest)).willAnswer(invocation -> {
+            Thread.sleep(200);
+            return response("From Groq");
+        });
+
+        // When
+        ChatResponse chatResponse = singleEndpointClient.generate(this.chatRequest);
+        singleEndpointClient.shutdown();
+
+        // Then
+        assertThat(chatResponse.choices().get(0).message().content()).isEqualTo("From Groq");
+        verify(this.groq, times(1)).generate(this.chatRequest);
+        assertThat(this.meterRegistry.counter("ai.chat.hedging", "result", "not-hedged").count()).isEqualTo(1);
+    }
+
+    @Test
+    void testDisabledHedgingCallsTheEndpointsOnTheCallingThread() {
+        // Given
+        ExecutorService executor = mock(ExecutorService.class);
+        HedgingChatClient notHedgingClient = new HedgingChatClient(List.of(new ChatEndpoint("groq", this.groq, null),
+                                                                           new ChatEndpoint("fallback", this.fallback, "llama-3-8b-instruct")),
+                                                                   this.meterRegistry, false, 0.95, Duration.ofMillis(10),
+                                                                   Duration.ofMillis(10), 20, executor);
+        Thread caller = Thread.currentThread();
+        given(this.groq.generate(this.chatRequest)).willThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+        given(this.fallback.generate(any())).willAnswer(invocation -> response(Thread.currentThread() == caller ? "On the caller" : "Elsewhere"));
+
+        // When
+        ChatResponse chatResponse = notHedgingClient.generate(this.chatRequest);
+
+        // Then
+        assertThat(chatResponse.choices().get(0).message().content()).isEqualTo("On the caller");
+        verifyNoInteractions(executor);
+        assertThat(this.meterRegistry.counter("ai.chat.failovers", "endpoint", "groq").count()).isEqualTo(1);
+        assertThat(this.meterRegistry.counter("ai.chat.hedging", "result", "not-hedged").count()).isEqualTo(1);
+    }
+
+    @Test
+    void testServerErrorFailsOverToTheNextEndpoint() {
+        // Given
+        given(this.groq.generate(this.chatRequest)).willThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+        given(this.fallback.generate(any())).willReturn(response("From the fallback"));
+
+        // When
+        ChatResponse chatResponse = this.hedgingChatClient.generate(this.chatRequest);
+
+        // Then
+        assertThat(chatResponse.choices().get(0).message().content()).isEqualTo("From the fallback");
+        assertThat(this.meterRegistry.counter("ai.chat.failovers", "endpoint", "groq").count()).isEqualTo(1);
+    }
+
+    @Test
+    void testClientErrorIsNotFailedOver() {
+        // Given
+        given(this.groq.generate(this.chatRequest)).willThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST));
+
+        // When and Then
+        assertThatThrownBy(() -> this.hedgingChatClient.generate(this.chatRequest)).isInstanceOf(HttpClientErrorException.class);
+        verify(this.fallback, never()).generate(any());
+    }
+
+    @Test
+    void testAllEndpointsFailing() {
+        // Given
+        given(this.groq.generate(this.chatRequest)).willThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+        given(this.fallback.generate(any())).willThrow(HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", null, null, null));
+
+        // When and Then
+        assertThatThrownBy(() -> this.hedgingChatClient.generate(this.chatRequest))
+                .isInstanceOf(HttpClientErrorException.TooManyRequests.class);
+        assertThat(this.meterRegistry.counter("ai.chat.failovers", "endpoint", "groq").count()).isEqualTo(1);
+        assertThat(this.meterRegistry.counter("ai.chat.failovers", "endpoint", "fallback").count()).isEqualTo(1);
+    }
+
+    @Test
+    void testSlowFirstEndpointAndHedgeFailingAreBothFailedOver() {
+        // Given
+        given(this.groq.generate(this.chatRequest)).willAnswer(invocation -> {
+            Thread.sleep(300); // hedged after 100ms
+            throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+        });
+        given(this.fallback.generate(any())).willThrow(HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", null, null, null));
+
+        // When and Then
+        assertThatThrownBy(() -> this.hedgingChatClient.generate(this.chatRequest)).isInstanceOf(HttpServerErrorException.class);
+        verify(this.fallback, times(1)).generate(any());
+        assertThat(this.meterRegistry.counter("ai.chat.failovers", "endpoint", "groq").count()).isEqualTo(1);
+        assertThat(this.meterRegistry.counter("ai.chat.failovers", "endpoint", "fallback").count()).isEqualTo(1);
+    }
+
+    @Test
+    void testStreamFailsOverOnlyBeforeTheFirstToken() {
+        // Given
+        given(this.groq.generateStream(any(), any())).willThrow(new HttpServerErrorException(HttpStatus.BAD_GATEWAY));
+        given(this.fallback.generateStream(any(), any())).willAnswer(invocation -> {
+            Consumer<String> onToken = invocation.getArgument(1);
+            onToken.accept("From the fallback");
+            return response("From the fallback");
+        });
+        StringBuilder tokens = new StringBuilder();
+
+        // When
+        this.hedgingChatClient.generateStream(this.chatRequest, tokens::append);
+
+        // Then
+        assertThat(tokens.toString()).isEqualTo("From the fallback");
+    }
+
+    @Test
+    void testHedgeDelayFollowsThePercentileOfTheRecentLatencies() {
+        assertThat(this.hedgingChatClient.hedgeDelay()).isEqualTo(Duration.ofMillis(100).toNanos()); // too few samples
+
+        for (int i = 1; i <= 20; i++) {
+            this.hedgingChatClient.recordLatency(Duration.ofMillis(i * 10L).toNanos());
+        }
+
+        assertThat(this.hedgingChatClient.hedgeDelay()).isEqualTo(Duration.ofMillis(190).toNanos()); // the 19th of 20
+    }
+
+    private static ChatResponse response(String content) {
+        return new ChatResponse(List.of(new Choice(0, new Message("assistant", content))));
+    }
+}
@@ -0,0 +1,49 @@
+package com.learningspring.hogwartsartifactonline.client.ai.embedding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LocalEmbeddingClientTest {
+
+    LocalEmbeddingClient localEmbeddingClient = new LocalEmbeddingClient(128);
+
+    @Test
+    void testEmbedReturnsUnitVectorsOfTheConfiguredLength() {
+        // When
+        float[] vector = this.localEmbeddingClient.embed("An invisibility cloak is used to make the wearer invisible.");
+
+        // Then
+        assertThat(vector).hasSize(128);
+        assertThat(dot(vector, vector)).isCloseTo(1f, within(1e-5f));
+    }
+
+    @Test
+    void testEmbedIgnoresCasePunctuationAndStopWords() {
+        assertThat(this.localEmbeddingClient.embed("The Elder Wand")).isEqualTo(this.localEmbeddingClient.embed("elder  WAND!"));
+    }
+
+    @Test
+    void testSimilarWordsGiveCloseVectors() {
+        // When
+        List<float[]> vectors = this.localEmbeddingClient.embedAll(List.of(
+                "things that make you invisible",
+                "Invisibility Cloak. An invisibility cloak is used to make the wearer invisible.",
+                "Elder Wand. An extremely powerful wand made of elder wood with a core of Thestral tail hair."
+        ));
+
+        // Then
+        assertThat(dot(vectors.get(0), vectors.get(1))).isGreaterThan(dot(vectors.get(0), vectors.get(2)) + 0.2f);
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+}
@@ -0,0 +1,69 @@
+package com.learningspring.hogwartsartifactonline.client.ai.embedding;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class OpenAiEmbeddingClientTest {
+
+    private OpenAiEmbeddingClient openAiEmbeddingClient;
+
+    private MockRestServiceServer mockServer;
+
+    private String url;
+
+    @BeforeEach
+    void setUp() {
+        this.url = "https://api.openai.com/v1/embeddings";
+
+        RestClient.Builder restClientBuilder = RestClient.builder();
+        this.mockServer = MockRestServiceServer.bindTo(restClientBuilder).build();
+        this.openAiEmbeddingClient = new OpenAiEmbeddingClient(this.url, "api-key", restClientBuilder, "text-embedding-3-small", 2, 2);
+    }
+
+    @Test
+    void testEmbedAllSendsTheTextsInBatchesAndNormalizesTheVectors() {
+        // Given
+        this.mockServer.expect(requestTo(this.url))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(header("Authorization", startsWith("Bearer ")))
+                .andExpect(content().json("{\"model\": \"text-embedding-3-small\", \"input\": [\"Deluminator\", \"Elder Wand\"], \"dimensions\": 2}"))
+                .andRespond(withSuccess("""
+                        {"data": [{"index": 1, "embedding": [0, 2]}, {"index": 0, "embedding": [3, 4]}]}""", MediaType.APPLICATION_JSON));
+        this.mockServer.expect(requestTo(this.url))
+                .andExpect(content().json("{\"input\": [\"Invisibility Cloak\"]}"))
+                .andRespond(withSuccess("""
+                        {"data": [{"index": 0, "embedding": [1, 0]}]}""", MediaType.APPLICATION_JSON));
+
+        // When
+        List<float[]> vectors = this.openAiEmbeddingClient.embedAll(List.of("Deluminator", "Elder Wand", "Invisibility Cloak"));
+
+        // Then
+        this.mockServer.verify();
+        assertThat(vectors).containsExactly(new float[]{0.6f, 0.8f}, new float[]{0, 1}, new float[]{1, 0});
+    }
+
+    @Test
+    void testEmbedFailsOnVectorsOfAnotherLength() {
+        // Given
+        this.mockServer.expect(requestTo(this.url))
+                .andRespond(withSuccess("""
+                        {"data": [{"index": 0, "embedding": [1, 0, 0]}]}""", MediaType.APPLICATION_JSON));
+
+        // When and Then
+        assertThatThrownBy(() -> this.openAiEmbeddingClient.embed("Deluminator"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Expected embeddings of 2 dimensions from model text-embedding-3-small, got 3");
+    }
+}
@@ -0,0 +1,136 @@
+package com.learningspring.hogwartsartifactonline.client.http;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.http.HttpMethod;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServiceUnavailable;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class OutboundHttpClientsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private OutboundHttpClients outboundHttpClients;
+
+    @BeforeEach
+    void setUp() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        Binder binder = new Binder(new MapConfigurationPropertySource(Map.ofEntries(
+                Map.entry("outbound-http.defaults.read-timeout", "10s"),
+                Map.entry("outbound-http.defaults.max-concurrent-requests", "20"),
+                Map.entry("outbound-http.defaults.max-wait", "0ms"),
+                Map.entry("outbound-http.defaults.max-retries", "2"),
+                Map.entry("outbound-http.defaults.backoff", "1ms"),
+                Map.entry("outbound-http.defaults.max-backoff", "5ms"),
+                Map.entry("outbound-http.defaults.max-retry-time", "10s"),
+                Map.entry("outbound-http.defaults.retry-methods", "GET, PUT"),
+                Map.entry("outbound-http.clients.model.read-timeout", "60s"),
+                Map.entry("outbound-http.clients.model.max-concurrent-requests", "1"),
+                Map.entry("outbound-http.clients.model.retry-methods", "POST"),
+                Map.entry("outbound-http.clients.slow.backoff", "100ms"),
+                Map.entry("outbound-http.clients.slow.max-backoff", "100ms"),
+                Map.entry("outbound-http.clients.slow.max-retry-time", "0ms")
+        )));
+        this.outboundHttpClients = new OutboundHttpClients(HttpClient.newHttpClient(), binder, this.meterRegistry);
+    }
+
+    @Test
+    void testSettingsOfATargetOverrideTheDefaults() {
+        OutboundHttpSettings settings = this.outboundHttpClients.settings("model");
+
+        assertThat(settings.readTimeout()).isEqualTo(Duration.ofSeconds(60));
+        assertThat(settings.maxConcurrentRequests()).isEqualTo(1);
+        assertThat(settings.maxRetries()).isEqualTo(2); // the default
+        assertThat(settings.retryMethods()).containsExactly(HttpMethod.POST);
+        assertThat(this.outboundHttpClients.settings("storage").retryMethods()).isEqualTo(Set.of(HttpMethod.GET, HttpMethod.PUT));
+    }
+
+    @Test
+    void testRetryMethodIsRetriedOnServiceUnavailable() {
+        // Given
+        RestClient.Builder builder = this.outboundHttpClients.builder("storage");
+        MockRestServiceServer mockServer = MockRestServiceServer.bindTo(builder).build();
+        mockServer.expect(requestTo("http://storage/images")).andExpect(method(HttpMethod.GET)).andRespond(withServiceUnavailable());
+        mockServer.expect(requestTo("http://storage/images")).andExpect(method(HttpMethod.GET)).andRespond(withSuccess("[]", null));
+
+        // When
+        String body = builder.build().get().uri("http://storage/images").retrieve().body(String.class);
+
+        // Then
+        mockServer.verify();
+        assertThat(body).isEqualTo("[]");
+        assertThat(this.meterRegistry.get("outbound.http.retries").tag("target", "storage").counter().count()).isEqualTo(1);
+        assertThat(this.meterRegistry.get("outbound.http.requests").tag("target", "storage").tag("status", "503").timer().count()).isEqualTo(1);
+        assertThat(this.meterRegistry.get("outbound.http.requests").tag("target", "storage").tag("status", "200").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void testNoRetryIsStartedAfterTheMaxRetryTime() {
+        // Given
+        RestClient.Builder builder = this.outboundHttpClients.builder("slow");
+        MockRestServiceServer mockServer = MockRestServiceServer.bindTo(builder).build();
+        mockServer.expect(requestTo("http://slow/images")).andExpect(method(HttpMethod.GET)).andRespond(withServiceUnavailable());
+
+        // When
+        Throwable thrown = catchThrowable(() -> builder.build().get().uri("http://slow/images").retrieve().body(String.class));
+
+        // Then
+        mockServer.verify();
+        assertThat(thrown).isInstanceOf(HttpServerErrorException.ServiceUnavailable.class);
+        assertThat(this.meterRegistry.get("outbound.http.retries").tag("target", "slow").counter().count()).isZero();
+    }
+
+    @Test
+    void testOtherMethodIsNotRetried() {
+        // Given
+        RestClient.Builder builder = this.outboundHttpClients.builder("storage");
+        MockRestServiceServer mockServer = MockRestServiceServer.bindTo(builder).build();
+        mockServer.expect(requestTo("http://storage/images")).andExpect(method(HttpMethod.POST)).andRespond(withServiceUnavailable());
+
+        // When
+        Throwable thrown = catchThrowable(() -> builder.build().post().uri("http://storage/images").retrieve().toBodilessEntity());
+
+        // Then
+        mockServer.verify();
+        assertThat(thrown).isInstanceOf(HttpServerErrorException.ServiceUnavailable.class);
+    }
+
+    @Test
+    void testBulkheadRejectsRequestsOverTheLimitUntilTheResponseIsClosed() {
+        // Given
+        RestClient.Builder builder = this.outboundHttpClients.builder("model");
+        MockRestServiceServer mockServer = MockRestServiceServer.bindTo(builder).build();
+        mockServer.expect(requestTo("http://model/chat")).andRespond(withSuccess("first", null));
+        mockServer.expect(requestTo("http://model/chat")).andRespond(withSuccess("third", null));
+        RestClient restClient = builder.build();
+
+        // When
+        Throwable thrown = restClient.post().uri("http://model/chat").exchange((request, response) ->
+                // the first response is still open, like a streamed completion
+                catchThrowable(() -> restClient.post().uri("http://model/chat").retrieve().body(String.class)));
+        String third = restClient.post().uri("http://model/chat").retrieve().body(String.class);
+
+        // Then
+        assertThat(thrown).isInstanceOf(ResourceAccessException.class).hasCauseInstanceOf(OutboundBulkheadFullException.class);
+        assertThat(third).isEqualTo("third");
+        assertThat(this.meterRegistry.get("outbound.http.rejected").tag("target", "model").counter().count()).isEqualTo(1);
+        mockServer.verify();
+    }
+}
@@ -0,0 +1,176 @@
+package com.learningspring.hogwartsartifactonline.client.imagestorage;
+
+import com.learningspring.hogwartsartifactonline.system.exception.ImageTooLargeException;
+import com.learningspring.hogwartsartifactonline.system.exception.ImageUploadRejectedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParallelBlockUploaderTest {
+
+    private static final int BLOCK_SIZE = 1024;
+
+    ExecutorService executor;
+
+    UploadBufferPool bufferPool;
+
+    ParallelBlockUploader parallelBlockUploader;
+
+    @BeforeEach
+    void setUp() {
+        this.executor = Executors.newFixedThreadPool(8);
+        this.bufferPool = new UploadBufferPool(BLOCK_SIZE, 16, Duration.ofMillis(100));
+        this.parallelBlockUploader = new ParallelBlockUploader(this.bufferPool, this.executor, 4, 100 * BLOCK_SIZE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    void testUploadStagesEveryBlockAndCommitsThem() throws IOException {
+        // Given
+        byte[] image = randomBytes(10 * BLOCK_SIZE + 17);
+        InMemoryBlockStore store = new InMemoryBlockStore();
+
+        // When
+        long size = this.parallelBlockUploader.upload(new ByteArrayInputStream(image), store);
+
+        // Then
+        assertThat(size).isEqualTo(image.length);
+        assertThat(store.committedBlocks).isEqualTo(11);
+        assertThat(store.image()).isEqualTo(image);
+        assertThat(this.bufferPool.available()).isEqualTo(16);
+    }
+
+    @Test
+    void testUploadOfAnEmptyImageCommitsNoBlock() throws IOException {
+        // Given
+        InMemoryBlockStore store = new InMemoryBlockStore();
+
+        // When
+        long size = this.parallelBlockUploader.upload(new ByteArrayInputStream(new byte[0]), store);
+
+        // Then
+        assertThat(size).isZero();
+        assertThat(store.committedBlocks).isZero();
+        assertThat(store.blocks).isEmpty();
+    }
+
+    @Test
+    void testUploadHoldsAtMostMaxBlocksInFlight() throws IOException {
+        // Given: blocks slower to stage than to read
+        AtomicInteger staging = new AtomicInteger();
+        AtomicInteger maxStaging = new AtomicInteger();
+        InMemoryBlockStore store = new InMemoryBlockStore() {
+            @Override
+            public void stageBlock(int index, byte[] block, int length) throws IOException {
+                maxStaging.accumulateAndGet(staging.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.stageBlock(index, block, length);
+                staging.decrementAndGet();
+            }
+        };
+
+        // When
+        this.parallelBlockUploader.upload(new ByteArrayInputStream(randomBytes(50 * BLOCK_SIZE)), store);
+
+        // Then: the memory of the upload is a few blocks, whatever the size of the image
+        assertThat(maxStaging.get()).isGreaterThan(1).isLessThanOrEqualTo(4);
+        assertThat(this.bufferPool.allocated()).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    void testUploadFailsWithoutCommittingWhenABlockCantBeStaged() {
+        // Given
+        InMemoryBlockStore store = new InMemoryBlockStore() {
+            @Override
+            public void stageBlock(int index, byte[] block, int length) throws IOException {
+                if (index == 3) {
+                    throw new IOException("Connection reset");
+                }
+                super.stageBlock(index, block, length);
+            }
+        };
+
+        // When and Then
+        assertThatThrownBy(() -> this.parallelBlockUploader.upload(new ByteArrayInputStream(randomBytes(50 * BLOCK_SIZE)), store))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Connection reset");
+        assertThat(store.committedBlocks).isEqualTo(-1);
+        assertThat(this.bufferPool.available()).isEqualTo(16);
+    }
+
+    @Test
+    void testUploadRejectsAnImageLargerThanMaxSize() {
+        // When and Then
+        assertThatThrownBy(() -> this.parallelBlockUploader.upload(new ByteArrayInputStream(randomBytes(100 * BLOCK_SIZE + 1)), new InMemoryBlockStore()))
+                .isInstanceOf(ImageTooLargeException.class)
+                .hasMessage("The image is larger than the maximum of 102400 bytes.");
+        assertThat(this.bufferPool.available()).isEqualTo(16);
+    }
+
+    @Test
+    void testUploadIsRejectedWhenEveryBufferIsInUse() throws InterruptedException {
+        // Given: the other uploads hold every buffer
+        for (int i = 0; i < 16; i++) {
+            this.bufferPool.acquire();
+        }
+
+        // When and Then
+        assertThatThrownBy(() -> this.parallelBlockUploader.upload(new ByteArrayInputStream(randomBytes(BLOCK_SIZE)), new InMemoryBlockStore()))
+                .isInstanceOf(ImageUploadRejectedException.class)
+                .hasMessage("Too many images are being uploaded, please try again later.");
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    static class InMemoryBlockStore implements ParallelBlockUploader.BlockStore {
+
+        final Map<Integer, byte[]> blocks = new ConcurrentHashMap<>();
+
+        volatile int committedBlocks = -1;
+
+        @Override
+        public void stageBlock(int index, byte[] block, int length) throws IOException {
+            this.blocks.put(index, Arrays.copyOf(block, length)); // the buffer goes back to the pool
+        }
+
+        @Override
+        public void commit(int blockCount) {
+            this.committedBlocks = blockCount;
+        }
+
+        byte[] image() throws IOException {
+            ByteArrayOutputStream image = new ByteArrayOutputStream();
+            for (int i = 0; i < this.committedBlocks; i++) {
+                image.write(this.blocks.get(i));
+            }
+            return image.toByteArray();
+        }
+    }
+}
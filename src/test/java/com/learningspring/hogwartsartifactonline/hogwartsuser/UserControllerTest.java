@@ -79,7 +79,9 @@ public class UserControllerTest {
     @Test
     void testFindAllSuccess() throws Exception {
         // Given
-        given(this.userService.findAll()).willReturn(this.users);
+        given(this.userService.findAllDtos()).willReturn(this.users.stream()
+                .map(user -> new UserDto(user.getId(), user.getUsername(), user.isEnabled(), user.getRoles()))
+                .toList());
 
         // When and then
         this.mockMvc.perform(get(this.baseUrl + "/users").accept(MediaType.APPLICATION_JSON))
@@ -0,0 +1,42 @@
+package com.learningspring.hogwartsartifactonline.hogwartsuser;
+
+import com.learningspring.hogwartsartifactonline.hogwartsuser.dto.UserDto;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class UserRepositoryTest {
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Test
+    void testFindAllDtos() {
+        // Given
+        HogwartsUser user = new HogwartsUser();
+        user.setUsername("john");
+        user.setPassword("123456");
+        user.setEnabled(true);
+        user.setRoles("admin user");
+        this.entityManager.persist(user);
+        this.entityManager.flush();
+        this.entityManager.clear();
+
+        // When
+        List<UserDto> userDtos = this.userRepository.findAllDtos();
+
+        // Then
+        assertThat(userDtos).containsExactly(new UserDto(user.getId(), "john", true, "admin user"));
+        assertThat(this.entityManager.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+}
@@ -0,0 +1,28 @@
+package com.learningspring.hogwartsartifactonline.system;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContentCodingsTest {
+
+    @Test
+    void testAcceptsGzip() {
+        assertThat(ContentCodings.acceptsGzip("gzip")).isTrue();
+        assertThat(ContentCodings.acceptsGzip("deflate, GZIP;q=0.5")).isTrue();
+        assertThat(ContentCodings.acceptsGzip("br, *")).isTrue();
+        assertThat(ContentCodings.acceptsGzip("x-gzip")).isTrue();
+    }
+
+    @Test
+    void testRefusesGzip() {
+        assertThat(ContentCodings.acceptsGzip(null)).isFalse();
+        assertThat(ContentCodings.acceptsGzip("")).isFalse();
+        assertThat(ContentCodings.acceptsGzip("identity")).isFalse();
+        assertThat(ContentCodings.acceptsGzip("gzip;q=0, deflate")).isFalse();
+        assertThat(ContentCodings.acceptsGzip("gzip; q=0.000")).isFalse();
+        assertThat(ContentCodings.acceptsGzip("*, gzip;q=0")).isFalse();
+        assertThat(ContentCodings.acceptsGzip("*;q=0")).isFalse();
+        assertThat(ContentCodings.acceptsGzip("not-gzip, gzipped")).isFalse();
+    }
+}
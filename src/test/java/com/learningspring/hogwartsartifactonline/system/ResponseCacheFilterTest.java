@@ -0,0 +1,215 @@
+package com.learningspring.hogwartsartifactonline.system;
+
+import com.learningspring.hogwartsartifactonline.artifact.cache.CatalogVersion;
+import com.learningspring.hogwartsartifactonline.security.JwtInterceptor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class ResponseCacheFilterTest {
+
+    private static final String BODY = "{\"flag\":true,\"code\":200,\"message\":\"Find All Success\",\"data\":[]}";
+
+    @Mock
+    CatalogVersion catalogVersion;
+
+    @Mock
+    JwtInterceptor jwtInterceptor;
+
+    SimpleMeterRegistry meterRegistry;
+
+    ResponseCacheFilter responseCacheFilter;
+
+    AtomicInteger controllerCalls;
+
+    @BeforeEach
+    void setUp() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.responseCacheFilter = new ResponseCacheFilter(this.catalogVersion, this.jwtInterceptor, this.meterRegistry,
+                                                           "/api/v1", 3, DataSize.ofMegabytes(1), Duration.ofMinutes(10));
+        this.controllerCalls = new AtomicInteger();
+    }
+
+    @Test
+    void testSecondRequestIsServedFromTheCache() throws Exception {
+        // Given
+        given(this.catalogVersion.current()).willReturn(1L);
+        given(this.jwtInterceptor.preHandle(any(), any(), any())).willReturn(true);
+        this.perform(get("/api/v1/artifacts"));
+
+        // When
+        MockHttpServletResponse response = this.perform(get("/api/v1/artifacts"));
+
+        // Then
+        assertThat(this.controllerCalls.get()).isEqualTo(1);
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(BODY);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"v1\"");
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("no-cache, public");
+        assertThat(this.meterRegistry.counter("api.response.cache", "result", "hit").count()).isEqualTo(1);
+    }
+
+    @Test
+    void testGzipVariantAndNotModified() throws Exception {
+        // Given
+        given(this.catalogVersion.current()).willReturn(1L);
+        given(this.jwtInterceptor.preHandle(any(), any(), any())).willReturn(true);
+        this.perform(get("/api/v1/wizards"));
+
+        // When
+        MockHttpServletRequest gzipRequest = get("/api/v1/wizards");
+        gzipRequest.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+        MockHttpServletResponse gzipResponse = this.perform(gzipRequest);
+        MockHttpServletRequest conditionalRequest = get("/api/v1/wizards");
+        conditionalRequest.addHeader(HttpHeaders.IF_NONE_MATCH, "\"v1\"");
+        MockHttpServletResponse notModifiedResponse = this.perform(conditionalRequest);
+        MockHttpServletRequest conditionalGzipRequest = get("/api/v1/wizards");
+        conditionalGzipRequest.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        conditionalGzipRequest.addHeader(HttpHeaders.IF_NONE_MATCH, "\"v1\"");
+        MockHttpServletResponse otherVariantResponse = this.perform(conditionalGzipRequest);
+
+        // Then
+        assertThat(this.controllerCalls.get()).isEqualTo(1);
+        assertThat(gzipResponse.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(gzipResponse.getHeader(HttpHeaders.ETAG)).isEqualTo("\"v1-gzip\"");
+        assertThat(gunzip(gzipResponse.getContentAsByteArray())).isEqualTo(BODY);
+        assertThat(notModifiedResponse.getStatus()).isEqualTo(304);
+        assertThat(notModifiedResponse.getContentAsByteArray()).isEmpty();
+        assertThat(otherVariantResponse.getStatus()).isEqualTo(200); // the plain variant's tag doesn't validate the gzip one
+    }
+
+    @Test
+    void testGzipRefusedWithAZeroQuality() throws Exception {
+        // Given
+        given(this.catalogVersion.current()).willReturn(1L);
+        given(this.jwtInterceptor.preHandle(any(), any(), any())).willReturn(true);
+        this.perform(get("/api/v1/wizards"));
+
+        // When
+        MockHttpServletRequest request = get("/api/v1/wizards");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, deflate");
+        MockHttpServletResponse response = this.perform(request);
+
+        // Then
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"v1\"");
+        assertThat(response.getContentAsString()).isEqualTo(BODY);
+    }
+
+    @Test
+    void testBumpedCatalogVersionIsAMiss() throws Exception {
+        // Given
+        given(this.catalogVersion.current()).willReturn(1L);
+        this.perform(get("/api/v1/artifacts"));
+
+        // When
+        given(this.catalogVersion.current()).willReturn(2L); // a write committed
+        this.perform(get("/api/v1/artifacts"));
+
+        // Then
+        assertThat(this.controllerCalls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void testKeysIncludeQueryAndAccept() throws Exception {
+        // Given
+        given(this.catalogVersion.current()).willReturn(1L);
+        MockHttpServletRequest request = get("/api/v1/artifacts");
+        request.setParameter("page", "0");
+        request.setParameter("size", "20");
+        MockHttpServletRequest reordered = get("/api/v1/artifacts");
+        reordered.setParameter("size", "20");
+        reordered.setParameter("page", "0");
+        MockHttpServletRequest otherPage = get("/api/v1/artifacts");
+        otherPage.setParameter("page", "1");
+        MockHttpServletRequest otherAccept = get("/api/v1/artifacts");
+        otherAccept.addHeader(HttpHeaders.ACCEPT, "application/json");
+
+        // When and then
+        assertThat(this.responseCacheFilter.keyFor(reordered)).isEqualTo(this.responseCacheFilter.keyFor(request));
+        assertThat(this.responseCacheFilter.keyFor(otherPage)).isNotEqualTo(this.responseCacheFilter.keyFor(request));
+        assertThat(this.responseCacheFilter.keyFor(otherAccept)).isNotEqualTo(this.responseCacheFilter.keyFor(get("/api/v1/artifacts")));
+    }
+
+    @Test
+    void testOnlyTheFirstPagesAreCached() {
+        MockHttpServletRequest laterPage = get("/api/v1/artifacts");
+        laterPage.setParameter("page", "3");
+        MockHttpServletRequest laterCursorPage = get("/api/v1/artifacts");
+        laterCursorPage.setParameter("limit", "20");
+        laterCursorPage.setParameter("after", "MTI1MDgwODYwMTc0NDkwNDE5MQ");
+        MockHttpServletRequest estimatedTotal = get("/api/v1/artifacts");
+        estimatedTotal.setParameter("total", "estimated");
+        MockHttpServletRequest post = new MockHttpServletRequest("POST", "/api/v1/artifacts");
+
+        assertThat(this.responseCacheFilter.shouldNotFilter(laterPage)).isTrue();
+        assertThat(this.responseCacheFilter.shouldNotFilter(laterCursorPage)).isTrue();
+        assertThat(this.responseCacheFilter.shouldNotFilter(estimatedTotal)).isTrue();
+        assertThat(this.responseCacheFilter.shouldNotFilter(post)).isTrue();
+        assertThat(this.responseCacheFilter.shouldNotFilter(get("/api/v1/artifacts/1250808601744904191"))).isTrue();
+        assertThat(this.responseCacheFilter.shouldNotFilter(get("/api/v1/wizards"))).isFalse();
+    }
+
+    @Test
+    void testRevokedTokenIsNotServedFromTheCache() throws Exception {
+        // Given
+        given(this.catalogVersion.current()).willReturn(1L);
+        given(this.jwtInterceptor.preHandle(any(), any(), any())).willThrow(new BadCredentialsException("Invalid token"));
+        this.perform(get("/api/v1/wizards"));
+
+        // When
+        this.perform(get("/api/v1/wizards"));
+
+        // Then: the request went down the chain, where the DispatcherServlet turns the exception into an error response
+        assertThat(this.controllerCalls.get()).isEqualTo(2);
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        this.responseCacheFilter.doFilter(request, response, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                ResponseCacheFilterTest.this.controllerCalls.incrementAndGet();
+                resp.setContentType("application/json");
+                resp.setHeader(HttpHeaders.ETAG, "\"v1\"");
+                resp.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache, public");
+                resp.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+            }
+        }));
+        return response;
+    }
+
+    private static MockHttpServletRequest get(String uri) {
+        return new MockHttpServletRequest("GET", uri);
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
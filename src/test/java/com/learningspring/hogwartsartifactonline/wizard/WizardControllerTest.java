@@ -14,6 +14,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
@@ -26,7 +27,10 @@ import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @AutoConfigureMockMvc(addFilters = false)
@@ -108,10 +112,13 @@ public class WizardControllerTest {
     @Test
     void testFindWizardByIdSuccess() throws Exception {
         // Given
+        given(this.wizardService.findVersionById(1)).willReturn(wizardVersion(0L, 3));
         given(this.wizardService.findById(1)).willReturn(this.wizards.get(0));
 
         // When and then
         this.mockMvc.perform(get(this.baseUrl + "/wizards/1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andExpect(header().exists(HttpHeaders.ETAG))
                 .andExpect(jsonPath("$.flag").value(true))
                 .andExpect(jsonPath("$.code").value(StatusCode.SUCCESS))
                 .andExpect(jsonPath("$.message").value("Find One Success"))
@@ -123,7 +130,7 @@ public class WizardControllerTest {
     @Test
     void testFindWizardByIdNotFound() throws Exception {
         // Given
-        given(this.wizardService.findById(1)).willThrow(new ObjectNotFoundException("wizard", 1));
+        given(this.wizardService.findVersionById(1)).willThrow(new ObjectNotFoundException("wizard", 1));
 
         // When and then
         this.mockMvc.perform(get(this.baseUrl + "/wizards/1").accept(MediaType.APPLICATION_JSON))
@@ -133,10 +140,31 @@ public class WizardControllerTest {
                 .andExpect(jsonPath("$.data").isEmpty());
     }
 
+    @Test
+    void testFindWizardByIdNotModifiedIsAnsweredFromTheVersion() throws Exception {
+        // Given
+        given(this.wizardService.findVersionById(1)).willReturn(wizardVersion(2L, 3));
+        given(this.wizardService.findById(1)).willReturn(this.wizards.get(0));
+        String etag = this.mockMvc.perform(get(this.baseUrl + "/wizards/1").accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        Mockito.clearInvocations(this.wizardService);
+
+        // When and then: the wizard itself is not loaded
+        this.mockMvc.perform(get(this.baseUrl + "/wizards/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        Mockito.verify(this.wizardService, Mockito.never()).findById(1);
+
+        // An artifact was assigned to the wizard
+        given(this.wizardService.findVersionById(1)).willReturn(wizardVersion(2L, 4));
+        this.mockMvc.perform(get(this.baseUrl + "/wizards/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
     @Test
     void testFindAllWizardsSuccess() throws Exception {
         // Given
-        given(this.wizardService.findAll()).willReturn(this.wizards);
+        given(this.wizardService.findAllDtos()).willReturn(List.of(new WizardDto(1, "Harry", 3), new WizardDto(2, "Potter", 3)));
 
 
         // When and then
@@ -277,4 +305,18 @@ public class WizardControllerTest {
                 .andExpect(jsonPath("$.message").value("Could not find artifact with Id 1250808601744904199 :("))
                 .andExpect(jsonPath("$.data").isEmpty());
     }
+
+    private static WizardVersion wizardVersion(Long version, Integer numberOfArtifacts) {
+        return new WizardVersion() {
+            @Override
+            public Long getVersion() {
+                return version;
+            }
+
+            @Override
+            public Integer getNumberOfArtifacts() {
+                return numberOfArtifacts;
+            }
+        };
+    }
 }
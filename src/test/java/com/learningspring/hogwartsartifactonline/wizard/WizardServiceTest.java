@@ -2,6 +2,9 @@ package com.learningspring.hogwartsartifactonline.wizard;
 
 import com.learningspring.hogwartsartifactonline.artifact.Artifact;
 import com.learningspring.hogwartsartifactonline.artifact.ArtifactRepository;
+import com.learningspring.hogwartsartifactonline.artifact.cache.ArtifactCache;
+import com.learningspring.hogwartsartifactonline.artifact.cache.CatalogVersion;
+import com.learningspring.hogwartsartifactonline.artifact.summary.ArtifactDigestService;
 import com.learningspring.hogwartsartifactonline.artifact.utils.IdWorker;
 import com.learningspring.hogwartsartifactonline.system.exception.ObjectNotFoundException;
 import org.junit.jupiter.api.AfterEach;
@@ -33,6 +36,15 @@ public class WizardServiceTest {
     @Mock
     ArtifactRepository artifactRepository;
 
+    @Mock
+    ArtifactCache artifactCache;
+
+    @Mock
+    CatalogVersion catalogVersion;
+
+    @Mock
+    ArtifactDigestService artifactDigestService;
+
     @InjectMocks
     WizardService wizardService;
 
@@ -114,6 +126,20 @@ public class WizardServiceTest {
         verify(this.wizardRepository, times(1)).findById(1);
     }
 
+    @Test
+    void testFindVersionByIdNotFound() {
+        // Given
+        given(this.wizardRepository.findVersionById(1)).willReturn(Optional.empty());
+
+        // When
+        Throwable thrown = catchThrowable(() -> this.wizardService.findVersionById(1));
+
+        // Then
+        assertThat(thrown)
+                .isInstanceOf(ObjectNotFoundException.class)
+                .hasMessage("Could not find wizard with Id 1 :(");
+    }
+
     @Test
     void testFindAllSuccess() {
         // Given
@@ -144,6 +170,7 @@ public class WizardServiceTest {
         assertThat(savedWizard.getName()).isEqualTo("Harry");
         assertThat(savedWizard.getArtifacts()).isEmpty();
         verify(this.wizardRepository, times(1)).save(newWizard);
+        verify(this.catalogVersion, times(1)).bump();
     }
 
     @Test
@@ -241,6 +268,10 @@ public class WizardServiceTest {
         // Then
         assertThat(a.getOwner().getId()).isEqualTo(3);
         assertThat(w3.getArtifacts()).contains(a);
+        verify(this.artifactCache, times(1)).evictArtifactsOf(w2);
+        verify(this.artifactCache, times(1)).evictArtifactsOf(w3);
+        verify(this.artifactDigestService, times(1)).enqueue(List.of("1250808601744904192"));
+        verify(this.catalogVersion, times(1)).bump();
     }
 
     @Test